@@ -1,13 +1,18 @@
 package no.cantara.stingray.sample.greeter;
 
+import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DefaultGreetingCandidateRepository implements GreetingCandidateRepository {
 
     final List<GreetingCandidate> candidates = new CopyOnWriteArrayList<>();
+    final long createdAt = System.currentTimeMillis();
+    final AtomicLong modificationCount = new AtomicLong();
+    volatile Instant lastModified = Instant.now();
 
     public DefaultGreetingCandidateRepository(List<String> greetingCandidates) {
         greetingCandidates.stream()
@@ -22,5 +27,15 @@ public class DefaultGreetingCandidateRepository implements GreetingCandidateRepo
     public void addCandidate(GreetingCandidate candidate) {
         Objects.requireNonNull(candidate);
         candidates.add(candidate);
+        modificationCount.incrementAndGet();
+        lastModified = Instant.now();
+    }
+
+    public String version() {
+        return createdAt + "-" + modificationCount.get();
+    }
+
+    public Instant lastModified() {
+        return lastModified;
     }
 }
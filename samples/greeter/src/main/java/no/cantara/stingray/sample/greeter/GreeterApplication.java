@@ -3,6 +3,7 @@ package no.cantara.stingray.sample.greeter;
 import com.codahale.metrics.MetricRegistry;
 import no.cantara.config.ApplicationProperties;
 import no.cantara.stingray.application.AbstractStingrayApplication;
+import no.cantara.stingray.application.caching.StingrayHttpCachingFeature;
 import no.cantara.stingray.application.health.StingrayHealthService;
 import no.cantara.stingray.security.StingraySecurity;
 import org.slf4j.Logger;
@@ -32,6 +33,7 @@ public class GreeterApplication extends AbstractStingrayApplication<GreeterAppli
     public void doInit() {
         initBuiltinDefaults();
         StingraySecurity.initSecurity(this);
+        initAndRegisterJaxRsWsComponent(StingrayHttpCachingFeature.class, StingrayHttpCachingFeature::new);
         init(GreetingCandidateRepository.class, this::createGreetingCandidateRepository);
         init(RandomizerClient.class, this::createHttpRandomizer);
         init(GreetingService.class, this::createGreetingService);
@@ -1,5 +1,6 @@
 package no.cantara.stingray.sample.greeter;
 
+import java.time.Instant;
 import java.util.List;
 
 public interface GreetingCandidateRepository {
@@ -7,4 +8,11 @@ public interface GreetingCandidateRepository {
     List<GreetingCandidate> greetingCandidates();
 
     void addCandidate(GreetingCandidate candidate);
+
+    /**
+     * @return a value that changes whenever the candidates change, unique across restarts.
+     */
+    String version();
+
+    Instant lastModified();
 }
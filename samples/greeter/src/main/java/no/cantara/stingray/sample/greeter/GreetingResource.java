@@ -13,10 +13,15 @@ import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.SecurityContext;
+import no.cantara.stingray.application.caching.StingrayHttpCaching;
+import no.cantara.stingray.application.caching.StingrayResourceVersion;
 import no.cantara.stingray.security.application.StingrayAction;
+import no.cantara.stingray.security.application.StingrayCached;
 import no.cantara.stingray.security.application.StingrayPrincipal;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 @Path("/greet")
@@ -63,10 +68,28 @@ public class GreetingResource {
     @Path("/candidates")
     @Produces(MediaType.APPLICATION_JSON)
     @StingrayAction("listCandidates")
+    @StingrayHttpCaching(version = "candidatesVersion")
     @Timed
     public List<GreetingCandidate> listCandidates() {
         requestCount.incrementAndGet();
         List<GreetingCandidate> greetingCandidates = greetingService.listCandidates();
         return greetingCandidates;
     }
+
+    @GET
+    @Path("/statistics")
+    @Produces(MediaType.APPLICATION_JSON)
+    @StingrayAction("statistics")
+    @StingrayCached(ttl = 10, varyBy = StingrayCached.Vary.GROUPS)
+    @Timed
+    public Map<String, Long> statistics() {
+        requestCount.incrementAndGet();
+        return greetingService.statistics();
+    }
+
+    public StingrayResourceVersion candidatesVersion() {
+        // last-modified first, a concurrent modification then yields a new version with an old date, never the reverse
+        Instant lastModified = greetingService.candidatesLastModified();
+        return StingrayResourceVersion.of(greetingService.candidatesVersion(), lastModified);
+    }
 }
@@ -4,6 +4,8 @@ import com.codahale.metrics.Counter;
 import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricRegistry;
 
+import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentSkipListMap;
@@ -37,4 +39,21 @@ public class GreetingService {
     public List<GreetingCandidate> listCandidates() {
         return greetingCandidateRepository.greetingCandidates();
     }
+
+    /**
+     * @return the number of times each greeting candidate has been chosen.
+     */
+    public Map<String, Long> statistics() {
+        Map<String, Long> countByGreeting = new LinkedHashMap<>();
+        candidateCountersMap.forEach((greeting, counter) -> countByGreeting.put(greeting, ((Counter) counter).getCount()));
+        return countByGreeting;
+    }
+
+    public String candidatesVersion() {
+        return greetingCandidateRepository.version();
+    }
+
+    public Instant candidatesLastModified() {
+        return greetingCandidateRepository.lastModified();
+    }
 }
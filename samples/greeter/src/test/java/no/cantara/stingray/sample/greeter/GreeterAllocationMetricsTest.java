@@ -0,0 +1,77 @@
+package no.cantara.stingray.sample.greeter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.inject.Inject;
+import no.cantara.stingray.application.StingrayApplication;
+import no.cantara.stingray.application.StingrayLogging;
+import no.cantara.stingray.security.authentication.test.FakeStingrayAuthorization;
+import no.cantara.stingray.test.StingrayBeforeInitLifecycleListener;
+import no.cantara.stingray.test.StingrayConfigOverride;
+import no.cantara.stingray.test.StingrayTestClient;
+import no.cantara.stingray.test.StingrayTestExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(StingrayTestExtension.class)
+@StingrayConfigOverride({
+        "metrics.allocation.enabled", "true"
+})
+public class GreeterAllocationMetricsTest implements StingrayBeforeInitLifecycleListener {
+
+    static {
+        StingrayLogging.init();
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(GreeterAllocationMetricsTest.class);
+
+    @Inject
+    StingrayTestClient testClient;
+
+    @Override
+    public void beforeInit(StingrayApplication application) {
+        application.override(RandomizerClient.class, () -> RandomizerClientMock.createMockRandomizer(application));
+    }
+
+    @Test
+    public void thatAllocatedBytesAreRecordedPerResourceMethod() {
+        for (int i = 0; i < 10; i++) {
+            testClient.get()
+                    .path("/greet/John")
+                    .authorization(FakeStingrayAuthorization.application()
+                            .applicationId("junit-viewer")
+                            .build())
+                    .execute()
+                    .expect200Ok();
+        }
+        JsonNode appMetrics = testClient.get()
+                .path("/admin/metrics/app")
+                .execute()
+                .expect200Ok()
+                .contentAsType(JsonNode.class);
+        JsonNode allocatedBytes = appMetrics.get("histograms").get(GreetingResource.class.getName() + ".greet.allocated-bytes");
+        log.info("Allocated bytes: {}", allocatedBytes);
+        assertNotNull(allocatedBytes);
+        assertTrue(allocatedBytes.get("count").asLong() >= 10);
+        assertTrue(allocatedBytes.get("mean").asDouble() > 0);
+
+        JsonNode jvmMetrics = testClient.get()
+                .path("/admin/metrics/jvm")
+                .execute()
+                .expect200Ok()
+                .contentAsType(JsonNode.class);
+        boolean gcDurationHistogram = false;
+        Iterator<String> names = jvmMetrics.get("histograms").fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            gcDurationHistogram |= name.startsWith("gc.") && name.endsWith(".duration-ms");
+        }
+        assertTrue(gcDurationHistogram);
+    }
+}
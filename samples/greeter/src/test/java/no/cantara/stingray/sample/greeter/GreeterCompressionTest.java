@@ -0,0 +1,154 @@
+package no.cantara.stingray.sample.greeter;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import no.cantara.stingray.application.StingrayApplication;
+import no.cantara.stingray.application.StingrayLogging;
+import no.cantara.stingray.security.application.StingrayAction;
+import no.cantara.stingray.security.authentication.test.FakeStingrayAuthorization;
+import no.cantara.stingray.test.StingrayAfterInitLifecycleListener;
+import no.cantara.stingray.test.StingrayBeforeInitLifecycleListener;
+import no.cantara.stingray.test.StingrayConfigOverride;
+import no.cantara.stingray.test.StingrayTestClient;
+import no.cantara.stingray.test.StingrayTestExtension;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(StingrayTestExtension.class)
+@StingrayConfigOverride({
+        "server.compression.enabled", "true",
+        "server.compression.min-size", "512",
+        "server.compression.mime-types", "application/json,text/plain",
+        "server.compression.methods", "GET"
+})
+public class GreeterCompressionTest implements StingrayBeforeInitLifecycleListener, StingrayAfterInitLifecycleListener {
+
+    static {
+        StingrayLogging.init();
+    }
+
+    // the test client decompresses transparently, so the raw responses are read with the jdk client
+    static final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Inject
+    StingrayTestClient testClient;
+
+    @Inject
+    StingrayApplication application;
+
+    @Override
+    public void beforeInit(StingrayApplication application) {
+        application.override(RandomizerClient.class, () -> RandomizerClientMock.createMockRandomizer(application));
+    }
+
+    @Override
+    public void afterInit(StingrayApplication application) {
+        application.initAndRegisterJaxRsWsComponent(CompressionResource.class, CompressionResource::new);
+    }
+
+    @Path("/compression")
+    public static class CompressionResource {
+
+        @GET
+        @Path("/small")
+        @Produces(MediaType.APPLICATION_JSON)
+        @StingrayAction("statistics")
+        public Map<String, String> small() {
+            return Map.of("size", "small");
+        }
+
+        @GET
+        @Path("/large")
+        @Produces(MediaType.APPLICATION_JSON)
+        @StingrayAction("statistics")
+        public Map<String, String> large() {
+            return Map.of("size", "large".repeat(1000));
+        }
+    }
+
+    HttpResponse<byte[]> get(String path, String acceptEncoding) throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(testClient.getBaseURI().resolve(path))
+                .header("Authorization", FakeStingrayAuthorization.application()
+                        .applicationId("junit-viewer")
+                        .build());
+        if (acceptEncoding != null) {
+            builder.header("Accept-Encoding", acceptEncoding);
+        }
+        return httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    static byte[] gunzip(byte[] content) throws IOException {
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return is.readAllBytes();
+        }
+    }
+
+    @Test
+    public void thatGzipHandlerIsConfigured() {
+        GzipHandler gzipHandler = application.get(GzipHandler.class);
+        assertEquals(512, gzipHandler.getMinGzipSize());
+        assertEquals(Set.of("application/json", "text/plain"), Set.of(gzipHandler.getIncludedMimeTypes()));
+        assertEquals(Set.of("GET"), Set.of(gzipHandler.getIncludedMethods()));
+    }
+
+    @Test
+    public void thatLargeResponsesAreCompressed() throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = get("/compression/large", "gzip");
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        String json = new String(gunzip(response.body()), StandardCharsets.UTF_8);
+        assertTrue(json.contains("largelarge"));
+        assertTrue(response.body().length < json.length());
+    }
+
+    @Test
+    public void thatSmallResponsesAndRefusedGzipAreNotCompressed() throws IOException, InterruptedException {
+        HttpResponse<byte[]> small = get("/compression/small", "gzip");
+        assertEquals(200, small.statusCode());
+        assertFalse(small.headers().firstValue("Content-Encoding").isPresent());
+
+        HttpResponse<byte[]> refused = get("/compression/large", "gzip;q=0");
+        assertEquals(200, refused.statusCode());
+        assertFalse(refused.headers().firstValue("Content-Encoding").isPresent());
+        assertTrue(new String(refused.body(), StandardCharsets.UTF_8).contains("largelarge"));
+    }
+
+    @Test
+    public void thatOpenApiIsServedPrecompressed() throws IOException, InterruptedException {
+        HttpResponse<byte[]> identity = get("/openapi.json", null);
+        assertEquals(200, identity.statusCode());
+        assertFalse(identity.headers().firstValue("Content-Encoding").isPresent());
+
+        HttpResponse<byte[]> gzipped = get("/openapi.json", "gzip, deflate");
+        assertEquals(200, gzipped.statusCode());
+        assertEquals(List.of("gzip"), gzipped.headers().allValues("Content-Encoding")); // not compressed twice
+        assertTrue(gzipped.headers().firstValue("ETag").orElse("").endsWith("-gzip\""));
+        assertArrayEquals(identity.body(), gunzip(gzipped.body()));
+
+        HttpResponse<byte[]> refused = get("/openapi.json", "gzip;q=0, identity");
+        assertEquals(200, refused.statusCode());
+        assertFalse(refused.headers().firstValue("Content-Encoding").isPresent());
+        assertArrayEquals(identity.body(), refused.body());
+    }
+}
@@ -0,0 +1,91 @@
+package no.cantara.stingray.sample.greeter;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import no.cantara.stingray.application.StingrayApplication;
+import no.cantara.stingray.application.StingrayLogging;
+import no.cantara.stingray.application.caching.StingrayHttpCaching;
+import no.cantara.stingray.security.application.StingrayAction;
+import no.cantara.stingray.security.authentication.test.FakeStingrayAuthorization;
+import no.cantara.stingray.test.StingrayAfterInitLifecycleListener;
+import no.cantara.stingray.test.StingrayBeforeInitLifecycleListener;
+import no.cantara.stingray.test.StingrayResponseHelper;
+import no.cantara.stingray.test.StingrayTestClient;
+import no.cantara.stingray.test.StingrayTestExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@ExtendWith(StingrayTestExtension.class)
+public class GreeterHttpCachingTest implements StingrayBeforeInitLifecycleListener, StingrayAfterInitLifecycleListener {
+
+    static {
+        StingrayLogging.init();
+    }
+
+    static final AtomicInteger counter = new AtomicInteger();
+
+    @Inject
+    StingrayTestClient testClient;
+
+    @Override
+    public void beforeInit(StingrayApplication application) {
+        application.override(RandomizerClient.class, () -> RandomizerClientMock.createMockRandomizer(application));
+    }
+
+    @Override
+    public void afterInit(StingrayApplication application) {
+        application.initAndRegisterJaxRsWsComponent(HashedResource.class, HashedResource::new);
+    }
+
+    @Path("/hashed")
+    public static class HashedResource {
+
+        @GET
+        @Produces(MediaType.APPLICATION_JSON)
+        @StingrayAction("statistics")
+        @StingrayHttpCaching
+        public Map<String, Integer> counter() {
+            return Map.of("counter", counter.get());
+        }
+    }
+
+    StingrayResponseHelper get(String ifNoneMatch) {
+        StingrayTestClient.RequestBuilder request = testClient.get()
+                .path("/hashed")
+                .authorization(FakeStingrayAuthorization.application()
+                        .applicationId("junit-viewer")
+                        .build());
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return request.execute();
+    }
+
+    @Test
+    public void thatEntityHashIsUsedAsETagWithoutVersion() {
+        StingrayResponseHelper response = get(null).expect200Ok();
+        String etag = response.header("ETag");
+        assertNotNull(etag);
+        assertEquals("private, no-cache", response.header("Cache-Control"));
+        assertEquals("{\"counter\":" + counter.get() + "}", response.contentAsString());
+
+        StingrayResponseHelper notModified = get(etag).expectStatus(304);
+        assertEquals(etag, notModified.header("ETag"));
+        assertNull(notModified.header("Content-Type"));
+
+        counter.incrementAndGet();
+        String changedEtag = get(etag).expect200Ok().header("ETag");
+        assertNotEquals(etag, changedEtag);
+    }
+}
@@ -0,0 +1,87 @@
+package no.cantara.stingray.sample.greeter;
+
+import jakarta.inject.Inject;
+import no.cantara.stingray.application.StingrayApplication;
+import no.cantara.stingray.application.StingrayLogging;
+import no.cantara.stingray.security.authentication.test.FakeStingrayAuthorization;
+import no.cantara.stingray.test.StingrayBeforeInitLifecycleListener;
+import no.cantara.stingray.test.StingrayConfigOverride;
+import no.cantara.stingray.test.StingrayLoadGenerator;
+import no.cantara.stingray.test.StingrayTestExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares HTTP/1.1 and h2c throughput of the greeter. Runs briefly by default to verify that both protocols are
+ * served, use -Dstingray.loadtest.duration-seconds=30 for a meaningful comparison.
+ */
+@ExtendWith(StingrayTestExtension.class)
+@StingrayConfigOverride({
+        "server.connector.http2", "true"
+})
+public class GreeterProtocolLoadTest implements StingrayBeforeInitLifecycleListener {
+
+    static {
+        StingrayLogging.init();
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(GreeterProtocolLoadTest.class);
+
+    @Inject
+    StingrayApplication application;
+
+    @Override
+    public void beforeInit(StingrayApplication application) {
+        application.override(RandomizerClient.class, () -> RandomizerClientMock.createMockRandomizer(application));
+    }
+
+    @Test
+    public void compareHttp11AndH2cThroughput() throws InterruptedException {
+        Duration duration = Duration.ofSeconds(Long.getLong("stingray.loadtest.duration-seconds", 1));
+        int concurrency = Integer.getInteger("stingray.loadtest.concurrency", 16);
+        URI uri = URI.create("http://localhost:" + application.getBoundPort() + "/greet/John");
+        String authorization = FakeStingrayAuthorization.application()
+                .applicationId("junit-viewer")
+                .build();
+
+        StingrayLoadGenerator.Result http11 = StingrayLoadGenerator.builder()
+                .uri(uri)
+                .version(HttpClient.Version.HTTP_1_1)
+                .concurrency(concurrency)
+                .warmup(duration.dividedBy(2))
+                .duration(duration)
+                .header("Authorization", authorization)
+                .build()
+                .run();
+        log.info("{}", http11);
+
+        StingrayLoadGenerator.Result h2c = StingrayLoadGenerator.builder()
+                .uri(uri)
+                .version(HttpClient.Version.HTTP_2)
+                .concurrency(concurrency)
+                .warmup(duration.dividedBy(2))
+                .duration(duration)
+                .header("Authorization", authorization)
+                .build()
+                .run();
+        log.info("{}", h2c);
+        log.info("h2c/HTTP/1.1 throughput ratio: {}", String.format("%.2f", h2c.requestsPerSecond() / http11.requestsPerSecond()));
+
+        assertEquals(Set.of(HttpClient.Version.HTTP_1_1), http11.observedVersions());
+        assertEquals(Set.of(HttpClient.Version.HTTP_2), h2c.observedVersions());
+        assertEquals(0, http11.errors());
+        assertEquals(0, h2c.errors());
+        assertTrue(http11.requests() > 0);
+        assertTrue(h2c.requests() > 0);
+    }
+}
@@ -0,0 +1,67 @@
+package no.cantara.stingray.sample.greeter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.inject.Inject;
+import no.cantara.stingray.application.StingrayApplication;
+import no.cantara.stingray.application.StingrayLogging;
+import no.cantara.stingray.security.authentication.test.FakeStingrayAuthorization;
+import no.cantara.stingray.test.StingrayBeforeInitLifecycleListener;
+import no.cantara.stingray.test.StingrayConfigOverride;
+import no.cantara.stingray.test.StingrayTestClient;
+import no.cantara.stingray.test.StingrayTestExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(StingrayTestExtension.class)
+@StingrayConfigOverride({
+        "metrics.request-timing.server-timing-header", "true"
+})
+public class GreeterRequestTimingTest implements StingrayBeforeInitLifecycleListener {
+
+    static {
+        StingrayLogging.init();
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(GreeterRequestTimingTest.class);
+
+    @Inject
+    StingrayTestClient testClient;
+
+    @Override
+    public void beforeInit(StingrayApplication application) {
+        application.override(RandomizerClient.class, () -> RandomizerClientMock.createMockRandomizer(application));
+    }
+
+    @Test
+    public void thatRequestStagesAreTimed() {
+        String serverTiming = testClient.get()
+                .path("/greet/John")
+                .authorization(FakeStingrayAuthorization.application()
+                        .applicationId("junit-viewer")
+                        .build())
+                .execute()
+                .expect200Ok()
+                .header("Server-Timing");
+        log.info("Server-Timing: {}", serverTiming);
+        assertNotNull(serverTiming);
+        assertTrue(serverTiming.contains("authentication;dur="));
+        assertTrue(serverTiming.contains("authorization;dur="));
+        assertTrue(serverTiming.contains("resource;dur="));
+        assertTrue(serverTiming.contains("app;dur="));
+
+        JsonNode metrics = testClient.get()
+                .path("/admin/metrics/app")
+                .execute()
+                .expect200Ok()
+                .contentAsType(JsonNode.class);
+        JsonNode timers = metrics.get("timers");
+        assertTrue(timers.get("request-timing.total").get("count").asLong() > 0);
+        assertTrue(timers.get("request-timing.resource").get("count").asLong() > 0);
+        assertTrue(timers.get("request-timing.serialization").get("count").asLong() > 0);
+    }
+}
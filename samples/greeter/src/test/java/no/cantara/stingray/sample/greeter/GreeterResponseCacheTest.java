@@ -0,0 +1,119 @@
+package no.cantara.stingray.sample.greeter;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import no.cantara.stingray.application.StingrayApplication;
+import no.cantara.stingray.application.StingrayLogging;
+import no.cantara.stingray.security.application.StingrayAction;
+import no.cantara.stingray.security.application.StingrayCached;
+import no.cantara.stingray.security.authentication.test.FakeStingrayAuthorization;
+import no.cantara.stingray.test.StingrayAfterInitLifecycleListener;
+import no.cantara.stingray.test.StingrayBeforeInitLifecycleListener;
+import no.cantara.stingray.test.StingrayConfigOverride;
+import no.cantara.stingray.test.StingrayResponseHelper;
+import no.cantara.stingray.test.StingrayTestClient;
+import no.cantara.stingray.test.StingrayTestExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(StingrayTestExtension.class)
+@StingrayConfigOverride({
+        "response-cache.load-timeout-ms", "30000"
+})
+public class GreeterResponseCacheTest implements StingrayBeforeInitLifecycleListener, StingrayAfterInitLifecycleListener {
+
+    static {
+        StingrayLogging.init();
+    }
+
+    @Inject
+    StingrayTestClient testClient;
+
+    @Inject
+    StingrayApplication application;
+
+    @Override
+    public void beforeInit(StingrayApplication application) {
+        application.override(RandomizerClient.class, () -> RandomizerClientMock.createMockRandomizer(application));
+    }
+
+    @Override
+    public void afterInit(StingrayApplication application) {
+        application.initAndRegisterJaxRsWsComponent(CachedResource.class, CachedResource::new);
+    }
+
+    @Path("/cached")
+    public static class CachedResource {
+
+        final AtomicInteger failingCount = new AtomicInteger();
+        final AtomicInteger headersCount = new AtomicInteger();
+
+        @GET
+        @Path("/failing")
+        @Produces(MediaType.APPLICATION_JSON)
+        @StingrayAction("statistics")
+        @StingrayCached(ttl = 10)
+        public Map<String, Long> failing() {
+            failingCount.incrementAndGet();
+            throw new IllegalStateException("not mapped to a response");
+        }
+
+        @GET
+        @Path("/headers")
+        @Produces(MediaType.APPLICATION_JSON)
+        @StingrayAction("statistics")
+        @StingrayCached(ttl = 10)
+        public Response headers() {
+            headersCount.incrementAndGet();
+            return Response.ok(Map.of("count", headersCount.get()))
+                    .header("X-Cached-Test", "original")
+                    .build();
+        }
+    }
+
+    @Test
+    public void thatLoadIsReleasedWhenResourceThrows() {
+        CachedResource resource = application.get(CachedResource.class);
+        int count = resource.failingCount.get();
+        long start = System.nanoTime();
+        for (int i = 0; i < 2; i++) {
+            testClient.get()
+                    .path("/cached/failing")
+                    .authorization(FakeStingrayAuthorization.application()
+                            .applicationId("junit-viewer")
+                            .build())
+                    .execute()
+                    .expectStatus(500);
+        }
+        // the second request must not wait for the load-timeout of the load claimed by the first request
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+        assertEquals(count + 2, resource.failingCount.get());
+    }
+
+    @Test
+    public void thatCachedResponsesKeepTheirHeaders() {
+        CachedResource resource = application.get(CachedResource.class);
+        for (int i = 0; i < 2; i++) {
+            StingrayResponseHelper response = testClient.get()
+                    .path("/cached/headers")
+                    .authorization(FakeStingrayAuthorization.application()
+                            .applicationId("junit-viewer")
+                            .build())
+                    .execute()
+                    .expect200Ok();
+            assertEquals("original", response.header("X-Cached-Test"));
+        }
+        assertEquals(1, resource.headersCount.get());
+    }
+}
@@ -9,6 +9,7 @@ import no.cantara.stingray.application.StingrayApplication;
 import no.cantara.stingray.application.StingrayLogging;
 import no.cantara.stingray.security.authentication.test.FakeStingrayAuthorization;
 import no.cantara.stingray.test.StingrayBeforeInitLifecycleListener;
+import no.cantara.stingray.test.StingrayResponseHelper;
 import no.cantara.stingray.test.StingrayTestClient;
 import no.cantara.stingray.test.StingrayTestExtension;
 import org.junit.jupiter.api.Test;
@@ -23,6 +24,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(StingrayTestExtension.class)
@@ -39,6 +43,9 @@ public class GreetingTest implements StingrayBeforeInitLifecycleListener {
     @Inject
     StingrayTestClient testClient;
 
+    @Inject
+    StingrayApplication application;
+
     @Override
     public void beforeInit(StingrayApplication application) {
         application.override(RandomizerClient.class, () -> RandomizerClientMock.createMockRandomizer(application));
@@ -75,6 +82,28 @@ public class GreetingTest implements StingrayBeforeInitLifecycleListener {
         log.info("/openapi.yaml:\n{}", openApiYaml);
     }
 
+    @Test
+    public void thatOpenApiIsCachedWithStrongEtag() {
+        StingrayResponseHelper response = testClient.get()
+                .path("/openapi.json")
+                .execute()
+                .expect200Ok();
+        String etag = response.header("ETag");
+        assertNotNull(etag);
+        assertFalse(etag.startsWith("W/"));
+        testClient.get()
+                .path("/openapi.json")
+                .header("If-None-Match", etag)
+                .execute()
+                .expectStatus(304);
+        String etagAgain = testClient.get()
+                .path("/openapi.json")
+                .execute()
+                .expect200Ok()
+                .header("ETag");
+        assertEquals(etag, etagAgain);
+    }
+
     @Test
     public void thatAdminHealthCheckServletWorks() throws JsonProcessingException {
         String body = testClient.get()
@@ -285,6 +314,66 @@ public class GreetingTest implements StingrayBeforeInitLifecycleListener {
         assertTrue(greetingCandidates.size() > 0);
     }
 
+    @Test
+    public void thatGreetingCandidatesSupportConditionalGet() {
+        StingrayResponseHelper response = testClient.get()
+                .path("/greet/candidates")
+                .authorization(FakeStingrayAuthorization.application()
+                        .applicationId("junit-viewer")
+                        .build())
+                .execute()
+                .expect200Ok();
+        String etag = response.header("ETag");
+        assertNotNull(etag);
+        assertNotNull(response.header("Last-Modified"));
+        assertEquals("private, no-cache", response.header("Cache-Control"));
+        testClient.get()
+                .path("/greet/candidates")
+                .header("If-None-Match", etag)
+                .authorization(FakeStingrayAuthorization.application()
+                        .applicationId("junit-viewer")
+                        .build())
+                .execute()
+                .expectStatus(304);
+        testClient.get()
+                .path("/greet/candidates")
+                .header("If-None-Match", etag)
+                .execute()
+                .expectStatus(401);
+    }
+
+    @Test
+    public void thatStatisticsAreCachedPerGroups() {
+        GreetingResource greetingResource = application.get(GreetingResource.class);
+        String query = String.valueOf(System.nanoTime()); // unique cache key for this test
+        long requestCount = greetingResource.getRequestCount();
+        for (int i = 0; i < 3; i++) {
+            testClient.get()
+                    .path("/greet/statistics")
+                    .query("test", query)
+                    .authorization(FakeStingrayAuthorization.application()
+                            .applicationId("junit-viewer")
+                            .build())
+                    .execute()
+                    .expect200Ok();
+        }
+        assertEquals(requestCount + 1, greetingResource.getRequestCount());
+        testClient.get()
+                .path("/greet/statistics")
+                .query("test", query)
+                .authorization(FakeStingrayAuthorization.application()
+                        .applicationId("junit-admin")
+                        .build())
+                .execute()
+                .expect200Ok();
+        assertEquals(requestCount + 2, greetingResource.getRequestCount());
+        testClient.get()
+                .path("/greet/statistics")
+                .query("test", query)
+                .execute()
+                .expectStatus(401);
+    }
+
     @Test
     public void listGreetingCandidatesAsInputStream() throws IOException {
         try (InputStream is = testClient.get()
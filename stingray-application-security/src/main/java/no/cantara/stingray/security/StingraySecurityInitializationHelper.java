@@ -1,19 +1,27 @@
 package no.cantara.stingray.security;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
 import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.core.Request;
 import no.cantara.config.ApplicationProperties;
 import no.cantara.config.ProviderLoader;
 import no.cantara.stingray.application.StingrayApplication;
+import no.cantara.stingray.security.application.StingrayResponseCache;
+import no.cantara.stingray.security.application.StingrayResponseCacheFeature;
 import no.cantara.stingray.security.application.StingraySecurityFilter;
+import no.cantara.stingray.security.authentication.StingrayAuthenticationCache;
 import no.cantara.stingray.security.authentication.StingrayAuthenticationManager;
 import no.cantara.stingray.security.authentication.StingrayAuthenticationManagerFactory;
+import no.cantara.stingray.security.authentication.whydah.WhydahStingrayAuthenticationManager;
 import no.cantara.stingray.security.authorization.StingrayAccessManager;
 import no.cantara.stingray.security.authorization.StingrayAccessManagerFactory;
 import org.glassfish.jersey.server.ContainerRequest;
 import org.glassfish.jersey.server.internal.routing.RoutingContext;
 
 import java.lang.reflect.Method;
+import java.time.Duration;
 
 class StingraySecurityInitializationHelper {
 
@@ -27,15 +35,51 @@ class StingraySecurityInitializationHelper {
         application.init(StingrayAuthenticationManager.class, this::createAuthenticationManager);
         application.init(StingrayAccessManager.class, this::createAccessManager);
         application.initAndRegisterJaxRsWsComponent(StingraySecurityFilter.class, this::createSecurityFilter);
+        application.initAndRegisterJaxRsWsComponent(StingrayResponseCacheFeature.class, this::createResponseCacheFeature);
     }
 
     StingrayAuthenticationManager createAuthenticationManager() {
         ApplicationProperties config = application.config();
         String provider = config.get("authentication.provider", "default");
         StingrayAuthenticationManager authenticationManager = ProviderLoader.configure(config, provider, StingrayAuthenticationManagerFactory.class);
+        if (authenticationManager instanceof WhydahStingrayAuthenticationManager) {
+            StingrayAuthenticationCache authenticationCache = ((WhydahStingrayAuthenticationManager) authenticationManager).getAuthenticationCache();
+            if (authenticationCache != null) {
+                initAuthenticationCacheMetrics(authenticationCache);
+            }
+        }
         return authenticationManager;
     }
 
+    void initAuthenticationCacheMetrics(StingrayAuthenticationCache authenticationCache) {
+        MetricRegistry securityMetricRegistry = securityMetricRegistry();
+        if (securityMetricRegistry == null) {
+            return;
+        }
+        securityMetricRegistry.register("authentication-cache.hits", (Gauge<Long>) authenticationCache::hits);
+        securityMetricRegistry.register("authentication-cache.misses", (Gauge<Long>) authenticationCache::misses);
+        securityMetricRegistry.register("authentication-cache.evictions", (Gauge<Long>) authenticationCache::evictions);
+        securityMetricRegistry.register("authentication-cache.size", (Gauge<Integer>) authenticationCache::size);
+    }
+
+    /**
+     * @return the registry of all security metrics, registered as security in metrics.base, or null if the application
+     * has no metrics.
+     */
+    MetricRegistry securityMetricRegistry() {
+        MetricRegistry securityMetricRegistry = (MetricRegistry) application.getOrNull("metrics.security");
+        if (securityMetricRegistry != null) {
+            return securityMetricRegistry;
+        }
+        MetricRegistry baseMetricRegistry = (MetricRegistry) application.getOrNull("metrics.base");
+        if (baseMetricRegistry == null) {
+            return null;
+        }
+        securityMetricRegistry = application.init("metrics.security", MetricRegistry::new);
+        baseMetricRegistry.register("security", securityMetricRegistry);
+        return securityMetricRegistry;
+    }
+
     StingrayAccessManager createAccessManager() {
         String applicationAlias = application.alias();
         ApplicationProperties authConfig = ApplicationProperties.builder()
@@ -58,6 +102,29 @@ class StingraySecurityInitializationHelper {
         return new StingraySecurityFilter(authenticationManager, accessManager, this::getJaxRsRoutingEndpoint);
     }
 
+    StingrayResponseCacheFeature createResponseCacheFeature() {
+        ApplicationProperties config = application.config();
+        long maxBytes = Long.parseLong(config.get("response-cache.max-bytes", String.valueOf(64 * 1024 * 1024)));
+        long loadTimeoutMs = Long.parseLong(config.get("response-cache.load-timeout-ms", "10000"));
+        StingrayResponseCache cache = new StingrayResponseCache(maxBytes, Duration.ofMillis(loadTimeoutMs));
+        MetricRegistry appMetricRegistry = application.getOrNull(MetricRegistry.class);
+        if (appMetricRegistry != null) {
+            appMetricRegistry.register("response-cache.hit-ratio", new RatioGauge() {
+                @Override
+                protected Ratio getRatio() {
+                    long hits = cache.hits();
+                    return Ratio.of(hits, hits + cache.misses());
+                }
+            });
+            appMetricRegistry.register("response-cache.hits", (Gauge<Long>) cache::hits);
+            appMetricRegistry.register("response-cache.misses", (Gauge<Long>) cache::misses);
+            appMetricRegistry.register("response-cache.evictions", (Gauge<Long>) cache::evictions);
+            appMetricRegistry.register("response-cache.size", (Gauge<Integer>) cache::size);
+            appMetricRegistry.register("response-cache.bytes", (Gauge<Long>) cache::bytes);
+        }
+        return new StingrayResponseCacheFeature(cache);
+    }
+
     Method getJaxRsRoutingEndpoint(ContainerRequestContext requestContext) {
         Request request = requestContext.getRequest();
         ContainerRequest containerRequest = (ContainerRequest) request;
@@ -0,0 +1,40 @@
+package no.cantara.stingray.security.application;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the serialized 200 responses of an idempotent GET resource method in the {@link StingrayResponseCache}. The
+ * cache key is the request path, query, Accept header and the parts of the authentication given by {@link #varyBy()}.
+ * Requires the {@link StingrayResponseCacheFeature} to be registered, which is done by
+ * {@link no.cantara.stingray.security.StingraySecurity#initSecurity}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface StingrayCached {
+
+    long ttl();
+
+    TimeUnit unit() default TimeUnit.SECONDS;
+
+    /**
+     * @return the parts of the authentication that the response depends on. Use an empty array only when the response
+     * is the same for all callers that are allowed to perform the action.
+     */
+    Vary[] varyBy() default {Vary.PRINCIPAL};
+
+    enum Vary {
+        /**
+         * The authenticated user or application.
+         */
+        PRINCIPAL,
+        /**
+         * The groups of the authenticated user or application, responses are shared between callers with the same
+         * groups.
+         */
+        GROUPS
+    }
+}
@@ -0,0 +1,267 @@
+package no.cantara.stingray.security.application;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded in-memory cache of serialized responses. The cache is bounded by the total size of the cached content, the
+ * least recently used entries are evicted first, and entries expire after their individual time-to-live. A caller that
+ * misses can {@link #tryLoad(String) claim} the key so that concurrent callers for the same key wait for that single
+ * computation rather than repeating it. A claim that is neither completed nor abandoned within the load-timeout is
+ * considered lost and can be claimed again.
+ */
+public class StingrayResponseCache {
+
+    // approximate per-entry overhead of key, entry and map node
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long loadTimeoutMs;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry> entryByKey = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Load> loadByKey = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long bytes;
+
+    public StingrayResponseCache(long maxBytes, Duration loadTimeout) {
+        this(maxBytes, loadTimeout, Clock.systemUTC());
+    }
+
+    StingrayResponseCache(long maxBytes, Duration loadTimeout, Clock clock) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be a positive number");
+        }
+        if (loadTimeout.isNegative() || loadTimeout.isZero()) {
+            throw new IllegalArgumentException("loadTimeout must be a positive duration");
+        }
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.max(1, maxBytes / 8); // a single response must not flush the whole cache
+        this.loadTimeoutMs = loadTimeout.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * @return the cached entry, or null if absent or expired. Only hits are counted, a miss is counted by
+     * {@link #tryLoad(String)}.
+     */
+    public Entry get(String key) {
+        Entry entry = peek(key);
+        if (entry != null) {
+            hits.increment();
+        }
+        return entry;
+    }
+
+    private Entry peek(String key) {
+        Entry entry;
+        synchronized (entryByKey) {
+            entry = entryByKey.get(key);
+            if (entry != null && entry.isExpired(clock.millis())) {
+                remove(key);
+                evictions.increment();
+                entry = null;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Claim the computation of the entry for the given key.
+     *
+     * @return the load that the caller must complete or abandon, or null if the key is already being loaded by another
+     * caller, in which case the caller should {@link #await(String) await} that load.
+     */
+    public Load tryLoad(String key) {
+        Load load = new Load(key, clock.millis());
+        Load existingLoad = loadByKey.putIfAbsent(key, load);
+        if (existingLoad != null) {
+            if (load.startedAt - existingLoad.startedAt < loadTimeoutMs || !loadByKey.replace(key, existingLoad, load)) {
+                return null;
+            }
+            existingLoad.future.complete(null); // lost, e.g. the request failed before the response was written
+        }
+        Entry entry = peek(key);
+        if (entry != null) {
+            // loaded by another caller between the get and the claim
+            loadByKey.remove(key, load);
+            load.future.complete(entry);
+            return null;
+        }
+        misses.increment();
+        return load;
+    }
+
+    /**
+     * @return the entry produced by the load in progress for the given key, or the cached entry if no load is in
+     * progress, or null if the load was abandoned, did not complete in time, or produced no entry.
+     */
+    public Entry await(String key) throws InterruptedException {
+        Load load = loadByKey.get(key);
+        if (load == null) {
+            Entry entry = get(key);
+            if (entry == null) {
+                misses.increment();
+            }
+            return entry;
+        }
+        try {
+            Entry entry = load.future.get(loadTimeoutMs, TimeUnit.MILLISECONDS);
+            if (entry == null) {
+                misses.increment();
+            } else {
+                hits.increment();
+            }
+            return entry;
+        } catch (ExecutionException | TimeoutException e) {
+            misses.increment();
+            return null;
+        }
+    }
+
+    private void put(String key, Entry entry) {
+        if (entry.size > maxEntryBytes) {
+            return;
+        }
+        synchronized (entryByKey) {
+            remove(key);
+            entryByKey.put(key, entry);
+            bytes += entry.size;
+            Iterator<Entry> iterator = entryByKey.values().iterator();
+            while (bytes > maxBytes && iterator.hasNext()) {
+                Entry eldest = iterator.next();
+                iterator.remove();
+                bytes -= eldest.size;
+                evictions.increment();
+            }
+        }
+    }
+
+    private void remove(String key) {
+        Entry removed = entryByKey.remove(key);
+        if (removed != null) {
+            bytes -= removed.size;
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entryByKey) {
+            entryByKey.clear();
+            bytes = 0;
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        synchronized (entryByKey) {
+            return entryByKey.size();
+        }
+    }
+
+    /**
+     * @return the approximate memory held by the cached entries, including per-entry overhead.
+     */
+    public long bytes() {
+        synchronized (entryByKey) {
+            return bytes;
+        }
+    }
+
+    public static class Entry {
+        private final byte[] content;
+        private final String mediaType;
+        private final Map<String, List<String>> headers;
+        private final long expiresAt;
+        private final long size;
+
+        Entry(String key, byte[] content, String mediaType, Map<String, List<String>> headers, long expiresAt) {
+            this.content = content;
+            this.mediaType = mediaType;
+            this.headers = headers;
+            this.expiresAt = expiresAt;
+            long headerChars = 0;
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                for (String value : header.getValue()) {
+                    headerChars += header.getKey().length() + value.length();
+                }
+            }
+            this.size = content.length + 2L * (key.length() + headerChars) + ENTRY_OVERHEAD_BYTES;
+        }
+
+        public byte[] content() {
+            return content;
+        }
+
+        public String mediaType() {
+            return mediaType;
+        }
+
+        /**
+         * @return the headers of the original response, other than the content-type.
+         */
+        public Map<String, List<String>> headers() {
+            return headers;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+    /**
+     * A claimed computation, exactly one of {@link #complete} or {@link #abandon} must be called.
+     */
+    public class Load {
+        private final String key;
+        private final long startedAt;
+        private final CompletableFuture<Entry> future = new CompletableFuture<>();
+
+        private Load(String key, long startedAt) {
+            this.key = Objects.requireNonNull(key);
+            this.startedAt = startedAt;
+        }
+
+        public void complete(byte[] content, String mediaType, long ttlMillis) {
+            complete(content, mediaType, Map.of(), ttlMillis);
+        }
+
+        public void complete(byte[] content, String mediaType, Map<String, List<String>> headers, long ttlMillis) {
+            Entry entry = new Entry(key, content, mediaType, Map.copyOf(headers), clock.millis() + ttlMillis);
+            put(key, entry);
+            loadByKey.remove(key, this);
+            future.complete(entry);
+        }
+
+        /**
+         * Release waiting callers without an entry, they will compute the response themselves.
+         */
+        public void abandon() {
+            loadByKey.remove(key, this);
+            future.complete(null);
+        }
+    }
+}
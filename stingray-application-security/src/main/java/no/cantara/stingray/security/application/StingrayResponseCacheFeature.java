@@ -0,0 +1,62 @@
+package no.cantara.stingray.security.application;
+
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.DynamicFeature;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.FeatureContext;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+
+/**
+ * Binds the response cache to the GET resource methods annotated with {@link StingrayCached}. Also listens to request
+ * events, so that a load claimed by a request is released when the request finishes, however it finished.
+ */
+public class StingrayResponseCacheFeature implements DynamicFeature, ApplicationEventListener {
+
+    private static final RequestEventListener RELEASE_ON_FINISHED = event -> {
+        if (event.getType() == RequestEvent.Type.FINISHED) {
+            StingrayResponseCacheFilter.release(event.getContainerRequest());
+        }
+    };
+
+    private final StingrayResponseCache cache;
+
+    public StingrayResponseCacheFeature(StingrayResponseCache cache) {
+        this.cache = Objects.requireNonNull(cache);
+    }
+
+    public StingrayResponseCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+        Method resourceMethod = resourceInfo.getResourceMethod();
+        StingrayCached cached = resourceMethod.getAnnotation(StingrayCached.class);
+        if (cached == null) {
+            return;
+        }
+        if (!resourceMethod.isAnnotationPresent(GET.class)) {
+            throw new IllegalArgumentException(String.format("@StingrayCached is only allowed on GET resource methods: %s.%s()",
+                    resourceInfo.getResourceClass().getName(), resourceMethod.getName()));
+        }
+        // after the security-filter, both because the cache key depends on the authentication and because a cached
+        // response must never be served to a caller that is not allowed to perform the action
+        context.register(new StingrayResponseCacheFilter(cache, cached), Priorities.USER + 200);
+    }
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent) {
+        return RELEASE_ON_FINISHED;
+    }
+}
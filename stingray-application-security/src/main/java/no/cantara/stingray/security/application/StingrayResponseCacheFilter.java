@@ -0,0 +1,197 @@
+package no.cantara.stingray.security.application;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
+import jakarta.ws.rs.ext.RuntimeDelegate;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import no.cantara.stingray.security.authentication.StingrayAuthentication;
+import org.glassfish.jersey.server.ContainerRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+class StingrayResponseCacheFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    static final String LOAD_PROPERTY = StingrayResponseCache.Load.class.getName();
+
+    // headers that are computed per response, or that must not be shared between callers
+    private static final Set<String> UNCACHED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        UNCACHED_HEADERS.addAll(List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.DATE,
+                HttpHeaders.SET_COOKIE, "Transfer-Encoding", "Connection", "Server-Timing"));
+    }
+
+    private final StingrayResponseCache cache;
+    private final long ttlMillis;
+    private final boolean varyByPrincipal;
+    private final boolean varyByGroups;
+
+    StingrayResponseCacheFilter(StingrayResponseCache cache, StingrayCached cached) {
+        this.cache = cache;
+        this.ttlMillis = cached.unit().toMillis(cached.ttl());
+        boolean varyByPrincipal = false;
+        boolean varyByGroups = false;
+        for (StingrayCached.Vary vary : cached.varyBy()) {
+            varyByPrincipal |= vary == StingrayCached.Vary.PRINCIPAL;
+            varyByGroups |= vary == StingrayCached.Vary.GROUPS;
+        }
+        this.varyByPrincipal = varyByPrincipal;
+        this.varyByGroups = varyByGroups;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        String key = cacheKey(requestContext);
+        StingrayResponseCache.Entry entry = cache.get(key);
+        if (entry == null) {
+            StingrayResponseCache.Load load = cache.tryLoad(key);
+            if (load != null) {
+                requestContext.setProperty(LOAD_PROPERTY, load);
+                return; // miss, this request computes the response
+            }
+            try {
+                entry = cache.await(key);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            if (entry == null) {
+                return; // concurrent computation failed or is too slow, compute without caching
+            }
+        }
+        Response.ResponseBuilder response = Response.ok(entry.content(), entry.mediaType());
+        for (Map.Entry<String, List<String>> header : entry.headers().entrySet()) {
+            for (String value : header.getValue()) {
+                response.header(header.getKey(), value);
+            }
+        }
+        requestContext.abortWith(response.build());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        StingrayResponseCache.Load load = (StingrayResponseCache.Load) requestContext.getProperty(LOAD_PROPERTY);
+        if (load == null) {
+            return;
+        }
+        if (responseContext.getStatus() != Response.Status.OK.getStatusCode() || !responseContext.hasEntity()) {
+            // only successful responses are cached
+            requestContext.removeProperty(LOAD_PROPERTY);
+            load.abandon();
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        StingrayResponseCache.Load load = (StingrayResponseCache.Load) context.getProperty(LOAD_PROPERTY);
+        if (load == null) {
+            context.proceed();
+            return;
+        }
+        context.removeProperty(LOAD_PROPERTY);
+        OutputStream entityStream = context.getOutputStream();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+        context.setOutputStream(buffer);
+        byte[] content;
+        try {
+            context.proceed();
+            content = buffer.toByteArray();
+        } catch (IOException | RuntimeException | Error e) {
+            load.abandon();
+            throw e;
+        } finally {
+            context.setOutputStream(entityStream);
+        }
+        load.complete(content, String.valueOf(context.getMediaType()), cachedHeaders(context.getHeaders()), ttlMillis);
+        entityStream.write(content);
+    }
+
+    /**
+     * Abandon the load claimed by the request, if it is still held. Called when the request is finished, which also
+     * covers the requests where neither the response filter nor the writer interceptor ran, e.g. because the resource
+     * method threw an exception that was not mapped to a response.
+     */
+    static void release(ContainerRequest request) {
+        StingrayResponseCache.Load load = (StingrayResponseCache.Load) request.getProperty(LOAD_PROPERTY);
+        if (load != null) {
+            request.removeProperty(LOAD_PROPERTY);
+            load.abandon();
+        }
+    }
+
+    static Map<String, List<String>> cachedHeaders(MultivaluedMap<String, Object> headers) {
+        Map<String, List<String>> cachedHeaders = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Object>> header : headers.entrySet()) {
+            if (UNCACHED_HEADERS.contains(header.getKey())) {
+                continue;
+            }
+            List<String> values = new ArrayList<>(header.getValue().size());
+            for (Object value : header.getValue()) {
+                values.add(headerValue(value));
+            }
+            cachedHeaders.put(header.getKey(), List.copyOf(values));
+        }
+        return cachedHeaders;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String headerValue(Object value) {
+        if (value instanceof String) {
+            return (String) value;
+        }
+        RuntimeDelegate.HeaderDelegate<Object> headerDelegate = (RuntimeDelegate.HeaderDelegate<Object>) RuntimeDelegate.getInstance().createHeaderDelegate(value.getClass());
+        return headerDelegate != null ? headerDelegate.toString(value) : value.toString();
+    }
+
+    private String cacheKey(ContainerRequestContext requestContext) {
+        StringBuilder key = new StringBuilder(128);
+        key.append(requestContext.getUriInfo().getRequestUri().getRawPath());
+        String query = requestContext.getUriInfo().getRequestUri().getRawQuery();
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        String accept = requestContext.getHeaderString(HttpHeaders.ACCEPT);
+        key.append('\n').append(accept == null ? "" : accept);
+        if (varyByPrincipal || varyByGroups) {
+            StingrayAuthentication authentication = authentication(requestContext.getSecurityContext());
+            if (varyByPrincipal) {
+                key.append('\n');
+                if (authentication != null) {
+                    key.append(authentication.isApplication() ? "application:" : "user:").append(authentication.ssoId());
+                }
+            }
+            if (varyByGroups) {
+                key.append('\n');
+                if (authentication != null && authentication.groups() != null) {
+                    List<String> groups = new ArrayList<>(authentication.groups());
+                    Collections.sort(groups);
+                    key.append(String.join(",", groups));
+                }
+            }
+        }
+        return key.toString();
+    }
+
+    private static StingrayAuthentication authentication(SecurityContext securityContext) {
+        if (securityContext instanceof StingraySecurityContext) {
+            return ((StingraySecurityContext) securityContext).getAuthentication();
+        }
+        return null; // security-override, no authentication
+    }
+}
@@ -4,6 +4,7 @@ import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.container.ContainerRequestFilter;
 import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.Response;
+import no.cantara.stingray.application.metrics.StingrayRequestTiming;
 import no.cantara.stingray.security.authentication.StingrayAuthentication;
 import no.cantara.stingray.security.authentication.StingrayAuthenticationManager;
 import no.cantara.stingray.security.authentication.StingrayAuthenticationResult;
@@ -59,8 +60,11 @@ public class StingraySecurityFilter implements ContainerRequestFilter {
             log.trace("Access granted through default security-override to resource: {} {}", requestContext.getMethod(), path);
             return; // access always granted to resource classes that are configured in the security-overridden set
         }
+        StingrayRequestTiming timing = StingrayRequestTiming.of(requestContext);
+        long authenticationStart = System.nanoTime();
         String authorizationHeader = requestContext.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
         StingrayAuthenticationResult authenticationResult = authenticationManager.authenticate(authorizationHeader);
+        timing.record(StingrayRequestTiming.Span.AUTHENTICATION, authenticationStart);
         if (!authenticationResult.isValid()) {
             // authentication failed
             log.trace("Access unauthorized (401) due to invalid authorization header to: {} {}", requestContext.getMethod(), path);
@@ -77,7 +81,9 @@ public class StingraySecurityFilter implements ContainerRequestFilter {
             return;
         }
         String action = secureAction.value();
+        long authorizationStart = System.nanoTime();
         boolean hasAccess = accessManager.hasAccess(authentication, action);
+        timing.record(StingrayRequestTiming.Span.AUTHORIZATION, authorizationStart);
         if (!hasAccess) {
             // access not allowed according to rules
             log.trace("Access forbidden (403) because {} '{}' is not allowed to perform action '{}' on on {}.{}() needed to: {} {}", authentication.isApplication() ? "application" : "user", authentication.ssoId(), action, resourceMethod.getDeclaringClass().getName(), resourceMethod.getName(), requestContext.getMethod(), path);
@@ -0,0 +1,138 @@
+package no.cantara.stingray.security.application;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StingrayResponseCacheTest {
+
+    static class TestClock extends Clock {
+        final AtomicLong millis = new AtomicLong(1_000_000);
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+    }
+
+    static byte[] content(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void thatEntriesExpireAfterTtl() {
+        TestClock clock = new TestClock();
+        StingrayResponseCache cache = new StingrayResponseCache(1024 * 1024, Duration.ofSeconds(10), clock);
+        assertNull(cache.get("a"));
+        cache.tryLoad("a").complete(content("A"), "application/json", 1000);
+        StingrayResponseCache.Entry entry = cache.get("a");
+        assertNotNull(entry);
+        assertEquals("application/json", entry.mediaType());
+        clock.millis.addAndGet(1000);
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    public void thatLeastRecentlyUsedEntriesAreEvictedWhenFull() {
+        StingrayResponseCache cache = new StingrayResponseCache(8 * 1024, Duration.ofSeconds(10));
+        byte[] content = new byte[600]; // 600 + overhead, about 10 entries fit
+        for (int i = 0; i < 5; i++) {
+            cache.tryLoad("k" + i).complete(content, "application/json", 60_000);
+        }
+        for (int i = 5; i < 20; i++) {
+            assertNotNull(cache.get("k0")); // keep k0 recently used
+            cache.tryLoad("k" + i).complete(content, "application/json", 60_000);
+        }
+        assertNotNull(cache.get("k0"));
+        assertNull(cache.get("k1"));
+        assertNotNull(cache.get("k19"));
+        assertTrue(cache.bytes() <= 8 * 1024);
+        assertTrue(cache.evictions() > 0);
+    }
+
+    @Test
+    public void thatTooLargeEntriesAreNotCached() {
+        StingrayResponseCache cache = new StingrayResponseCache(8 * 1024, Duration.ofSeconds(10));
+        cache.tryLoad("large").complete(new byte[2 * 1024], "application/json", 60_000);
+        assertNull(cache.get("large"));
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    public void thatConcurrentMissesShareOneLoad() throws Exception {
+        StingrayResponseCache cache = new StingrayResponseCache(1024 * 1024, Duration.ofSeconds(10));
+        StingrayResponseCache.Load load = cache.tryLoad("a");
+        assertNotNull(load);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch waiting = new CountDownLatch(4);
+            Future<?>[] futures = new Future[4];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> {
+                    assertNull(cache.tryLoad("a"));
+                    waiting.countDown();
+                    return cache.await("a");
+                });
+            }
+            assertTrue(waiting.await(5, TimeUnit.SECONDS));
+            load.complete(content("A"), "application/json", 60_000);
+            StingrayResponseCache.Entry entry = cache.get("a");
+            for (Future<?> future : futures) {
+                assertSame(entry, future.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, cache.misses());
+            assertEquals(5, cache.hits());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void thatAbandonedLoadReleasesWaitersWithoutEntry() throws Exception {
+        StingrayResponseCache cache = new StingrayResponseCache(1024 * 1024, Duration.ofSeconds(10));
+        StingrayResponseCache.Load load = cache.tryLoad("a");
+        load.abandon();
+        assertNull(cache.await("a"));
+        assertNotNull(cache.tryLoad("a"));
+    }
+
+    @Test
+    public void thatLostLoadCanBeClaimedAgainAfterLoadTimeout() {
+        TestClock clock = new TestClock();
+        StingrayResponseCache cache = new StingrayResponseCache(1024 * 1024, Duration.ofSeconds(10), clock);
+        assertNotNull(cache.tryLoad("a"));
+        assertNull(cache.tryLoad("a"));
+        clock.millis.addAndGet(10_000);
+        assertNotNull(cache.tryLoad("a"));
+    }
+}
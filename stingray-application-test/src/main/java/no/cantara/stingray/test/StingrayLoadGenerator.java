@@ -0,0 +1,263 @@
+package no.cantara.stingray.test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop load generator, a fixed number of workers each send a request as soon as the previous response has been
+ * fully read. All workers share a single client so that HTTP/2 requests are multiplexed over one connection, while
+ * HTTP/1.1 requests are spread over a connection per worker.
+ */
+public class StingrayLoadGenerator {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final URI uri;
+    private final HttpClient.Version version;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Map<String, String> headers;
+
+    private StingrayLoadGenerator(URI uri, HttpClient.Version version, int concurrency, Duration warmup, Duration duration, Map<String, String> headers) {
+        this.uri = uri;
+        this.version = version;
+        this.concurrency = concurrency;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.headers = headers;
+    }
+
+    public Result run() throws InterruptedException {
+        AtomicInteger workerThreadId = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "load-worker-" + workerThreadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(version)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(uri).GET().timeout(Duration.ofSeconds(30));
+            headers.forEach(requestBuilder::header);
+            HttpRequest request = requestBuilder.build();
+
+            // a single request first, so that the HTTP/2 connection is established (h2c upgrade) before the workers start
+            send(client, request);
+            if (!warmup.isZero()) {
+                runWorkers(workers, client, request, warmup);
+            }
+            return runWorkers(workers, client, request, duration);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private Result runWorkers(ExecutorService workers, HttpClient client, HttpRequest request, Duration duration) throws InterruptedException {
+        CountDownLatch startSignal = new CountDownLatch(1);
+        Set<HttpClient.Version> observedVersions = ConcurrentHashMap.newKeySet();
+        List<Future<Worker>> futures = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(workers.submit(() -> {
+                Worker worker = new Worker();
+                startSignal.await();
+                long endAt = System.nanoTime() + duration.toNanos();
+                while (System.nanoTime() - endAt < 0) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<byte[]> response = send(client, request);
+                        observedVersions.add(response.version());
+                        if (response.statusCode() >= 400) {
+                            worker.errors++;
+                        } else {
+                            worker.record(System.nanoTime() - start);
+                        }
+                    } catch (UncheckedIOException e) {
+                        worker.errors++;
+                    }
+                }
+                return worker;
+            }));
+        }
+        long start = System.nanoTime();
+        startSignal.countDown();
+        List<Worker> completed = new ArrayList<>();
+        for (Future<Worker> future : futures) {
+            try {
+                completed.add(future.get());
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        return new Result(version, completed, elapsedNanos, observedVersions);
+    }
+
+    private static HttpResponse<byte[]> send(HttpClient client, HttpRequest request) throws InterruptedException {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class Worker {
+        long[] latencies = new long[1024];
+        int count;
+        int errors;
+
+        void record(long latencyNanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+        }
+    }
+
+    public static class Result {
+        private final HttpClient.Version version;
+        private final long requests;
+        private final long errors;
+        private final long elapsedNanos;
+        private final long[] sortedLatencies;
+        private final Set<HttpClient.Version> observedVersions;
+
+        private Result(HttpClient.Version version, List<Worker> workers, long elapsedNanos, Set<HttpClient.Version> observedVersions) {
+            this.version = version;
+            this.elapsedNanos = elapsedNanos;
+            this.observedVersions = Set.copyOf(observedVersions);
+            long requests = 0;
+            long errors = 0;
+            for (Worker worker : workers) {
+                requests += worker.count;
+                errors += worker.errors;
+            }
+            this.requests = requests;
+            this.errors = errors;
+            long[] latencies = new long[(int) requests];
+            int i = 0;
+            for (Worker worker : workers) {
+                System.arraycopy(worker.latencies, 0, latencies, i, worker.count);
+                i += worker.count;
+            }
+            Arrays.sort(latencies);
+            this.sortedLatencies = latencies;
+        }
+
+        public HttpClient.Version version() {
+            return version;
+        }
+
+        /**
+         * @return the protocol versions of the responses, this will differ from the requested version if the server
+         * did not agree to upgrade the connection.
+         */
+        public Set<HttpClient.Version> observedVersions() {
+            return observedVersions;
+        }
+
+        public long requests() {
+            return requests;
+        }
+
+        public long errors() {
+            return errors;
+        }
+
+        public double requestsPerSecond() {
+            return requests * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        /**
+         * @param percentile a number between 0 and 100.
+         * @return the latency at the given percentile of successful requests, in milliseconds.
+         */
+        public double latencyMs(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))] / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d requests, %d errors, %.0f req/s, latency p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                    version, requests, errors, requestsPerSecond(), latencyMs(50), latencyMs(99), latencyMs(100));
+        }
+    }
+
+    public static class Builder {
+        private URI uri;
+        private HttpClient.Version version = HttpClient.Version.HTTP_1_1;
+        private int concurrency = 16;
+        private Duration warmup = Duration.ofSeconds(2);
+        private Duration duration = Duration.ofSeconds(10);
+        private final Map<String, String> headers = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        public Builder uri(URI uri) {
+            this.uri = uri;
+            return this;
+        }
+
+        public Builder version(HttpClient.Version version) {
+            this.version = version;
+            return this;
+        }
+
+        public Builder concurrency(int concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        public Builder warmup(Duration warmup) {
+            this.warmup = warmup;
+            return this;
+        }
+
+        public Builder duration(Duration duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        public Builder header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+
+        public StingrayLoadGenerator build() {
+            Objects.requireNonNull(uri);
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("concurrency must be a positive number");
+            }
+            return new StingrayLoadGenerator(uri, version, concurrency, warmup, duration, Map.copyOf(headers));
+        }
+    }
+}
@@ -5,7 +5,6 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.codahale.metrics.health.HealthCheck;
 import com.codahale.metrics.health.HealthCheckRegistry;
-import io.dropwizard.metrics.jetty11.InstrumentedConnectionFactory;
 import io.dropwizard.metrics.jetty11.InstrumentedHttpChannelListener;
 import io.dropwizard.metrics.jetty11.InstrumentedQueuedThreadPool;
 import io.dropwizard.metrics.servlets.AdminServlet;
@@ -24,17 +23,23 @@ import no.cantara.config.ApplicationProperties;
 import no.cantara.stingray.application.cors.StingrayCORSServletFilter;
 import no.cantara.stingray.application.health.StingrayHealthResource;
 import no.cantara.stingray.application.health.StingrayHealthService;
+import no.cantara.stingray.application.jetty.StingrayServerConnectorBuilder;
+import no.cantara.stingray.application.jetty.StingrayVirtualThreadPool;
+import no.cantara.stingray.application.metrics.StingrayGcPauseMetrics;
+import no.cantara.stingray.application.metrics.StingrayJvmMetricsSampler;
 import no.cantara.stingray.application.metrics.StingrayMetrics;
+import no.cantara.stingray.application.metrics.StingrayPrometheusMetricsServlet;
 import no.cantara.stingray.application.openapi.StingrayOpenApiResource;
 import no.cantara.stingray.application.openapi.StingrayOpenApiSpecFilter;
-import org.eclipse.jetty.server.ConnectionFactory;
 import org.eclipse.jetty.server.Connector;
-import org.eclipse.jetty.server.HttpConnectionFactory;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
 import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.compression.DeflaterPool;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.servlet.ServletContainer;
@@ -42,8 +47,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.net.URI;
 import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.EventListener;
 import java.util.LinkedHashMap;
@@ -52,11 +63,13 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
+import java.util.zip.Deflater;
 
 public abstract class AbstractStingrayApplication<A extends AbstractStingrayApplication<A>> implements StingrayApplication<A>, StingrayRegistry {
 
@@ -174,38 +187,55 @@ public abstract class AbstractStingrayApplication<A extends AbstractStingrayAppl
 
     public A doStart() {
         try {
-            QueuedThreadPool threadPool;
-            ConnectionFactory connectionFactory;
-            EventListener httpChannelListener = null;
             MetricRegistry jettyMetricRegistry = getOrNull("metrics.jetty");
+            QueuedThreadPool threadPool = createThreadPool(jettyMetricRegistry);
+            final Server server = new Server(threadPool);
+            if (threadPool instanceof StingrayVirtualThreadPool) {
+                server.addEventListener(((StingrayVirtualThreadPool) threadPool).serverLifeCycleListener());
+            }
+            jettyServerRef.set(server);
+            StingrayServerConnectorBuilder connectorBuilder = StingrayServerConnectorBuilder.builder(server)
+                    .name("http")
+                    .config(config)
+                    .port(config.asInt("server.port"));
+            StingrayServerConnectorBuilder tlsConnectorBuilder = null;
+            if (Boolean.parseBoolean(config.get("server.tls.enabled", "false"))) {
+                tlsConnectorBuilder = StingrayServerConnectorBuilder.builder(server)
+                        .name("https")
+                        .config(config)
+                        .tlsConfig(config);
+            }
             if (jettyMetricRegistry != null) {
                 // jetty with metrics instrumentation
-                threadPool = new InstrumentedQueuedThreadPool(jettyMetricRegistry);
-                Timer connectionFactoryTimer = new Timer();
-                Counter connectionFactoryCounter = new Counter();
-                jettyMetricRegistry.register("connection-factory.connection-duration", connectionFactoryTimer);
-                jettyMetricRegistry.register("connection-factory.connections", connectionFactoryCounter);
-                connectionFactory = new InstrumentedConnectionFactory(new HttpConnectionFactory(), connectionFactoryTimer, connectionFactoryCounter);
-                httpChannelListener = new InstrumentedHttpChannelListener(jettyMetricRegistry, "http-channel");
-            } else {
-                // plain jetty
-                threadPool = new QueuedThreadPool();
-                connectionFactory = new HttpConnectionFactory();
+                // created by the registry, so that the timer uses the configured reservoir
+                Timer connectionFactoryTimer = jettyMetricRegistry.timer("connection-factory.connection-duration");
+                Counter connectionFactoryCounter = jettyMetricRegistry.counter("connection-factory.connections");
+                EventListener httpChannelListener = new InstrumentedHttpChannelListener(jettyMetricRegistry, "http-channel");
+                connectorBuilder.instrumentation(connectionFactoryTimer, connectionFactoryCounter)
+                        .eventListener(httpChannelListener);
+                if (tlsConnectorBuilder != null) {
+                    tlsConnectorBuilder.instrumentation(connectionFactoryTimer, connectionFactoryCounter)
+                            .eventListener(httpChannelListener);
+                }
             }
-            int port = config.asInt("server.port");
-            final Server server = new Server(threadPool);
-            jettyServerRef.set(server);
-            ServerConnector connector = new ServerConnector(server, connectionFactory);
-            connector.setPort(port);
-            if (httpChannelListener != null) {
-                connector.addEventListener(httpChannelListener);
+            List<Connector> connectors = new ArrayList<>();
+            connectors.add(connectorBuilder.build()); // the first connector is the one of getBoundPort()
+            if (tlsConnectorBuilder != null) {
+                connectors.add(tlsConnectorBuilder.build());
             }
-            server.setConnectors(new Connector[]{connector});
+            server.setConnectors(connectors.toArray(new Connector[0]));
             put(Server.class, server);
             ResourceConfig resourceConfig = ResourceConfig.forApplication(this.resourceConfig);
             ServletContextHandler servletContextHandler = createServletContextHandler(resourceConfig);
             put(ServletContextHandler.class, servletContextHandler);
-            server.setHandler(servletContextHandler);
+            GzipHandler gzipHandler = createGzipHandler();
+            if (gzipHandler != null) {
+                gzipHandler.setHandler(servletContextHandler);
+                put(GzipHandler.class, gzipHandler);
+                server.setHandler(gzipHandler);
+            } else {
+                server.setHandler(servletContextHandler);
+            }
             server.start();
             return (A) this;
         } catch (RuntimeException e) {
@@ -215,6 +245,75 @@ public abstract class AbstractStingrayApplication<A extends AbstractStingrayAppl
         }
     }
 
+    /**
+     * Create the jetty thread-pool from the server.threads.* configuration. With server.threads.virtual=true request
+     * handling is executed on new virtual threads when the runtime supports it (JDK 21+), while jetty's acceptor and
+     * selector loops stay on a platform thread-pool sized by server.threads.min, max and idle-timeout-ms. Otherwise the
+     * configured queued thread-pool is used.
+     *
+     * @param jettyMetricRegistry the registry to instrument the thread-pool with, or <code>null</code> for no
+     *                            instrumentation.
+     */
+    protected QueuedThreadPool createThreadPool(MetricRegistry jettyMetricRegistry) {
+        int minThreads = Integer.parseInt(config.get("server.threads.min", "8"));
+        int maxThreads = Integer.parseInt(config.get("server.threads.max", "200"));
+        int idleTimeoutMs = Integer.parseInt(config.get("server.threads.idle-timeout-ms", "60000"));
+        if (Boolean.parseBoolean(config.get("server.threads.virtual", "false"))) {
+            if (StingrayVirtualThreadPool.isSupported()) {
+                StingrayVirtualThreadPool virtualThreadPool = new StingrayVirtualThreadPool("jetty-vt", maxThreads, minThreads, idleTimeoutMs);
+                if (jettyMetricRegistry != null) {
+                    virtualThreadPool.registerGauges(jettyMetricRegistry);
+                }
+                return virtualThreadPool;
+            }
+            log.warn("Configured with server.threads.virtual=true, but virtual threads are not supported by this runtime ({}). Using platform threads.",
+                    System.getProperty("java.version"));
+        }
+        int queueCapacity = Integer.parseInt(config.get("server.threads.queue-capacity", "-1"));
+        int reservedThreads = Integer.parseInt(config.get("server.threads.reserved", "-1"));
+        BlockingQueue<Runnable> queue = queueCapacity > 0 ? new BlockingArrayQueue<>(Math.min(queueCapacity, maxThreads), maxThreads, queueCapacity) : null;
+        QueuedThreadPool threadPool;
+        if (jettyMetricRegistry != null) {
+            threadPool = new InstrumentedQueuedThreadPool(jettyMetricRegistry, maxThreads, minThreads, idleTimeoutMs, queue);
+        } else {
+            threadPool = new QueuedThreadPool(maxThreads, minThreads, idleTimeoutMs, queue);
+        }
+        threadPool.setReservedThreads(reservedThreads);
+        return threadPool;
+    }
+
+    /**
+     * Create the response compression handler from the server.compression.* configuration.
+     * <p>
+     * Responses are compressed when the client accepts gzip, the response is at least min-size bytes, and the
+     * content-type is in the mime-types allow-list (all but the excluded when not configured). Responses that already
+     * have a content-encoding, and known compressed types such as images, archives, audio and video, are never
+     * compressed. Deflaters are pooled by the handler.
+     *
+     * @return the compression handler, or <code>null</code> if server.compression.enabled is not true.
+     */
+    protected GzipHandler createGzipHandler() {
+        if (!Boolean.parseBoolean(config.get("server.compression.enabled", "false"))) {
+            return null;
+        }
+        GzipHandler gzipHandler = new GzipHandler();
+        gzipHandler.setMinGzipSize(Integer.parseInt(config.get("server.compression.min-size", "1024")));
+        String mimeTypes = config.get("server.compression.mime-types");
+        if (mimeTypes != null && !mimeTypes.isBlank()) {
+            gzipHandler.setIncludedMimeTypesList(mimeTypes);
+        }
+        String excludedMimeTypes = config.get("server.compression.excluded-mime-types");
+        if (excludedMimeTypes != null && !excludedMimeTypes.isBlank()) {
+            // in addition to the jetty defaults, which exclude the known compressed types
+            gzipHandler.addExcludedMimeTypes(excludedMimeTypes.split("\\s*,\\s*"));
+        }
+        gzipHandler.setIncludedMethodList(config.get("server.compression.methods", "GET,POST"));
+        int level = Integer.parseInt(config.get("server.compression.level", String.valueOf(Deflater.DEFAULT_COMPRESSION)));
+        int deflaterPoolCapacity = Integer.parseInt(config.get("server.compression.deflater-pool-capacity", "1024"));
+        gzipHandler.setDeflaterPool(new DeflaterPool(deflaterPoolCapacity, level, true));
+        return gzipHandler;
+    }
+
     @Override
     public final A start(boolean alsoRunPostInitAfterStart) {
         doStart();
@@ -231,9 +330,46 @@ public abstract class AbstractStingrayApplication<A extends AbstractStingrayAppl
     @Override
     public final A postInit() {
         doPostInit();
+        if (Boolean.parseBoolean(config.get("openapi.warm-up", "false"))) {
+            warmUpOpenApi();
+        }
         return (A) this;
     }
 
+    /**
+     * Request the OpenAPI documents from a background thread, so that they are generated and cached before the first
+     * client asks for them. Generation depends on request context, so the documents are requested through the
+     * server rather than generated directly. Enabled with openapi.warm-up=true, off by default as it sends requests
+     * through the server, i.e. they show up in access logs, metrics and rate-limits.
+     */
+    protected void warmUpOpenApi() {
+        Server server = jettyServerRef.get();
+        if (server == null || !server.isStarted() || getOrNull(StingrayOpenApiResource.class) == null) {
+            return;
+        }
+        String contextPath = normalizeContextPath(config.get("server.context-path"));
+        String baseUrl = "http://localhost:" + getBoundPort() + contextPath;
+        Thread warmUpThread = new Thread(() -> {
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+            for (String type : List.of("json", "yaml")) {
+                try {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/openapi." + type))
+                            .timeout(Duration.ofSeconds(30))
+                            .build();
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    log.debug("OpenAPI {} warm-up completed with status {}", type, response.statusCode());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    log.debug("OpenAPI {} warm-up failed", type, e);
+                }
+            }
+        }, "openapi-warm-up");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+    }
+
     protected void doPostInit() {
     }
 
@@ -245,10 +381,26 @@ public abstract class AbstractStingrayApplication<A extends AbstractStingrayAppl
             throw e;
         } catch (Exception e) {
             throw new RuntimeException(e);
+        } finally {
+            stopMetrics();
         }
         return (A) this;
     }
 
+    /**
+     * Stop the sampling thread and the gc notification listener of the jvm metrics, if initialized.
+     */
+    protected void stopMetrics() {
+        StingrayJvmMetricsSampler jvmMetricsSampler = getOrNull(StingrayJvmMetricsSampler.class);
+        if (jvmMetricsSampler != null) {
+            jvmMetricsSampler.shutdown();
+        }
+        StingrayGcPauseMetrics gcPauseMetrics = getOrNull(StingrayGcPauseMetrics.class);
+        if (gcPauseMetrics != null) {
+            gcPauseMetrics.stop();
+        }
+    }
+
     protected ServletContextHandler createServletContextHandler(ResourceConfig resourceConfig) {
         Objects.requireNonNull(resourceConfig);
         ServletContextHandler servletContextHandler = new ServletContextHandler(ServletContextHandler.SESSIONS);
@@ -268,6 +420,9 @@ public abstract class AbstractStingrayApplication<A extends AbstractStingrayAppl
                 servletContextHandler.getServletContext().setAttribute(HealthCheckServlet.HEALTH_CHECK_REGISTRY, healthCheckRegistry);
             }
             servletContextHandler.addServlet(new ServletHolder(adminServlet), "/admin/*");
+            if (baseMetricRegistry != null) {
+                servletContextHandler.addServlet(new ServletHolder(new StingrayPrometheusMetricsServlet(baseMetricRegistry)), "/admin/metrics/prometheus");
+            }
         }
         MetricRegistry appMetricsRegistry = getOrNull(MetricRegistry.class);
         if (appMetricsRegistry != null) {
@@ -402,7 +557,11 @@ public abstract class AbstractStingrayApplication<A extends AbstractStingrayAppl
     protected StingrayHealthService createHealthService(String version) {
         HealthCheckRegistry healthCheckRegistry = get(HealthCheckRegistry.class);
         String ip = StingrayHealthService.getMyIPAddresssString();
-        StingrayHealthService healthService = new StingrayHealthService(version, ip, healthCheckRegistry, 1800, ChronoUnit.MILLIS);
+        MetricRegistry appMetricRegistry = getOrNull(MetricRegistry.class);
+        int healthCheckThreads = Integer.parseInt(config.get("health.check.threads", "4"));
+        long healthCheckTimeoutMs = Long.parseLong(config.get("health.check.timeout-ms", "1500"));
+        StingrayHealthService healthService = new StingrayHealthService(version, ip, healthCheckRegistry, 1800, ChronoUnit.MILLIS,
+                appMetricRegistry, healthCheckThreads, Duration.ofMillis(healthCheckTimeoutMs));
         return healthService;
     }
 
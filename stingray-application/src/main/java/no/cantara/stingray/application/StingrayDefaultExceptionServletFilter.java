@@ -5,6 +5,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import no.cantara.stingray.application.metrics.StingrayRequestTiming;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,8 +23,10 @@ public class StingrayDefaultExceptionServletFilter extends HttpFilter {
         try {
             chain.doFilter(request, response);
         } catch (Throwable t) {
+            long start = System.nanoTime();
             log.error(String.format("While attempting to serve: %s %s", request.getMethod(), request.getRequestURI()), t);
             response.sendError(500);
+            StingrayRequestTiming.of(request).record(StingrayRequestTiming.Span.EXCEPTION_HANDLING, start);
         }
     }
 }
@@ -0,0 +1,33 @@
+package no.cantara.stingray.application.caching;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Enables conditional GET on a resource method, or on all GET methods of a resource class, when the
+ * {@link StingrayHttpCachingFeature} is registered.
+ * <p>
+ * Without a {@link #version()} the ETag is a hash of the serialized entity, which saves bandwidth but not the work of
+ * producing the response, the entity is serialized once into a buffer to compute it. With a version the ETag and
+ * Last-Modified are taken from the resource, and a matching conditional request is answered with 304 before the
+ * resource method is invoked, without serializing or buffering the entity.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface StingrayHttpCaching {
+
+    /**
+     * @return the Cache-Control header of 200 and 304 responses. The default lets clients store the response, but
+     * requires them to revalidate it before use.
+     */
+    String cacheControl() default "private, no-cache";
+
+    /**
+     * @return the name of a public no-arg method on the resource class that cheaply returns the current version of
+     * the resource, either as a {@link StingrayResourceVersion} or as any other value which string representation is
+     * used as ETag. Empty to hash the serialized entity instead.
+     */
+    String version() default "";
+}
@@ -0,0 +1,44 @@
+package no.cantara.stingray.application.caching;
+
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.DynamicFeature;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.FeatureContext;
+
+import java.lang.reflect.Method;
+
+/**
+ * Adds ETag, Last-Modified and Cache-Control headers to, and answers conditional requests for, the GET resource
+ * methods annotated with {@link StingrayHttpCaching}. Register with
+ * {@code initAndRegisterJaxRsWsComponent(StingrayHttpCachingFeature.class, StingrayHttpCachingFeature::new)}.
+ */
+public class StingrayHttpCachingFeature implements DynamicFeature {
+
+    @Override
+    public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+        Method resourceMethod = resourceInfo.getResourceMethod();
+        Class<?> resourceClass = resourceInfo.getResourceClass();
+        if (!resourceMethod.isAnnotationPresent(GET.class)) {
+            return; // HEAD is served through the GET method
+        }
+        StingrayHttpCaching caching = resourceMethod.getAnnotation(StingrayHttpCaching.class);
+        if (caching == null) {
+            caching = resourceClass.getAnnotation(StingrayHttpCaching.class);
+        }
+        if (caching == null) {
+            return;
+        }
+        Method versionMethod = null;
+        if (!caching.version().isEmpty()) {
+            try {
+                versionMethod = resourceClass.getMethod(caching.version());
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException(String.format("@StingrayHttpCaching on %s.%s() refers to missing public no-arg version method: %s",
+                        resourceClass.getName(), resourceMethod.getName(), caching.version()), e);
+            }
+        }
+        // after authentication and access-control, a 304 must not reveal anything to an unauthorized client
+        context.register(new StingrayHttpCachingFilter(caching.cacheControl(), versionMethod), Priorities.USER + 100);
+    }
+}
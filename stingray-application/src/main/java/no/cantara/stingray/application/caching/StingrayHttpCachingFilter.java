@@ -0,0 +1,160 @@
+package no.cantara.stingray.application.caching;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Providers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+class StingrayHttpCachingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    static final String VERSION_PROPERTY = StingrayResourceVersion.class.getName();
+
+    /**
+     * Representation metadata that must not be sent with a 304, see RFC 7232 section 4.1.
+     */
+    static final Set<String> ENTITY_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        ENTITY_HEADERS.addAll(List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_ENCODING,
+                HttpHeaders.CONTENT_LANGUAGE, HttpHeaders.CONTENT_DISPOSITION, "Content-Range", "Content-MD5", "Transfer-Encoding"));
+    }
+
+    @Context
+    Providers providers;
+
+    private final String cacheControl;
+    private final Method versionMethod;
+
+    /**
+     * @param versionMethod null to hash the serialized entity.
+     */
+    StingrayHttpCachingFilter(String cacheControl, Method versionMethod) {
+        this.cacheControl = cacheControl;
+        this.versionMethod = versionMethod;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        if (versionMethod == null) {
+            return; // entity must be serialized before the ETag is known
+        }
+        List<Object> matchedResources = requestContext.getUriInfo().getMatchedResources();
+        StingrayResourceVersion version = resourceVersion(matchedResources.get(0));
+        requestContext.setProperty(VERSION_PROPERTY, version);
+        EntityTag entityTag = new EntityTag(version.version());
+        Response.ResponseBuilder notModified = version.lastModified() == null
+                ? requestContext.getRequest().evaluatePreconditions(entityTag)
+                : requestContext.getRequest().evaluatePreconditions(Date.from(version.lastModified()), entityTag);
+        if (notModified != null) {
+            // short-circuit, the resource method is never invoked and nothing is serialized
+            notModified.header(HttpHeaders.CACHE_CONTROL, cacheControl);
+            if (version.lastModified() != null) {
+                notModified.lastModified(Date.from(version.lastModified()));
+            }
+            requestContext.abortWith(notModified.build());
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) throws IOException {
+        MultivaluedMap<String, Object> headers = responseContext.getHeaders();
+        if (responseContext.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()) {
+            // other filters may have added representation metadata to the aborted response
+            headers.keySet().removeIf(ENTITY_HEADERS::contains);
+            return;
+        }
+        if (responseContext.getStatus() != Response.Status.OK.getStatusCode() || !responseContext.hasEntity()) {
+            return;
+        }
+        headers.putSingle(HttpHeaders.CACHE_CONTROL, cacheControl);
+        if (headers.containsKey(HttpHeaders.ETAG)) {
+            return; // resource method set its own validator
+        }
+        StingrayResourceVersion version = (StingrayResourceVersion) requestContext.getProperty(VERSION_PROPERTY);
+        if (version != null) {
+            headers.putSingle(HttpHeaders.ETAG, new EntityTag(version.version()));
+            if (version.lastModified() != null) {
+                headers.putSingle(HttpHeaders.LAST_MODIFIED, Date.from(version.lastModified()));
+            }
+            return;
+        }
+        byte[] content = serialize(responseContext);
+        if (content == null) {
+            return; // no writer, leave it to jersey to report
+        }
+        EntityTag entityTag = new EntityTag(sha256(content));
+        headers.putSingle(HttpHeaders.ETAG, entityTag);
+        Response.ResponseBuilder notModified = requestContext.getRequest().evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            responseContext.setStatus(notModified.build().getStatus());
+            responseContext.setEntity(null);
+            headers.keySet().removeIf(ENTITY_HEADERS::contains);
+            return;
+        }
+        // write the already serialized bytes rather than serializing the entity a second time
+        responseContext.setEntity(content, responseContext.getEntityAnnotations(), responseContext.getMediaType());
+    }
+
+    private StingrayResourceVersion resourceVersion(Object resource) {
+        Object version;
+        try {
+            version = versionMethod.invoke(resource);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        if (version instanceof StingrayResourceVersion) {
+            return (StingrayResourceVersion) version;
+        }
+        return StingrayResourceVersion.of(String.valueOf(version));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private byte[] serialize(ContainerResponseContext responseContext) throws IOException {
+        Object entity = responseContext.getEntity();
+        if (entity instanceof byte[]) {
+            return (byte[]) entity;
+        }
+        MessageBodyWriter writer = providers.getMessageBodyWriter(responseContext.getEntityClass(), responseContext.getEntityType(),
+                responseContext.getEntityAnnotations(), responseContext.getMediaType());
+        if (writer == null) {
+            return null;
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+        writer.writeTo(entity, responseContext.getEntityClass(), responseContext.getEntityType(), responseContext.getEntityAnnotations(),
+                responseContext.getMediaType(), responseContext.getHeaders(), baos);
+        return baos.toByteArray();
+    }
+
+    static String sha256(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
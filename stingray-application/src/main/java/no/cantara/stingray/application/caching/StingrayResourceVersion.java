@@ -0,0 +1,47 @@
+package no.cantara.stingray.application.caching;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+
+/**
+ * The current version of a resource as supplied by the resource itself, see {@link StingrayHttpCaching#version()}.
+ */
+public final class StingrayResourceVersion {
+
+    public static StingrayResourceVersion of(String version) {
+        return new StingrayResourceVersion(version, null);
+    }
+
+    public static StingrayResourceVersion of(String version, Instant lastModified) {
+        return new StingrayResourceVersion(version, lastModified);
+    }
+
+    private final String version;
+    private final Instant lastModified;
+
+    private StingrayResourceVersion(String version, Instant lastModified) {
+        this.version = Objects.requireNonNull(version);
+        // HTTP dates have second precision
+        this.lastModified = lastModified == null ? null : lastModified.truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    public String version() {
+        return version;
+    }
+
+    /**
+     * @return the time of last modification, or null if not known.
+     */
+    public Instant lastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String toString() {
+        return "StingrayResourceVersion{" +
+                "version='" + version + '\'' +
+                ", lastModified=" + lastModified +
+                '}';
+    }
+}
@@ -5,6 +5,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import no.cantara.stingray.application.metrics.StingrayRequestTiming;
 
 import java.io.IOException;
 
@@ -26,11 +27,13 @@ public class StingrayCORSServletFilter extends HttpFilter {
 
     @Override
     protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+        long start = System.nanoTime();
         response.addHeader("Access-Control-Allow-Origin", origin);
         response.addHeader("Access-Control-Allow-Credentials", credentials);
         response.addHeader("Access-Control-Allow-Headers", headers);
         response.addHeader("Access-Control-Allow-Methods", methods);
         response.addHeader("Access-Control-Max-Age", maxAge);
+        StingrayRequestTiming.of(request).record(StingrayRequestTiming.Span.CORS, start);
         chain.doFilter(request, response);
     }
 
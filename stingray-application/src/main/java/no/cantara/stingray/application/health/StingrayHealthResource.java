@@ -35,6 +35,11 @@ public class StingrayHealthResource {
     @SecurityRequirements(@SecurityRequirement(name = "none")) // disable authorization requirement in openapi spec
     public Response getHealth() {
         try {
+            if (healthService.isActivelyUpdatingCurrentHealth()) {
+                // fast-path, splice the current time into the pre-serialized snapshot
+                byte[] health = healthService.getCurrentHealthSnapshot().render(Instant.now());
+                return Response.status(Response.Status.OK).type(MediaType.APPLICATION_JSON_TYPE).entity(health).build();
+            }
             String currentHealthJsonWithoutTimestamp = healthService.getCurrentHealthJson();
             ObjectNode health = (ObjectNode) mapper.readTree(currentHealthJsonWithoutTimestamp);
             long healthComputeTimeMs = healthService.getHealthComputeTimeMs();
@@ -1,5 +1,8 @@
 package no.cantara.stingray.application.health;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.codahale.metrics.health.HealthCheck;
 import com.codahale.metrics.health.HealthCheckRegistry;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -15,12 +18,19 @@ import java.net.NetworkInterface;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.TemporalUnit;
+import java.util.Collection;
 import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -38,7 +48,7 @@ public class StingrayHealthService implements Runnable {
     private final AtomicInteger serviceSequence = new AtomicInteger();
     private final String timeAtStart = Instant.now().toString();
     private final ObjectMapper mapper = new ObjectMapper();
-    private final AtomicReference<String> currentHealthSerialized;
+    private final AtomicReference<StingrayHealthSnapshot> currentHealthSnapshot;
     private final Thread healthUpdateThread;
     private final AtomicBoolean shouldRun = new AtomicBoolean(true);
     private final long updateInterval;
@@ -49,20 +59,50 @@ public class StingrayHealthService implements Runnable {
     private final HealthCheckRegistry healthCheckRegistry;
     private final List<StingrayHealthProbe> healthProbes = new CopyOnWriteArrayList<>();
     private final CountDownLatch initializationCompleteLatch = new CountDownLatch(1);
+    private final MetricRegistry metricRegistry;
+    private final ExecutorService healthCheckExecutor;
+    private final Duration healthCheckTimeout;
+    private final Map<String, Duration> healthCheckIntervalByKey = new ConcurrentHashMap<>();
 
     /*
      * State only that is only read and written by the healthUpdateThread, so no need for synchronization
      */
     ObjectNode currentHealth;
+    final Map<String, StingrayScheduledHealthCheck> scheduledHealthCheckByKey = new LinkedHashMap<>();
 
     public StingrayHealthService(String version, String ip, HealthCheckRegistry healthCheckRegistry, long updateInterval, TemporalUnit updateIntervalUnit) {
+        this(version, ip, healthCheckRegistry, updateInterval, updateIntervalUnit, null, 4, Duration.of(updateInterval, updateIntervalUnit));
+    }
+
+    /**
+     * @param metricRegistry     registry of the per health-check execution timers, or <code>null</code> to not record
+     *                           timers.
+     * @param healthCheckThreads the maximum number of health-checks executing concurrently.
+     * @param healthCheckTimeout the time a health-check is given to complete before it is reported as DOWN.
+     */
+    public StingrayHealthService(String version, String ip, HealthCheckRegistry healthCheckRegistry, long updateInterval, TemporalUnit updateIntervalUnit,
+                                 MetricRegistry metricRegistry, int healthCheckThreads, Duration healthCheckTimeout) {
+        if (healthCheckThreads < 1) {
+            throw new IllegalArgumentException("healthCheckThreads must be a positive number");
+        }
+        this.metricRegistry = metricRegistry;
+        this.healthCheckTimeout = healthCheckTimeout;
+        int serviceId = serviceSequence.incrementAndGet();
+        AtomicInteger healthCheckThreadSequence = new AtomicInteger();
+        ThreadPoolExecutor healthCheckExecutor = new ThreadPoolExecutor(healthCheckThreads, healthCheckThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "health-check-" + serviceId + "-" + healthCheckThreadSequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthCheckExecutor.allowCoreThreadTimeOut(true);
+        this.healthCheckExecutor = healthCheckExecutor;
         this.updateInterval = updateInterval;
         this.updateIntervalUnit = updateIntervalUnit;
-        this.currentHealthSerialized = new AtomicReference<>("{}");
+        this.currentHealthSnapshot = new AtomicReference<>(new StingrayHealthSnapshot(mapper, mapper.createObjectNode(), -1));
         this.version = version;
         this.ip = ip;
         this.healthCheckRegistry = healthCheckRegistry;
-        this.healthUpdateThread = new Thread(this, "health-updater-" + serviceSequence.incrementAndGet());
+        this.healthUpdateThread = new Thread(this, "health-updater-" + serviceId);
         this.healthUpdateThread.start();
     }
 
@@ -71,7 +111,14 @@ public class StingrayHealthService implements Runnable {
     }
 
     public String getCurrentHealthJson() {
-        return currentHealthSerialized.get();
+        return currentHealthSnapshot.get().getHealthJson();
+    }
+
+    /**
+     * @return the latest published health, pre-serialized and ready to be rendered without any locking or parsing.
+     */
+    public StingrayHealthSnapshot getCurrentHealthSnapshot() {
+        return currentHealthSnapshot.get();
     }
 
     public long getHealthComputeTimeMs() {
@@ -97,20 +144,22 @@ public class StingrayHealthService implements Runnable {
                 currentHealth.put("ip", ip);
                 currentHealth.put("running since", timeAtStart);
                 // TODO add service-name / alias / context-path and some other basic info/config about app
-                currentHealthSerialized.set(currentHealth.toPrettyString());
+                publish(currentHealth);
             } catch (Throwable t) {
                 log.warn("While setting health initialization message", t);
             }
 
             // initial health update to complete initialization
+            long updateIntervalMs = Duration.of(updateInterval, updateIntervalUnit).toMillis();
+            long nextUpdateAt = System.currentTimeMillis() + updateIntervalMs;
             performHealthUpdate();
             initializationCompleteLatch.countDown();
-            Thread.sleep(Duration.of(updateInterval, updateIntervalUnit).toMillis());
 
-            // health-update loop
+            // health-update loop, at a fixed rate so that slow updates do not make the cadence drift
             while (shouldRun.get()) {
+                Thread.sleep(Math.max(0, nextUpdateAt - System.currentTimeMillis()));
+                nextUpdateAt = Math.max(nextUpdateAt + updateIntervalMs, System.currentTimeMillis());
                 performHealthUpdate();
-                Thread.sleep(Duration.of(updateInterval, updateIntervalUnit).toMillis());
             }
 
         } catch (Throwable t) {
@@ -122,17 +171,18 @@ public class StingrayHealthService implements Runnable {
                 StringWriter strWriter = new StringWriter();
                 t.printStackTrace(new PrintWriter(strWriter));
                 health.put("errorCause", strWriter.toString());
-                currentHealthSerialized.set(health.toPrettyString());
+                publish(health);
             }
+        } finally {
+            healthCheckExecutor.shutdownNow();
         }
     }
 
     private void performHealthUpdate() {
         try {
-            boolean changed = updateHealth(currentHealth);
-            if (changed) {
-                currentHealthSerialized.set(currentHealth.toString());
-            }
+            updateHealth(currentHealth);
+            // always publish, health-compute-time-ms is part of the snapshot even when no field changed
+            publish(currentHealth);
         } catch (Throwable t) {
             log.error("While updating health", t);
             {
@@ -142,32 +192,44 @@ public class StingrayHealthService implements Runnable {
                 StringWriter strWriter = new StringWriter();
                 t.printStackTrace(new PrintWriter(strWriter));
                 health.put("errorCause", strWriter.toString());
-                currentHealthSerialized.set(health.toPrettyString());
+                publish(health);
             }
         }
     }
 
+    private void publish(ObjectNode health) {
+        currentHealthSnapshot.set(new StingrayHealthSnapshot(mapper, health, healthComputeTimeMs.get()));
+    }
+
     public StingrayHealthService registerHealthCheck(String key, HealthCheck healthCheck) {
         healthCheckRegistry.register(key, healthCheck);
         return this;
     }
 
+    /**
+     * Register a health-check that is executed at most once per the given interval, the latest result is reported in
+     * between. Use this for checks that are expensive compared to the update interval of the health service.
+     */
+    public StingrayHealthService registerHealthCheck(String key, HealthCheck healthCheck, Duration interval) {
+        healthCheckIntervalByKey.put(key, interval);
+        healthCheckRegistry.register(key, healthCheck);
+        return this;
+    }
+
     public StingrayHealthService registerHealthProbe(String key, Supplier<Object> probe) {
         healthProbes.add(new StingrayHealthProbe(key, probe));
         return this;
     }
 
-    private boolean updateHealth(ObjectNode health) {
+    private boolean updateHealth(ObjectNode health) throws InterruptedException {
         long start = System.currentTimeMillis();
         boolean changed = false;
         boolean status = true; // healthy
-        SortedMap<String, HealthCheck.Result> healthCheckResultByKey = healthCheckRegistry.runHealthChecks();
-        for (Map.Entry<String, HealthCheck.Result> entry : healthCheckResultByKey.entrySet()) {
-            String key = entry.getKey();
-            HealthCheck.Result result = entry.getValue();
-            boolean healthy = result.isHealthy();
+        for (StingrayScheduledHealthCheck scheduledHealthCheck : runHealthChecks()) {
+            boolean healthy = scheduledHealthCheck.isHealthy();
             status &= healthy; // all health-checks must be healthy in order for status to be true
-            changed |= updateField(health, key, () -> healthy ? "UP" : "DOWN");
+            changed |= updateField(health, scheduledHealthCheck.key, () -> healthy ? "UP" : "DOWN");
+            changed |= updateField(health, scheduledHealthCheck.key + ".latency-ms", () -> healthy ? null : scheduledHealthCheck.getLatencyMs());
         }
         boolean effectiveStatus = status;
         changed |= updateField(health, "Status", () -> effectiveStatus ? "UP" : "DOWN");
@@ -179,6 +241,45 @@ public class StingrayHealthService implements Runnable {
         return changed;
     }
 
+    /**
+     * Submit all due health-checks to the executor, then wait for each of them to complete or time out.
+     */
+    private Collection<StingrayScheduledHealthCheck> runHealthChecks() throws InterruptedException {
+        SortedSet<String> keys = healthCheckRegistry.getNames();
+        Iterator<Map.Entry<String, StingrayScheduledHealthCheck>> iterator = scheduledHealthCheckByKey.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, StingrayScheduledHealthCheck> entry = iterator.next();
+            if (!keys.contains(entry.getKey())) {
+                entry.getValue().cancel(); // un-registered
+                iterator.remove();
+            }
+        }
+        long now = System.nanoTime();
+        for (String key : keys) {
+            StingrayScheduledHealthCheck scheduledHealthCheck = scheduledHealthCheckByKey.computeIfAbsent(key, k -> createScheduledHealthCheck(k, now));
+            scheduledHealthCheck.submitIfDue(healthCheckRegistry, healthCheckExecutor, now);
+        }
+        for (StingrayScheduledHealthCheck scheduledHealthCheck : scheduledHealthCheckByKey.values()) {
+            boolean wasHealthy = scheduledHealthCheck.isHealthy() || scheduledHealthCheck.getLatencyMs() == -1;
+            scheduledHealthCheck.awaitCompletion();
+            if (wasHealthy && !scheduledHealthCheck.isHealthy()) {
+                log.warn("Health-check '{}' is DOWN after {} ms: {}", scheduledHealthCheck.key, scheduledHealthCheck.getLatencyMs(), scheduledHealthCheck.getMessage());
+            }
+        }
+        return scheduledHealthCheckByKey.values();
+    }
+
+    private StingrayScheduledHealthCheck createScheduledHealthCheck(String key, long now) {
+        Duration interval = healthCheckIntervalByKey.getOrDefault(key, Duration.ZERO);
+        Timer timer = null;
+        Counter timeouts = null;
+        if (metricRegistry != null) {
+            timer = metricRegistry.timer(MetricRegistry.name("health-check", key));
+            timeouts = metricRegistry.counter(MetricRegistry.name("health-check", key, "timeouts"));
+        }
+        return new StingrayScheduledHealthCheck(key, interval.toNanos(), healthCheckTimeout.toNanos(), timer, timeouts, now);
+    }
+
     private boolean updateField(ObjectNode health, String key, Supplier<Object> valueConsumer) {
         Object value = null;
         try {
@@ -0,0 +1,66 @@
+package no.cantara.stingray.application.health;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Immutable, pre-serialized health document. The document is held as a byte template around the <code>now</code>
+ * field, so that rendering it is a matter of splicing the current time in between two byte arrays, without parsing or
+ * serializing json.
+ */
+public final class StingrayHealthSnapshot {
+
+    private final String healthJson;
+    private final byte[] head;
+    private final byte[] tail;
+
+    StingrayHealthSnapshot(ObjectMapper mapper, ObjectNode health, long healthComputeTimeMs) {
+        try {
+            this.healthJson = mapper.writeValueAsString(health);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+        // healthJson always ends with '}', the dynamic fields are appended after the last field of the health document
+        StringBuilder head = new StringBuilder(healthJson.length() + 8);
+        head.append(healthJson, 0, healthJson.length() - 1);
+        if (health.size() > 0) {
+            head.append(',');
+        }
+        head.append("\"now\":\"");
+        this.head = head.toString().getBytes(StandardCharsets.UTF_8);
+        this.tail = ("\",\"health-compute-time-ms\":\"" + healthComputeTimeMs + "\",\"health-updater-thread-alive\":\"true\"}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the health document without the fields that are added when rendered.
+     */
+    public String getHealthJson() {
+        return healthJson;
+    }
+
+    /**
+     * @param now the time of the <code>now</code> field.
+     * @return the complete health document as utf-8 encoded json.
+     */
+    public byte[] render(Instant now) {
+        byte[] nowBytes = now.toString().getBytes(StandardCharsets.US_ASCII);
+        byte[] document = new byte[head.length + nowBytes.length + tail.length];
+        System.arraycopy(head, 0, document, 0, head.length);
+        System.arraycopy(nowBytes, 0, document, head.length, nowBytes.length);
+        System.arraycopy(tail, 0, document, head.length + nowBytes.length, tail.length);
+        return document;
+    }
+
+    public void writeTo(OutputStream out, Instant now) throws IOException {
+        out.write(head);
+        out.write(now.toString().getBytes(StandardCharsets.US_ASCII));
+        out.write(tail);
+    }
+}
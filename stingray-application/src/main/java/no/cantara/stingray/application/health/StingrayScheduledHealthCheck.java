@@ -0,0 +1,126 @@
+package no.cantara.stingray.application.health;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.health.HealthCheck;
+import com.codahale.metrics.health.HealthCheckRegistry;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Schedule and latest outcome of a single health-check. Only accessed by the health-updater thread, except for the
+ * executing flag which is cleared by the executor thread running the check.
+ */
+class StingrayScheduledHealthCheck {
+
+    final String key;
+    final long intervalNanos;
+    final long timeoutNanos;
+    final Timer timer;
+    final Counter timeouts;
+
+    private volatile boolean executing;
+    private Future<HealthCheck.Result> future;
+    private long startedAt;
+    private long nextRunAt;
+    private boolean healthy;
+    private String message;
+    private long latencyMs = -1;
+
+    StingrayScheduledHealthCheck(String key, long intervalNanos, long timeoutNanos, Timer timer, Counter timeouts, long now) {
+        this.key = key;
+        this.intervalNanos = intervalNanos;
+        this.timeoutNanos = timeoutNanos;
+        this.timer = timer;
+        this.timeouts = timeouts;
+        this.nextRunAt = now;
+    }
+
+    /**
+     * Submit the health-check to the executor if it is due and not already executing. A check that ignored the
+     * interrupt when it timed out is not submitted again until it has returned, so a hung check can occupy at most one
+     * executor thread.
+     */
+    void submitIfDue(HealthCheckRegistry healthCheckRegistry, ExecutorService executor, long now) {
+        if (future != null || executing || now - nextRunAt < 0) {
+            return;
+        }
+        startedAt = now;
+        nextRunAt = now + intervalNanos;
+        executing = true;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return healthCheckRegistry.runHealthCheck(key);
+                } finally {
+                    if (timer != null) {
+                        timer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                    executing = false;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            executing = false;
+            completed(false, "Health-check executor rejected the check", now);
+        }
+    }
+
+    /**
+     * Wait for the submitted check to complete, at most until the timeout of the check has passed since it was
+     * submitted. A check that does not complete in time is cancelled and reported as DOWN.
+     */
+    void awaitCompletion() throws InterruptedException {
+        if (future == null) {
+            return;
+        }
+        long remaining = startedAt + timeoutNanos - System.nanoTime();
+        try {
+            HealthCheck.Result result = future.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+            completed(result.isHealthy(), result.getMessage(), System.nanoTime());
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            if (timeouts != null) {
+                timeouts.inc();
+            }
+            long now = System.nanoTime();
+            completed(false, String.format("Timed out after %d ms", TimeUnit.NANOSECONDS.toMillis(now - startedAt)), now);
+        } catch (ExecutionException e) {
+            completed(false, String.valueOf(e.getCause()), System.nanoTime());
+        } catch (CancellationException e) {
+            completed(false, "Cancelled", System.nanoTime());
+        }
+    }
+
+    private void completed(boolean healthy, String message, long now) {
+        this.future = null;
+        this.healthy = healthy;
+        this.message = message;
+        this.latencyMs = TimeUnit.NANOSECONDS.toMillis(now - startedAt);
+    }
+
+    void cancel() {
+        if (future != null) {
+            future.cancel(true);
+            future = null;
+        }
+    }
+
+    boolean isHealthy() {
+        return healthy;
+    }
+
+    String getMessage() {
+        return message;
+    }
+
+    long getLatencyMs() {
+        return latencyMs;
+    }
+}
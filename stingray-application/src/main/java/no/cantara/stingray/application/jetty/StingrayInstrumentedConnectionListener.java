@@ -0,0 +1,40 @@
+package no.cantara.stingray.application.jetty;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import org.eclipse.jetty.io.Connection;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the same connection metrics as the instrumented connection factory, for connection factories that cannot be
+ * wrapped. The HTTP/2 factories must be registered as is on the connector, as HTTP/1.1 upgrades and ALPN resolve them
+ * by type.
+ */
+class StingrayInstrumentedConnectionListener implements Connection.Listener {
+
+    private final Timer timer;
+    private final Counter counter;
+    private final Map<Connection, Timer.Context> contextByConnection = new ConcurrentHashMap<>();
+
+    StingrayInstrumentedConnectionListener(Timer timer, Counter counter) {
+        this.timer = timer;
+        this.counter = counter;
+    }
+
+    @Override
+    public void onOpened(Connection connection) {
+        contextByConnection.put(connection, timer.time());
+        counter.inc();
+    }
+
+    @Override
+    public void onClosed(Connection connection) {
+        Timer.Context context = contextByConnection.remove(connection);
+        if (context != null) {
+            context.stop();
+            counter.dec();
+        }
+    }
+}
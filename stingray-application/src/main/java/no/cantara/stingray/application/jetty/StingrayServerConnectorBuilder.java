@@ -0,0 +1,202 @@
+package no.cantara.stingray.application.jetty;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import io.dropwizard.metrics.jetty11.InstrumentedConnectionFactory;
+import no.cantara.config.ApplicationProperties;
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
+import org.eclipse.jetty.server.AbstractConnectionFactory;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.SecureRequestCustomizer;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
+import java.util.ArrayList;
+import java.util.EventListener;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Builds the server connectors of the embedded jetty server. A connector always serves HTTP/1.1, and can be configured
+ * to also serve cleartext HTTP/2 (h2c), both through the HTTP/1.1 upgrade mechanism and with prior knowledge. A TLS
+ * connector negotiates HTTP/2 or HTTP/1.1 with ALPN.
+ * <p>
+ * When instrumented, all connections are recorded in the given timer and counter regardless of protocol.
+ */
+public class StingrayServerConnectorBuilder {
+
+    public static StingrayServerConnectorBuilder builder(Server server) {
+        return new StingrayServerConnectorBuilder(server);
+    }
+
+    private final Server server;
+    private String name;
+    private int port;
+    private int acceptors = -1;
+    private int selectors = -1;
+    private int acceptQueueSize = 0;
+    private long idleTimeoutMs = 30000;
+    private boolean http2 = false;
+    private boolean tls = false;
+    private String keyStorePath;
+    private String keyStorePassword;
+    private String keyManagerPassword;
+    private String keyStoreType = "PKCS12";
+    private Timer connectionTimer;
+    private Counter connectionCounter;
+    private final List<EventListener> eventListeners = new ArrayList<>();
+
+    private StingrayServerConnectorBuilder(Server server) {
+        this.server = Objects.requireNonNull(server);
+    }
+
+    /**
+     * Apply the server.connector.* configuration, i.e. acceptors, selectors, accept-queue-size, idle-timeout-ms and
+     * http2.
+     */
+    public StingrayServerConnectorBuilder config(ApplicationProperties config) {
+        this.acceptors = Integer.parseInt(config.get("server.connector.acceptors", String.valueOf(acceptors)));
+        this.selectors = Integer.parseInt(config.get("server.connector.selectors", String.valueOf(selectors)));
+        this.acceptQueueSize = Integer.parseInt(config.get("server.connector.accept-queue-size", String.valueOf(acceptQueueSize)));
+        this.idleTimeoutMs = Long.parseLong(config.get("server.connector.idle-timeout-ms", String.valueOf(idleTimeoutMs)));
+        this.http2 = Boolean.parseBoolean(config.get("server.connector.http2", String.valueOf(http2)));
+        return this;
+    }
+
+    /**
+     * Apply the server.tls.* configuration, i.e. port, http2, key-store.path, key-store.password, key-store.type and
+     * key-manager-password. Connector settings are not applied, use {@link #config(ApplicationProperties)} for that.
+     */
+    public StingrayServerConnectorBuilder tlsConfig(ApplicationProperties config) {
+        String keyStorePath = config.get("server.tls.key-store.path");
+        if (keyStorePath == null) {
+            throw new IllegalArgumentException("Missing configuration: server.tls.key-store.path");
+        }
+        String keyStorePassword = config.get("server.tls.key-store.password");
+        return tls(keyStorePath, keyStorePassword, config.get("server.tls.key-manager-password", keyStorePassword), config.get("server.tls.key-store.type", keyStoreType))
+                .port(Integer.parseInt(config.get("server.tls.port", "0")))
+                .http2(Boolean.parseBoolean(config.get("server.tls.http2", "true")));
+    }
+
+    public StingrayServerConnectorBuilder name(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public StingrayServerConnectorBuilder port(int port) {
+        this.port = port;
+        return this;
+    }
+
+    public StingrayServerConnectorBuilder acceptors(int acceptors) {
+        this.acceptors = acceptors;
+        return this;
+    }
+
+    public StingrayServerConnectorBuilder selectors(int selectors) {
+        this.selectors = selectors;
+        return this;
+    }
+
+    public StingrayServerConnectorBuilder acceptQueueSize(int acceptQueueSize) {
+        this.acceptQueueSize = acceptQueueSize;
+        return this;
+    }
+
+    public StingrayServerConnectorBuilder idleTimeoutMs(long idleTimeoutMs) {
+        this.idleTimeoutMs = idleTimeoutMs;
+        return this;
+    }
+
+    /**
+     * Serve HTTP/2 in addition to HTTP/1.1, as h2c on a cleartext connector or negotiated with ALPN on a TLS
+     * connector.
+     */
+    public StingrayServerConnectorBuilder http2(boolean http2) {
+        this.http2 = http2;
+        return this;
+    }
+
+    public StingrayServerConnectorBuilder tls(String keyStorePath, String keyStorePassword, String keyManagerPassword, String keyStoreType) {
+        this.tls = true;
+        this.keyStorePath = keyStorePath;
+        this.keyStorePassword = keyStorePassword;
+        this.keyManagerPassword = keyManagerPassword;
+        this.keyStoreType = keyStoreType;
+        return this;
+    }
+
+    public StingrayServerConnectorBuilder instrumentation(Timer connectionTimer, Counter connectionCounter) {
+        this.connectionTimer = connectionTimer;
+        this.connectionCounter = connectionCounter;
+        return this;
+    }
+
+    public StingrayServerConnectorBuilder eventListener(EventListener eventListener) {
+        this.eventListeners.add(eventListener);
+        return this;
+    }
+
+    public ServerConnector build() {
+        HttpConfiguration httpConfiguration = new HttpConfiguration();
+        if (tls) {
+            httpConfiguration.setSecureScheme("https");
+            httpConfiguration.addCustomizer(new SecureRequestCustomizer());
+        }
+        List<ConnectionFactory> connectionFactories = new ArrayList<>();
+        ConnectionFactory http11 = new HttpConnectionFactory(httpConfiguration);
+        if (connectionTimer != null) {
+            http11 = new InstrumentedConnectionFactory(http11, connectionTimer, connectionCounter);
+        }
+        if (tls) {
+            SslContextFactory.Server sslContextFactory = new SslContextFactory.Server();
+            sslContextFactory.setKeyStorePath(keyStorePath);
+            sslContextFactory.setKeyStorePassword(keyStorePassword);
+            sslContextFactory.setKeyManagerPassword(keyManagerPassword);
+            sslContextFactory.setKeyStoreType(keyStoreType);
+            if (http2) {
+                sslContextFactory.setCipherComparator(HTTP2Cipher.COMPARATOR);
+                ALPNServerConnectionFactory alpn = new ALPNServerConnectionFactory("h2", http11.getProtocol());
+                alpn.setDefaultProtocol(http11.getProtocol());
+                connectionFactories.add(new SslConnectionFactory(sslContextFactory, alpn.getProtocol()));
+                connectionFactories.add(alpn);
+                connectionFactories.add(instrumented(new HTTP2ServerConnectionFactory(httpConfiguration)));
+                connectionFactories.add(http11);
+            } else {
+                connectionFactories.add(new SslConnectionFactory(sslContextFactory, http11.getProtocol()));
+                connectionFactories.add(http11);
+            }
+        } else {
+            // HTTP/1.1 must be first, it is the default protocol and upgrades to h2c on request or on the h2 preface
+            connectionFactories.add(http11);
+            if (http2) {
+                connectionFactories.add(instrumented(new HTTP2CServerConnectionFactory(httpConfiguration)));
+            }
+        }
+        ServerConnector connector = new ServerConnector(server, acceptors, selectors, connectionFactories.toArray(new ConnectionFactory[0]));
+        if (name != null) {
+            connector.setName(name);
+        }
+        connector.setPort(port);
+        connector.setAcceptQueueSize(acceptQueueSize);
+        connector.setIdleTimeout(idleTimeoutMs);
+        for (EventListener eventListener : eventListeners) {
+            connector.addEventListener(eventListener);
+        }
+        return connector;
+    }
+
+    private ConnectionFactory instrumented(AbstractConnectionFactory connectionFactory) {
+        if (connectionTimer != null) {
+            connectionFactory.addEventListener(new StingrayInstrumentedConnectionListener(connectionTimer, connectionCounter));
+        }
+        return connectionFactory;
+    }
+}
@@ -0,0 +1,133 @@
+package no.cantara.stingray.application.jetty;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.thread.Invocable;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Jetty thread-pool that executes request handling on new virtual threads, while jetty's own tasks run on the platform
+ * threads of the underlying queued thread-pool. The acceptor and selector loops are executed while the server starts,
+ * and block in accept() and select() for the lifetime of the server, which would pin the carrier threads of virtual
+ * threads. Only the jobs executed after the server has started are handed to virtual threads, and only if they may
+ * block, i.e. {@link Invocable.InvocationType#NON_BLOCKING non-blocking} jobs stay on platform threads. Register the
+ * {@link #serverLifeCycleListener()} on the server for this to work, until the server has started every job runs on a
+ * platform thread.
+ * <p>
+ * Reserved threads are disabled, so that the jetty execution strategies hand blocking jobs to the pool rather than
+ * running them on the selector thread.
+ * <p>
+ * Virtual threads are resolved reflectively, so that this class can be compiled for and loaded on runtimes older than
+ * JDK 21, use {@link #isSupported()} to check whether the current runtime has them.
+ */
+public class StingrayVirtualThreadPool extends QueuedThreadPool {
+
+    private static final Logger log = LoggerFactory.getLogger(StingrayVirtualThreadPool.class);
+
+    private final ThreadFactory virtualThreadFactory;
+    private final AtomicInteger activeVirtualThreads = new AtomicInteger();
+    private final LongAdder startedVirtualThreads = new LongAdder();
+    private volatile boolean serverStarted;
+
+    public static boolean isSupported() {
+        return createVirtualThreadFactory("virtual-thread-support-check-") != null;
+    }
+
+    /**
+     * @throws UnsupportedOperationException if virtual threads are not available in the current runtime.
+     */
+    public StingrayVirtualThreadPool(String name, int maxThreads, int minThreads, int idleTimeoutMs) {
+        this(name, maxThreads, minThreads, idleTimeoutMs, createVirtualThreadFactory(name + "-virtual-"));
+    }
+
+    StingrayVirtualThreadPool(String name, int maxThreads, int minThreads, int idleTimeoutMs, ThreadFactory virtualThreadFactory) {
+        super(maxThreads, minThreads, idleTimeoutMs);
+        if (virtualThreadFactory == null) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by the current runtime, JDK 21 or later is required");
+        }
+        this.virtualThreadFactory = virtualThreadFactory;
+        setName(name);
+        setReservedThreads(0);
+    }
+
+    static ThreadFactory createVirtualThreadFactory(String threadNamePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (NoSuchMethodException | ClassNotFoundException e) {
+            return null; // JDK 20 or older
+        } catch (InvocationTargetException | IllegalAccessException e) {
+            log.debug("Virtual threads are not available", e);
+            return null; // e.g. preview feature not enabled
+        }
+    }
+
+    /**
+     * @return a listener to register on the server, jobs are handed to virtual threads while the server is started.
+     */
+    public LifeCycle.Listener serverLifeCycleListener() {
+        return new LifeCycle.Listener() {
+            @Override
+            public void lifeCycleStarted(LifeCycle event) {
+                serverStarted = true;
+            }
+
+            @Override
+            public void lifeCycleStopping(LifeCycle event) {
+                serverStarted = false;
+            }
+        };
+    }
+
+    @Override
+    public void execute(Runnable job) {
+        if (!serverStarted || Invocable.getInvocationType(job) == Invocable.InvocationType.NON_BLOCKING) {
+            super.execute(job);
+            return;
+        }
+        if (!isRunning()) {
+            throw new RejectedExecutionException(job.toString());
+        }
+        Thread thread = virtualThreadFactory.newThread(() -> {
+            activeVirtualThreads.incrementAndGet();
+            try {
+                job.run();
+            } finally {
+                activeVirtualThreads.decrementAndGet();
+            }
+        });
+        startedVirtualThreads.increment();
+        thread.start();
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return !serverStarted && super.isLowOnThreads(); // virtual threads are not limited
+    }
+
+    public int getActiveVirtualThreads() {
+        return activeVirtualThreads.get();
+    }
+
+    public long getStartedVirtualThreads() {
+        return startedVirtualThreads.sum();
+    }
+
+    public void registerGauges(MetricRegistry metricRegistry) {
+        metricRegistry.register(MetricRegistry.name(getName(), "virtual-threads", "active"), (Gauge<Integer>) this::getActiveVirtualThreads);
+        metricRegistry.register(MetricRegistry.name(getName(), "virtual-threads", "started"), (Gauge<Long>) this::getStartedVirtualThreads);
+        metricRegistry.register(MetricRegistry.name(getName(), "platform-threads", "busy"), (Gauge<Integer>) this::getBusyThreads);
+        metricRegistry.register(MetricRegistry.name(getName(), "platform-threads", "size"), (Gauge<Integer>) this::getThreads);
+    }
+}
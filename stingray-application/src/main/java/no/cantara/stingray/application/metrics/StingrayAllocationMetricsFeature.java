@@ -0,0 +1,132 @@
+package no.cantara.stingray.application.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.DynamicFeature;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.FeatureContext;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Objects;
+
+/**
+ * Records the bytes allocated by the request thread while serving each resource method, from the first request
+ * filter through serialization of the response entity, in histograms named
+ * &lt;resource-class&gt;.&lt;method&gt;.allocated-bytes. Requests that are resumed on another thread, or served by
+ * threads the jvm does not measure, i.e. virtual threads, are not recorded.
+ * <p>
+ * Requires a HotSpot based jvm, see {@link #isSupported()}.
+ */
+public class StingrayAllocationMetricsFeature implements DynamicFeature {
+
+    static final String START_PROPERTY = StingrayAllocationMetricsFeature.class.getName() + ".start";
+
+    private static final com.sun.management.ThreadMXBean threadMXBean = threadMXBean();
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        try {
+            java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean hotspotThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+                if (hotspotThreadMXBean.isThreadAllocatedMemorySupported()) {
+                    if (!hotspotThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                        hotspotThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+                    }
+                    return hotspotThreadMXBean;
+                }
+            }
+        } catch (NoClassDefFoundError | UnsupportedOperationException e) {
+            // not available on this jvm
+        }
+        return null;
+    }
+
+    public static boolean isSupported() {
+        return threadMXBean != null;
+    }
+
+    private final MetricRegistry metricRegistry;
+
+    public StingrayAllocationMetricsFeature(MetricRegistry metricRegistry) {
+        this.metricRegistry = Objects.requireNonNull(metricRegistry);
+    }
+
+    @Override
+    public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+        if (threadMXBean == null) {
+            return;
+        }
+        Histogram histogram = metricRegistry.histogram(MetricRegistry.name(resourceInfo.getResourceClass(), resourceInfo.getResourceMethod().getName(), "allocated-bytes"));
+        // first request filter and last response filter and interceptor, so that all filters are included
+        context.register(new AllocationFilter(histogram), Integer.MIN_VALUE);
+    }
+
+    static class AllocationStart {
+        final long threadId;
+        final long allocatedBytes;
+
+        AllocationStart(long threadId, long allocatedBytes) {
+            this.threadId = threadId;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    static class AllocationFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+        private final Histogram histogram;
+
+        AllocationFilter(Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public void filter(ContainerRequestContext requestContext) {
+            long threadId = Thread.currentThread().getId();
+            requestContext.setProperty(START_PROPERTY, new AllocationStart(threadId, threadMXBean.getThreadAllocatedBytes(threadId)));
+        }
+
+        @Override
+        public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+            if (!responseContext.hasEntity()) {
+                record(requestContext.getProperty(START_PROPERTY));
+                requestContext.removeProperty(START_PROPERTY);
+            }
+        }
+
+        @Override
+        public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+            try {
+                context.proceed();
+            } finally {
+                record(context.getProperty(START_PROPERTY));
+                context.removeProperty(START_PROPERTY);
+            }
+        }
+
+        private void record(Object property) {
+            if (!(property instanceof AllocationStart)) {
+                return;
+            }
+            AllocationStart start = (AllocationStart) property;
+            long threadId = Thread.currentThread().getId();
+            if (threadId != start.threadId) {
+                return; // resumed on another thread, the allocations of the first thread are unknown
+            }
+            long endAllocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+            if (start.allocatedBytes < 0 || endAllocatedBytes < 0) {
+                return; // not measurable, e.g. -1 for virtual threads
+            }
+            long allocatedBytes = endAllocatedBytes - start.allocatedBytes;
+            if (allocatedBytes >= 0) {
+                histogram.update(allocatedBytes);
+            }
+        }
+    }
+}
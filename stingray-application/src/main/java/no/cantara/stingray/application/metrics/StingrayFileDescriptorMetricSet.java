@@ -11,6 +11,13 @@ import java.lang.management.OperatingSystemMXBean;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * File descriptor utilization, open and max counts, read on every call of the gauges.
+ *
+ * @deprecated {@link StingrayJvmMetricsSampler} registers the same metrics with the fd prefix, sampled on a background
+ * thread.
+ */
+@Deprecated
 public class StingrayFileDescriptorMetricSet implements MetricSet {
     private static boolean unixOperatingSystemMXBeanExists = false;
 
@@ -0,0 +1,92 @@
+package no.cantara.stingray.application.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Reservoir;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Records the duration of every garbage collection, as reported in notifications from the garbage collector beans, in
+ * histograms named gc.&lt;collector&gt;.duration-ms. For stop-the-world collectors the duration is the pause. For
+ * collectors that do most of their work concurrently it depends on the jvm: ZGC and Shenandoah report pauses and
+ * cycles as separate collectors on JDK 17 and later, while ZGC on older versions only reports its cycles, which are
+ * mostly concurrent and not pauses.
+ */
+public class StingrayGcPauseMetrics implements NotificationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(StingrayGcPauseMetrics.class);
+    private static final Pattern WHITESPACE = Pattern.compile("[\\s]+");
+
+    private final MetricRegistry metricRegistry;
+    private final Supplier<Reservoir> reservoirSupplier;
+    private final Map<String, Histogram> histogramByCollector = new ConcurrentHashMap<>();
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+
+    public StingrayGcPauseMetrics(MetricRegistry metricRegistry, Supplier<Reservoir> reservoirSupplier) {
+        this.metricRegistry = Objects.requireNonNull(metricRegistry);
+        this.reservoirSupplier = Objects.requireNonNull(reservoirSupplier);
+    }
+
+    public StingrayGcPauseMetrics start() {
+        for (GarbageCollectorMXBean garbageCollector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            histogram(garbageCollector.getName()); // present before the first collection
+            if (garbageCollector instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) garbageCollector;
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+        return this;
+    }
+
+    public void stop() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                // already removed
+            }
+        }
+        emitters.clear();
+    }
+
+    public boolean isStarted() {
+        return !emitters.isEmpty();
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        try {
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            histogram(info.getGcName()).update(info.getGcInfo().getDuration());
+        } catch (RuntimeException e) {
+            log.debug("Unable to record gc notification", e);
+        }
+    }
+
+    private Histogram histogram(String collector) {
+        return histogramByCollector.computeIfAbsent(collector, c -> metricRegistry.histogram(
+                MetricRegistry.name("gc", WHITESPACE.matcher(c).replaceAll("-"), "duration-ms"),
+                () -> new Histogram(reservoirSupplier.get())));
+    }
+}
@@ -0,0 +1,156 @@
+package no.cantara.stingray.application.metrics;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Reservoir backed by an HdrHistogram {@link Recorder}, recording is wait-free and keeps 3 significant digits at any
+ * magnitude, so tail percentiles and max are exact to that precision rather than sampled. Snapshots cover a sliding
+ * window made up of a number of chunks. Recorded values are assigned to the current chunk when a snapshot is taken, so
+ * the window is accurate as long as snapshots are taken at least once per chunk, which is the case with periodic
+ * reporting or scraping.
+ */
+public class StingrayHdrHistogramReservoir implements Reservoir {
+
+    private static final int SIGNIFICANT_VALUE_DIGITS = 3;
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_VALUE_DIGITS);
+    private final Histogram[] chunks;
+    private final long chunkNanos;
+    private int currentChunk;
+    private long currentChunkStartedAt;
+    private Histogram intervalHistogram;
+
+    public StingrayHdrHistogramReservoir() {
+        this(Duration.ofMinutes(1), 6);
+    }
+
+    public StingrayHdrHistogramReservoir(Duration window, int chunkCount) {
+        if (chunkCount < 1) {
+            throw new IllegalArgumentException("chunkCount must be a positive number");
+        }
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("window must be a positive duration");
+        }
+        this.chunks = new Histogram[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            chunks[i] = new Histogram(SIGNIFICANT_VALUE_DIGITS);
+        }
+        this.chunkNanos = Math.max(1, window.toNanos() / chunkCount);
+        this.currentChunkStartedAt = System.nanoTime();
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(long value) {
+        if (value >= 0) {
+            recorder.recordValue(value);
+        }
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        Histogram window = new Histogram(SIGNIFICANT_VALUE_DIGITS);
+        synchronized (chunks) {
+            advance(System.nanoTime());
+            intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+            chunks[currentChunk].add(intervalHistogram);
+            for (Histogram chunk : chunks) {
+                window.add(chunk);
+            }
+        }
+        return new HdrHistogramSnapshot(window);
+    }
+
+    private void advance(long now) {
+        long elapsedChunks = (now - currentChunkStartedAt) / chunkNanos;
+        if (elapsedChunks <= 0) {
+            return;
+        }
+        for (int i = 0; i < Math.min(elapsedChunks, chunks.length); i++) {
+            currentChunk = (currentChunk + 1) % chunks.length;
+            chunks[currentChunk].reset();
+        }
+        currentChunkStartedAt += elapsedChunks * chunkNanos;
+    }
+
+    static class HdrHistogramSnapshot extends Snapshot {
+
+        private final Histogram histogram;
+
+        HdrHistogramSnapshot(Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+                throw new IllegalArgumentException(quantile + " is not in [0..1]");
+            }
+            if (histogram.getTotalCount() == 0) {
+                return 0.0;
+            }
+            return histogram.getValueAtPercentile(quantile * 100.0);
+        }
+
+        @Override
+        public long[] getValues() {
+            long[] values = new long[size()];
+            int i = 0;
+            for (HistogramIterationValue value : histogram.recordedValues()) {
+                long representativeValue = histogram.highestEquivalentValue(value.getValueIteratedTo());
+                for (long j = 0; j < value.getCountAtValueIteratedTo() && i < values.length; j++) {
+                    values[i++] = representativeValue;
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(histogram.getTotalCount(), Integer.MAX_VALUE);
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getMaxValue();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getTotalCount() == 0 ? 0.0 : histogram.getMean();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getMinValue();
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getTotalCount() == 0 ? 0.0 : histogram.getStdDeviation();
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package no.cantara.stingray.application.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.sun.management.UnixOperatingSystemMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the JVM metrics that are expensive to read, i.e. thread states, deadlocks, buffer pools and file
+ * descriptors, once per interval on a background thread. The gauges read the latest sample, so the cost of reading
+ * them does not depend on the number of threads. The metric names are the same as those of ThreadStatesGaugeSet and
+ * BufferPoolMetricSet, registered with the threads and buffers prefixes, and {@link StingrayFileDescriptorMetricSet}
+ * registered with the fd prefix. Call {@link #shutdown()} to stop the sampling thread.
+ */
+public class StingrayJvmMetricsSampler implements MetricSet {
+
+    private static final Logger log = LoggerFactory.getLogger(StingrayJvmMetricsSampler.class);
+
+    private static final int DEADLOCK_STACK_DEPTH = 100;
+    private static final Set<String> BUFFER_POOLS = Set.of("direct", "mapped");
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    private final boolean unixOs = isUnixOperatingSystem(os);
+    private final List<BufferPoolMXBean> bufferPools = new ArrayList<>();
+    private final Map<String, Metric> metricByName = new LinkedHashMap<>();
+    private final Duration interval;
+    private final ScheduledExecutorService executor;
+    private volatile Sample sample;
+
+    public StingrayJvmMetricsSampler(Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval must be a positive duration");
+        }
+        this.interval = interval;
+        for (BufferPoolMXBean bufferPool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (BUFFER_POOLS.contains(bufferPool.getName())) {
+                bufferPools.add(bufferPool);
+            }
+        }
+        this.sample = sample();
+        initMetrics();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jvm-metrics-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public StingrayJvmMetricsSampler start() {
+        long intervalMs = interval.toMillis();
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                sample = sample();
+            } catch (Throwable t) {
+                log.warn("While sampling jvm metrics", t);
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    private void initMetrics() {
+        for (Thread.State state : Thread.State.values()) {
+            metricByName.put("threads." + state.toString().toLowerCase(Locale.ROOT) + ".count", (Gauge<Integer>) () -> sample.threadCountByState[state.ordinal()]);
+        }
+        metricByName.put("threads.count", (Gauge<Integer>) () -> sample.threadCount);
+        metricByName.put("threads.daemon.count", (Gauge<Integer>) () -> sample.daemonThreadCount);
+        metricByName.put("threads.peak.count", (Gauge<Integer>) () -> sample.peakThreadCount);
+        metricByName.put("threads.total_started.count", (Gauge<Long>) () -> sample.totalStartedThreadCount);
+        metricByName.put("threads.deadlock.count", (Gauge<Integer>) () -> sample.deadlocks.size());
+        metricByName.put("threads.deadlocks", (Gauge<Set<String>>) () -> sample.deadlocks);
+        for (int i = 0; i < bufferPools.size(); i++) {
+            int pool = i;
+            String prefix = "buffers." + bufferPools.get(i).getName();
+            metricByName.put(prefix + ".count", (Gauge<Long>) () -> sample.bufferCount[pool]);
+            metricByName.put(prefix + ".used", (Gauge<Long>) () -> sample.bufferMemoryUsed[pool]);
+            metricByName.put(prefix + ".capacity", (Gauge<Long>) () -> sample.bufferTotalCapacity[pool]);
+        }
+        if (unixOs) {
+            metricByName.put("fd.utilization", (Gauge<Double>) () -> sample.maxFileDescriptors > 0 ? (double) sample.openFileDescriptors / sample.maxFileDescriptors : Double.NaN);
+            metricByName.put("fd.open", (Gauge<Long>) () -> sample.openFileDescriptors);
+            metricByName.put("fd.max", (Gauge<Long>) () -> sample.maxFileDescriptors);
+        }
+    }
+
+    Sample sample() {
+        Sample sample = new Sample(bufferPools.size());
+        // without stack-traces, only the states are needed
+        for (ThreadInfo threadInfo : threads.getThreadInfo(threads.getAllThreadIds(), 0)) {
+            if (threadInfo != null) {
+                sample.threadCountByState[threadInfo.getThreadState().ordinal()]++;
+            }
+        }
+        sample.threadCount = threads.getThreadCount();
+        sample.daemonThreadCount = threads.getDaemonThreadCount();
+        sample.peakThreadCount = threads.getPeakThreadCount();
+        sample.totalStartedThreadCount = threads.getTotalStartedThreadCount();
+        long[] deadlockedThreadIds = threads.findDeadlockedThreads();
+        if (deadlockedThreadIds != null) {
+            Set<String> deadlocks = new LinkedHashSet<>();
+            for (ThreadInfo threadInfo : threads.getThreadInfo(deadlockedThreadIds, DEADLOCK_STACK_DEPTH)) {
+                if (threadInfo == null) {
+                    continue;
+                }
+                StringBuilder stackTrace = new StringBuilder();
+                for (StackTraceElement element : threadInfo.getStackTrace()) {
+                    stackTrace.append("\t at ").append(element).append(String.format("%n"));
+                }
+                deadlocks.add(String.format("%s locked on %s (owned by %s):%n%s",
+                        threadInfo.getThreadName(), threadInfo.getLockName(), threadInfo.getLockOwnerName(), stackTrace));
+            }
+            sample.deadlocks = Collections.unmodifiableSet(deadlocks);
+        }
+        for (int i = 0; i < bufferPools.size(); i++) {
+            BufferPoolMXBean bufferPool = bufferPools.get(i);
+            sample.bufferCount[i] = bufferPool.getCount();
+            sample.bufferMemoryUsed[i] = bufferPool.getMemoryUsed();
+            sample.bufferTotalCapacity[i] = bufferPool.getTotalCapacity();
+        }
+        if (unixOs) {
+            sample.openFileDescriptors = ((UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount();
+            sample.maxFileDescriptors = ((UnixOperatingSystemMXBean) os).getMaxFileDescriptorCount();
+        }
+        return sample;
+    }
+
+    private static boolean isUnixOperatingSystem(OperatingSystemMXBean os) {
+        try {
+            return os instanceof UnixOperatingSystemMXBean;
+        } catch (NoClassDefFoundError e) {
+            return false; // not available on this jvm
+        }
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        return Collections.unmodifiableMap(metricByName);
+    }
+
+    /**
+     * Written once by the sampling thread before publication, then only read.
+     */
+    static class Sample {
+        final int[] threadCountByState = new int[Thread.State.values().length];
+        int threadCount;
+        int daemonThreadCount;
+        int peakThreadCount;
+        long totalStartedThreadCount;
+        Set<String> deadlocks = Collections.emptySet();
+        final long[] bufferCount;
+        final long[] bufferMemoryUsed;
+        final long[] bufferTotalCapacity;
+        long openFileDescriptors;
+        long maxFileDescriptors;
+
+        Sample(int bufferPoolCount) {
+            this.bufferCount = new long[bufferPoolCount];
+            this.bufferMemoryUsed = new long[bufferPoolCount];
+            this.bufferTotalCapacity = new long[bufferPoolCount];
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package no.cantara.stingray.application.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Timer;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Metric registry where timers and histograms created by name use reservoirs from the given supplier rather than the
+ * dropwizard default. Instrumentation that creates its metrics through {@link #timer(String)} and
+ * {@link #histogram(String)}, such as the jersey and jetty instrumentation, thereby uses the configured reservoir.
+ */
+public class StingrayMetricRegistry extends MetricRegistry {
+
+    private final Supplier<Reservoir> reservoirSupplier;
+
+    public StingrayMetricRegistry(Supplier<Reservoir> reservoirSupplier) {
+        this.reservoirSupplier = Objects.requireNonNull(reservoirSupplier);
+    }
+
+    public Supplier<Reservoir> getReservoirSupplier() {
+        return reservoirSupplier;
+    }
+
+    @Override
+    public Timer timer(String name) {
+        return timer(name, () -> new Timer(reservoirSupplier.get()));
+    }
+
+    @Override
+    public Histogram histogram(String name) {
+        return histogram(name, () -> new Histogram(reservoirSupplier.get()));
+    }
+}
@@ -1,24 +1,30 @@
 package no.cantara.stingray.application.metrics;
 
+import com.codahale.metrics.Clock;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Reservoir;
 import com.codahale.metrics.jersey3.MetricsFeature;
-import com.codahale.metrics.jvm.BufferPoolMetricSet;
 import com.codahale.metrics.jvm.ClassLoadingGaugeSet;
 import com.codahale.metrics.jvm.GarbageCollectorMetricSet;
 import com.codahale.metrics.jvm.JvmAttributeGaugeSet;
 import com.codahale.metrics.jvm.MemoryUsageGaugeSet;
-import com.codahale.metrics.jvm.ThreadStatesGaugeSet;
+import jakarta.servlet.DispatcherType;
+import no.cantara.config.ApplicationProperties;
 import no.cantara.stingray.application.StingrayApplication;
 
-import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.function.Supplier;
 
 public class StingrayMetrics {
 
     final StingrayApplication application;
+    final Supplier<Reservoir> reservoirSupplier;
 
     public StingrayMetrics(StingrayApplication application) {
         this.application = application;
+        this.reservoirSupplier = StingrayReservoirs.fromConfig(application.config());
     }
 
     public void initAllMetrics() {
@@ -26,10 +32,12 @@ public class StingrayMetrics {
         initJettyMetrics();
         initJerseyMetrics();
         initJvmMetrics();
+        initRequestTiming();
+        initAllocationMetrics();
     }
 
     public MetricRegistry initBaseAndAppMetrics() {
-        MetricRegistry appMetricRegistry = (MetricRegistry) application.init(MetricRegistry.class, MetricRegistry::new);
+        MetricRegistry appMetricRegistry = (MetricRegistry) application.init(MetricRegistry.class, this::createMetricRegistry);
         appMetricRegistry.register("name", (Gauge<String>) application::alias);
         MetricRegistry baseMetricRegistry = (MetricRegistry) application.init("metrics.base", MetricRegistry::new);
         baseMetricRegistry.register("app", appMetricRegistry);
@@ -38,28 +46,67 @@ public class StingrayMetrics {
 
     public void initJerseyMetrics() {
         MetricRegistry metricRegistry = (MetricRegistry) application.get("metrics.base");
-        MetricRegistry jerseyMetricRegistry = (MetricRegistry) application.init("metrics.jersey", MetricRegistry::new);
+        MetricRegistry jerseyMetricRegistry = (MetricRegistry) application.init("metrics.jersey", this::createMetricRegistry);
         metricRegistry.register("jersey", jerseyMetricRegistry);
-        application.initAndRegisterJaxRsWsComponent(MetricsFeature.class, () -> new MetricsFeature(jerseyMetricRegistry));
+        application.initAndRegisterJaxRsWsComponent(MetricsFeature.class, () -> new MetricsFeature(jerseyMetricRegistry, Clock.defaultClock(), false, reservoirSupplier));
+    }
+
+    /**
+     * Time the stages of each request, must be called before any other servlet filter is added, so that the timing
+     * filter comes first.
+     */
+    public void initRequestTiming() {
+        ApplicationProperties config = application.config();
+        if (!Boolean.parseBoolean(config.get("metrics.request-timing.enabled", "true"))) {
+            return;
+        }
+        MetricRegistry appMetricRegistry = application.get(MetricRegistry.class);
+        boolean serverTimingHeader = Boolean.parseBoolean(config.get("metrics.request-timing.server-timing-header", "false"));
+        application.initAndAddServletFilter(StingrayRequestTimingServletFilter.class, () -> new StingrayRequestTimingServletFilter(appMetricRegistry), "/*", EnumSet.allOf(DispatcherType.class));
+        application.initAndRegisterJaxRsWsComponent(StingrayRequestTimingFeature.class, () -> new StingrayRequestTimingFeature(serverTimingHeader));
+    }
+
+    /**
+     * Opt-in with metrics.allocation.enabled, records allocated bytes per resource method in the app registry, and
+     * garbage collection durations in the jvm registry. Must be called after {@link #initJvmMetrics()}.
+     */
+    public void initAllocationMetrics() {
+        if (!Boolean.parseBoolean(application.config().get("metrics.allocation.enabled", "false"))) {
+            return;
+        }
+        MetricRegistry appMetricRegistry = application.get(MetricRegistry.class);
+        if (StingrayAllocationMetricsFeature.isSupported()) {
+            application.initAndRegisterJaxRsWsComponent(StingrayAllocationMetricsFeature.class, () -> new StingrayAllocationMetricsFeature(appMetricRegistry));
+        }
+        MetricRegistry jvmMetricRegistry = (MetricRegistry) application.get("metrics.jvm");
+        application.init(StingrayGcPauseMetrics.class, () -> new StingrayGcPauseMetrics(jvmMetricRegistry, reservoirSupplier).start());
     }
 
     public void initJettyMetrics() {
         MetricRegistry metricRegistry = (MetricRegistry) application.get("metrics.base");
-        MetricRegistry jettyMetricRegistry = (MetricRegistry) application.init("metrics.jetty", MetricRegistry::new);
+        MetricRegistry jettyMetricRegistry = (MetricRegistry) application.init("metrics.jetty", this::createMetricRegistry);
         metricRegistry.register("jetty", jettyMetricRegistry);
     }
 
+    /**
+     * @return a registry where timers and histograms use the reservoir configured with metrics.reservoir.
+     */
+    public MetricRegistry createMetricRegistry() {
+        return new StingrayMetricRegistry(reservoirSupplier);
+    }
+
     public void initJvmMetrics() {
         MetricRegistry metricRegistry = (MetricRegistry) application.get("metrics.base");
         MetricRegistry jvmMetricRegistry = (MetricRegistry) application.init("metrics.jvm", MetricRegistry::new);
         jvmMetricRegistry.registerAll("memory", new MemoryUsageGaugeSet());
-        jvmMetricRegistry.registerAll("threads", new ThreadStatesGaugeSet());
-        // jvmMetricRegistry.registerAll("threads", new CachedThreadStatesGaugeSet(5, TimeUnit.SECONDS));
         jvmMetricRegistry.registerAll("runtime", new JvmAttributeGaugeSet());
         jvmMetricRegistry.registerAll("gc", new GarbageCollectorMetricSet());
-        jvmMetricRegistry.register("fd", new StingrayFileDescriptorMetricSet());
         jvmMetricRegistry.register("classes", new ClassLoadingGaugeSet());
-        jvmMetricRegistry.registerAll("buffers", new BufferPoolMetricSet(ManagementFactory.getPlatformMBeanServer()));
+        // thread states, deadlocks, buffer pools and file descriptors are sampled in the background
+        long sampleIntervalMs = Long.parseLong(application.config().get("metrics.jvm.sample-interval-ms", "5000"));
+        StingrayJvmMetricsSampler sampler = (StingrayJvmMetricsSampler) application.init(StingrayJvmMetricsSampler.class,
+                () -> new StingrayJvmMetricsSampler(Duration.ofMillis(sampleIntervalMs)).start());
+        jvmMetricRegistry.registerAll(sampler);
         metricRegistry.register("jvm", jvmMetricRegistry);
     }
 }
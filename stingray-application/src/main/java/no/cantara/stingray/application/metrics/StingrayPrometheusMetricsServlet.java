@@ -0,0 +1,231 @@
+package no.cantara.stingray.application.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves all metrics of a registry in the Prometheus text exposition format, or in the OpenMetrics text format when
+ * accepted by the client. The metrics are written directly to the response while walking the registry.
+ * <p>
+ * The first segment of a metric name is the registry it was registered through in metrics.base, e.g. app, jersey,
+ * jetty or jvm, and is exposed as the registry label. The full dotted name, with characters that are not allowed
+ * replaced by underscore, is the metric name. Names where other characters than dots and dashes were replaced, e.g.
+ * normalized SQL statements, get a suffix with a hash of the original name, so that distinct metrics are not merged
+ * into one family, which would make Prometheus reject the whole scrape. A name that still collides with the name of
+ * another metric also gets the hash suffix. Timers are exposed as summaries in seconds, histograms as summaries,
+ * meters as counters and counters and numeric gauges as gauges.
+ */
+public class StingrayPrometheusMetricsServlet extends HttpServlet {
+
+    static final String OPENMETRICS_CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    static final String TEXT_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double SECONDS_PER_NANO = 1.0 / TimeUnit.SECONDS.toNanos(1);
+
+    private final MetricRegistry metricRegistry;
+    private final Map<String, ExposedName> exposedNameByMetricName = new ConcurrentHashMap<>();
+    private final Map<String, String> metricNameByExposedName = new ConcurrentHashMap<>();
+
+    public StingrayPrometheusMetricsServlet(MetricRegistry metricRegistry) {
+        this.metricRegistry = Objects.requireNonNull(metricRegistry);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String accept = req.getHeader("Accept");
+        boolean openMetrics = accept != null && accept.contains("application/openmetrics-text");
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType(openMetrics ? OPENMETRICS_CONTENT_TYPE : TEXT_CONTENT_TYPE);
+        resp.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(resp.getOutputStream(), StandardCharsets.UTF_8), 16 * 1024)) {
+            write(writer, openMetrics);
+        }
+    }
+
+    void write(Writer writer, boolean openMetrics) throws IOException {
+        // getMetrics() is a view of the registry, walking it does not copy
+        for (Map.Entry<String, Metric> entry : metricRegistry.getMetrics().entrySet()) {
+            Metric metric = entry.getValue();
+            if (metric instanceof Gauge) {
+                Object value;
+                try {
+                    value = ((Gauge<?>) metric).getValue();
+                } catch (RuntimeException e) {
+                    continue; // a failing gauge must not fail the scrape
+                }
+                double number;
+                if (value instanceof Number) {
+                    number = ((Number) value).doubleValue();
+                } else if (value instanceof Boolean) {
+                    number = (Boolean) value ? 1 : 0;
+                } else {
+                    continue;
+                }
+                ExposedName name = exposedName(entry.getKey());
+                writeType(writer, name.name, "gauge");
+                writeSample(writer, name.name, "", name.labels, number);
+            } else if (metric instanceof Counter) {
+                ExposedName name = exposedName(entry.getKey());
+                writeType(writer, name.name, "gauge"); // dropwizard counters can be decremented
+                writeSample(writer, name.name, "", name.labels, ((Counter) metric).getCount());
+            } else if (metric instanceof Timer) {
+                Timer timer = (Timer) metric;
+                ExposedName name = exposedName(entry.getKey());
+                writeSummary(writer, name, timer.getSnapshot(), timer.getCount(), SECONDS_PER_NANO);
+            } else if (metric instanceof Histogram) {
+                Histogram histogram = (Histogram) metric;
+                ExposedName name = exposedName(entry.getKey());
+                writeSummary(writer, name, histogram.getSnapshot(), histogram.getCount(), 1);
+            } else if (metric instanceof Meter) {
+                ExposedName name = exposedName(entry.getKey());
+                writeType(writer, openMetrics ? name.name : name.name + "_total", "counter");
+                writeSample(writer, name.name, "_total", name.labels, ((Meter) metric).getCount());
+            }
+        }
+        if (openMetrics) {
+            writer.write("# EOF\n");
+        }
+    }
+
+    private void writeSummary(Writer writer, ExposedName name, Snapshot snapshot, long count, double factor) throws IOException {
+        writeType(writer, name.name, "summary");
+        writeQuantile(writer, name, "0.5", snapshot.getMedian() * factor);
+        writeQuantile(writer, name, "0.75", snapshot.get75thPercentile() * factor);
+        writeQuantile(writer, name, "0.95", snapshot.get95thPercentile() * factor);
+        writeQuantile(writer, name, "0.98", snapshot.get98thPercentile() * factor);
+        writeQuantile(writer, name, "0.99", snapshot.get99thPercentile() * factor);
+        writeQuantile(writer, name, "0.999", snapshot.get999thPercentile() * factor);
+        // the mean of the reservoir, i.e. an estimate when the reservoir does not hold all samples
+        writeSample(writer, name.name, "_sum", name.labels, snapshot.getMean() * count * factor);
+        writeSample(writer, name.name, "_count", name.labels, count);
+    }
+
+    private static void writeType(Writer writer, String name, String type) throws IOException {
+        writer.write("# TYPE ");
+        writer.write(name);
+        writer.write(' ');
+        writer.write(type);
+        writer.write('\n');
+    }
+
+    private static void writeQuantile(Writer writer, ExposedName name, String quantile, double value) throws IOException {
+        writer.write(name.name);
+        writer.write(name.labelsWithoutClosingBrace);
+        writer.write(",quantile=\"");
+        writer.write(quantile);
+        writer.write("\"} ");
+        writeValue(writer, value);
+        writer.write('\n');
+    }
+
+    private static void writeSample(Writer writer, String name, String suffix, String labels, double value) throws IOException {
+        writer.write(name);
+        writer.write(suffix);
+        writer.write(labels);
+        writer.write(' ');
+        writeValue(writer, value);
+        writer.write('\n');
+    }
+
+    private static void writeValue(Writer writer, double value) throws IOException {
+        if (Double.isNaN(value)) {
+            writer.write("NaN");
+        } else if (Double.isInfinite(value)) {
+            writer.write(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            writer.write(Long.toString((long) value));
+        } else {
+            writer.write(Double.toString(value));
+        }
+    }
+
+    private ExposedName exposedName(String metricName) {
+        ExposedName exposedName = exposedNameByMetricName.get(metricName);
+        if (exposedName == null) {
+            exposedName = exposedNameByMetricName.computeIfAbsent(metricName, key -> new ExposedName(key, uniqueName(key)));
+        }
+        return exposedName;
+    }
+
+    private String uniqueName(String metricName) {
+        String sanitized = ExposedName.sanitize(metricName);
+        String hashed = ExposedName.withHash(sanitized, metricName);
+        String name = ExposedName.isLossy(metricName) ? hashed : sanitized;
+        for (int i = 2; ; i++) {
+            String claimedBy = metricNameByExposedName.putIfAbsent(name, metricName);
+            if (claimedBy == null || claimedBy.equals(metricName)) {
+                return name;
+            }
+            name = name.equals(sanitized) ? hashed : hashed + "_" + i;
+        }
+    }
+
+    /**
+     * Metric name and labels as exposed, computed once per metric.
+     */
+    static class ExposedName {
+        final String name;
+        final String labels;
+        final String labelsWithoutClosingBrace;
+
+        ExposedName(String metricName, String name) {
+            this.name = name;
+            int firstDot = metricName.indexOf('.');
+            String registry = firstDot > 0 ? metricName.substring(0, firstDot) : "";
+            this.labelsWithoutClosingBrace = "{registry=\"" + escapeLabelValue(registry) + "\"";
+            this.labels = labelsWithoutClosingBrace + "}";
+        }
+
+        static String sanitize(String metricName) {
+            StringBuilder sb = new StringBuilder(metricName.length());
+            for (int i = 0; i < metricName.length(); i++) {
+                char c = metricName.charAt(i);
+                boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':' || (i > 0 && c >= '0' && c <= '9');
+                sb.append(allowed ? c : '_');
+            }
+            return sb.toString();
+        }
+
+        /**
+         * @return true if characters other than dots and dashes must be replaced to sanitize the name, i.e. when
+         * names that differ only in those characters would be exposed with the same name.
+         */
+        static boolean isLossy(String metricName) {
+            for (int i = 0; i < metricName.length(); i++) {
+                char c = metricName.charAt(i);
+                boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':' || (i > 0 && c >= '0' && c <= '9');
+                if (!allowed && c != '.' && c != '-') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        static String withHash(String sanitized, String metricName) {
+            return sanitized + "_" + String.format("%08x", metricName.hashCode());
+        }
+
+        static String escapeLabelValue(String value) {
+            return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        }
+    }
+}
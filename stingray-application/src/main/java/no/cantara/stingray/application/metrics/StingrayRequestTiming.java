@@ -0,0 +1,115 @@
+package no.cantara.stingray.application.metrics;
+
+import jakarta.servlet.ServletRequest;
+import jakarta.ws.rs.container.ContainerRequestContext;
+
+import java.util.Locale;
+
+/**
+ * Time spent in each stage of a single request. Created by the {@link StingrayRequestTimingServletFilter} and passed
+ * along as a request attribute, stages record their span with {@link #record(Span, long)}. When request timing is not
+ * enabled, {@link #of(ServletRequest)} and {@link #of(ContainerRequestContext)} return an instance that ignores
+ * recordings, so stages need no null-checks.
+ * <p>
+ * Not thread-safe, a request is served by one thread at a time.
+ */
+public class StingrayRequestTiming {
+
+    public static final String ATTRIBUTE = StingrayRequestTiming.class.getName();
+
+    private static final StingrayRequestTiming DISABLED = new StingrayRequestTiming(0, false);
+
+    public enum Span {
+        SERVLET_FILTERS,
+        CORS,
+        EXCEPTION_HANDLING,
+        MATCHING,
+        REQUEST_FILTERS,
+        AUTHENTICATION,
+        AUTHORIZATION,
+        RESOURCE,
+        RESPONSE_FILTERS,
+        SERIALIZATION,
+        TOTAL;
+
+        private final String metricName = name().toLowerCase(Locale.ROOT).replace('_', '-');
+
+        public String metricName() {
+            return metricName;
+        }
+    }
+
+    public static StingrayRequestTiming of(ServletRequest request) {
+        Object timing = request.getAttribute(ATTRIBUTE);
+        return timing instanceof StingrayRequestTiming ? (StingrayRequestTiming) timing : DISABLED;
+    }
+
+    public static StingrayRequestTiming of(ContainerRequestContext requestContext) {
+        Object timing = requestContext.getProperty(ATTRIBUTE);
+        return timing instanceof StingrayRequestTiming ? (StingrayRequestTiming) timing : DISABLED;
+    }
+
+    private final long startedAt;
+    private final long[] nanosBySpan;
+
+    StingrayRequestTiming(long startedAt) {
+        this(startedAt, true);
+    }
+
+    private StingrayRequestTiming(long startedAt, boolean enabled) {
+        this.startedAt = startedAt;
+        this.nanosBySpan = enabled ? new long[Span.values().length] : null;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the request entered the first servlet filter.
+     */
+    public long startedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Add the time elapsed since startNanos to the given span, a span that is entered more than once accumulates.
+     *
+     * @param span       the stage.
+     * @param startNanos the {@link System#nanoTime()} at which the stage was entered.
+     */
+    public void record(Span span, long startNanos) {
+        if (nanosBySpan == null) {
+            return;
+        }
+        nanosBySpan[span.ordinal()] += System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return the time recorded for the span, or 0 if the request did not pass through the stage.
+     */
+    public long nanos(Span span) {
+        return nanosBySpan == null ? 0 : nanosBySpan[span.ordinal()];
+    }
+
+    /**
+     * @return the spans recorded so far as a Server-Timing header value, with an additional "app" metric for the
+     * time elapsed since the request was received.
+     */
+    public String serverTiming() {
+        StringBuilder sb = new StringBuilder(256);
+        if (nanosBySpan != null) {
+            for (Span span : Span.values()) {
+                long nanos = nanosBySpan[span.ordinal()];
+                if (span != Span.TOTAL && nanos > 0) {
+                    appendServerTimingMetric(sb, span.metricName(), nanos);
+                }
+            }
+            appendServerTimingMetric(sb, "app", System.nanoTime() - startedAt);
+        }
+        return sb.toString();
+    }
+
+    private static void appendServerTimingMetric(StringBuilder sb, String name, long nanos) {
+        if (sb.length() > 0) {
+            sb.append(", ");
+        }
+        sb.append(name).append(";dur=").append(String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0));
+    }
+}
@@ -0,0 +1,127 @@
+package no.cantara.stingray.application.metrics;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.Feature;
+import jakarta.ws.rs.core.FeatureContext;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import java.io.IOException;
+
+/**
+ * Records the jersey stages of a request, i.e. matching, request-filters, resource, response-filters and
+ * serialization, in the {@link StingrayRequestTiming} of the request. Optionally adds a Server-Timing header with the
+ * spans recorded before serialization.
+ */
+public class StingrayRequestTimingFeature implements Feature {
+
+    private final boolean serverTimingHeader;
+
+    public StingrayRequestTimingFeature(boolean serverTimingHeader) {
+        this.serverTimingHeader = serverTimingHeader;
+    }
+
+    @Override
+    public boolean configure(FeatureContext context) {
+        context.register(new TimingApplicationEventListener());
+        context.register(new SerializationTimingInterceptor());
+        if (serverTimingHeader) {
+            // response-filters run in descending priority order, the lowest priority runs last
+            context.register(new ServerTimingResponseFilter(), Integer.MIN_VALUE);
+        }
+        return true;
+    }
+
+    static class TimingApplicationEventListener implements ApplicationEventListener {
+
+        @Override
+        public void onEvent(ApplicationEvent event) {
+        }
+
+        @Override
+        public RequestEventListener onRequest(RequestEvent requestEvent) {
+            StingrayRequestTiming timing = timing(requestEvent.getContainerRequest());
+            return timing == null ? null : new TimingRequestEventListener(timing);
+        }
+    }
+
+    static class TimingRequestEventListener implements RequestEventListener {
+
+        private final StingrayRequestTiming timing;
+        private long stageStartedAt;
+
+        TimingRequestEventListener(StingrayRequestTiming timing) {
+            this.timing = timing;
+            // onRequest is called on the START event
+            timing.record(StingrayRequestTiming.Span.SERVLET_FILTERS, timing.startedAt());
+        }
+
+        @Override
+        public void onEvent(RequestEvent event) {
+            switch (event.getType()) {
+                case MATCHING_START:
+                case RESOURCE_METHOD_START:
+                case RESP_FILTERS_START:
+                    stageStartedAt = System.nanoTime();
+                    break;
+                case REQUEST_MATCHED:
+                    timing.record(StingrayRequestTiming.Span.MATCHING, stageStartedAt);
+                    stageStartedAt = System.nanoTime();
+                    break;
+                case REQUEST_FILTERED:
+                    timing.record(StingrayRequestTiming.Span.REQUEST_FILTERS, stageStartedAt);
+                    break;
+                case RESOURCE_METHOD_FINISHED:
+                    timing.record(StingrayRequestTiming.Span.RESOURCE, stageStartedAt);
+                    break;
+                case RESP_FILTERS_FINISHED:
+                    timing.record(StingrayRequestTiming.Span.RESPONSE_FILTERS, stageStartedAt);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    static class SerializationTimingInterceptor implements WriterInterceptor {
+
+        @Override
+        public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+            long start = System.nanoTime();
+            try {
+                context.proceed();
+            } finally {
+                Object timing = context.getProperty(StingrayRequestTiming.ATTRIBUTE);
+                if (timing instanceof StingrayRequestTiming) {
+                    ((StingrayRequestTiming) timing).record(StingrayRequestTiming.Span.SERIALIZATION, start);
+                }
+            }
+        }
+    }
+
+    static class ServerTimingResponseFilter implements ContainerResponseFilter {
+
+        @Override
+        public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+            String serverTiming = StingrayRequestTiming.of(requestContext).serverTiming();
+            if (!serverTiming.isEmpty()) {
+                responseContext.getHeaders().add("Server-Timing", serverTiming);
+            }
+        }
+    }
+
+    private static StingrayRequestTiming timing(ContainerRequest containerRequest) {
+        if (containerRequest == null) {
+            return null;
+        }
+        Object timing = containerRequest.getProperty(StingrayRequestTiming.ATTRIBUTE);
+        return timing instanceof StingrayRequestTiming ? (StingrayRequestTiming) timing : null;
+    }
+}
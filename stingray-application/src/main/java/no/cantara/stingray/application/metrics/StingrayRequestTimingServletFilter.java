@@ -0,0 +1,50 @@
+package no.cantara.stingray.application.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Must be the first servlet filter. Creates the {@link StingrayRequestTiming} of each request and records all spans
+ * in timers named request-timing.&lt;span&gt; when the request completes.
+ */
+public class StingrayRequestTimingServletFilter extends HttpFilter {
+
+    private final Map<StingrayRequestTiming.Span, Timer> timerBySpan = new EnumMap<>(StingrayRequestTiming.Span.class);
+
+    public StingrayRequestTimingServletFilter(MetricRegistry metricRegistry) {
+        for (StingrayRequestTiming.Span span : StingrayRequestTiming.Span.values()) {
+            timerBySpan.put(span, metricRegistry.timer("request-timing." + span.metricName(), () -> new Timer(new StingrayHdrHistogramReservoir())));
+        }
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (request.getAttribute(StingrayRequestTiming.ATTRIBUTE) != null) {
+            chain.doFilter(request, response); // forward, include or error dispatch, already timed
+            return;
+        }
+        StingrayRequestTiming timing = new StingrayRequestTiming(System.nanoTime());
+        request.setAttribute(StingrayRequestTiming.ATTRIBUTE, timing);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            timing.record(StingrayRequestTiming.Span.TOTAL, timing.startedAt());
+            for (StingrayRequestTiming.Span span : StingrayRequestTiming.Span.values()) {
+                long nanos = timing.nanos(span);
+                if (nanos > 0) {
+                    timerBySpan.get(span).update(nanos, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package no.cantara.stingray.application.metrics;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import com.codahale.metrics.UniformReservoir;
+import no.cantara.config.ApplicationProperties;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Resolves the reservoir strategy configured with metrics.reservoir:
+ * <ul>
+ *     <li>exponentially-decaying: the dropwizard default, biased towards the last 5 minutes, sampled.</li>
+ *     <li>hdr-histogram: all values in a sliding window, wait-free recording, see
+ *     {@link StingrayHdrHistogramReservoir}.</li>
+ *     <li>sliding-time-window: all values in a sliding window, memory grows with the request rate.</li>
+ *     <li>uniform: uniform sample of all values since start.</li>
+ * </ul>
+ * The window of the windowed reservoirs is set with metrics.reservoir.window-ms and, for hdr-histogram, the number of
+ * chunks the window moves by with metrics.reservoir.window-chunks.
+ */
+public class StingrayReservoirs {
+
+    public static final String EXPONENTIALLY_DECAYING = "exponentially-decaying";
+    public static final String HDR_HISTOGRAM = "hdr-histogram";
+    public static final String SLIDING_TIME_WINDOW = "sliding-time-window";
+    public static final String UNIFORM = "uniform";
+
+    public static Supplier<Reservoir> fromConfig(ApplicationProperties config) {
+        String reservoir = config.get("metrics.reservoir", EXPONENTIALLY_DECAYING);
+        Duration window = Duration.ofMillis(Long.parseLong(config.get("metrics.reservoir.window-ms", "60000")));
+        int windowChunks = Integer.parseInt(config.get("metrics.reservoir.window-chunks", "6"));
+        return create(reservoir, window, windowChunks);
+    }
+
+    public static Supplier<Reservoir> create(String reservoir, Duration window, int windowChunks) {
+        switch (reservoir) {
+            case EXPONENTIALLY_DECAYING:
+                return ExponentiallyDecayingReservoir::new;
+            case HDR_HISTOGRAM:
+                // validate eagerly, not on first use
+                new StingrayHdrHistogramReservoir(window, windowChunks);
+                return () -> new StingrayHdrHistogramReservoir(window, windowChunks);
+            case SLIDING_TIME_WINDOW:
+                return () -> new SlidingTimeWindowArrayReservoir(window.toMillis(), TimeUnit.MILLISECONDS);
+            case UNIFORM:
+                return UniformReservoir::new;
+            default:
+                throw new IllegalArgumentException("Unknown metrics.reservoir: " + reservoir);
+        }
+    }
+
+    private StingrayReservoirs() {
+    }
+}
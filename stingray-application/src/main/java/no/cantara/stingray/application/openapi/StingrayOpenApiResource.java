@@ -9,10 +9,24 @@ import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.Application;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriInfo;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
 @Path("/openapi.{type:json|yaml}")
 public class StingrayOpenApiResource extends BaseOpenApiResource {
     @Context
@@ -20,6 +34,12 @@ public class StingrayOpenApiResource extends BaseOpenApiResource {
     @Context
     Application app;
 
+    @Context
+    Request request;
+
+    // the resources of the jersey application are fixed once it is initialized, call invalidate() after a reload
+    private final Map<String, OpenApiDocument> documentByType = new ConcurrentHashMap<>();
+
     public StingrayOpenApiResource() {
     }
 
@@ -27,6 +47,117 @@ public class StingrayOpenApiResource extends BaseOpenApiResource {
     @Produces({"application/json", "application/yaml"})
     @Operation(hidden = true)
     public Response getOpenApi(@Context HttpHeaders headers, @Context UriInfo uriInfo, @PathParam("type") String type) throws Exception {
-        return super.getOpenApi(headers, this.config, this.app, uriInfo, type);
+        OpenApiDocument document = documentByType.get(type);
+        if (document == null) {
+            Response response = super.getOpenApi(headers, this.config, this.app, uriInfo, type);
+            if (response.getStatus() != Response.Status.OK.getStatusCode() || !(response.getEntity() instanceof String)) {
+                return response; // not cached
+            }
+            String mediaType = "yaml".equals(type) ? "application/yaml" : MediaType.APPLICATION_JSON;
+            document = new OpenApiDocument(mediaType, ((String) response.getEntity()).getBytes(StandardCharsets.UTF_8));
+            documentByType.putIfAbsent(type, document);
+        }
+        boolean gzip = acceptsGzip(headers.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        EntityTag entityTag = gzip ? document.gzippedEntityTag : document.entityTag;
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            return notModified
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        if (gzip) {
+            return Response.ok(document.gzipped, document.mediaType)
+                    .tag(entityTag)
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        return Response.ok(document.content, document.mediaType)
+                .tag(entityTag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .build();
+    }
+
+    /**
+     * Discard the cached documents, they will be generated again on the next request.
+     */
+    public void invalidate() {
+        documentByType.clear();
+    }
+
+    /**
+     * @param acceptEncoding the Accept-Encoding header, e.g. <code>gzip;q=0.8, identity</code>.
+     * @return true if gzip, or any coding through <code>*</code>, is accepted with a non-zero quality value.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        double gzipQuality = -1;
+        double wildcardQuality = -1;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!coding.equals("gzip") && !coding.equals("x-gzip") && !coding.equals("*")) {
+                continue;
+            }
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.length() > 1 && (parameter.charAt(0) == 'q' || parameter.charAt(0) == 'Q') && parameter.charAt(1) == '=') {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0; // malformed, not acceptable
+                    }
+                }
+            }
+            if (coding.equals("*")) {
+                wildcardQuality = Math.max(wildcardQuality, quality);
+            } else {
+                gzipQuality = Math.max(gzipQuality, quality);
+            }
+        }
+        // an explicit gzip quality takes precedence over the wildcard
+        return (gzipQuality >= 0 ? gzipQuality : wildcardQuality) > 0;
+    }
+
+    /**
+     * The generated document, serialized once and kept both as is and gzip compressed.
+     */
+    static class OpenApiDocument {
+        final String mediaType;
+        final byte[] content;
+        final byte[] gzipped;
+        final EntityTag entityTag;
+        final EntityTag gzippedEntityTag;
+
+        OpenApiDocument(String mediaType, byte[] content) {
+            this.mediaType = mediaType;
+            this.content = content;
+            this.gzipped = gzip(content);
+            String hash = sha256(content);
+            this.entityTag = new EntityTag(hash);
+            this.gzippedEntityTag = new EntityTag(hash + "-gzip");
+        }
+
+        static String sha256(byte[] content) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+                return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        static byte[] gzip(byte[] content) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(content.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(baos)) {
+                gzip.write(content);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return baos.toByteArray();
+        }
     }
-}
\ No newline at end of file
+}
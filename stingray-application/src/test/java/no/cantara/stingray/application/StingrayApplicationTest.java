@@ -1,9 +1,23 @@
 package no.cantara.stingray.application;
 
+import com.codahale.metrics.MetricRegistry;
 import no.cantara.config.ApplicationProperties;
 import no.cantara.config.ProviderLoader;
+import no.cantara.stingray.application.jetty.StingrayVirtualThreadPool;
+import no.cantara.stingray.application.metrics.StingrayGcPauseMetrics;
+import no.cantara.stingray.application.metrics.StingrayHdrHistogramReservoir;
+import no.cantara.stingray.application.metrics.StingrayJvmMetricsSampler;
+import no.cantara.stingray.application.metrics.StingrayMetricRegistry;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 public class StingrayApplicationTest {
 
     @Test
@@ -14,4 +28,119 @@ public class StingrayApplicationTest {
         application.start();
         application.stop();
     }
+
+    @Test
+    public void thatThreadPoolAndConnectorAreConfigured() {
+        ApplicationProperties config = ApplicationProperties.builder()
+                .testDefaults()
+                .values()
+                .put("server.threads.min", "4")
+                .put("server.threads.max", "32")
+                .put("server.threads.idle-timeout-ms", "15000")
+                .put("server.threads.reserved", "2")
+                .put("server.connector.acceptors", "1")
+                .put("server.connector.selectors", "2")
+                .put("server.connector.accept-queue-size", "64")
+                .put("server.connector.idle-timeout-ms", "10000")
+                .end()
+                .build();
+        SampleApplication application = (SampleApplication) ProviderLoader.configure(config, "sample-application", StingrayApplicationFactory.class);
+        application.init();
+        application.start();
+        try {
+            Server server = application.get(Server.class);
+            QueuedThreadPool threadPool = (QueuedThreadPool) server.getThreadPool();
+            assertFalse(threadPool instanceof StingrayVirtualThreadPool);
+            assertEquals(4, threadPool.getMinThreads());
+            assertEquals(32, threadPool.getMaxThreads());
+            assertEquals(15000, threadPool.getIdleTimeout());
+            assertEquals(2, threadPool.getReservedThreads());
+            ServerConnector connector = (ServerConnector) server.getConnectors()[0];
+            assertEquals(1, connector.getAcceptors());
+            assertEquals(2, connector.getSelectorManager().getSelectorCount());
+            assertEquals(64, connector.getAcceptQueueSize());
+            assertEquals(10000, connector.getIdleTimeout());
+        } finally {
+            application.stop();
+        }
+    }
+
+    @Test
+    public void thatVirtualThreadsAreUsedWhenSupported() {
+        ApplicationProperties config = ApplicationProperties.builder()
+                .testDefaults()
+                .values()
+                .put("server.threads.virtual", "true")
+                .put("server.threads.max", "32")
+                .end()
+                .build();
+        SampleApplication application = (SampleApplication) ProviderLoader.configure(config, "sample-application", StingrayApplicationFactory.class);
+        application.init();
+        application.start();
+        try {
+            QueuedThreadPool threadPool = (QueuedThreadPool) application.get(Server.class).getThreadPool();
+            // platform threads are used on runtimes without virtual threads
+            assertEquals(StingrayVirtualThreadPool.isSupported(), threadPool instanceof StingrayVirtualThreadPool);
+            assertEquals(32, threadPool.getMaxThreads());
+            if (threadPool instanceof StingrayVirtualThreadPool) {
+                assertTrue(threadPool.getBusyThreads() > 0); // acceptor and selector loops
+            }
+        } finally {
+            application.stop();
+        }
+    }
+
+    @Test
+    public void thatJvmMetricsAreStoppedWithApplication() {
+        ApplicationProperties config = ApplicationProperties.builder()
+                .testDefaults()
+                .values()
+                .put("metrics.allocation.enabled", "true")
+                .end()
+                .build();
+        SampleApplication application = (SampleApplication) ProviderLoader.configure(config, "sample-application", StingrayApplicationFactory.class);
+        application.init();
+        application.start();
+        StingrayJvmMetricsSampler jvmMetricsSampler = application.get(StingrayJvmMetricsSampler.class);
+        StingrayGcPauseMetrics gcPauseMetrics = application.get(StingrayGcPauseMetrics.class);
+        assertFalse(jvmMetricsSampler.isShutdown());
+        assertTrue(gcPauseMetrics.isStarted());
+        application.stop();
+        assertTrue(jvmMetricsSampler.isShutdown());
+        assertFalse(gcPauseMetrics.isStarted());
+    }
+
+    @Test
+    public void thatConfiguredReservoirIsUsedByAppJerseyAndJettyRegistries() {
+        ApplicationProperties config = ApplicationProperties.builder()
+                .testDefaults()
+                .values()
+                .put("metrics.reservoir", "hdr-histogram")
+                .end()
+                .build();
+        SampleApplication application = (SampleApplication) ProviderLoader.configure(config, "sample-application", StingrayApplicationFactory.class);
+        application.init();
+        MetricRegistry appMetricRegistry = application.get(MetricRegistry.class);
+        MetricRegistry jerseyMetricRegistry = application.get("metrics.jersey");
+        MetricRegistry jettyMetricRegistry = application.get("metrics.jetty");
+        for (MetricRegistry metricRegistry : new MetricRegistry[]{appMetricRegistry, jerseyMetricRegistry, jettyMetricRegistry}) {
+            assertTrue(metricRegistry instanceof StingrayMetricRegistry);
+            assertTrue(((StingrayMetricRegistry) metricRegistry).getReservoirSupplier().get() instanceof StingrayHdrHistogramReservoir);
+            assertEquals(StingrayHdrHistogramReservoir.class, metricRegistry.timer("reservoir-test").getSnapshot().getClass().getEnclosingClass());
+            assertEquals(StingrayHdrHistogramReservoir.class, metricRegistry.histogram("reservoir-test-histogram").getSnapshot().getClass().getEnclosingClass());
+        }
+    }
+
+    @Test
+    public void thatUnknownReservoirFailsInit() {
+        ApplicationProperties config = ApplicationProperties.builder()
+                .testDefaults()
+                .values()
+                .put("metrics.reservoir", "no-such-reservoir")
+                .end()
+                .build();
+        SampleApplication application = (SampleApplication) ProviderLoader.configure(config, "sample-application", StingrayApplicationFactory.class);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, application::init);
+        assertTrue(e.getMessage().contains("no-such-reservoir"), e.getMessage());
+    }
 }
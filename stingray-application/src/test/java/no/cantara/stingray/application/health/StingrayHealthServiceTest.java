@@ -0,0 +1,95 @@
+package no.cantara.stingray.application.health;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.health.HealthCheck;
+import com.codahale.metrics.health.HealthCheckRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StingrayHealthServiceTest {
+
+    final ObjectMapper mapper = new ObjectMapper();
+
+    static HealthCheck sleepingHealthCheck(long millis) {
+        return new HealthCheck() {
+            @Override
+            protected Result check() throws Exception {
+                Thread.sleep(millis);
+                return Result.healthy();
+            }
+        };
+    }
+
+    @Test
+    public void thatSlowHealthCheckIsReportedDownWithoutDelayingOthers() throws Exception {
+        HealthCheckRegistry healthCheckRegistry = new HealthCheckRegistry();
+        MetricRegistry metricRegistry = new MetricRegistry();
+        healthCheckRegistry.register("fast-1", sleepingHealthCheck(100));
+        healthCheckRegistry.register("fast-2", sleepingHealthCheck(100));
+        healthCheckRegistry.register("hanging", sleepingHealthCheck(TimeUnit.MINUTES.toMillis(5)));
+        StingrayHealthService healthService = new StingrayHealthService("1.0", "127.0.0.1", healthCheckRegistry, 10, ChronoUnit.SECONDS,
+                metricRegistry, 4, Duration.ofMillis(500));
+        try {
+            healthService.awaitInitialization(10, TimeUnit.SECONDS);
+            JsonNode health = mapper.readTree(healthService.getCurrentHealthJson());
+            assertEquals("DOWN", health.get("Status").textValue());
+            assertEquals("UP", health.get("fast-1").textValue());
+            assertEquals("UP", health.get("fast-2").textValue());
+            assertNull(health.get("fast-1.latency-ms"));
+            assertEquals("DOWN", health.get("hanging").textValue());
+            assertTrue(Long.parseLong(health.get("hanging.latency-ms").textValue()) >= 500);
+            // checks ran concurrently and the hanging check was time-boxed
+            assertTrue(healthService.getHealthComputeTimeMs() < 2000, "compute time: " + healthService.getHealthComputeTimeMs());
+            assertEquals(1, metricRegistry.timer("health-check.fast-1").getCount());
+            assertEquals(1, metricRegistry.counter("health-check.hanging.timeouts").getCount());
+        } finally {
+            healthService.shutdown();
+        }
+    }
+
+    @Test
+    public void thatHealthChecksAreExecutedAtTheirOwnInterval() throws Exception {
+        HealthCheckRegistry healthCheckRegistry = new HealthCheckRegistry();
+        AtomicInteger cheapExecutions = new AtomicInteger();
+        AtomicInteger expensiveExecutions = new AtomicInteger();
+        CountDownLatch cheapExecutedManyTimes = new CountDownLatch(10);
+        StingrayHealthService healthService = new StingrayHealthService("1.0", "127.0.0.1", healthCheckRegistry, 20, ChronoUnit.MILLIS,
+                null, 2, Duration.ofSeconds(1));
+        try {
+            healthService.registerHealthCheck("cheap", new HealthCheck() {
+                @Override
+                protected Result check() {
+                    cheapExecutions.incrementAndGet();
+                    cheapExecutedManyTimes.countDown();
+                    return Result.healthy();
+                }
+            });
+            healthService.registerHealthCheck("expensive", new HealthCheck() {
+                @Override
+                protected Result check() {
+                    expensiveExecutions.incrementAndGet();
+                    return Result.healthy();
+                }
+            }, Duration.ofMinutes(5));
+            assertTrue(cheapExecutedManyTimes.await(10, TimeUnit.SECONDS));
+            assertEquals(1, expensiveExecutions.get());
+            JsonNode health = mapper.readTree(healthService.getCurrentHealthJson());
+            assertNotNull(health.get("expensive"));
+            assertEquals("UP", health.get("Status").textValue());
+        } finally {
+            healthService.shutdown();
+        }
+    }
+}
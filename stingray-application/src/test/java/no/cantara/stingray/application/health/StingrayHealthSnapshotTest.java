@@ -0,0 +1,53 @@
+package no.cantara.stingray.application.health;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StingrayHealthSnapshotTest {
+
+    final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void thatRenderedSnapshotHasDynamicFieldsAppended() throws Exception {
+        ObjectNode health = mapper.createObjectNode();
+        health.put("Status", "UP");
+        health.put("version", "1.0 \"quoted\"");
+        health.putObject("probe").put("count", 3);
+        StingrayHealthSnapshot snapshot = new StingrayHealthSnapshot(mapper, health, 17);
+        Instant now = Instant.parse("2022-06-01T12:00:00.123Z");
+
+        byte[] rendered = snapshot.render(now);
+        JsonNode json = mapper.readTree(rendered);
+        List<String> fieldNames = new ArrayList<>();
+        json.fieldNames().forEachRemaining(fieldNames::add);
+        assertEquals(List.of("Status", "version", "probe", "now", "health-compute-time-ms", "health-updater-thread-alive"), fieldNames);
+        assertEquals("1.0 \"quoted\"", json.get("version").textValue());
+        assertEquals(3, json.get("probe").get("count").intValue());
+        assertEquals(now.toString(), json.get("now").textValue());
+        assertEquals("17", json.get("health-compute-time-ms").textValue());
+        assertEquals("true", json.get("health-updater-thread-alive").textValue());
+        assertEquals(health, mapper.readTree(snapshot.getHealthJson()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeTo(out, now);
+        assertArrayEquals(rendered, out.toByteArray());
+    }
+
+    @Test
+    public void thatEmptyHealthRendersValidJson() throws Exception {
+        StingrayHealthSnapshot snapshot = new StingrayHealthSnapshot(mapper, mapper.createObjectNode(), -1);
+        JsonNode json = mapper.readTree(snapshot.render(Instant.now()));
+        assertEquals(3, json.size());
+        assertEquals("-1", json.get("health-compute-time-ms").textValue());
+    }
+}
@@ -0,0 +1,102 @@
+package no.cantara.stingray.application.jetty;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StingrayVirtualThreadPoolTest {
+
+    // stands in for the virtual thread factory, so that the dispatching can be verified on any runtime
+    static class FakeVirtualThreadFactory implements ThreadFactory {
+        final AtomicInteger threadId = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "fake-virtual-" + threadId.incrementAndGet());
+        }
+    }
+
+    @Test
+    public void thatRequestsRunOnVirtualThreadsAndJettyLoopsOnPlatformThreads() throws Exception {
+        StingrayVirtualThreadPool threadPool = new StingrayVirtualThreadPool("test-vt", 16, 2, 60000, new FakeVirtualThreadFactory());
+        Server server = new Server(threadPool);
+        server.addEventListener(threadPool.serverLifeCycleListener());
+        ServerConnector connector = new ServerConnector(server, 1, 1);
+        connector.setPort(0);
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.setContentType("text/plain");
+                response.getWriter().print(Thread.currentThread().getName());
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+        try {
+            // the acceptor and the selector loops are busy platform threads
+            assertTrue(threadPool.getBusyThreads() >= 2);
+            assertEquals(0, threadPool.getStartedVirtualThreads());
+            for (int i = 0; i < 3; i++) {
+                String handlingThreadName = get(connector.getLocalPort());
+                assertTrue(handlingThreadName.startsWith("fake-virtual-"), handlingThreadName);
+            }
+            assertTrue(threadPool.getStartedVirtualThreads() >= 1);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void thatPlatformThreadsAreUsedUntilServerIsStarted() throws InterruptedException {
+        StingrayVirtualThreadPool threadPool = new StingrayVirtualThreadPool("test-vt", 4, 1, 60000, new FakeVirtualThreadFactory());
+        try {
+            threadPool.start();
+            String[] threadName = new String[1];
+            Thread[] thread = new Thread[1];
+            threadPool.execute(() -> threadName[0] = Thread.currentThread().getName());
+            threadPool.serverLifeCycleListener().lifeCycleStarted(null);
+            threadPool.execute(() -> thread[0] = Thread.currentThread());
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((threadName[0] == null || thread[0] == null) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(threadName[0].startsWith("test-vt"), threadName[0]);
+            assertTrue(thread[0].getName().startsWith("fake-virtual-"), thread[0].getName());
+            assertEquals(1, threadPool.getStartedVirtualThreads());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                threadPool.stop();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    static String get(int port) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/").openConnection();
+        try (InputStream is = connection.getInputStream()) {
+            assertEquals(200, connection.getResponseCode());
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package no.cantara.stingray.application.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.UniformReservoir;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StingrayGcPauseMetricsTest {
+
+    static long pauseCount(MetricRegistry registry) {
+        long count = 0;
+        for (Map.Entry<String, Histogram> entry : registry.getHistograms().entrySet()) {
+            count += entry.getValue().getCount();
+        }
+        return count;
+    }
+
+    @Test
+    public void thatGcDurationsAreRecorded() throws InterruptedException {
+        MetricRegistry registry = new MetricRegistry();
+        StingrayGcPauseMetrics gcPauseMetrics = new StingrayGcPauseMetrics(registry, UniformReservoir::new).start();
+        try {
+            for (GarbageCollectorMXBean garbageCollector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                String name = "gc." + garbageCollector.getName().replaceAll("\\s+", "-") + ".duration-ms";
+                assertTrue(registry.getHistograms().containsKey(name), name);
+            }
+            // notifications are delivered asynchronously
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (pauseCount(registry) == 0 && System.nanoTime() - deadline < 0) {
+                System.gc();
+                Thread.sleep(50);
+            }
+            assertTrue(pauseCount(registry) > 0);
+        } finally {
+            gcPauseMetrics.stop();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package no.cantara.stingray.application.metrics;
+
+import com.codahale.metrics.Snapshot;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StingrayHdrHistogramReservoirTest {
+
+    @Test
+    public void thatPercentilesAreAccurate() {
+        StingrayHdrHistogramReservoir reservoir = new StingrayHdrHistogramReservoir(Duration.ofMinutes(1), 6);
+        for (long i = 1; i <= 100_000; i++) {
+            reservoir.update(i * 1000);
+        }
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(100_000, snapshot.size());
+        assertEquals(50_000_000, snapshot.getMedian(), 50_000);
+        assertEquals(99_000_000, snapshot.get99thPercentile(), 99_000);
+        assertEquals(99_900_000, snapshot.get999thPercentile(), 99_900);
+        assertEquals(100_000_000, snapshot.getMax(), 100_000);
+        assertEquals(1000, snapshot.getMin(), 1);
+    }
+
+    @Test
+    public void thatValuesLeaveTheWindow() throws InterruptedException {
+        StingrayHdrHistogramReservoir reservoir = new StingrayHdrHistogramReservoir(Duration.ofMillis(200), 2);
+        reservoir.update(42);
+        assertEquals(1, reservoir.getSnapshot().size());
+        Thread.sleep(300);
+        assertEquals(0, reservoir.getSnapshot().size());
+        assertEquals(0, reservoir.getSnapshot().getMax());
+    }
+}
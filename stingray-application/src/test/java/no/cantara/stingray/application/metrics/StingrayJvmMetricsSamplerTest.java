@@ -0,0 +1,58 @@
+package no.cantara.stingray.application.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StingrayJvmMetricsSamplerTest {
+
+    static Object value(Map<String, Metric> metrics, String name) {
+        return ((Gauge<?>) metrics.get(name)).getValue();
+    }
+
+    @Test
+    public void thatGaugesReadTheLatestSample() throws InterruptedException {
+        StingrayJvmMetricsSampler sampler = new StingrayJvmMetricsSampler(Duration.ofMillis(50)).start();
+        try {
+            Map<String, Metric> metrics = sampler.getMetrics();
+            int threadCount = (Integer) value(metrics, "threads.count");
+            assertTrue(threadCount > 0);
+            assertTrue((Integer) value(metrics, "threads.runnable.count") > 0);
+            assertEquals(0, value(metrics, "threads.deadlock.count"));
+            assertEquals(Set.of(), value(metrics, "threads.deadlocks"));
+            assertTrue(metrics.containsKey("buffers.direct.used"));
+
+            // a new thread shows up with the next sample
+            CountDownLatch stop = new CountDownLatch(1);
+            Thread thread = new Thread(() -> {
+                try {
+                    stop.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.start();
+            try {
+                long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+                while ((Integer) value(metrics, "threads.count") <= threadCount && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertTrue((Integer) value(metrics, "threads.count") > threadCount);
+            } finally {
+                stop.countDown();
+                thread.join();
+            }
+        } finally {
+            sampler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package no.cantara.stingray.application.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StingrayPrometheusMetricsServletTest {
+
+    static MetricRegistry createBaseMetricRegistry() {
+        MetricRegistry appMetricRegistry = new MetricRegistry();
+        appMetricRegistry.counter("greeting.count").inc(3);
+        appMetricRegistry.timer("request-timing.total").update(2, TimeUnit.MILLISECONDS);
+        appMetricRegistry.meter("requests").mark(5);
+        appMetricRegistry.register("name", (Gauge<String>) () -> "greeter");
+        MetricRegistry jvmMetricRegistry = new MetricRegistry();
+        jvmMetricRegistry.register("memory.heap.used", (Gauge<Long>) () -> 1024L);
+        MetricRegistry baseMetricRegistry = new MetricRegistry();
+        baseMetricRegistry.register("app", appMetricRegistry);
+        baseMetricRegistry.register("jvm", jvmMetricRegistry);
+        return baseMetricRegistry;
+    }
+
+    @Test
+    public void thatOpenMetricsAreWritten() throws IOException {
+        StingrayPrometheusMetricsServlet servlet = new StingrayPrometheusMetricsServlet(createBaseMetricRegistry());
+        StringWriter writer = new StringWriter();
+        servlet.write(writer, true);
+        String exposition = writer.toString();
+        assertTrue(exposition.contains("# TYPE app_greeting_count gauge\napp_greeting_count{registry=\"app\"} 3\n"));
+        assertTrue(exposition.contains("# TYPE app_request_timing_total summary\n"));
+        assertTrue(exposition.contains("app_request_timing_total{registry=\"app\",quantile=\"0.99\"} 0.002\n"));
+        assertTrue(exposition.contains("app_request_timing_total_sum{registry=\"app\"} 0.002\n"));
+        assertTrue(exposition.contains("app_request_timing_total_count{registry=\"app\"} 1\n"));
+        assertTrue(exposition.contains("# TYPE app_requests counter\napp_requests_total{registry=\"app\"} 5\n"));
+        assertTrue(exposition.contains("jvm_memory_heap_used{registry=\"jvm\"} 1024\n"));
+        assertFalse(exposition.contains("app_name"), "non-numeric gauges are not exposed");
+        assertTrue(exposition.endsWith("# EOF\n"));
+    }
+
+    @Test
+    public void thatPrometheusTextIsWritten() throws IOException {
+        StingrayPrometheusMetricsServlet servlet = new StingrayPrometheusMetricsServlet(createBaseMetricRegistry());
+        StringWriter writer = new StringWriter();
+        servlet.write(writer, false);
+        String exposition = writer.toString();
+        assertTrue(exposition.contains("# TYPE app_requests_total counter\napp_requests_total{registry=\"app\"} 5\n"));
+        assertFalse(exposition.contains("# EOF"));
+    }
+
+    @Test
+    public void thatMetricsThatSanitizeToSameNameAreKeptApart() throws IOException {
+        MetricRegistry sqlMetricRegistry = new MetricRegistry();
+        sqlMetricRegistry.timer("statements.select * from t where x = ?").update(1, TimeUnit.MILLISECONDS);
+        sqlMetricRegistry.timer("statements.select * from t where x > ?").update(1, TimeUnit.MILLISECONDS);
+        sqlMetricRegistry.counter("pool.active-connections").inc();
+        sqlMetricRegistry.counter("pool.active_connections").inc();
+        MetricRegistry baseMetricRegistry = new MetricRegistry();
+        baseMetricRegistry.register("sql", sqlMetricRegistry);
+        StingrayPrometheusMetricsServlet servlet = new StingrayPrometheusMetricsServlet(baseMetricRegistry);
+        StringWriter writer = new StringWriter();
+        servlet.write(writer, false);
+        String exposition = writer.toString();
+        Matcher typeMatcher = Pattern.compile("^# TYPE (\\S+) ", Pattern.MULTILINE).matcher(exposition);
+        int types = 0;
+        Set<String> families = new HashSet<>();
+        while (typeMatcher.find()) {
+            types++;
+            families.add(typeMatcher.group(1));
+        }
+        assertEquals(4, types);
+        assertEquals(4, families.size(), exposition);
+        assertTrue(families.stream().allMatch(name -> name.matches("[a-zA-Z_:][a-zA-Z0-9_:]*")));
+
+        // the same names on every scrape
+        StringWriter secondWriter = new StringWriter();
+        servlet.write(secondWriter, false);
+        assertEquals(exposition, secondWriter.toString());
+    }
+}
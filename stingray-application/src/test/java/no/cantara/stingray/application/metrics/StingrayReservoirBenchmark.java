@@ -0,0 +1,65 @@
+package no.cantara.stingray.application.metrics;
+
+import com.codahale.metrics.Timer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares timer recording throughput of the reservoirs available through metrics.reservoir, with 32 threads
+ * recording into the same timer as under a heavily loaded resource method. Run the main method from the test
+ * classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class StingrayReservoirBenchmark {
+
+    @Param({
+            StingrayReservoirs.EXPONENTIALLY_DECAYING,
+            StingrayReservoirs.HDR_HISTOGRAM,
+            StingrayReservoirs.SLIDING_TIME_WINDOW,
+            StingrayReservoirs.UNIFORM
+    })
+    String reservoir;
+
+    Timer timer;
+
+    @Setup
+    public void setup() {
+        timer = new Timer(StingrayReservoirs.create(reservoir, Duration.ofMinutes(1), 6).get());
+    }
+
+    @Benchmark
+    public void record() {
+        // latencies between 100 microseconds and 100 milliseconds
+        timer.update(ThreadLocalRandom.current().nextLong(100_000, 100_000_000), TimeUnit.NANOSECONDS);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StingrayReservoirBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,32 @@
+package no.cantara.stingray.application.openapi;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StingrayOpenApiResourceTest {
+
+    @Test
+    public void thatGzipIsAcceptedWithNonZeroQuality() {
+        assertTrue(StingrayOpenApiResource.acceptsGzip("gzip"));
+        assertTrue(StingrayOpenApiResource.acceptsGzip("gzip, deflate, br"));
+        assertTrue(StingrayOpenApiResource.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(StingrayOpenApiResource.acceptsGzip("x-gzip"));
+        assertTrue(StingrayOpenApiResource.acceptsGzip("*"));
+        assertTrue(StingrayOpenApiResource.acceptsGzip("identity, *;q=0.1"));
+    }
+
+    @Test
+    public void thatGzipIsNotAcceptedWithZeroQualityOrWhenAbsent() {
+        assertFalse(StingrayOpenApiResource.acceptsGzip(null));
+        assertFalse(StingrayOpenApiResource.acceptsGzip(""));
+        assertFalse(StingrayOpenApiResource.acceptsGzip("identity"));
+        assertFalse(StingrayOpenApiResource.acceptsGzip("gzip;q=0"));
+        assertFalse(StingrayOpenApiResource.acceptsGzip("gzip; q=0.000, identity"));
+        assertFalse(StingrayOpenApiResource.acceptsGzip("*;q=0"));
+        assertFalse(StingrayOpenApiResource.acceptsGzip("gzip;q=0, *"));
+        assertFalse(StingrayOpenApiResource.acceptsGzip("gzip;q=invalid"));
+        assertFalse(StingrayOpenApiResource.acceptsGzip("gzipped"));
+    }
+}
@@ -1,7 +1,6 @@
 package no.cantara.stingray.httpclient.apache;
 
 import no.cantara.stingray.httpclient.StingrayHttpClient;
-import no.cantara.stingray.httpclient.StingrayHttpClientConfiguration;
 import no.cantara.stingray.httpclient.StingrayHttpRequestBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,7 +20,7 @@ class ApacheStingrayHttpClient implements StingrayHttpClient {
         this.target = target;
     }
 
-    StingrayHttpClientConfiguration getConfiguration() {
+    ApacheStingrayHttpClientConfiguration getConfiguration() {
         return configuration;
     }
 
@@ -5,17 +5,21 @@ import no.cantara.stingray.httpclient.StingrayHttpHeader;
 
 import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 class ApacheStingrayHttpClientConfiguration implements StingrayHttpClientConfiguration {
 
     private final int connectTimeoutMs;
     private final int socketTimeoutMs;
     private final Map<String, StingrayHttpHeader> defaultHeaders;
+    private final ApacheStingrayHttpConnectionPool connectionPool;
+    private final AtomicBoolean closed = new AtomicBoolean();
 
-    ApacheStingrayHttpClientConfiguration(Map<String, StingrayHttpHeader> defaultHeaders, int connectTimeoutMs, int socketTimeoutMs) {
+    ApacheStingrayHttpClientConfiguration(Map<String, StingrayHttpHeader> defaultHeaders, int connectTimeoutMs, int socketTimeoutMs, ApacheStingrayHttpConnectionPool connectionPool) {
         this.defaultHeaders = defaultHeaders;
         this.connectTimeoutMs = connectTimeoutMs;
         this.socketTimeoutMs = socketTimeoutMs;
+        this.connectionPool = connectionPool;
     }
 
     @Override
@@ -28,7 +32,18 @@ class ApacheStingrayHttpClientConfiguration implements StingrayHttpClientConfigu
         return Duration.ofMillis(socketTimeoutMs);
     }
 
+    ApacheStingrayHttpConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
     public Map<String, StingrayHttpHeader> getDefaultHeaders() {
         return defaultHeaders;
     }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            connectionPool.release();
+        }
+    }
 }
@@ -6,6 +6,8 @@ import no.cantara.stingray.httpclient.StingrayHttpHeader;
 import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 class ApacheStingrayHttpClientConfigurationBuilder implements StingrayHttpClientConfigurationBuilder {
 
@@ -15,6 +17,15 @@ class ApacheStingrayHttpClientConfigurationBuilder implements StingrayHttpClient
     private int connectTimeoutMs = DEFAULT_CONNECT_TIMEOUT_MS;
     private int socketTimeoutMs = DEFAULT_SOCKET_TIMEOUT_MS;
 
+    private String poolName;
+    private boolean poolSettings;
+    private int maxConnections = ApacheStingrayHttpConnectionPool.DEFAULT_MAX_CONNECTIONS;
+    private int maxConnectionsPerRoute = ApacheStingrayHttpConnectionPool.DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    private long evictIdleMs = -1;
+    private long timeToLiveMs = -1;
+    private long keepAliveMs = -1;
+    private BiConsumer<String, Supplier<Integer>> gaugeRegistrar;
+
     private final Map<String, StingrayHttpHeader> defaultHeaderByKey = new LinkedHashMap<>();
 
     ApacheStingrayHttpClientConfigurationBuilder() {
@@ -46,8 +57,99 @@ class ApacheStingrayHttpClientConfigurationBuilder implements StingrayHttpClient
         return this;
     }
 
+    @Override
+    public ApacheStingrayHttpClientConfigurationBuilder isolatedConnectionPool(String poolName) {
+        if (poolName == null || poolName.isEmpty()) {
+            throw new IllegalArgumentException("poolName must be specified");
+        }
+        this.poolName = poolName;
+        return this;
+    }
+
+    @Override
+    public ApacheStingrayHttpClientConfigurationBuilder maxConnections(int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be a positive number");
+        }
+        this.maxConnections = maxConnections;
+        poolSettings = true;
+        return this;
+    }
+
+    @Override
+    public ApacheStingrayHttpClientConfigurationBuilder maxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        if (maxConnectionsPerRoute < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerRoute must be a positive number");
+        }
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        poolSettings = true;
+        return this;
+    }
+
+    @Override
+    public ApacheStingrayHttpClientConfigurationBuilder evictIdleConnections(Duration idleTime) {
+        this.evictIdleMs = nonNegativeMillis(idleTime);
+        poolSettings = true;
+        return this;
+    }
+
+    @Override
+    public ApacheStingrayHttpClientConfigurationBuilder connectionTimeToLive(Duration timeToLive) {
+        this.timeToLiveMs = nonNegativeMillis(timeToLive);
+        poolSettings = true;
+        return this;
+    }
+
+    @Override
+    public ApacheStingrayHttpClientConfigurationBuilder keepAlive(Duration keepAlive) {
+        this.keepAliveMs = nonNegativeMillis(keepAlive);
+        poolSettings = true;
+        return this;
+    }
+
+    @Override
+    public ApacheStingrayHttpClientConfigurationBuilder connectionPoolGauges(BiConsumer<String, Supplier<Integer>> gaugeRegistrar) {
+        this.gaugeRegistrar = gaugeRegistrar;
+        return this;
+    }
+
+    /**
+     * @return a name derived from the settings, so that configurations with the same settings share a pool.
+     */
+    private String implicitPoolName() {
+        StringBuilder name = new StringBuilder("max-").append(maxConnections).append("-per-route-").append(maxConnectionsPerRoute);
+        if (evictIdleMs >= 0) {
+            name.append("-evict-idle-").append(evictIdleMs).append("ms");
+        }
+        if (timeToLiveMs >= 0) {
+            name.append("-ttl-").append(timeToLiveMs).append("ms");
+        }
+        if (keepAliveMs >= 0) {
+            name.append("-keep-alive-").append(keepAliveMs).append("ms");
+        }
+        return name.toString();
+    }
+
+    private static long nonNegativeMillis(Duration duration) {
+        long durationMs = duration.toMillis();
+        if (durationMs < 0) {
+            throw new IllegalArgumentException("duration out of range");
+        }
+        return durationMs;
+    }
+
     @Override
     public ApacheStingrayHttpClientConfiguration build() {
-        return new ApacheStingrayHttpClientConfiguration(defaultHeaderByKey, connectTimeoutMs, socketTimeoutMs);
+        ApacheStingrayHttpConnectionPool connectionPool;
+        if (poolName != null || poolSettings) {
+            connectionPool = ApacheStingrayHttpConnectionPool.acquire(poolName != null ? poolName : implicitPoolName(),
+                    maxConnections, maxConnectionsPerRoute, evictIdleMs, timeToLiveMs, keepAliveMs);
+        } else {
+            connectionPool = ApacheStingrayHttpConnectionPool.shared();
+        }
+        if (gaugeRegistrar != null) {
+            connectionPool.registerGauges(gaugeRegistrar);
+        }
+        return new ApacheStingrayHttpClientConfiguration(defaultHeaderByKey, connectTimeoutMs, socketTimeoutMs, connectionPool);
     }
 }
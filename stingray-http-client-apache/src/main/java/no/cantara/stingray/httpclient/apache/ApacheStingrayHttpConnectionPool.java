@@ -0,0 +1,234 @@
+package no.cantara.stingray.httpclient.apache;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLInitializationException;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * A connection pool and the http-client using it. The shared pool is used by all clients that are not configured with
+ * an isolated pool. Isolated pools are shared by name, and reference counted by the configurations using them, the
+ * pool is closed, i.e. its connections, idle-connection evictor and async executor, when the last configuration is
+ * closed.
+ */
+class ApacheStingrayHttpConnectionPool {
+
+    static final String SHARED_POOL_NAME = "shared";
+    static final int DEFAULT_MAX_CONNECTIONS = 200;
+    static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 100;
+
+    private static class SharedPoolHolder {
+        static final ApacheStingrayHttpConnectionPool SHARED = new ApacheStingrayHttpConnectionPool(SHARED_POOL_NAME,
+                DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS_PER_ROUTE, -1, -1, -1);
+    }
+
+    static ApacheStingrayHttpConnectionPool shared() {
+        return SharedPoolHolder.SHARED;
+    }
+
+    private static final Map<String, ApacheStingrayHttpConnectionPool> poolByName = new HashMap<>(); // guarded by itself
+
+    /**
+     * @return the pool with the given name, created if it does not exist. Must be {@link #release() released} by the
+     * caller.
+     * @throws IllegalArgumentException if a pool with the given name exists with other settings.
+     */
+    static ApacheStingrayHttpConnectionPool acquire(String name, int maxConnections, int maxConnectionsPerRoute, long evictIdleMs, long timeToLiveMs, long keepAliveMs) {
+        synchronized (poolByName) {
+            ApacheStingrayHttpConnectionPool pool = poolByName.get(name);
+            if (pool == null) {
+                pool = new ApacheStingrayHttpConnectionPool(name, maxConnections, maxConnectionsPerRoute, evictIdleMs, timeToLiveMs, keepAliveMs);
+                poolByName.put(name, pool);
+            } else if (pool.maxConnections != maxConnections || pool.maxConnectionsPerRoute != maxConnectionsPerRoute
+                    || pool.evictIdleMs != evictIdleMs || pool.timeToLiveMs != timeToLiveMs || pool.keepAliveMs != keepAliveMs) {
+                throw new IllegalArgumentException(String.format("Connection pool '%s' already exists with other settings", name));
+            }
+            pool.references++;
+            return pool;
+        }
+    }
+
+    private final String name;
+    private final int maxConnections;
+    private final int maxConnectionsPerRoute;
+    private final long evictIdleMs;
+    private final long timeToLiveMs;
+    private final long keepAliveMs;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient client;
+    private volatile ExecutorService asyncExecutor;
+    private int references; // guarded by poolByName
+
+    /**
+     * @param evictIdleMs   close connections idle for this long, or negative to never evict idle connections
+     * @param timeToLiveMs  max lifetime of a connection, or negative for no limit
+     * @param keepAliveMs   keep-alive when not told by the server, and upper bound of what the server tells, or
+     *                      negative to keep connections alive as long as the server tells, or indefinitely
+     */
+    ApacheStingrayHttpConnectionPool(String name, int maxConnections, int maxConnectionsPerRoute, long evictIdleMs, long timeToLiveMs, long keepAliveMs) {
+        this.name = name;
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        this.evictIdleMs = evictIdleMs;
+        this.timeToLiveMs = timeToLiveMs;
+        this.keepAliveMs = keepAliveMs;
+        this.connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry(), null, null, null, timeToLiveMs, TimeUnit.MILLISECONDS);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setValidateAfterInactivity(1000);
+        HttpClientBuilder builder = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager);
+        if (evictIdleMs >= 0) {
+            builder.evictExpiredConnections();
+            builder.evictIdleConnections(evictIdleMs, TimeUnit.MILLISECONDS);
+        }
+        if (keepAliveMs >= 0) {
+            builder.setKeepAliveStrategy(new BoundedKeepAliveStrategy(keepAliveMs));
+        }
+        this.client = builder.build();
+    }
+
+    private static Registry<ConnectionSocketFactory> socketFactoryRegistry() {
+        LayeredConnectionSocketFactory ssl = null;
+        try {
+            ssl = SSLConnectionSocketFactory.getSystemSocketFactory();
+        } catch (final SSLInitializationException ex) {
+            final SSLContext sslcontext;
+            try {
+                sslcontext = SSLContext.getInstance(SSLConnectionSocketFactory.TLS);
+                sslcontext.init(null, null, null);
+                ssl = new SSLConnectionSocketFactory(sslcontext);
+            } catch (final SecurityException ignore) {
+            } catch (final KeyManagementException ignore) {
+            } catch (final NoSuchAlgorithmException ignore) {
+            }
+        }
+
+        return RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", ssl != null ? ssl : SSLConnectionSocketFactory.getSocketFactory())
+                .build();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    HttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * @return the executor of asynchronous requests, created on first use. It has one thread per connection of the
+     * pool, more would only wait for a connection, and queues requests beyond that.
+     */
+    ExecutorService getAsyncExecutor() {
+        ExecutorService executor = asyncExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = asyncExecutor;
+                if (executor == null) {
+                    AtomicInteger threadId = new AtomicInteger();
+                    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(maxConnections, maxConnections, 60, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "http-client-" + name + "-async-" + threadId.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    threadPoolExecutor.allowCoreThreadTimeOut(true);
+                    asyncExecutor = executor = threadPoolExecutor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Release a reference acquired with {@link #acquire}, the pool is closed when the last reference is released. The
+     * shared pool is never closed.
+     */
+    void release() {
+        synchronized (poolByName) {
+            if (references == 0 || --references > 0) {
+                return;
+            }
+            poolByName.remove(name, this);
+        }
+        synchronized (this) {
+            if (asyncExecutor != null) {
+                asyncExecutor.shutdown();
+            }
+        }
+        try {
+            client.close(); // also stops the idle-connection evictor and shuts down the connection manager
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    PoolStats getTotalStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    void registerGauges(BiConsumer<String, Supplier<Integer>> gaugeRegistrar) {
+        String prefix = "connection-pool." + name + ".";
+        gaugeRegistrar.accept(prefix + "leased", () -> connectionManager.getTotalStats().getLeased());
+        gaugeRegistrar.accept(prefix + "pending", () -> connectionManager.getTotalStats().getPending());
+        gaugeRegistrar.accept(prefix + "available", () -> connectionManager.getTotalStats().getAvailable());
+        gaugeRegistrar.accept(prefix + "max", () -> connectionManager.getTotalStats().getMax());
+    }
+
+    private static class BoundedKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+        private final long keepAliveMs;
+
+        BoundedKeepAliveStrategy(long keepAliveMs) {
+            this.keepAliveMs = keepAliveMs;
+        }
+
+        @Override
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (it.hasNext()) {
+                HeaderElement element = it.nextElement();
+                if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+                    try {
+                        return Math.min(keepAliveMs, Long.parseLong(element.getValue()) * 1000);
+                    } catch (NumberFormatException ignore) {
+                    }
+                }
+            }
+            return keepAliveMs;
+        }
+    }
+}
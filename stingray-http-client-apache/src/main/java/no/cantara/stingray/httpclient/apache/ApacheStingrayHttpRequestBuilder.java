@@ -24,12 +24,14 @@ import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpTrace;
 import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.FileEntity;
 import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
 
 import java.io.File;
 import java.io.IOException;
@@ -44,6 +46,8 @@ import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 import static java.util.Optional.ofNullable;
 
@@ -113,6 +117,12 @@ class ApacheStingrayHttpRequestBuilder implements StingrayHttpRequestBuilder {
         return this;
     }
 
+    @Override
+    public ApacheStingrayHttpRequestBuilder bodyJson(Object body) {
+        setEntity(new ApacheStingrayJsonEntity(body));
+        return this;
+    }
+
     @Override
     public ApacheStingrayHttpRequestBuilder body(String body) {
         setEntity(new StringEntity(body, ContentType.create("text/plain", StandardCharsets.UTF_8)));
@@ -381,79 +391,125 @@ class ApacheStingrayHttpRequestBuilder implements StingrayHttpRequestBuilder {
 
     @Override
     public StingrayHttpResponse execute() {
+        URI uri = toUri();
+        HttpRequestBase request = createRequest(uri);
         try {
-            URI uri = toUri();
-            // TODO consider fail-fast when target or path is not specified?
-            HttpRequestBase request;
-            switch (method) {
-                case GET:
-                    request = new HttpGet(uri);
-                    break;
-                case POST:
-                    request = new HttpPost(uri);
-                    break;
-                case PUT:
-                    request = new HttpPut(uri);
-                    break;
-                case OPTIONS:
-                    request = new HttpOptions(uri);
-                    break;
-                case HEAD:
-                    request = new HttpHead(uri);
-                    break;
-                case DELETE:
-                    request = new HttpDeleteWithBody(uri);
-                    break;
-                case PATCH:
-                    request = new HttpPatch(uri);
-                    break;
-                case TRACE:
-                    request = new HttpTrace(uri);
-                    break;
-                default:
-                    throw new IllegalArgumentException("HttpMethod not supported: " + method);
+            HttpResponse response = apacheStingrayHttpClient.getConfiguration().getConnectionPool().getClient().execute(request);
+            return new ApacheStingrayHttpResponse(method.name(), uri.toString(), headers, entity, response);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Executes the request on the async executor of the connection pool, which has as many threads as the pool has
+     * connections. The response entity is read before the future is completed, so that the connection is released
+     * without the caller consuming the response. Cancelling the future aborts the request.
+     */
+    @Override
+    public CompletableFuture<StingrayHttpResponse> executeAsync() {
+        URI uri = toUri();
+        HttpRequestBase request = createRequest(uri);
+        ApacheStingrayHttpConnectionPool connectionPool = apacheStingrayHttpClient.getConfiguration().getConnectionPool();
+        CompletableFuture<StingrayHttpResponse> result = new CompletableFuture<>();
+        result.whenComplete((r, t) -> {
+            if (result.isCancelled()) {
+                request.abort();
             }
-            for (Map.Entry<String, StingrayHttpHeader> header : headers.entrySet()) {
-                List<String> all = header.getValue().all();
-                if (all != null) {
-                    for (String headerValue : all) {
-                        request.addHeader(header.getKey(), headerValue);
+        });
+        try {
+            connectionPool.getAsyncExecutor().execute(() -> {
+                if (result.isDone()) {
+                    return; // cancelled while queued
+                }
+                try {
+                    HttpResponse response = connectionPool.getClient().execute(request);
+                    HttpEntity responseEntity = response.getEntity();
+                    if (responseEntity != null) {
+                        response.setEntity(new BufferedHttpEntity(responseEntity));
+                        EntityUtils.consume(responseEntity);
                     }
+                    result.complete(new ApacheStingrayHttpResponse(method.name(), uri.toString(), headers, entity, response));
+                } catch (IOException e) {
+                    result.completeExceptionally(new UncheckedIOException(e));
+                } catch (RuntimeException | Error e) {
+                    result.completeExceptionally(e);
                 }
-            }
-            if (entity != null) {
-                if (request instanceof HttpEntityEnclosingRequest) {
-                    ((HttpEntityEnclosingRequest) request).setEntity(entity);
-                } else {
-                    throw StingrayHttpClientException.builder()
-                            .withMessage("Request does not support a body as it is not an instance of " + HttpEntityEnclosingRequest.class.getName())
-                            .withMethod(method.name())
-                            .withUrl(toUri().toString())
-                            .withRequestHeaders(headers)
-                            .build();
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private HttpRequestBase createRequest(URI uri) {
+        // TODO consider fail-fast when target or path is not specified?
+        HttpRequestBase request;
+        switch (method) {
+            case GET:
+                request = new HttpGet(uri);
+                break;
+            case POST:
+                request = new HttpPost(uri);
+                break;
+            case PUT:
+                request = new HttpPut(uri);
+                break;
+            case OPTIONS:
+                request = new HttpOptions(uri);
+                break;
+            case HEAD:
+                request = new HttpHead(uri);
+                break;
+            case DELETE:
+                request = new HttpDeleteWithBody(uri);
+                break;
+            case PATCH:
+                request = new HttpPatch(uri);
+                break;
+            case TRACE:
+                request = new HttpTrace(uri);
+                break;
+            default:
+                throw new IllegalArgumentException("HttpMethod not supported: " + method);
+        }
+        for (Map.Entry<String, StingrayHttpHeader> header : headers.entrySet()) {
+            List<String> all = header.getValue().all();
+            if (all != null) {
+                for (String headerValue : all) {
+                    request.addHeader(header.getKey(), headerValue);
                 }
             }
-            HttpClient client = ApacheStingrayHttpClientExecutors.CLIENT;
-            final RequestConfig.Builder builder;
-            if (client instanceof Configurable) {
-                builder = RequestConfig.copy(((Configurable) client).getConfig());
+        }
+        if (entity != null) {
+            if (request instanceof HttpEntityEnclosingRequest) {
+                ((HttpEntityEnclosingRequest) request).setEntity(entity);
             } else {
-                builder = RequestConfig.custom();
-            }
-            if (false) {
-                builder.setExpectContinueEnabled(false);
-            }
-            builder.setSocketTimeout(socketTimeoutMs);
-            builder.setConnectTimeout(connectTimeoutMs);
-            if (false) {
-                builder.setProxy(null);
+                throw StingrayHttpClientException.builder()
+                        .withMessage("Request does not support a body as it is not an instance of " + HttpEntityEnclosingRequest.class.getName())
+                        .withMethod(method.name())
+                        .withUrl(toUri().toString())
+                        .withRequestHeaders(headers)
+                        .build();
             }
-            final RequestConfig config = builder.build();
-            request.setConfig(config);
-            HttpResponse response = client.execute(request);
-            return new ApacheStingrayHttpResponse(method.name(), uri.toString(), headers, entity, response);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
         }
+        HttpClient client = apacheStingrayHttpClient.getConfiguration().getConnectionPool().getClient();
+        final RequestConfig.Builder builder;
+        if (client instanceof Configurable) {
+            builder = RequestConfig.copy(((Configurable) client).getConfig());
+        } else {
+            builder = RequestConfig.custom();
+        }
+        if (false) {
+            builder.setExpectContinueEnabled(false);
+        }
+        builder.setSocketTimeout(socketTimeoutMs);
+        builder.setConnectTimeout(connectTimeoutMs);
+        if (false) {
+            builder.setProxy(null);
+        }
+        final RequestConfig config = builder.build();
+        request.setConfig(config);
+        return request;
     }
 }
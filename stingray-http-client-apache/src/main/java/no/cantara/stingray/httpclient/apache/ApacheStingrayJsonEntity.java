@@ -0,0 +1,59 @@
+package no.cantara.stingray.httpclient.apache;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import no.cantara.stingray.httpclient.StingrayHttpJackson;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Entity that serializes an object as json directly to the connection output-stream, without buffering the whole json
+ * representation in memory. The entity is chunked as the content length is not known up front.
+ */
+class ApacheStingrayJsonEntity extends AbstractHttpEntity {
+
+    private final Object body;
+
+    ApacheStingrayJsonEntity(Object body) {
+        this.body = body;
+        setContentType(ContentType.APPLICATION_JSON.toString());
+        setChunked(true);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    /**
+     * Only used when the body is needed in full, e.g. to include the request body in exceptions.
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        return new ByteArrayInputStream(StingrayHttpJackson.mapper().writeValueAsBytes(body));
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        ObjectMapper mapper = StingrayHttpJackson.mapper();
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(outStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            mapper.writeValue(generator, body);
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
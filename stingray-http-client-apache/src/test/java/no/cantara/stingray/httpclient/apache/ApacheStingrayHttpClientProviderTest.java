@@ -1,6 +1,9 @@
 package no.cantara.stingray.httpclient.apache;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
 import no.cantara.stingray.httpclient.StingrayHttpClient;
+import no.cantara.stingray.httpclient.StingrayHttpClientConfiguration;
 import no.cantara.stingray.httpclient.StingrayHttpClientException;
 import no.cantara.stingray.httpclient.StingrayHttpClientFactory;
 import no.cantara.stingray.httpclient.StingrayHttpClients;
@@ -17,19 +20,29 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class ApacheStingrayHttpClientProviderTest {
 
     static int port;
     static Server server;
+    static EchoHandler echoHandler;
 
     @BeforeAll
     public static void setup() throws Exception {
         server = new Server(0);
-        server.setHandler(new EchoHandler());
+        echoHandler = new EchoHandler();
+        server.setHandler(echoHandler);
         server.start();
         port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
     }
@@ -212,4 +225,98 @@ public class ApacheStingrayHttpClientProviderTest {
 
         System.out.printf("Echo: %n%s%n", responseJson);
     }
+
+    public static class Greeting {
+        public String greeting;
+        public int count;
+
+        public Greeting() {
+        }
+
+        Greeting(String greeting, int count) {
+            this.greeting = greeting;
+            this.count = count;
+        }
+    }
+
+    @Test
+    public void jsonBodyAndContent() throws Exception {
+        StingrayHttpClient client = StingrayHttpClients.factory().newClient()
+                .useTarget(target -> target.withUrl("http://localhost:" + port))
+                .build();
+
+        Greeting greeting = client.post()
+                .path("/echo")
+                .bodyJson((Object) new Greeting("Hello æøå", 42))
+                .execute()
+                .isSuccessful()
+                .contentAsJson(Greeting.class);
+        assertEquals("Hello æøå", greeting.greeting);
+        assertEquals(42, greeting.count);
+
+        List<Greeting> greetings = client.post()
+                .path("/echo")
+                .bodyJson(Arrays.asList(new Greeting("Hello", 1), new Greeting("Hi", 1)))
+                .execute()
+                .isSuccessful()
+                .contentAsJson(new TypeReference<List<Greeting>>() {
+                });
+        assertEquals(2, greetings.size());
+        assertEquals("Hi", greetings.get(1).greeting);
+
+        List<String> iterated = new ArrayList<>();
+        try (MappingIterator<Greeting> iterator = client.post()
+                .path("/echo")
+                .bodyJson(Arrays.asList(new Greeting("Hello", 1), new Greeting("Hi", 1), new Greeting("Hey", 1)))
+                .execute()
+                .isSuccessful()
+                .contentAsJsonIterator(Greeting.class)) {
+            while (iterator.hasNext()) {
+                iterated.add(iterator.next().greeting);
+            }
+        }
+        assertEquals(Arrays.asList("Hello", "Hi", "Hey"), iterated);
+    }
+
+    @Test
+    public void executeAsync() throws Exception {
+        StingrayHttpClient client = StingrayHttpClients.factory().newClient()
+                .useTarget(target -> target.withUrl("http://localhost:" + port))
+                .build();
+        CompletableFuture<StingrayHttpResponse> future = client.post()
+                .path("/echo")
+                .bodyJson("{\"prop1\":\"val1\"}")
+                .executeAsync();
+        assertEquals("{\"prop1\":\"val1\"}", future.get(5, TimeUnit.SECONDS).isSuccessful().contentAsString());
+    }
+
+    @Test
+    public void asyncFanOutIsBoundedByMaxConnections() throws Exception {
+        StingrayHttpClientFactory clientFactory = StingrayHttpClients.factory();
+        try (StingrayHttpClientConfiguration configuration = clientFactory.newConfiguration()
+                .isolatedConnectionPool("async-fan-out")
+                .maxConnections(2)
+                .build()) {
+            StingrayHttpClient client = clientFactory.newClient()
+                    .withConfiguration(configuration)
+                    .useTarget(target -> target.withUrl("http://localhost:" + port))
+                    .build();
+            echoHandler.maxConcurrentSlowRequests.set(0);
+            List<CompletableFuture<StingrayHttpResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                futures.add(client.get().path("/slow").query("millis", "100").executeAsync());
+            }
+            for (CompletableFuture<StingrayHttpResponse> future : futures) {
+                assertEquals("slow", future.get(5, TimeUnit.SECONDS).contentAsString());
+            }
+            assertTrue(echoHandler.maxConcurrentSlowRequests.get() <= 2, String.valueOf(echoHandler.maxConcurrentSlowRequests.get()));
+
+            CompletableFuture<StingrayHttpResponse> cancelled = client.get().path("/slow").query("millis", "2000").executeAsync();
+            cancelled.cancel(true);
+            assertThrows(CancellationException.class, cancelled::join);
+            assertEquals("slow", client.get().path("/slow").query("millis", "1").executeAsync()
+                    .get(5, TimeUnit.SECONDS)
+                    .contentAsString());
+        }
+    }
 }
@@ -0,0 +1,190 @@
+package no.cantara.stingray.httpclient.apache;
+
+import no.cantara.stingray.httpclient.StingrayHttpClient;
+import no.cantara.stingray.httpclient.StingrayHttpClientConfiguration;
+import no.cantara.stingray.httpclient.StingrayHttpClientFactory;
+import no.cantara.stingray.httpclient.StingrayHttpClients;
+import no.cantara.stingray.httpclient.StingrayHttpResponse;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ApacheStingrayHttpConnectionPoolTest {
+
+    static int port;
+    static Server server;
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        server = new Server(0);
+        server.setHandler(new EchoHandler());
+        server.start();
+        port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    }
+
+    @AfterAll
+    public static void teardown() throws Exception {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    static ApacheStingrayHttpConnectionPool connectionPool(StingrayHttpClient client) {
+        return ((ApacheStingrayHttpClient) client).getConfiguration().getConnectionPool();
+    }
+
+    @Test
+    public void thatClientsUseSharedPoolUnlessConfigured() {
+        StingrayHttpClientFactory clientFactory = StingrayHttpClients.factory();
+        StingrayHttpClient client1 = clientFactory.newClient().build();
+        StingrayHttpClient client2 = clientFactory.newClient()
+                .useConfiguration(configuration -> configuration.connectTimeout(Duration.ofSeconds(1)))
+                .build();
+        assertSame(ApacheStingrayHttpConnectionPool.shared(), connectionPool(client1));
+        assertSame(ApacheStingrayHttpConnectionPool.shared(), connectionPool(client2));
+    }
+
+    @Test
+    public void thatConfigurationsWithPoolSettingsHaveIsolatedPools() {
+        StingrayHttpClientFactory clientFactory = StingrayHttpClients.factory();
+        StingrayHttpClientConfiguration configuration = clientFactory.newConfiguration()
+                .isolatedConnectionPool("downstream-a")
+                .maxConnections(4)
+                .maxConnectionsPerRoute(2)
+                .evictIdleConnections(Duration.ofSeconds(30))
+                .connectionTimeToLive(Duration.ofMinutes(5))
+                .keepAlive(Duration.ofSeconds(20))
+                .build();
+        StingrayHttpClient clientA1 = clientFactory.newClient().withConfiguration(configuration).build();
+        StingrayHttpClient clientA2 = clientFactory.newClient().withConfiguration(configuration).build();
+        StingrayHttpClient clientB = clientFactory.newClient()
+                .useConfiguration(builder -> builder.maxConnectionsPerRoute(1))
+                .build();
+
+        assertSame(connectionPool(clientA1), connectionPool(clientA2));
+        assertNotSame(connectionPool(clientA1), connectionPool(clientB));
+        assertNotSame(ApacheStingrayHttpConnectionPool.shared(), connectionPool(clientB));
+        assertEquals("downstream-a", connectionPool(clientA1).getName());
+        assertEquals(4, connectionPool(clientA1).getTotalStats().getMax());
+    }
+
+    @Test
+    public void thatPoolGaugesArePublished() {
+        Map<String, Supplier<Integer>> gauges = new TreeMap<>();
+        StingrayHttpClientFactory clientFactory = StingrayHttpClients.factory();
+        StingrayHttpClient client = clientFactory.newClient()
+                .useConfiguration(configuration -> configuration
+                        .isolatedConnectionPool("echo")
+                        .maxConnections(3)
+                        .connectionPoolGauges(gauges::put))
+                .useTarget(target -> target.withUrl("http://localhost:" + port))
+                .build();
+
+        assertEquals("[connection-pool.echo.available, connection-pool.echo.leased, connection-pool.echo.max, connection-pool.echo.pending]",
+                gauges.keySet().toString());
+        assertEquals(3, gauges.get("connection-pool.echo.max").get());
+        assertEquals(0, gauges.get("connection-pool.echo.available").get());
+
+        StingrayHttpResponse response = client.post()
+                .path("/echo")
+                .bodyJson("{}")
+                .execute();
+        assertEquals(1, gauges.get("connection-pool.echo.leased").get());
+        response.isSuccessful().contentAsString(); // consuming the content releases the connection
+        assertEquals(0, gauges.get("connection-pool.echo.leased").get());
+        assertEquals(1, gauges.get("connection-pool.echo.available").get());
+    }
+
+    @Test
+    public void thatConfigurationsWithSameSettingsSharePool() {
+        StingrayHttpClientFactory clientFactory = StingrayHttpClients.factory();
+        StingrayHttpClient client1 = clientFactory.newClient()
+                .useConfiguration(builder -> builder.maxConnectionsPerRoute(7))
+                .build();
+        StingrayHttpClient client2 = clientFactory.newClient()
+                .useConfiguration(builder -> builder.maxConnectionsPerRoute(7))
+                .build();
+        assertSame(connectionPool(client1), connectionPool(client2));
+        assertEquals("max-200-per-route-7", connectionPool(client1).getName());
+    }
+
+    @Test
+    public void thatPoolNameWithOtherSettingsIsRejected() {
+        StingrayHttpClientFactory clientFactory = StingrayHttpClients.factory();
+        try (StingrayHttpClientConfiguration configuration = clientFactory.newConfiguration()
+                .isolatedConnectionPool("conflicting")
+                .maxConnections(4)
+                .build()) {
+            assertThrows(IllegalArgumentException.class, () -> clientFactory.newConfiguration()
+                    .isolatedConnectionPool("conflicting")
+                    .maxConnections(5)
+                    .build());
+        }
+    }
+
+    @Test
+    public void thatClosingLastConfigurationReleasesConnectionsAndEvictorThread() throws InterruptedException {
+        StingrayHttpClientFactory clientFactory = StingrayHttpClients.factory();
+        long evictorThreadsBefore = evictorThreads();
+        StingrayHttpClientConfiguration configuration1 = clientFactory.newConfiguration()
+                .isolatedConnectionPool("closeable")
+                .evictIdleConnections(Duration.ofSeconds(30))
+                .build();
+        StingrayHttpClientConfiguration configuration2 = clientFactory.newConfiguration()
+                .isolatedConnectionPool("closeable")
+                .evictIdleConnections(Duration.ofSeconds(30))
+                .build();
+        StingrayHttpClient client = clientFactory.newClient()
+                .withConfiguration(configuration1)
+                .useTarget(target -> target.withUrl("http://localhost:" + port))
+                .build();
+        ApacheStingrayHttpConnectionPool pool = connectionPool(client);
+        assertEquals(evictorThreadsBefore + 1, evictorThreads());
+        client.post()
+                .path("/echo")
+                .bodyJson("{}")
+                .execute()
+                .isSuccessful()
+                .contentAsString();
+        assertEquals(1, pool.getTotalStats().getAvailable());
+
+        configuration1.close();
+        configuration1.close(); // idempotent, the pool is still used by configuration2
+        assertEquals(1, pool.getTotalStats().getAvailable());
+        assertEquals(evictorThreadsBefore + 1, evictorThreads());
+
+        configuration2.close();
+        assertEquals(0, pool.getTotalStats().getAvailable());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (evictorThreads() > evictorThreadsBefore && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(evictorThreadsBefore, evictorThreads());
+
+        // a new pool is created when the name is used again
+        try (StingrayHttpClientConfiguration configuration3 = clientFactory.newConfiguration()
+                .isolatedConnectionPool("closeable")
+                .evictIdleConnections(Duration.ofSeconds(30))
+                .build()) {
+            assertNotSame(pool, ((ApacheStingrayHttpClientConfiguration) configuration3).getConnectionPool());
+        }
+    }
+
+    static long evictorThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.isAlive() && thread.getName().startsWith("Connection evictor"))
+                .count();
+    }
+}
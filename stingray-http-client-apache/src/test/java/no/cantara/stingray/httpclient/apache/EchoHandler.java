@@ -9,12 +9,37 @@ import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.handler.AbstractHandler;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class EchoHandler extends AbstractHandler {
 
+    final AtomicInteger concurrentSlowRequests = new AtomicInteger();
+    final AtomicInteger maxConcurrentSlowRequests = new AtomicInteger();
+
+    void slow(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        int concurrent = concurrentSlowRequests.incrementAndGet();
+        maxConcurrentSlowRequests.accumulateAndGet(concurrent, Math::max);
+        try {
+            Thread.sleep(Long.parseLong(request.getParameter("millis")));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            concurrentSlowRequests.decrementAndGet();
+        }
+        response.setStatus(200);
+        response.setContentType("text/plain; charset=utf-8");
+        response.getOutputStream().write("slow".getBytes(StandardCharsets.UTF_8));
+    }
+
     @Override
     public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+        if (target.startsWith("/slow")) {
+            slow(request, response);
+            baseRequest.setHandled(true);
+            return;
+        }
         Enumeration<String> headerNames = request.getHeaderNames();
         System.out.printf("REQUEST URL: %s%n", request.getRequestURL());
         if (!"/echo".equals(request.getServletPath() + request.getPathInfo())) {
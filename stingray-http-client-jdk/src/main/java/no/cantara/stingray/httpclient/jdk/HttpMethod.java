@@ -0,0 +1,5 @@
+package no.cantara.stingray.httpclient.jdk;
+
+enum HttpMethod {
+    GET, POST, PUT, OPTIONS, HEAD, DELETE, PATCH, TRACE;
+}
@@ -0,0 +1,91 @@
+package no.cantara.stingray.httpclient.jdk;
+
+import no.cantara.stingray.httpclient.StingrayHttpClient;
+import no.cantara.stingray.httpclient.StingrayHttpClientConfiguration;
+
+import java.net.http.HttpClient;
+import java.util.Objects;
+
+class JdkStingrayHttpClient implements StingrayHttpClient {
+
+    private final JdkStingrayHttpClientConfiguration configuration;
+    private final JdkStingrayHttpTarget target;
+    private final HttpClient httpClient;
+    private final JdkStingrayInFlightLimiter inFlightLimiter;
+
+    JdkStingrayHttpClient(JdkStingrayHttpClientConfiguration configuration, JdkStingrayHttpTarget target) {
+        Objects.requireNonNull(configuration);
+        this.configuration = configuration;
+        this.target = target;
+        JdkStingrayHttpConnectionPool connectionPool = configuration.getConnectionPool();
+        if (connectionPool != null) {
+            this.httpClient = connectionPool.getHttpClient();
+            this.inFlightLimiter = connectionPool.getInFlightLimiter();
+            return;
+        }
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER);
+        if (!configuration.getConnectTimeout().isZero()) {
+            builder.connectTimeout(configuration.getConnectTimeout());
+        }
+        this.httpClient = builder.build();
+        this.inFlightLimiter = new JdkStingrayInFlightLimiter(configuration.getMaxInFlightRequests());
+    }
+
+    StingrayHttpClientConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    JdkStingrayHttpTarget getTarget() {
+        return target;
+    }
+
+    HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    JdkStingrayInFlightLimiter getInFlightLimiter() {
+        return inFlightLimiter;
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder get() {
+        return new JdkStingrayHttpRequestBuilder(this, HttpMethod.GET);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder post() {
+        return new JdkStingrayHttpRequestBuilder(this, HttpMethod.POST);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder put() {
+        return new JdkStingrayHttpRequestBuilder(this, HttpMethod.PUT);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder options() {
+        return new JdkStingrayHttpRequestBuilder(this, HttpMethod.OPTIONS);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder head() {
+        return new JdkStingrayHttpRequestBuilder(this, HttpMethod.HEAD);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder delete() {
+        return new JdkStingrayHttpRequestBuilder(this, HttpMethod.DELETE);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder patch() {
+        return new JdkStingrayHttpRequestBuilder(this, HttpMethod.PATCH);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder trace() {
+        return new JdkStingrayHttpRequestBuilder(this, HttpMethod.TRACE);
+    }
+}
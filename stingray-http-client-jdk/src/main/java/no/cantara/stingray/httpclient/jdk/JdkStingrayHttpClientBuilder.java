@@ -0,0 +1,52 @@
+package no.cantara.stingray.httpclient.jdk;
+
+import no.cantara.stingray.httpclient.StingrayHttpClientBuilder;
+import no.cantara.stingray.httpclient.StingrayHttpClientConfiguration;
+import no.cantara.stingray.httpclient.StingrayHttpClientConfigurationBuilder;
+import no.cantara.stingray.httpclient.StingrayHttpTarget;
+import no.cantara.stingray.httpclient.StingrayHttpTargetBuilder;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+public class JdkStingrayHttpClientBuilder implements StingrayHttpClientBuilder {
+
+    private JdkStingrayHttpClientConfiguration configuration = new JdkStingrayHttpClientConfigurationBuilder()
+            .build();
+
+    private JdkStingrayHttpTarget target;
+
+    @Override
+    public JdkStingrayHttpClientBuilder useConfiguration(Consumer<StingrayHttpClientConfigurationBuilder> configurationBuilderConsumer) {
+        JdkStingrayHttpClientConfigurationBuilder configurationBuilder = new JdkStingrayHttpClientConfigurationBuilder();
+        configurationBuilderConsumer.accept(configurationBuilder);
+        configuration = configurationBuilder.build();
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpClientBuilder withConfiguration(StingrayHttpClientConfiguration configuration) {
+        Objects.requireNonNull(configuration);
+        this.configuration = (JdkStingrayHttpClientConfiguration) configuration;
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpClientBuilder useTarget(Consumer<StingrayHttpTargetBuilder> targetBuilderConsumer) {
+        JdkStingrayHttpTargetBuilder targetBuilder = new JdkStingrayHttpTargetBuilder();
+        targetBuilderConsumer.accept(targetBuilder);
+        target = targetBuilder.build();
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpClientBuilder withTarget(StingrayHttpTarget target) {
+        this.target = (JdkStingrayHttpTarget) target;
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpClient build() {
+        return new JdkStingrayHttpClient(configuration, target);
+    }
+}
@@ -0,0 +1,58 @@
+package no.cantara.stingray.httpclient.jdk;
+
+import no.cantara.stingray.httpclient.StingrayHttpClientConfiguration;
+import no.cantara.stingray.httpclient.StingrayHttpHeader;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class JdkStingrayHttpClientConfiguration implements StingrayHttpClientConfiguration {
+
+    private final int connectTimeoutMs;
+    private final int socketTimeoutMs;
+    private final int maxInFlightRequests;
+    private final Map<String, StingrayHttpHeader> defaultHeaders;
+    private final JdkStingrayHttpConnectionPool connectionPool;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * @param connectionPool the isolated pool of the configuration, or null to give each client its own http-client.
+     */
+    JdkStingrayHttpClientConfiguration(Map<String, StingrayHttpHeader> defaultHeaders, int connectTimeoutMs, int socketTimeoutMs, int maxInFlightRequests, JdkStingrayHttpConnectionPool connectionPool) {
+        this.defaultHeaders = defaultHeaders;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.socketTimeoutMs = socketTimeoutMs;
+        this.maxInFlightRequests = maxInFlightRequests;
+        this.connectionPool = connectionPool;
+    }
+
+    @Override
+    public Duration getConnectTimeout() {
+        return Duration.ofMillis(connectTimeoutMs);
+    }
+
+    @Override
+    public Duration getSocketTimeout() {
+        return Duration.ofMillis(socketTimeoutMs);
+    }
+
+    int getMaxInFlightRequests() {
+        return maxInFlightRequests;
+    }
+
+    JdkStingrayHttpConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    public Map<String, StingrayHttpHeader> getDefaultHeaders() {
+        return defaultHeaders;
+    }
+
+    @Override
+    public void close() {
+        if (connectionPool != null && closed.compareAndSet(false, true)) {
+            connectionPool.release();
+        }
+    }
+}
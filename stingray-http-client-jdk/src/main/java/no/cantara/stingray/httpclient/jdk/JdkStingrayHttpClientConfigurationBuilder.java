@@ -0,0 +1,159 @@
+package no.cantara.stingray.httpclient.jdk;
+
+import no.cantara.stingray.httpclient.StingrayHttpClientConfigurationBuilder;
+import no.cantara.stingray.httpclient.StingrayHttpHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Connection pool settings are honoured as far as the JDK http-client allows: an isolated pool is an http-client
+ * shared by the clients of the configurations with the same pool name, and max-connections bounds the concurrent
+ * requests of those clients. The JDK http-client has no per-route limit, and its idle timeout is set for the whole
+ * JVM with the jdk.httpclient.keepalive.timeout system property, so max-connections-per-route, evict-idle-connections,
+ * connection-time-to-live and keep-alive are ignored with a warning.
+ */
+public class JdkStingrayHttpClientConfigurationBuilder implements StingrayHttpClientConfigurationBuilder {
+
+    private static final Logger log = LoggerFactory.getLogger(JdkStingrayHttpClientConfigurationBuilder.class);
+
+    public static final int DEFAULT_CONNECT_TIMEOUT_MS = 3000;
+    public static final int DEFAULT_SOCKET_TIMEOUT_MS = 10000;
+    public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 200;
+
+    private int connectTimeoutMs = DEFAULT_CONNECT_TIMEOUT_MS;
+    private int socketTimeoutMs = DEFAULT_SOCKET_TIMEOUT_MS;
+    private int maxInFlightRequests = DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+
+    private String poolName;
+    private boolean poolSettings;
+    private int maxConnections = -1;
+    private BiConsumer<String, Supplier<Integer>> gaugeRegistrar;
+
+    private final Map<String, StingrayHttpHeader> defaultHeaderByKey = new LinkedHashMap<>();
+
+    JdkStingrayHttpClientConfigurationBuilder() {
+    }
+
+    @Override
+    public JdkStingrayHttpClientConfigurationBuilder connectTimeout(Duration duration) {
+        long durationMs = duration.toMillis();
+        if (durationMs < 0 || durationMs > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("duration out of range");
+        }
+        this.connectTimeoutMs = (int) durationMs;
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpClientConfigurationBuilder socketTimeout(Duration duration) {
+        long durationMs = duration.toMillis();
+        if (durationMs < 0 || durationMs > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("duration out of range");
+        }
+        this.socketTimeoutMs = (int) durationMs;
+        return this;
+    }
+
+    /**
+     * Bounds the number of requests of the client that may await a response at the same time. Requests executed beyond
+     * this limit are queued, and sent as soon as another request of the client completes.
+     *
+     * @param maxInFlightRequests the maximum number of concurrent requests, must be positive.
+     * @return this builder
+     */
+    public JdkStingrayHttpClientConfigurationBuilder maxInFlightRequests(int maxInFlightRequests) {
+        if (maxInFlightRequests < 1) {
+            throw new IllegalArgumentException("maxInFlightRequests must be a positive number");
+        }
+        this.maxInFlightRequests = maxInFlightRequests;
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpClientConfigurationBuilder withDefaultHeader(String name, String value) {
+        defaultHeaderByKey.put(name, new JdkStingrayHttpHeader(name, value));
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpClientConfigurationBuilder isolatedConnectionPool(String poolName) {
+        if (poolName == null || poolName.isEmpty()) {
+            throw new IllegalArgumentException("poolName must be specified");
+        }
+        this.poolName = poolName;
+        return this;
+    }
+
+    /**
+     * @param maxConnections the maximum number of concurrent requests of all clients using the pool, defaults to
+     *                       max-in-flight-requests.
+     * @return this builder
+     */
+    @Override
+    public JdkStingrayHttpClientConfigurationBuilder maxConnections(int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be a positive number");
+        }
+        this.maxConnections = maxConnections;
+        poolSettings = true;
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpClientConfigurationBuilder maxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        if (maxConnectionsPerRoute < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerRoute must be a positive number");
+        }
+        return unsupported("maxConnectionsPerRoute");
+    }
+
+    @Override
+    public JdkStingrayHttpClientConfigurationBuilder evictIdleConnections(Duration idleTime) {
+        return unsupported("evictIdleConnections");
+    }
+
+    @Override
+    public JdkStingrayHttpClientConfigurationBuilder connectionTimeToLive(Duration timeToLive) {
+        return unsupported("connectionTimeToLive");
+    }
+
+    @Override
+    public JdkStingrayHttpClientConfigurationBuilder keepAlive(Duration keepAlive) {
+        return unsupported("keepAlive");
+    }
+
+    private JdkStingrayHttpClientConfigurationBuilder unsupported(String setting) {
+        log.warn("Connection pool setting {} is not supported by the JDK http-client and is ignored", setting);
+        poolSettings = true;
+        return this;
+    }
+
+    /**
+     * Gauges of the isolated pool, named <code>connection-pool.&lt;pool-name&gt;.leased|pending|max</code>.
+     */
+    @Override
+    public JdkStingrayHttpClientConfigurationBuilder connectionPoolGauges(BiConsumer<String, Supplier<Integer>> gaugeRegistrar) {
+        this.gaugeRegistrar = gaugeRegistrar;
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpClientConfiguration build() {
+        JdkStingrayHttpConnectionPool connectionPool = null;
+        if (poolName != null || poolSettings || gaugeRegistrar != null) {
+            int poolMaxConnections = maxConnections > 0 ? maxConnections : maxInFlightRequests;
+            connectionPool = JdkStingrayHttpConnectionPool.acquire(poolName != null ? poolName : "max-" + poolMaxConnections,
+                    poolMaxConnections, connectTimeoutMs);
+            if (gaugeRegistrar != null) {
+                connectionPool.registerGauges(gaugeRegistrar);
+            }
+        }
+        return new JdkStingrayHttpClientConfiguration(defaultHeaderByKey, connectTimeoutMs, socketTimeoutMs, maxInFlightRequests, connectionPool);
+    }
+}
@@ -0,0 +1,16 @@
+package no.cantara.stingray.httpclient.jdk;
+
+import no.cantara.stingray.httpclient.StingrayHttpClientFactory;
+
+public class JdkStingrayHttpClientFactory implements StingrayHttpClientFactory {
+
+    @Override
+    public JdkStingrayHttpClientBuilder newClient() {
+        return new JdkStingrayHttpClientBuilder();
+    }
+
+    @Override
+    public JdkStingrayHttpClientConfigurationBuilder newConfiguration() {
+        return new JdkStingrayHttpClientConfigurationBuilder();
+    }
+}
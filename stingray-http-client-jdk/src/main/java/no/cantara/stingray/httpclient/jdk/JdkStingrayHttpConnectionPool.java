@@ -0,0 +1,106 @@
+package no.cantara.stingray.httpclient.jdk;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * An http-client, i.e. its connection pool, shared by all clients of the configurations with the same pool name, and
+ * an in-flight limiter that bounds the number of concurrent requests, and thereby of HTTP/1.1 connections, of those
+ * clients. Pools are reference counted by the configurations using them, the executor of the pool is shut down when
+ * the last configuration is closed, the JDK http-client closes its idle connections when it is no longer referenced.
+ */
+class JdkStingrayHttpConnectionPool {
+
+    private static final Map<String, JdkStingrayHttpConnectionPool> poolByName = new HashMap<>(); // guarded by itself
+
+    /**
+     * @return the pool with the given name, created if it does not exist. Must be {@link #release() released} by the
+     * caller.
+     * @throws IllegalArgumentException if a pool with the given name exists with other settings.
+     */
+    static JdkStingrayHttpConnectionPool acquire(String name, int maxConnections, int connectTimeoutMs) {
+        synchronized (poolByName) {
+            JdkStingrayHttpConnectionPool pool = poolByName.get(name);
+            if (pool == null) {
+                pool = new JdkStingrayHttpConnectionPool(name, maxConnections, connectTimeoutMs);
+                poolByName.put(name, pool);
+            } else if (pool.maxConnections != maxConnections || pool.connectTimeoutMs != connectTimeoutMs) {
+                throw new IllegalArgumentException(String.format("Connection pool '%s' already exists with other settings", name));
+            }
+            pool.references++;
+            return pool;
+        }
+    }
+
+    private final String name;
+    private final int maxConnections;
+    private final int connectTimeoutMs;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+    private final JdkStingrayInFlightLimiter inFlightLimiter;
+    private int references; // guarded by poolByName
+
+    JdkStingrayHttpConnectionPool(String name, int maxConnections, int connectTimeoutMs) {
+        this.name = name;
+        this.maxConnections = maxConnections;
+        this.connectTimeoutMs = connectTimeoutMs;
+        AtomicInteger threadId = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "http-client-" + name + "-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(executor);
+        if (connectTimeoutMs > 0) {
+            builder.connectTimeout(Duration.ofMillis(connectTimeoutMs));
+        }
+        this.httpClient = builder.build();
+        this.inFlightLimiter = new JdkStingrayInFlightLimiter(maxConnections);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    JdkStingrayInFlightLimiter getInFlightLimiter() {
+        return inFlightLimiter;
+    }
+
+    /**
+     * Release a reference acquired with {@link #acquire}, the pool is closed when the last reference is released.
+     */
+    void release() {
+        synchronized (poolByName) {
+            if (references == 0 || --references > 0) {
+                return;
+            }
+            poolByName.remove(name, this);
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Leased are the requests in flight, i.e. connections in use, and pending the requests waiting for one. The JDK
+     * http-client does not expose its idle connections, so there is no available gauge.
+     */
+    void registerGauges(BiConsumer<String, Supplier<Integer>> gaugeRegistrar) {
+        String prefix = "connection-pool." + name + ".";
+        gaugeRegistrar.accept(prefix + "leased", inFlightLimiter::inFlight);
+        gaugeRegistrar.accept(prefix + "pending", inFlightLimiter::queued);
+        gaugeRegistrar.accept(prefix + "max", () -> maxConnections);
+    }
+}
@@ -0,0 +1,80 @@
+package no.cantara.stingray.httpclient.jdk;
+
+import no.cantara.stingray.httpclient.StingrayRequestBody;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+class JdkStingrayHttpRequestBody implements StingrayRequestBody {
+
+    static JdkStingrayHttpRequestBody of(byte[] body, String mimeType, Charset charset) {
+        return new JdkStingrayHttpRequestBody(contentType(mimeType, charset), HttpRequest.BodyPublishers.ofByteArray(body), body, null, charset);
+    }
+
+    static JdkStingrayHttpRequestBody of(InputStream body, String mimeType, Charset charset) {
+        // the stream can only be read once, so it is neither retried nor included in exceptions
+        return new JdkStingrayHttpRequestBody(contentType(mimeType, charset), HttpRequest.BodyPublishers.ofInputStream(() -> body), null, null, charset);
+    }
+
+    static JdkStingrayHttpRequestBody of(File body, String mimeType, Charset charset) {
+        try {
+            return new JdkStingrayHttpRequestBody(contentType(mimeType, charset), HttpRequest.BodyPublishers.ofFile(body.toPath()), null, body, charset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String contentType(String mimeType, Charset charset) {
+        if (mimeType == null) {
+            return null;
+        }
+        if (charset == null) {
+            return mimeType;
+        }
+        return mimeType + "; charset=" + charset.name();
+    }
+
+    private final String contentType;
+    private final HttpRequest.BodyPublisher publisher;
+    private final byte[] bytes;
+    private final File file;
+    private final Charset charset;
+
+    private JdkStingrayHttpRequestBody(String contentType, HttpRequest.BodyPublisher publisher, byte[] bytes, File file, Charset charset) {
+        this.contentType = contentType;
+        this.publisher = publisher;
+        this.bytes = bytes;
+        this.file = file;
+        this.charset = charset;
+    }
+
+    String contentType() {
+        return contentType;
+    }
+
+    HttpRequest.BodyPublisher publisher() {
+        return publisher;
+    }
+
+    @Override
+    public String asString() {
+        Charset charset = this.charset != null ? this.charset : StandardCharsets.ISO_8859_1;
+        if (bytes != null) {
+            return new String(bytes, charset);
+        }
+        if (file != null) {
+            try {
+                return new String(Files.readAllBytes(file.toPath()), charset);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,412 @@
+package no.cantara.stingray.httpclient.jdk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import no.cantara.stingray.httpclient.StingrayHttpClientConfiguration;
+import no.cantara.stingray.httpclient.StingrayHttpClientException;
+import no.cantara.stingray.httpclient.StingrayHttpHeader;
+import no.cantara.stingray.httpclient.StingrayHttpJackson;
+import no.cantara.stingray.httpclient.StingrayHttpRequestBuilder;
+import no.cantara.stingray.httpclient.StingrayHttpResponse;
+import no.cantara.stingray.httpclient.functionalinterfaces.StingrayHttpExceptionalStreamSupplier;
+import no.cantara.stingray.httpclient.functionalinterfaces.StingrayHttpExceptionalStringSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import static java.util.Optional.ofNullable;
+
+class JdkStingrayHttpRequestBuilder implements StingrayHttpRequestBuilder {
+
+    private static final Logger log = LoggerFactory.getLogger(JdkStingrayHttpRequestBuilder.class);
+
+    // headers managed by the jdk http-client, setting these on a request is not allowed
+    private static final Set<String> RESTRICTED_HEADERS = new HashSet<>(Arrays.asList("connection", "content-length", "expect", "host", "upgrade"));
+
+    private final JdkStingrayHttpClient jdkStingrayHttpClient;
+    private final HttpMethod method;
+
+    private final Map<String, StingrayHttpHeader> headers = new LinkedHashMap<>();
+
+    private String path = "";
+    private JdkStingrayHttpRequestBody body;
+    private final List<String> queryParams = new ArrayList<>();
+    private int connectTimeoutMs;
+    private int socketTimeoutMs;
+
+    JdkStingrayHttpRequestBuilder(JdkStingrayHttpClient jdkStingrayHttpClient, HttpMethod method) {
+        this.jdkStingrayHttpClient = jdkStingrayHttpClient;
+        StingrayHttpClientConfiguration configuration = jdkStingrayHttpClient.getConfiguration();
+        this.connectTimeoutMs = (int) configuration.getConnectTimeout().toMillis();
+        this.socketTimeoutMs = (int) configuration.getSocketTimeout().toMillis();
+        this.method = method;
+        this.headers.putAll(configuration.getDefaultHeaders());
+    }
+
+    /**
+     * The jdk http-client only supports a connect-timeout per client, the connect-timeout of the request is therefore
+     * folded into the request timeout. The request times out unless response headers are received within the sum of
+     * the connect and socket timeouts of the request.
+     */
+    @Override
+    public JdkStingrayHttpRequestBuilder connectTimeout(Duration duration) {
+        long durationMs = duration.toMillis();
+        if (durationMs < 0 || durationMs > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("duration out of range");
+        }
+        this.connectTimeoutMs = (int) durationMs;
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder socketTimeout(Duration duration) {
+        long durationMs = duration.toMillis();
+        if (durationMs < 0 || durationMs > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("duration out of range");
+        }
+        this.socketTimeoutMs = (int) durationMs;
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder path(String path) {
+        this.path = path;
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder query(String key, String value) {
+        queryParams.add(URLEncoder.encode(key, StandardCharsets.UTF_8) + "=" + URLEncoder.encode(value, StandardCharsets.UTF_8));
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder setHeader(String name, String value) {
+        headers.put(name, new JdkStingrayHttpHeader(name, value));
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder bodyJson(String body) {
+        return body(body, "application/json", StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The jdk http-client publishes request bodies as buffers, the object is therefore serialized to a single byte
+     * array, without an intermediate string, when the request is built.
+     */
+    @Override
+    public JdkStingrayHttpRequestBuilder bodyJson(Object body) {
+        try {
+            return bodyJson(StingrayHttpJackson.mapper().writeValueAsBytes(body));
+        } catch (JsonProcessingException e) {
+            throw StingrayHttpClientException.builder()
+                    .withMessage("While serializing request body as json")
+                    .withCause(e)
+                    .withMethod(method.name())
+                    .withUrl(toUri().toString())
+                    .withRequestHeaders(headers)
+                    .build();
+        }
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(String body) {
+        return body(body, "text/plain", StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(String body, String mimeType) {
+        return body(body, mimeType, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(String body, String mimeType, Charset charset) {
+        this.body = JdkStingrayHttpRequestBody.of(body.getBytes(charset), mimeType, charset);
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder bodyJson(InputStream body) {
+        return body(body, "application/json", StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(InputStream body) {
+        return body(body, "application/octet-stream", null);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(InputStream body, String mimeType) {
+        return body(body, mimeType, null);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(InputStream body, String mimeType, Charset charset) {
+        this.body = JdkStingrayHttpRequestBody.of(body, mimeType, charset);
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder bodyJson(byte[] body) {
+        return body(body, "application/json", StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(byte[] body) {
+        return body(body, "application/octet-stream", null);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(byte[] body, String mimeType) {
+        return body(body, mimeType, null);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(byte[] body, String mimeType, Charset charset) {
+        this.body = JdkStingrayHttpRequestBody.of(body, mimeType, charset);
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder bodyJson(File body) {
+        return body(body, "application/json", StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(File body) {
+        return body(body, "application/octet-stream", null);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(File body, String mimeType) {
+        return body(body, mimeType, null);
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(File body, String mimeType, Charset charset) {
+        this.body = JdkStingrayHttpRequestBody.of(body, mimeType, charset);
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder bodyJson(StingrayHttpExceptionalStringSupplier jsonSupplier) throws StingrayHttpClientException {
+        try {
+            return bodyJson(jsonSupplier.get());
+        } catch (RuntimeException e) {
+            throw bodySupplierException(e);
+        }
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(StingrayHttpExceptionalStringSupplier jsonSupplier) throws StingrayHttpClientException {
+        try {
+            return body(jsonSupplier.get());
+        } catch (RuntimeException e) {
+            throw bodySupplierException(e);
+        }
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(StingrayHttpExceptionalStringSupplier jsonSupplier, String mimeType) throws StingrayHttpClientException {
+        try {
+            return body(jsonSupplier.get(), mimeType);
+        } catch (RuntimeException e) {
+            throw bodySupplierException(e);
+        }
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(StingrayHttpExceptionalStringSupplier jsonSupplier, String mimeType, Charset charset) throws StingrayHttpClientException {
+        try {
+            return body(jsonSupplier.get(), mimeType, charset);
+        } catch (RuntimeException e) {
+            throw bodySupplierException(e);
+        }
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder bodyJson(StingrayHttpExceptionalStreamSupplier jsonSupplier) throws StingrayHttpClientException {
+        try {
+            return bodyJson(jsonSupplier.get());
+        } catch (RuntimeException e) {
+            throw bodySupplierException(e);
+        }
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(StingrayHttpExceptionalStreamSupplier jsonSupplier) throws StingrayHttpClientException {
+        try {
+            return body(jsonSupplier.get());
+        } catch (RuntimeException e) {
+            throw bodySupplierException(e);
+        }
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(StingrayHttpExceptionalStreamSupplier jsonSupplier, String mimeType) throws StingrayHttpClientException {
+        try {
+            return body(jsonSupplier.get(), mimeType);
+        } catch (RuntimeException e) {
+            throw bodySupplierException(e);
+        }
+    }
+
+    @Override
+    public JdkStingrayHttpRequestBuilder body(StingrayHttpExceptionalStreamSupplier jsonSupplier, String mimeType, Charset charset) throws StingrayHttpClientException {
+        try {
+            return body(jsonSupplier.get(), mimeType, charset);
+        } catch (RuntimeException e) {
+            throw bodySupplierException(e);
+        }
+    }
+
+    private StingrayHttpClientException bodySupplierException(RuntimeException e) {
+        return StingrayHttpClientException.builder()
+                .withMessage("While resolving request body supplier")
+                .withCause(e)
+                .withMethod(method.name())
+                .withUrl(toUri().toString())
+                .withRequestHeaders(headers)
+                .build();
+    }
+
+    @Override
+    public DefaultFormBuilder bodyForm() {
+        return new DefaultFormBuilder();
+    }
+
+    public class DefaultFormBuilder implements FormBuilder {
+
+        Charset charset = StandardCharsets.UTF_8;
+        final List<String[]> pairs = new ArrayList<>();
+
+        @Override
+        public DefaultFormBuilder charset(Charset charset) {
+            this.charset = charset;
+            return this;
+        }
+
+        @Override
+        public DefaultFormBuilder put(String name, String value) {
+            pairs.add(new String[]{name, value});
+            return this;
+        }
+
+        @Override
+        public JdkStingrayHttpRequestBuilder endForm() {
+            String form = pairs.stream()
+                    .map(pair -> URLEncoder.encode(pair[0], charset) + "=" + URLEncoder.encode(pair[1], charset))
+                    .collect(Collectors.joining("&"));
+            return body(form, "application/x-www-form-urlencoded", charset);
+        }
+    }
+
+    URI toUri() {
+        String queryString = String.join("&", queryParams);
+        String pathAndQuery = path + (queryString.isEmpty() ? "" : (path.contains("?") ? "&" : "?") + queryString);
+        String baseUrl = ofNullable(jdkStingrayHttpClient.getTarget())
+                .map(JdkStingrayHttpTarget::getUri)
+                .map(URI::toString)
+                .orElse("");
+        return URI.create(baseUrl + pathAndQuery);
+    }
+
+    HttpRequest toHttpRequest(URI uri) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri);
+        for (Map.Entry<String, StingrayHttpHeader> header : headers.entrySet()) {
+            if (RESTRICTED_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                log.debug("Ignoring header '{}' which is managed by the http-client", header.getKey());
+                continue;
+            }
+            List<String> all = header.getValue().all();
+            if (all != null) {
+                for (String headerValue : all) {
+                    builder.header(header.getKey(), headerValue);
+                }
+            }
+        }
+        if (body != null && body.contentType() != null && !headers.containsKey("Content-Type")) {
+            builder.header("Content-Type", body.contentType());
+        }
+        builder.method(method.name(), body != null ? body.publisher() : HttpRequest.BodyPublishers.noBody());
+        if (socketTimeoutMs > 0) {
+            builder.timeout(Duration.ofMillis((long) connectTimeoutMs + socketTimeoutMs));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public StingrayHttpResponse execute() {
+        URI uri = toUri();
+        HttpRequest request = toHttpRequest(uri);
+        CompletableFuture<HttpResponse<InputStream>> future = jdkStingrayHttpClient.getInFlightLimiter()
+                .submit(() -> jdkStingrayHttpClient.getHttpClient().sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()));
+        HttpResponse<InputStream> response;
+        try {
+            response = future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+        return new JdkStingrayHttpResponse(method.name(), uri.toString(), headers, body, response, response.body());
+    }
+
+    @Override
+    public CompletableFuture<StingrayHttpResponse> executeAsync() {
+        URI uri = toUri();
+        HttpRequest request = toHttpRequest(uri);
+        CompletableFuture<HttpResponse<byte[]>> future = jdkStingrayHttpClient.getInFlightLimiter()
+                .submit(() -> jdkStingrayHttpClient.getHttpClient().sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()));
+        CompletableFuture<StingrayHttpResponse> result = new CompletableFuture<>();
+        // the limiter keeps the slot until the exchange has ended on runtimes where cancel cannot abort it
+        result.whenComplete((r, t) -> {
+            if (result.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+        future.whenComplete((response, throwable) -> {
+            if (throwable != null) {
+                result.completeExceptionally(unwrap(throwable));
+            } else {
+                result.complete(new JdkStingrayHttpResponse(method.name(), uri.toString(), headers, body, response, new ByteArrayInputStream(response.body())));
+            }
+        });
+        return result;
+    }
+
+    private static RuntimeException unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof IOException) {
+            return new UncheckedIOException((IOException) cause);
+        }
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new CompletionException(cause);
+    }
+}
@@ -0,0 +1,189 @@
+package no.cantara.stingray.httpclient.jdk;
+
+import no.cantara.stingray.httpclient.StingrayHttpClientException;
+import no.cantara.stingray.httpclient.StingrayHttpHeader;
+import no.cantara.stingray.httpclient.StingrayHttpResponse;
+import no.cantara.stingray.httpclient.functionalinterfaces.StingrayHttpExceptionalStreamFunction;
+import no.cantara.stingray.httpclient.functionalinterfaces.StingrayHttpExceptionalStringFunction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+class JdkStingrayHttpResponse implements StingrayHttpResponse {
+
+    private final String method;
+    private final String requestUrl;
+    private final Map<String, StingrayHttpHeader> requestHeaders;
+    private final JdkStingrayHttpRequestBody requestBody;
+    private final HttpResponse<?> httpResponse;
+    private final InputStream content;
+
+    JdkStingrayHttpResponse(String method,
+                            String requestUrl,
+                            Map<String, StingrayHttpHeader> requestHeaders,
+                            JdkStingrayHttpRequestBody requestBody,
+                            HttpResponse<?> httpResponse,
+                            InputStream content) {
+        this.method = method;
+        this.requestUrl = requestUrl;
+        this.requestHeaders = requestHeaders;
+        this.requestBody = requestBody;
+        this.httpResponse = httpResponse;
+        this.content = content;
+    }
+
+    @Override
+    public StingrayHttpResponse isSuccessful() throws StingrayHttpClientException {
+        int statusCode = httpResponse.statusCode();
+        if (statusCode < 200 || 300 <= statusCode) {
+            throw StingrayHttpClientException.builder()
+                    .withMessage("Request was not successful, status-code not in 2xx range.")
+                    .withMethod(method)
+                    .withUrl(requestUrl)
+                    .withRequestHeaders(requestHeaders)
+                    .withRequestBody(requestBody)
+                    .withStatusCode(statusCode)
+                    .withResponseBody(readContentQuietly())
+                    .build();
+        }
+        return this;
+    }
+
+    @Override
+    public StingrayHttpResponse hasStatusCode(int status) throws StingrayHttpClientException {
+        int statusCode = httpResponse.statusCode();
+        if (statusCode != status) {
+            throw StingrayHttpClientException.builder()
+                    .withMessage("Request did not response with status " + status)
+                    .withMethod(method)
+                    .withUrl(requestUrl)
+                    .withRequestHeaders(requestHeaders)
+                    .withRequestBody(requestBody)
+                    .withStatusCode(statusCode)
+                    .withResponseBody(readContentQuietly())
+                    .build();
+        }
+        return this;
+    }
+
+    @Override
+    public int status() {
+        return httpResponse.statusCode();
+    }
+
+    @Override
+    public String statusReasonPhrase() {
+        return null; // not exposed by the jdk http-client
+    }
+
+    @Override
+    public String protocolVersion() {
+        return httpResponse.version() == HttpClient.Version.HTTP_2 ? "HTTP/2.0" : "HTTP/1.1";
+    }
+
+    @Override
+    public String firstHeader(String name) {
+        return httpResponse.headers().firstValue(name).orElse(null);
+    }
+
+    @Override
+    public List<String> header(String name) {
+        return httpResponse.headers().allValues(name);
+    }
+
+    @Override
+    public List<String> headerNames() {
+        return new ArrayList<>(httpResponse.headers().map().keySet());
+    }
+
+    @Override
+    public <R> R contentAs(final StingrayHttpExceptionalStringFunction<R> converter) throws StingrayHttpClientException {
+        return converter.apply(contentAsString());
+    }
+
+    @Override
+    public <R> R contentAs(final StingrayHttpExceptionalStreamFunction<R> converter) throws StingrayHttpClientException {
+        try {
+            return converter.apply(content);
+        } catch (Exception e) {
+            throw contentException(e, readContentQuietly());
+        }
+    }
+
+    @Override
+    public String contentAsString() throws StingrayHttpClientException {
+        try (InputStream in = content) {
+            return new String(in.readAllBytes(), charset());
+        } catch (IOException e) {
+            throw contentException(e, null);
+        }
+    }
+
+    private StingrayHttpClientException contentException(Exception cause, String responseBody) {
+        return StingrayHttpClientException.builder()
+                .withMessage("Unable to read response content")
+                .withCause(cause)
+                .withMethod(method)
+                .withUrl(requestUrl)
+                .withRequestHeaders(requestHeaders)
+                .withRequestBody(requestBody)
+                .withStatusCode(status())
+                .withResponseHeaders(httpResponse.headers().map().entrySet().stream()
+                        .collect(Collectors.toMap(Map.Entry::getKey, e -> new JdkStingrayHttpHeader(e.getKey(), e.getValue()))))
+                .withResponseBody(responseBody)
+                .build();
+    }
+
+    private String readContentQuietly() {
+        try (InputStream in = content) {
+            return new String(in.readAllBytes(), charset());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Charset charset() {
+        String contentType = contentType();
+        if (contentType != null) {
+            for (String parameter : contentType.split(";")) {
+                String trimmed = parameter.trim();
+                if (trimmed.regionMatches(true, 0, "charset=", 0, 8)) {
+                    try {
+                        return Charset.forName(trimmed.substring(8).replace("\"", ""));
+                    } catch (RuntimeException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    @Override
+    public InputStream content() {
+        return content;
+    }
+
+    @Override
+    public long contentLength() {
+        return httpResponse.headers().firstValueAsLong("Content-Length").orElse(-1);
+    }
+
+    @Override
+    public String contentType() {
+        return firstHeader("Content-Type");
+    }
+
+    @Override
+    public String contentEncoding() {
+        return firstHeader("Content-Encoding");
+    }
+}
@@ -0,0 +1,19 @@
+package no.cantara.stingray.httpclient.jdk;
+
+import no.cantara.stingray.httpclient.StingrayHttpTarget;
+
+import java.net.URI;
+
+class JdkStingrayHttpTarget implements StingrayHttpTarget {
+
+    private final URI uri;
+
+    JdkStingrayHttpTarget(URI uri) {
+        this.uri = uri;
+    }
+
+    @Override
+    public URI getUri() {
+        return uri;
+    }
+}
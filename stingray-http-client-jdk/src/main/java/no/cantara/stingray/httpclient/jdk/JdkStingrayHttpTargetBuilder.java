@@ -0,0 +1,57 @@
+package no.cantara.stingray.httpclient.jdk;
+
+import no.cantara.stingray.httpclient.StingrayHttpTargetBuilder;
+
+import java.net.URI;
+
+class JdkStingrayHttpTargetBuilder implements StingrayHttpTargetBuilder {
+
+    private String scheme = "http";
+    private String host = "localhost";
+    private int port = 80;
+    private String basePath;
+
+    @Override
+    public JdkStingrayHttpTargetBuilder withScheme(String scheme) {
+        this.scheme = scheme;
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpTargetBuilder withHost(String host) {
+        this.host = host;
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpTargetBuilder withPort(int port) {
+        this.port = port;
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpTargetBuilder withPath(String basePath) {
+        this.basePath = basePath;
+        return this;
+    }
+
+    @Override
+    public JdkStingrayHttpTargetBuilder withUrl(String baseUrl) {
+        URI uri = URI.create(baseUrl);
+        return withUri(uri);
+    }
+
+    @Override
+    public JdkStingrayHttpTargetBuilder withUri(URI uri) {
+        return withScheme(uri.getScheme())
+                .withHost(uri.getHost())
+                .withPort(uri.getPort())
+                .withPath(uri.getPath());
+    }
+
+    @Override
+    public JdkStingrayHttpTarget build() {
+        URI uri = URI.create(scheme + "://" + host + (port > 0 ? ":" + port : "") + JdkStingrayUtils.normalizeBasePath(basePath));
+        return new JdkStingrayHttpTarget(uri);
+    }
+}
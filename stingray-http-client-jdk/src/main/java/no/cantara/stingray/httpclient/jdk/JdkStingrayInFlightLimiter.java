@@ -0,0 +1,115 @@
+package no.cantara.stingray.httpclient.jdk;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the number of concurrently executing asynchronous requests. Requests beyond the bound are queued without
+ * blocking the caller, and started in order as running requests complete. A queued request whose future is cancelled
+ * is never started, cancelling the future of a running request cancels the request.
+ * <p>
+ * Cancelling the future returned by {@link java.net.http.HttpClient#sendAsync} only aborts the exchange from JDK 16.
+ * On older runtimes the cancelled request runs to completion and keeps its slot until then, its response is
+ * discarded, so that the bound holds for the requests actually sent.
+ * <p>
+ * Requests that fail or complete synchronously release their slot while the queue is being drained. Draining is
+ * therefore done by a single loop at a time: a release only frees the slot and signals the running loop to make
+ * another pass, so that a long queue of such requests does not recurse.
+ */
+class JdkStingrayInFlightLimiter {
+
+    private final int maxInFlight;
+    private final boolean cancelAbortsExchange;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    JdkStingrayInFlightLimiter(int maxInFlight) {
+        this(maxInFlight, Runtime.version().feature() >= 16);
+    }
+
+    JdkStingrayInFlightLimiter(int maxInFlight, boolean cancelAbortsExchange) {
+        this.maxInFlight = maxInFlight;
+        this.cancelAbortsExchange = cancelAbortsExchange;
+    }
+
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            if (result.isDone()) {
+                inFlight.decrementAndGet(); // cancelled while queued
+                return;
+            }
+            CompletableFuture<T> future;
+            try {
+                future = request.get();
+            } catch (RuntimeException | Error e) {
+                release();
+                result.completeExceptionally(e);
+                return;
+            }
+            result.whenComplete((r, t) -> {
+                if (result.isCancelled() && cancelAbortsExchange) {
+                    future.cancel(true); // completes the future, which releases the slot
+                }
+            });
+            future.whenComplete((response, throwable) -> {
+                release();
+                if (throwable != null) {
+                    result.completeExceptionally(throwable);
+                } else {
+                    result.complete(response);
+                }
+            });
+        };
+        pending.add(start);
+        drain();
+        return result;
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        drain();
+    }
+
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            return; // the running loop, possibly further up this stack, makes another pass
+        }
+        int requests = 1;
+        do {
+            while (!pending.isEmpty() && tryAcquire()) {
+                Runnable next = pending.poll();
+                if (next == null) {
+                    inFlight.decrementAndGet(); // another thread started the last pending request
+                    continue;
+                }
+                next.run();
+            }
+            requests = drainRequests.addAndGet(-requests);
+        } while (requests != 0);
+    }
+
+    private boolean tryAcquire() {
+        for (; ; ) {
+            int current = inFlight.get();
+            if (current >= maxInFlight) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    int queued() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,61 @@
+package no.cantara.stingray.httpclient.jdk;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class EchoHandler extends AbstractHandler {
+
+    final AtomicInteger concurrentSlowRequests = new AtomicInteger();
+    final AtomicInteger maxConcurrentSlowRequests = new AtomicInteger();
+
+    void slow(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        int concurrent = concurrentSlowRequests.incrementAndGet();
+        maxConcurrentSlowRequests.accumulateAndGet(concurrent, Math::max);
+        try {
+            Thread.sleep(Long.parseLong(request.getParameter("millis")));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            concurrentSlowRequests.decrementAndGet();
+        }
+        response.setStatus(200);
+        response.setContentType("text/plain; charset=utf-8");
+        response.getOutputStream().write("slow".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+        if (target.startsWith("/slow")) {
+            slow(request, response);
+            baseRequest.setHandled(true);
+            return;
+        }
+        if (!"/echo".equals(request.getServletPath() + request.getPathInfo())) {
+            response.setStatus(400);
+            response.getOutputStream()
+                    .close();
+            return;
+        }
+        response.setStatus(200);
+        response.setHeader("Content-Length", request.getHeader("Content-Length"));
+        response.setHeader("Content-Type", request.getHeader("Content-Type"));
+        try (ServletInputStream in = request.getInputStream()) {
+            try (ServletOutputStream out = response.getOutputStream()) {
+                byte[] buf = new byte[8192];
+                int n;
+                while ((n = in.read(buf)) != -1) {
+                    out.write(buf, 0, n);
+                }
+            }
+        }
+    }
+}
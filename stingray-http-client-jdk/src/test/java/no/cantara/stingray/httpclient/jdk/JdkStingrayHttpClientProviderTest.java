@@ -0,0 +1,352 @@
+package no.cantara.stingray.httpclient.jdk;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import no.cantara.stingray.httpclient.StingrayHttpClient;
+import no.cantara.stingray.httpclient.StingrayHttpClientException;
+import no.cantara.stingray.httpclient.StingrayHttpClientFactory;
+import no.cantara.stingray.httpclient.StingrayHttpClients;
+import no.cantara.stingray.httpclient.StingrayHttpResponse;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class JdkStingrayHttpClientProviderTest {
+
+    static int port;
+    static Server server;
+    static EchoHandler echoHandler;
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        server = new Server(0);
+        echoHandler = new EchoHandler();
+        server.setHandler(echoHandler);
+        server.start();
+        port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    }
+
+    @AfterAll
+    public static void teardown() throws Exception {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void clientWithBaseTarget() {
+        StingrayHttpClientFactory clientFactory = StingrayHttpClients.factory();
+        StingrayHttpClient client = clientFactory.newClient()
+                .useTarget(target -> target
+                        .withScheme("http")
+                        .withHost("localhost")
+                        .withPort(port)
+                        .build())
+                .build();
+
+        String responseJson = client.post()
+                .path("/echo")
+                .bodyJson("{\"prop1\":\"val1\"}")
+                .execute()
+                .isSuccessful()
+                .contentAsString();
+
+        assertEquals("{\"prop1\":\"val1\"}", responseJson);
+    }
+
+    @Test
+    public void deleteRequestWithBody() {
+        StingrayHttpClientFactory clientFactory = StingrayHttpClients.factory();
+        StingrayHttpClient client = clientFactory.newClient()
+                .useTarget(target -> target
+                        .withScheme("http")
+                        .withHost("localhost")
+                        .withPort(port)
+                        .build())
+                .build();
+
+        String responseJson = client.delete()
+                .path("/echo")
+                .bodyJson("{\"prop1\":\"val1\"}")
+                .execute()
+                .isSuccessful()
+                .contentAsString();
+
+        assertEquals("{\"prop1\":\"val1\"}", responseJson);
+    }
+
+    @Test
+    public void clientWithoutBaseTarget() {
+        StingrayHttpClientFactory clientFactory = StingrayHttpClients.factory();
+        StingrayHttpClient client = clientFactory.newClient()
+                .build();
+
+        String responseJson = client.post()
+                .path("http://localhost:" + port + "/echo")
+                .bodyJson("{\"prop1\":\"val1\"}")
+                .execute()
+                .isSuccessful()
+                .contentAsString();
+
+        assertEquals("{\"prop1\":\"val1\"}", responseJson);
+    }
+
+    @Test
+    public void clientWithNonEchoTargetShouldRespondWith400() {
+        StingrayHttpClientFactory clientFactory = StingrayHttpClients.factory();
+        StingrayHttpClient client = clientFactory.newClient()
+                .build();
+
+        client.post()
+                .path("http://localhost:" + port + "/bad")
+                .bodyJson("{\"prop1\":\"val1\"}")
+                .execute()
+                .hasStatusCode(400);
+    }
+
+    @Test
+    public void clientWithNonEchoTargetShouldNotBeSuccessful() {
+        StingrayHttpClientFactory clientFactory = StingrayHttpClients.factory();
+        StingrayHttpClient client = clientFactory.newClient()
+                .build();
+
+        try {
+            client.post()
+                    .path("http://localhost:" + port + "/bad")
+                    .bodyJson("{\"prop1\":\"val1\"}")
+                    .execute()
+                    .isSuccessful();
+            fail();
+        } catch (StingrayHttpClientException expected) {
+        }
+    }
+
+    @Test
+    public void clientUsingFunctionalBodyToPostWorks() {
+        StingrayHttpClientFactory clientFactory = StingrayHttpClients.factory();
+        StingrayHttpClient client = clientFactory.newClient()
+                .build();
+
+        String responseContent = client.post()
+                .path("http://localhost:" + port + "/echo")
+                .bodyJson(this::getMyBody)
+                .execute()
+                .isSuccessful()
+                .contentAs(this::getMyContent);
+
+        assertEquals("{\"prop1\":\"val1\"}", responseContent);
+    }
+
+    private String getMyContent(InputStream stream) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        BufferedReader br = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        sb.append(br.readLine());
+        stream.close();
+        return sb.toString();
+    }
+
+    private String getMyBody() throws IOException {
+        if (false) {
+            throw new IOException("Dummy");
+        }
+        return "{\"prop1\":\"val1\"}";
+    }
+
+    @Test
+    public void clientWithoutTargetOrPath() {
+        StingrayHttpClientFactory clientFactory = StingrayHttpClients.factory();
+        StingrayHttpClient client = clientFactory.newClient()
+                .build();
+
+        try {
+            client.post()
+                    .bodyJson("{\"prop1\":\"val1\"}")
+                    .execute();
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void norwegianCharacters() {
+        StingrayHttpClientFactory clientFactory = StingrayHttpClients.factory();
+        StingrayHttpClient client = clientFactory.newClient()
+                .useTarget(target -> target
+                        .withScheme("http")
+                        .withHost("localhost")
+                        .withPort(port)
+                        .build())
+                .build();
+
+        StingrayHttpResponse response = client.post()
+                .path("/echo")
+                .bodyJson("{\"prop1\":\"æøåÆØÅ\"}")
+                .execute();
+        String responseJson = response
+                .isSuccessful()
+                .contentAsString();
+
+        assertEquals("{\"prop1\":\"æøåÆØÅ\"}", responseJson);
+    }
+
+    @Test
+    public void asyncFanOutIsBoundedByMaxInFlightRequests() {
+        StingrayHttpClient client = new JdkStingrayHttpClientFactory().newClient()
+                .withConfiguration(new JdkStingrayHttpClientFactory().newConfiguration()
+                        .maxInFlightRequests(4)
+                        .build())
+                .useTarget(target -> target.withUrl("http://localhost:" + port))
+                .build();
+        echoHandler.maxConcurrentSlowRequests.set(0);
+
+        List<CompletableFuture<StingrayHttpResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(client.get()
+                    .path("/slow")
+                    .query("millis", "50")
+                    .executeAsync());
+        }
+        for (CompletableFuture<StingrayHttpResponse> future : futures) {
+            assertEquals("slow", future.join().isSuccessful().contentAsString());
+        }
+        assertTrue(echoHandler.maxConcurrentSlowRequests.get() <= 4, "max concurrent: " + echoHandler.maxConcurrentSlowRequests.get());
+        assertEquals(0, ((JdkStingrayHttpClient) client).getInFlightLimiter().inFlight());
+    }
+
+    @Test
+    public void asyncEcho() {
+        StingrayHttpClient client = StingrayHttpClients.factory().newClient()
+                .useTarget(target -> target.withUrl("http://localhost:" + port))
+                .build();
+
+        String responseJson = client.post()
+                .path("/echo")
+                .bodyJson("{\"prop1\":\"æøå\"}")
+                .executeAsync()
+                .thenApply(response -> response.isSuccessful().contentAsString())
+                .join();
+
+        assertEquals("{\"prop1\":\"æøå\"}", responseJson);
+    }
+
+    @Test
+    public void asyncRequestTimesOut() {
+        StingrayHttpClient client = StingrayHttpClients.factory().newClient()
+                .useTarget(target -> target.withUrl("http://localhost:" + port))
+                .build();
+
+        CompletableFuture<StingrayHttpResponse> future = client.get()
+                .path("/slow")
+                .query("millis", "2000")
+                .connectTimeout(Duration.ofMillis(100))
+                .socketTimeout(Duration.ofMillis(100))
+                .executeAsync();
+
+        CompletionException e = assertThrows(CompletionException.class, future::join);
+        assertTrue(e.getCause() instanceof UncheckedIOException);
+        assertTrue(e.getCause().getCause() instanceof HttpTimeoutException);
+    }
+
+    @Test
+    public void cancelledRequestsReleaseTheirSlot() throws Exception {
+        StingrayHttpClient client = new JdkStingrayHttpClientFactory().newClient()
+                .withConfiguration(new JdkStingrayHttpClientFactory().newConfiguration()
+                        .maxInFlightRequests(1)
+                        .build())
+                .useTarget(target -> target.withUrl("http://localhost:" + port))
+                .build();
+        JdkStingrayInFlightLimiter limiter = ((JdkStingrayHttpClient) client).getInFlightLimiter();
+
+        CompletableFuture<StingrayHttpResponse> running = client.get().path("/slow").query("millis", "2000").executeAsync();
+        CompletableFuture<StingrayHttpResponse> queued = client.get().path("/slow").query("millis", "2000").executeAsync();
+        assertEquals(1, limiter.inFlight());
+        assertEquals(1, limiter.queued());
+
+        queued.cancel(true);
+        running.cancel(true);
+        assertThrows(CancellationException.class, running::join);
+        assertThrows(CancellationException.class, queued::join);
+
+        String response = client.get().path("/slow").query("millis", "1").executeAsync()
+                .get(5, TimeUnit.SECONDS)
+                .contentAsString();
+        assertEquals("slow", response);
+        assertEquals(0, limiter.inFlight());
+        assertEquals(0, limiter.queued());
+    }
+
+    public static class Greeting {
+        public String greeting;
+        public int count;
+
+        public Greeting() {
+        }
+
+        Greeting(String greeting, int count) {
+            this.greeting = greeting;
+            this.count = count;
+        }
+    }
+
+    @Test
+    public void jsonBodyAndContent() throws Exception {
+        StingrayHttpClient client = StingrayHttpClients.factory().newClient()
+                .useTarget(target -> target.withUrl("http://localhost:" + port))
+                .build();
+
+        Greeting greeting = client.post()
+                .path("/echo")
+                .bodyJson((Object) new Greeting("Hello æøå", 42))
+                .execute()
+                .isSuccessful()
+                .contentAsJson(Greeting.class);
+        assertEquals("Hello æøå", greeting.greeting);
+        assertEquals(42, greeting.count);
+
+        List<Greeting> greetings = client.post()
+                .path("/echo")
+                .bodyJson(Arrays.asList(new Greeting("Hello", 1), new Greeting("Hi", 1)))
+                .execute()
+                .isSuccessful()
+                .contentAsJson(new TypeReference<List<Greeting>>() {
+                });
+        assertEquals(2, greetings.size());
+        assertEquals("Hi", greetings.get(1).greeting);
+
+        List<String> iterated = new ArrayList<>();
+        try (MappingIterator<Greeting> iterator = client.post()
+                .path("/echo")
+                .bodyJson(Arrays.asList(new Greeting("Hello", 1), new Greeting("Hi", 1), new Greeting("Hey", 1)))
+                .execute()
+                .isSuccessful()
+                .contentAsJsonIterator(Greeting.class)) {
+            while (iterator.hasNext()) {
+                iterated.add(iterator.next().greeting);
+            }
+        }
+        assertEquals(Arrays.asList("Hello", "Hi", "Hey"), iterated);
+    }
+}
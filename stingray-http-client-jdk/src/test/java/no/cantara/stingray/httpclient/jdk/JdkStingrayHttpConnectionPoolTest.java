@@ -0,0 +1,145 @@
+package no.cantara.stingray.httpclient.jdk;
+
+import no.cantara.stingray.httpclient.StingrayHttpClient;
+import no.cantara.stingray.httpclient.StingrayHttpClientConfiguration;
+import no.cantara.stingray.httpclient.StingrayHttpResponse;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JdkStingrayHttpConnectionPoolTest {
+
+    static int port;
+    static Server server;
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        server = new Server(0);
+        server.setHandler(new EchoHandler());
+        server.start();
+        port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    }
+
+    @AfterAll
+    public static void teardown() throws Exception {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    static JdkStingrayHttpConnectionPool connectionPool(StingrayHttpClient client) {
+        return ((JdkStingrayHttpClientConfiguration) ((JdkStingrayHttpClient) client).getConfiguration()).getConnectionPool();
+    }
+
+    @Test
+    public void thatClientsHaveTheirOwnHttpClientUnlessConfigured() {
+        JdkStingrayHttpClientFactory clientFactory = new JdkStingrayHttpClientFactory();
+        StingrayHttpClient client1 = clientFactory.newClient().build();
+        StingrayHttpClient client2 = clientFactory.newClient().build();
+        assertNull(connectionPool(client1));
+        assertNotSame(((JdkStingrayHttpClient) client1).getHttpClient(), ((JdkStingrayHttpClient) client2).getHttpClient());
+    }
+
+    @Test
+    public void thatPoolSettingsAreAppliedOrIgnored() {
+        JdkStingrayHttpClientFactory clientFactory = new JdkStingrayHttpClientFactory();
+        try (StingrayHttpClientConfiguration configuration = clientFactory.newConfiguration()
+                .isolatedConnectionPool("downstream-a")
+                .maxConnections(4)
+                .maxConnectionsPerRoute(2)
+                .evictIdleConnections(Duration.ofSeconds(30))
+                .connectionTimeToLive(Duration.ofMinutes(5))
+                .keepAlive(Duration.ofSeconds(20))
+                .build()) {
+            StingrayHttpClient client1 = clientFactory.newClient().withConfiguration(configuration).build();
+            StingrayHttpClient client2 = clientFactory.newClient().withConfiguration(configuration).build();
+            assertSame(connectionPool(client1), connectionPool(client2));
+            assertEquals("downstream-a", connectionPool(client1).getName());
+            assertSame(((JdkStingrayHttpClient) client1).getHttpClient(), ((JdkStingrayHttpClient) client2).getHttpClient());
+            assertSame(((JdkStingrayHttpClient) client1).getInFlightLimiter(), ((JdkStingrayHttpClient) client2).getInFlightLimiter());
+        }
+    }
+
+    @Test
+    public void thatMaxConnectionsBoundsRequestsOfAllClientsOfThePool() throws Exception {
+        Map<String, Supplier<Integer>> gauges = new TreeMap<>();
+        JdkStingrayHttpClientFactory clientFactory = new JdkStingrayHttpClientFactory();
+        try (StingrayHttpClientConfiguration configuration = clientFactory.newConfiguration()
+                .isolatedConnectionPool("bounded")
+                .maxConnections(1)
+                .connectionPoolGauges(gauges::put)
+                .build()) {
+            assertEquals("[connection-pool.bounded.leased, connection-pool.bounded.max, connection-pool.bounded.pending]",
+                    gauges.keySet().toString());
+            assertEquals(1, gauges.get("connection-pool.bounded.max").get());
+            StingrayHttpClient client1 = clientFactory.newClient().withConfiguration(configuration)
+                    .useTarget(target -> target.withUrl("http://localhost:" + port))
+                    .build();
+            StingrayHttpClient client2 = clientFactory.newClient().withConfiguration(configuration)
+                    .useTarget(target -> target.withUrl("http://localhost:" + port))
+                    .build();
+            CompletableFuture<StingrayHttpResponse> first = client1.get().path("/slow").query("millis", "200").executeAsync();
+            CompletableFuture<StingrayHttpResponse> second = client2.get().path("/slow").query("millis", "1").executeAsync();
+            assertEquals(1, gauges.get("connection-pool.bounded.leased").get());
+            assertEquals(1, gauges.get("connection-pool.bounded.pending").get());
+            assertEquals("slow", first.get(5, TimeUnit.SECONDS).contentAsString());
+            assertEquals("slow", second.get(5, TimeUnit.SECONDS).contentAsString());
+            assertEquals(0, gauges.get("connection-pool.bounded.leased").get());
+        }
+    }
+
+    @Test
+    public void thatPoolNameWithOtherSettingsIsRejected() {
+        JdkStingrayHttpClientFactory clientFactory = new JdkStingrayHttpClientFactory();
+        try (StingrayHttpClientConfiguration configuration = clientFactory.newConfiguration()
+                .isolatedConnectionPool("conflicting")
+                .maxConnections(4)
+                .build()) {
+            assertThrows(IllegalArgumentException.class, () -> clientFactory.newConfiguration()
+                    .isolatedConnectionPool("conflicting")
+                    .maxConnections(5)
+                    .build());
+        }
+    }
+
+    @Test
+    public void thatClosingLastConfigurationReleasesPool() {
+        JdkStingrayHttpClientFactory clientFactory = new JdkStingrayHttpClientFactory();
+        StingrayHttpClientConfiguration configuration1 = clientFactory.newConfiguration()
+                .isolatedConnectionPool("closeable")
+                .build();
+        StingrayHttpClientConfiguration configuration2 = clientFactory.newConfiguration()
+                .isolatedConnectionPool("closeable")
+                .build();
+        JdkStingrayHttpConnectionPool pool = ((JdkStingrayHttpClientConfiguration) configuration1).getConnectionPool();
+        assertSame(pool, ((JdkStingrayHttpClientConfiguration) configuration2).getConnectionPool());
+        configuration1.close();
+        configuration1.close(); // idempotent, the pool is still used by configuration2
+        try (StingrayHttpClientConfiguration configuration3 = clientFactory.newConfiguration()
+                .isolatedConnectionPool("closeable")
+                .build()) {
+            assertSame(pool, ((JdkStingrayHttpClientConfiguration) configuration3).getConnectionPool());
+        }
+        configuration2.close();
+        try (StingrayHttpClientConfiguration configuration4 = clientFactory.newConfiguration()
+                .isolatedConnectionPool("closeable")
+                .build()) {
+            assertNotSame(pool, ((JdkStingrayHttpClientConfiguration) configuration4).getConnectionPool());
+        }
+    }
+}
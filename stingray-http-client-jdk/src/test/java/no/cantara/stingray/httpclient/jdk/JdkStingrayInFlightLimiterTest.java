@@ -0,0 +1,73 @@
+package no.cantara.stingray.httpclient.jdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JdkStingrayInFlightLimiterTest {
+
+    @Test
+    public void thatCancelReleasesSlotWhenItAbortsTheExchange() {
+        JdkStingrayInFlightLimiter limiter = new JdkStingrayInFlightLimiter(1, true);
+        CompletableFuture<String> exchange = new CompletableFuture<>();
+        CompletableFuture<String> result = limiter.submit(() -> exchange);
+        assertEquals(1, limiter.inFlight());
+
+        result.cancel(true);
+        assertTrue(exchange.isCancelled());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    public void thatCancelKeepsSlotUntilExchangeEndsWhenItCannotAbortTheExchange() {
+        JdkStingrayInFlightLimiter limiter = new JdkStingrayInFlightLimiter(1, false);
+        CompletableFuture<String> exchange = new CompletableFuture<>();
+        CompletableFuture<String> result = limiter.submit(() -> exchange);
+        CompletableFuture<String> next = limiter.submit(() -> CompletableFuture.completedFuture("next"));
+
+        result.cancel(true);
+        assertFalse(exchange.isDone());
+        assertEquals(1, limiter.inFlight());
+        assertEquals(1, limiter.queued());
+
+        exchange.complete("discarded");
+        assertTrue(result.isCancelled());
+        assertEquals("next", next.join());
+        assertEquals(0, limiter.inFlight());
+        assertEquals(0, limiter.queued());
+    }
+
+    @Test
+    public void thatManyQueuedSynchronousCompletionsDoNotOverflowTheStack() {
+        JdkStingrayInFlightLimiter limiter = new JdkStingrayInFlightLimiter(1, true);
+        CompletableFuture<String> exchange = new CompletableFuture<>();
+        CompletableFuture<String> first = limiter.submit(() -> exchange);
+        List<CompletableFuture<String>> queued = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            if (i % 2 == 0) {
+                queued.add(limiter.submit(() -> {
+                    throw new IllegalStateException("synchronous failure");
+                }));
+            } else {
+                queued.add(limiter.submit(() -> CompletableFuture.completedFuture("done")));
+            }
+        }
+        assertEquals(100_000, limiter.queued());
+
+        exchange.complete("first");
+        assertEquals("first", first.join());
+        for (CompletableFuture<String> future : queued) {
+            assertTrue(future.isDone());
+        }
+        assertTrue(queued.get(0).isCompletedExceptionally());
+        assertEquals("done", queued.get(1).join());
+        assertEquals(0, limiter.inFlight());
+        assertEquals(0, limiter.queued());
+    }
+}
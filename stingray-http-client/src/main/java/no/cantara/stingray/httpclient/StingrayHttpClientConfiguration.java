@@ -3,11 +3,19 @@ package no.cantara.stingray.httpclient;
 import java.time.Duration;
 import java.util.Map;
 
-public interface StingrayHttpClientConfiguration {
+public interface StingrayHttpClientConfiguration extends AutoCloseable {
 
     Duration getConnectTimeout();
 
     Duration getSocketTimeout();
 
     Map<String, StingrayHttpHeader> getDefaultHeaders();
+
+    /**
+     * Release the resources held by the configuration, i.e. its isolated connection pool once no other configuration
+     * uses it. Clients built with the configuration must not be used after it is closed.
+     */
+    @Override
+    default void close() {
+    }
 }
@@ -1,6 +1,8 @@
 package no.cantara.stingray.httpclient;
 
 import java.time.Duration;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 public interface StingrayHttpClientConfigurationBuilder {
 
@@ -10,5 +12,54 @@ public interface StingrayHttpClientConfigurationBuilder {
 
     StingrayHttpClientConfigurationBuilder withDefaultHeader(String name, String value);
 
+    /**
+     * Give the configuration its own connection pool, isolated from other configurations. All clients built with the
+     * configuration share the pool, i.e. build one configuration per downstream to get a pool per target. Without an
+     * isolated pool, clients use a connection pool shared by the whole JVM. Setting any of the connection pool
+     * properties implies an isolated pool, named after its settings when no name is given.
+     * <p>
+     * Configurations with the same pool name share the pool, and the pool is closed when all of them are
+     * {@link StingrayHttpClientConfiguration#close() closed}. Providers apply the pool settings as far as their
+     * http-client allows, and log a warning for settings they ignore.
+     *
+     * @param poolName name of the pool, used in metrics and thread names.
+     * @return this builder
+     */
+    StingrayHttpClientConfigurationBuilder isolatedConnectionPool(String poolName);
+
+    StingrayHttpClientConfigurationBuilder maxConnections(int maxConnections);
+
+    StingrayHttpClientConfigurationBuilder maxConnectionsPerRoute(int maxConnectionsPerRoute);
+
+    /**
+     * @param idleTime connections idle for longer than this are closed by a background thread.
+     * @return this builder
+     */
+    StingrayHttpClientConfigurationBuilder evictIdleConnections(Duration idleTime);
+
+    /**
+     * @param timeToLive total time to live of a pooled connection, regardless of keep-alive.
+     * @return this builder
+     */
+    StingrayHttpClientConfigurationBuilder connectionTimeToLive(Duration timeToLive);
+
+    /**
+     * @param keepAlive how long an idle connection may be kept alive when the server does not tell, and an upper bound
+     *                  for what the server tells in its Keep-Alive header.
+     * @return this builder
+     */
+    StingrayHttpClientConfigurationBuilder keepAlive(Duration keepAlive);
+
+    /**
+     * Publish connection pool gauges, e.g. to a dropwizard registry: <code>(name, gauge) -&gt;
+     * metricRegistry.gauge(name, () -&gt; gauge::get)</code>. The gauges are named
+     * <code>connection-pool.&lt;pool-name&gt;.leased|pending|available|max</code> and are registered when the
+     * configuration is built.
+     *
+     * @param gaugeRegistrar called once per gauge with the gauge name and a supplier of its current value.
+     * @return this builder
+     */
+    StingrayHttpClientConfigurationBuilder connectionPoolGauges(BiConsumer<String, Supplier<Integer>> gaugeRegistrar);
+
     StingrayHttpClientConfiguration build();
 }
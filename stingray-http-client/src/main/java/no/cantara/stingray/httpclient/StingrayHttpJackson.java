@@ -0,0 +1,30 @@
+package no.cantara.stingray.httpclient;
+
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * The object-mapper shared by all http-clients to read and write json content, configured as the object-mapper of
+ * stingray applications. Jackson modules found on the classpath are registered.
+ */
+public class StingrayHttpJackson {
+
+    private static final ObjectMapper mapper = createObjectMapper();
+
+    private static ObjectMapper createObjectMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.configure(JsonReadFeature.ALLOW_UNESCAPED_CONTROL_CHARS.mappedFeature(), true);
+        mapper.enable(JsonReadFeature.ALLOW_BACKSLASH_ESCAPING_ANY_CHARACTER.mappedFeature());
+        mapper.findAndRegisterModules(); // e.g. java-time support when jackson-datatype-jsr310 is on the classpath
+        return mapper;
+    }
+
+    public static ObjectMapper mapper() {
+        return mapper;
+    }
+}
@@ -7,6 +7,7 @@ import java.io.File;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 public interface StingrayHttpRequestBuilder {
 
@@ -30,6 +31,12 @@ public interface StingrayHttpRequestBuilder {
 
     StingrayHttpRequestBuilder bodyJson(String json);
 
+    /**
+     * Use the json representation of the given object as body, written by the shared
+     * {@link StingrayHttpJackson#mapper()} directly to the connection when the request is sent.
+     */
+    StingrayHttpRequestBuilder bodyJson(Object body);
+
     StingrayHttpRequestBuilder body(String body);
 
     StingrayHttpRequestBuilder body(String body, String mimeType);
@@ -88,4 +95,13 @@ public interface StingrayHttpRequestBuilder {
     }
 
     StingrayHttpResponse execute();
+
+    /**
+     * Execute the request without blocking the calling thread. Cancelling the returned future aborts the request, as
+     * far as the http-client of the provider supports it.
+     *
+     * @return a future completed with the response when it is received, or exceptionally if the request fails or times
+     * out.
+     */
+    CompletableFuture<StingrayHttpResponse> executeAsync();
 }
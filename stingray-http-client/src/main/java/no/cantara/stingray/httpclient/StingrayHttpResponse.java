@@ -1,5 +1,7 @@
 package no.cantara.stingray.httpclient;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
 import no.cantara.stingray.httpclient.functionalinterfaces.StingrayHttpExceptionalStreamFunction;
 import no.cantara.stingray.httpclient.functionalinterfaces.StingrayHttpExceptionalStringFunction;
 
@@ -30,6 +32,43 @@ public interface StingrayHttpResponse {
 
     String contentAsString() throws StingrayHttpClientException;
 
+    /**
+     * Decode json content directly from the content stream using the shared {@link StingrayHttpJackson#mapper()}.
+     *
+     * @return the decoded content, or null if there is no content.
+     */
+    default <T> T contentAsJson(Class<T> type) throws StingrayHttpClientException {
+        return contentAs((StingrayHttpExceptionalStreamFunction<T>) content -> {
+            try (InputStream in = content) {
+                return StingrayHttpJackson.mapper().readValue(in, type);
+            }
+        });
+    }
+
+    /**
+     * Decode json content directly from the content stream using the shared {@link StingrayHttpJackson#mapper()}.
+     *
+     * @return the decoded content, or null if there is no content.
+     */
+    default <T> T contentAsJson(TypeReference<T> type) throws StingrayHttpClientException {
+        return contentAs((StingrayHttpExceptionalStreamFunction<T>) content -> {
+            try (InputStream in = content) {
+                return StingrayHttpJackson.mapper().readValue(in, type);
+            }
+        });
+    }
+
+    /**
+     * Decode the elements of a json array, or a sequence of root-level json values, one at a time as the iterator is
+     * advanced. Close the iterator to release the connection if not iterated to the end.
+     *
+     * @return an iterator over the decoded elements, or null if there is no content.
+     */
+    default <T> MappingIterator<T> contentAsJsonIterator(Class<T> type) throws StingrayHttpClientException {
+        return contentAs((StingrayHttpExceptionalStreamFunction<MappingIterator<T>>) content ->
+                StingrayHttpJackson.mapper().readerFor(type).readValues(content));
+    }
+
     InputStream content();
 
     /**
@@ -0,0 +1,192 @@
+package no.cantara.stingray.security.authentication;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of successful user authentications. Entries are keyed by a SHA-256 hash of the token, never the token
+ * itself, and expire after the configured time-to-live or at the token expiry, whichever comes first. Authentications
+ * with an already passed token expiry, or where the token expiry cannot be resolved, are never cached. Concurrent
+ * authentications of the same token share a single lookup, failures are shared with concurrent callers but not cached.
+ */
+public class StingrayAuthenticationCache {
+
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final Map<String, Entry> entryByTokenHash = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public StingrayAuthenticationCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, Clock.systemUTC());
+    }
+
+    StingrayAuthenticationCache(int maxEntries, Duration ttl, Clock clock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be a positive number");
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be a positive duration");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * @param token         the token to authenticate.
+     * @param authenticator performs the actual authentication of the token on a cache miss.
+     * @return the cached authentication if present, otherwise the result of the authenticator.
+     * @throws UnauthorizedStingrayException if the authenticator throws it, for this or a concurrent call with the same
+     *                                       token.
+     */
+    public StingrayUserAuthentication getOrAuthenticate(String token, Supplier<StingrayUserAuthentication> authenticator) throws UnauthorizedStingrayException {
+        String tokenHash = hash(token);
+        Entry entry;
+        for (; ; ) {
+            Entry existingEntry = entryByTokenHash.get(tokenHash);
+            if (existingEntry != null) {
+                if (!existingEntry.isExpired(clock.millis())) {
+                    hits.increment();
+                    return existingEntry.await();
+                }
+                if (entryByTokenHash.remove(tokenHash, existingEntry)) {
+                    evictions.increment();
+                }
+                continue;
+            }
+            entry = new Entry();
+            if (entryByTokenHash.putIfAbsent(tokenHash, entry) == null) {
+                break;
+            }
+        }
+        misses.increment();
+        evictIfFull();
+        StingrayUserAuthentication authentication;
+        try {
+            authentication = authenticator.get();
+        } catch (RuntimeException | Error e) {
+            entryByTokenHash.remove(tokenHash, entry);
+            entry.future.completeExceptionally(e);
+            throw e;
+        }
+        long expiresAt = expiresAt(authentication);
+        if (expiresAt > clock.millis()) {
+            entry.expiresAt = expiresAt;
+        } else {
+            entryByTokenHash.remove(tokenHash, entry);
+        }
+        entry.future.complete(authentication);
+        return authentication;
+    }
+
+    private long expiresAt(StingrayUserAuthentication authentication) {
+        long expiresAt = clock.millis() + ttlMillis;
+        Instant tokenExpiry;
+        try {
+            tokenExpiry = authentication.tokenExpiry();
+        } catch (RuntimeException e) {
+            return Long.MIN_VALUE; // unable to resolve token expiry, do not cache
+        }
+        if (tokenExpiry != null) {
+            expiresAt = Math.min(expiresAt, tokenExpiry.toEpochMilli());
+        }
+        return expiresAt;
+    }
+
+    private void evictIfFull() {
+        if (entryByTokenHash.size() <= maxEntries) {
+            return;
+        }
+        // sampled eviction, expired entries are evicted first, then the sampled entry closest to expiry
+        long now = clock.millis();
+        Iterator<Map.Entry<String, Entry>> iterator = entryByTokenHash.entrySet().iterator();
+        Map.Entry<String, Entry> candidate = null;
+        for (int i = 0; i < EVICTION_SAMPLE_SIZE && iterator.hasNext(); i++) {
+            Map.Entry<String, Entry> sample = iterator.next();
+            if (!sample.getValue().future.isDone()) {
+                continue; // authentication in progress
+            }
+            if (sample.getValue().isExpired(now)) {
+                if (entryByTokenHash.remove(sample.getKey(), sample.getValue())) {
+                    evictions.increment();
+                }
+                continue;
+            }
+            if (candidate == null || sample.getValue().expiresAt < candidate.getValue().expiresAt) {
+                candidate = sample;
+            }
+        }
+        if (entryByTokenHash.size() > maxEntries && candidate != null) {
+            if (entryByTokenHash.remove(candidate.getKey(), candidate.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        entryByTokenHash.clear();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entryByTokenHash.size();
+    }
+
+    static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class Entry {
+
+        final CompletableFuture<StingrayUserAuthentication> future = new CompletableFuture<>();
+        volatile long expiresAt = Long.MAX_VALUE; // not expired while authentication is in progress
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+
+        StingrayUserAuthentication await() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+}
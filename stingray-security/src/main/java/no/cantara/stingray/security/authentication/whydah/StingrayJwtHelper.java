@@ -1,19 +1,11 @@
 package no.cantara.stingray.security.authentication.whydah;
 
-import com.auth0.jwk.Jwk;
 import com.auth0.jwk.JwkException;
-import com.auth0.jwk.JwkProvider;
-import com.auth0.jwk.JwkProviderBuilder;
 import com.auth0.jwt.JWT;
-import com.auth0.jwt.JWTVerifier;
-import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.security.interfaces.RSAPublicKey;
-import java.util.concurrent.TimeUnit;
-
 /**
  * Location for JWT public key: https://whydahdev.cantara.no/oauth2/.well-known/jwks.json
  **/
@@ -23,6 +15,7 @@ public class StingrayJwtHelper {
     final String oauth2Uri;
     final String token;
     final DecodedJWT jwt;
+    private volatile DecodedJWT verifiedJwt;
 
     public StingrayJwtHelper(String oauth2Uri, String token) {
         this(oauth2Uri, token, JWT.decode(token));
@@ -31,7 +24,7 @@ public class StingrayJwtHelper {
     public StingrayJwtHelper(String oauth2Uri, String token, DecodedJWT jwt) {
         this.oauth2Uri = oauth2Uri;
         this.token = token;
-        this.jwt = JWT.decode(token);
+        this.jwt = jwt;
     }
 
     public boolean isExpiredOrInvalid(String token) {
@@ -56,17 +49,21 @@ public class StingrayJwtHelper {
     }
 
     public <T> T getClaimFromJwtToken(String claimName, Class<T> requiredType) throws JwkException {
-        String oauth2Issuer = oauth2Uri;
-        JwkProvider provider = new JwkProviderBuilder(oauth2Issuer)
-                .cached(10, 24, TimeUnit.HOURS)
-                .rateLimited(10, 1, TimeUnit.MINUTES).build();
-        Jwk jwk = provider.get(jwt.getKeyId());
+        return verify().getClaim(claimName).as(requiredType);
+    }
 
-        Algorithm algorithm = Algorithm.RSA256((RSAPublicKey) jwk.getPublicKey(), null);
-        JWTVerifier verifier = JWT.require(algorithm)
-                .withIssuer(oauth2Issuer)
-                .build();
-        DecodedJWT djwt = verifier.verify(jwt);
-        return djwt.getClaim(claimName).as(requiredType);
+    /**
+     * Verifies the token once, subsequent calls return the same verified token.
+     *
+     * @return the verified token, giving access to all its claims.
+     * @throws JwkException if the signing key of the token could not be resolved.
+     */
+    public DecodedJWT verify() throws JwkException {
+        DecodedJWT verified = verifiedJwt;
+        if (verified == null) {
+            verified = StingrayJwtVerifier.forIssuer(oauth2Uri).verify(jwt);
+            verifiedJwt = verified;
+        }
+        return verified;
     }
 }
@@ -0,0 +1,278 @@
+package no.cantara.stingray.security.authentication.whydah;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.auth0.jwk.UrlJwkProvider;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.interfaces.RSAPublicKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Verifies JWT tokens signed by keys published by an oauth2 issuer. The JWKS of the issuer is fetched the first time a
+ * key-id is seen, and a reusable {@link JWTVerifier} is cached per key-id. Cached keys are refreshed in the background
+ * well before they expire, so that the request path only touches the JWKS of the issuer when tokens are signed by a
+ * new key.
+ * <p>
+ * The whole JWKS is fetched at a time, by one thread while any others that miss wait for the same fetch, and not more
+ * often than every {@link #MIN_JWKS_FETCH_INTERVAL}. A key-id that was not published by the latest fetch is rejected
+ * without contacting the issuer until the interval has passed, so tokens with made-up key-ids cannot make the verifier
+ * hammer the issuer, nor delay the fetch of a newly published key.
+ * <p>
+ * Use {@link #forIssuer(String)} to get the process-wide verifier of an issuer.
+ */
+public class StingrayJwtVerifier {
+
+    private static final Logger log = LoggerFactory.getLogger(StingrayJwtVerifier.class);
+
+    static final int MAX_CACHED_KEYS = 10;
+    static final Duration KEY_REFRESH_INTERVAL = Duration.ofHours(1);
+    static final Duration KEY_EXPIRY = Duration.ofHours(24);
+    static final Duration MIN_JWKS_FETCH_INTERVAL = Duration.ofSeconds(30);
+
+    private static final Map<String, StingrayJwtVerifier> verifierByIssuer = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextRefreshThreadId = new AtomicInteger(1);
+    private static final ScheduledExecutorService keyRefreshExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jwks-refresh-" + nextRefreshThreadId.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param oauth2Issuer the issuer of tokens, the JWKS is expected at <code>oauth2Issuer/.well-known/jwks.json</code>
+     * @return the process-wide verifier of tokens from the given issuer.
+     */
+    public static StingrayJwtVerifier forIssuer(String oauth2Issuer) {
+        StingrayJwtVerifier verifier = verifierByIssuer.get(oauth2Issuer);
+        if (verifier != null) {
+            return verifier;
+        }
+        return verifierByIssuer.computeIfAbsent(oauth2Issuer, issuer -> {
+            StingrayJwtVerifier jwtVerifier = new StingrayJwtVerifier(issuer, new UrlJwkProvider(issuer), Clock.systemUTC());
+            keyRefreshExecutor.scheduleWithFixedDelay(jwtVerifier::refreshKeys, KEY_REFRESH_INTERVAL.toMillis() / 4, KEY_REFRESH_INTERVAL.toMillis() / 4, TimeUnit.MILLISECONDS);
+            return jwtVerifier;
+        });
+    }
+
+    private final String oauth2Issuer;
+    private final UrlJwkProvider jwkProvider;
+    private final Clock clock;
+    private final Map<String, CachedKey> keyByKeyId = new ConcurrentHashMap<>();
+    private final AtomicReference<CompletableFuture<Void>> jwksFetchRef = new AtomicReference<>();
+    private volatile Jwks latestJwks;
+
+    StingrayJwtVerifier(String oauth2Issuer, UrlJwkProvider jwkProvider, Clock clock) {
+        this.oauth2Issuer = oauth2Issuer;
+        this.jwkProvider = jwkProvider;
+        this.clock = clock;
+    }
+
+    /**
+     * Verify signature, issuer and time-based claims of the token.
+     *
+     * @param jwt the decoded token
+     * @return the verified token, giving access to all its claims.
+     * @throws JwkException                                         if the signing key of the token could not be resolved.
+     * @throws com.auth0.jwt.exceptions.JWTVerificationException if the token is not valid.
+     */
+    public DecodedJWT verify(DecodedJWT jwt) throws JwkException {
+        String keyId = jwt.getKeyId();
+        if (keyId == null) {
+            throw new SigningKeyNotFoundException("Token has no key-id", null);
+        }
+        CachedKey cachedKey = keyByKeyId.get(keyId);
+        if (cachedKey == null || cachedKey.isExpired(clock.millis())) {
+            cachedKey = fetchKey(keyId);
+        }
+        return cachedKey.verifier.verify(jwt);
+    }
+
+    private CachedKey fetchKey(String keyId) throws JwkException {
+        for (; ; ) {
+            Jwks jwks = latestJwks;
+            if (jwks != null && clock.millis() - jwks.fetchedAt < MIN_JWKS_FETCH_INTERVAL.toMillis()) {
+                return cacheKey(keyId, jwks); // fetched recently, also tells which key-ids are unknown
+            }
+            CompletableFuture<Void> jwksFetch = jwksFetchRef.get();
+            if (jwksFetch != null) {
+                awaitJwksFetch(jwksFetch); // single-flight, another thread is fetching the jwks
+                jwks = latestJwks;
+                if (jwks != null) {
+                    return cacheKey(keyId, jwks);
+                }
+                continue;
+            }
+            jwksFetch = new CompletableFuture<>();
+            if (!jwksFetchRef.compareAndSet(null, jwksFetch)) {
+                continue;
+            }
+            try {
+                jwks = fetchJwks();
+                jwksFetch.complete(null);
+            } catch (JwkException | RuntimeException e) {
+                jwksFetch.completeExceptionally(e);
+                throw e;
+            } finally {
+                jwksFetchRef.set(null);
+            }
+            return cacheKey(keyId, jwks);
+        }
+    }
+
+    private static void awaitJwksFetch(CompletableFuture<Void> jwksFetch) throws JwkException {
+        try {
+            jwksFetch.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof JwkException) {
+                throw (JwkException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Fetch the jwks of the issuer. A failed fetch also counts as the latest fetch, so that an unavailable issuer is
+     * not contacted more often than every {@link #MIN_JWKS_FETCH_INTERVAL} either.
+     */
+    private Jwks fetchJwks() throws JwkException {
+        long now = clock.millis();
+        try {
+            List<Jwk> jwkList = jwkProvider.getAll();
+            Map<String, Jwk> jwkByKeyId = new LinkedHashMap<>();
+            for (Jwk jwk : jwkList) {
+                if (jwk.getId() != null) {
+                    jwkByKeyId.put(jwk.getId(), jwk);
+                }
+            }
+            Jwks jwks = new Jwks(Collections.unmodifiableMap(jwkByKeyId), now, null);
+            latestJwks = jwks;
+            log.debug("Fetched {} signing keys from issuer {}", jwkByKeyId.size(), oauth2Issuer);
+            return jwks;
+        } catch (JwkException | RuntimeException e) {
+            latestJwks = new Jwks(Collections.emptyMap(), now, e);
+            throw e;
+        }
+    }
+
+    private CachedKey cacheKey(String keyId, Jwks jwks) throws JwkException {
+        CachedKey cachedKey = keyByKeyId.get(keyId);
+        if (cachedKey != null && !cachedKey.isExpired(clock.millis())) {
+            return cachedKey; // cached by another thread
+        }
+        if (jwks.failure != null) {
+            throw new SigningKeyNotFoundException(String.format("Signing key '%s' is not cached, and the latest attempt to fetch the jwks of issuer %s failed", keyId, oauth2Issuer), jwks.failure);
+        }
+        Jwk jwk = jwks.jwkByKeyId.get(keyId);
+        if (jwk == null) {
+            throw new SigningKeyNotFoundException(String.format("Signing key '%s' is not published by issuer %s", keyId, oauth2Issuer), null);
+        }
+        cachedKey = createCachedKey(jwk, jwks.fetchedAt);
+        if (keyByKeyId.size() >= MAX_CACHED_KEYS && !keyByKeyId.containsKey(keyId)) {
+            keyByKeyId.entrySet().stream()
+                    .min((a, b) -> Long.compare(a.getValue().fetchedAt, b.getValue().fetchedAt))
+                    .ifPresent(oldest -> keyByKeyId.remove(oldest.getKey(), oldest.getValue()));
+        }
+        keyByKeyId.put(keyId, cachedKey);
+        return cachedKey;
+    }
+
+    private CachedKey createCachedKey(Jwk jwk, long fetchedAt) throws JwkException {
+        Algorithm algorithm = Algorithm.RSA256((RSAPublicKey) jwk.getPublicKey(), null);
+        JWTVerifier verifier = JWT.require(algorithm)
+                .withIssuer(oauth2Issuer)
+                .build();
+        return new CachedKey(verifier, fetchedAt);
+    }
+
+    /**
+     * Refresh cached keys when any of them is due for refresh. Keys that cannot be refreshed are kept until they
+     * expire, keys that are no longer published by the issuer are removed.
+     */
+    void refreshKeys() {
+        long now = clock.millis();
+        boolean refreshDue = keyByKeyId.values().stream()
+                .anyMatch(cachedKey -> now - cachedKey.fetchedAt >= KEY_REFRESH_INTERVAL.toMillis());
+        if (!refreshDue) {
+            return;
+        }
+        Jwks jwks;
+        try {
+            jwks = fetchJwks();
+        } catch (JwkException | RuntimeException e) {
+            keyByKeyId.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+            log.warn("Unable to refresh signing keys from issuer {}", oauth2Issuer, e);
+            return;
+        }
+        for (Map.Entry<String, CachedKey> entry : keyByKeyId.entrySet()) {
+            String keyId = entry.getKey();
+            CachedKey cachedKey = entry.getValue();
+            Jwk jwk = jwks.jwkByKeyId.get(keyId);
+            if (jwk == null) {
+                keyByKeyId.remove(keyId, cachedKey);
+                log.info("Signing key '{}' is no longer published by issuer {}, removed from cache", keyId, oauth2Issuer);
+                continue;
+            }
+            try {
+                keyByKeyId.replace(keyId, cachedKey, createCachedKey(jwk, jwks.fetchedAt));
+                log.debug("Refreshed signing key '{}' from issuer {}", keyId, oauth2Issuer);
+            } catch (JwkException | RuntimeException e) {
+                if (cachedKey.isExpired(now)) {
+                    keyByKeyId.remove(keyId, cachedKey);
+                }
+                log.warn("Unable to refresh signing key '{}' from issuer {}", keyId, oauth2Issuer, e);
+            }
+        }
+    }
+
+    int cachedKeys() {
+        return keyByKeyId.size();
+    }
+
+    /**
+     * The keys published by the issuer as of a fetch, or the failure of the fetch.
+     */
+    private static class Jwks {
+        final Map<String, Jwk> jwkByKeyId;
+        final long fetchedAt;
+        final Exception failure;
+
+        Jwks(Map<String, Jwk> jwkByKeyId, long fetchedAt, Exception failure) {
+            this.jwkByKeyId = jwkByKeyId;
+            this.fetchedAt = fetchedAt;
+            this.failure = failure;
+        }
+    }
+
+    private static class CachedKey {
+        final JWTVerifier verifier;
+        final long fetchedAt;
+
+        CachedKey(JWTVerifier verifier, long fetchedAt) {
+            this.verifier = verifier;
+            this.fetchedAt = fetchedAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - fetchedAt >= KEY_EXPIRY.toMillis();
+        }
+    }
+}
@@ -12,6 +12,7 @@ import no.cantara.stingray.security.authentication.DefaultStingrayAuthentication
 import no.cantara.stingray.security.authentication.StingrayApplicationAuthentication;
 import no.cantara.stingray.security.authentication.StingrayApplicationTag;
 import no.cantara.stingray.security.authentication.StingrayApplicationTokenSession;
+import no.cantara.stingray.security.authentication.StingrayAuthenticationCache;
 import no.cantara.stingray.security.authentication.StingrayAuthenticationManager;
 import no.cantara.stingray.security.authentication.StingrayAuthenticationResult;
 import no.cantara.stingray.security.authentication.StingrayCantaraUserAuthentication;
@@ -40,13 +41,23 @@ public class WhydahStingrayAuthenticationManager implements StingrayAuthenticati
     private final StingrayWhydahService whydahService;
     private final String whydahAuthGroupUserRoleNameFix;
     private final String whydahAuthGroupApplicationTagName;
+    private final StingrayAuthenticationCache authenticationCache;
 
     public WhydahStingrayAuthenticationManager(String oauth2Uri, StingrayApplicationTokenSession applicationTokenSession, StingrayWhydahService whydahService, String whydahAuthGroupUserRoleNameFix, String whydahAuthGroupApplicationTagName) {
+        this(oauth2Uri, applicationTokenSession, whydahService, whydahAuthGroupUserRoleNameFix, whydahAuthGroupApplicationTagName, null);
+    }
+
+    /**
+     * @param authenticationCache cache of user authentications, or null to resolve every user authentication against
+     *                            the whydah services.
+     */
+    public WhydahStingrayAuthenticationManager(String oauth2Uri, StingrayApplicationTokenSession applicationTokenSession, StingrayWhydahService whydahService, String whydahAuthGroupUserRoleNameFix, String whydahAuthGroupApplicationTagName, StingrayAuthenticationCache authenticationCache) {
         this.oauth2Uri = oauth2Uri;
         this.applicationTokenSession = applicationTokenSession;
         this.whydahService = whydahService;
         this.whydahAuthGroupUserRoleNameFix = whydahAuthGroupUserRoleNameFix;
         this.whydahAuthGroupApplicationTagName = whydahAuthGroupApplicationTagName;
+        this.authenticationCache = authenticationCache;
     }
 
     public StingrayWhydahService getWhydahService() {
@@ -61,12 +72,26 @@ public class WhydahStingrayAuthenticationManager implements StingrayAuthenticati
         return whydahAuthGroupApplicationTagName;
     }
 
+    /**
+     * @return the cache of user authentications, or null if user authentications are not cached.
+     */
+    public StingrayAuthenticationCache getAuthenticationCache() {
+        return authenticationCache;
+    }
+
     @Override
     public StingrayUserAuthentication authenticateAsUser(final String authorizationHeader) throws UnauthorizedStingrayException {
-        String authorization = authorizationHeader;
-        if (authorization == null || authorization.isEmpty()) {
+        if (authorizationHeader == null || authorizationHeader.isEmpty()) {
             throw new UnauthorizedStingrayException();
         }
+        if (authenticationCache == null) {
+            return resolveUserAuthentication(authorizationHeader);
+        }
+        return authenticationCache.getOrAuthenticate(authorizationHeader, () -> resolveUserAuthentication(authorizationHeader));
+    }
+
+    private StingrayUserAuthentication resolveUserAuthentication(final String authorizationHeader) throws UnauthorizedStingrayException {
+        String authorization = authorizationHeader;
         String usertokenid;
         String token = authorization.substring("Bearer ".length());
         String ssoId;
@@ -90,7 +115,7 @@ public class WhydahStingrayAuthenticationManager implements StingrayAuthenticati
         if (decodedJWT != null) {
             try {
                 log.debug("Resolving JWT-token");
-                StingrayJwtHelper jwtUtils = new StingrayJwtHelper(oauth2Uri, token);
+                StingrayJwtHelper jwtUtils = new StingrayJwtHelper(oauth2Uri, token, decodedJWT);
                 ssoId = null; // lazy loaded from user-token
                 username = jwtUtils.getUserNameFromJwtToken();
                 customerRef = jwtUtils.getCustomerRefFromJwtToken();
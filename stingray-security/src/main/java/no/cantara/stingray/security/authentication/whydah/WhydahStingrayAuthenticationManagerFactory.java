@@ -1,8 +1,11 @@
 package no.cantara.stingray.security.authentication.whydah;
 
 import no.cantara.config.ApplicationProperties;
+import no.cantara.stingray.security.authentication.StingrayAuthenticationCache;
 import no.cantara.stingray.security.authentication.StingrayAuthenticationManagerFactory;
 
+import java.time.Duration;
+
 public class WhydahStingrayAuthenticationManagerFactory implements StingrayAuthenticationManagerFactory {
 
     public static final String WHYDAH_AUTH_GROUP_USER_ROLE_NAME_FIX = "whydah_auth_group_user_role_name_fix";
@@ -11,6 +14,12 @@ public class WhydahStingrayAuthenticationManagerFactory implements StingrayAuthe
     public static final String DEFAULT_AUTH_GROUP_APPLICATION_TAG_NAME = "access-groups";
     public static final String DEFAULT_AUTH_GROUP_USER_ROLE_NAME_FIX = "access-groups";
 
+    public static final String WHYDAH_AUTH_CACHE_MAX_ENTRIES = "whydah_auth_cache_max_entries";
+    public static final String WHYDAH_AUTH_CACHE_TTL_SECONDS = "whydah_auth_cache_ttl_seconds";
+
+    public static final String DEFAULT_AUTH_CACHE_MAX_ENTRIES = "10000";
+    public static final String DEFAULT_AUTH_CACHE_TTL_SECONDS = "60";
+
     public WhydahStingrayAuthenticationManagerFactory() {
     }
 
@@ -31,6 +40,12 @@ public class WhydahStingrayAuthenticationManagerFactory implements StingrayAuthe
         DefaultStingrayWhydahService whydahService = new DefaultStingrayWhydahService(stingrayWhydahSession.getApplicationSession());
         String whydahAuthGroupUserRoleNameFix = applicationProperties.get(WHYDAH_AUTH_GROUP_USER_ROLE_NAME_FIX, DEFAULT_AUTH_GROUP_USER_ROLE_NAME_FIX);
         String whydahAuthGroupApplicationTagName = applicationProperties.get(WHYDAH_AUTH_GROUP_APPLICATION_TAG_NAME, DEFAULT_AUTH_GROUP_APPLICATION_TAG_NAME);
-        return new WhydahStingrayAuthenticationManager(oauth2Uri, stingrayWhydahSession, whydahService, whydahAuthGroupUserRoleNameFix, whydahAuthGroupApplicationTagName);
+        int authCacheMaxEntries = Integer.parseInt(applicationProperties.get(WHYDAH_AUTH_CACHE_MAX_ENTRIES, DEFAULT_AUTH_CACHE_MAX_ENTRIES));
+        long authCacheTtlSeconds = Long.parseLong(applicationProperties.get(WHYDAH_AUTH_CACHE_TTL_SECONDS, DEFAULT_AUTH_CACHE_TTL_SECONDS));
+        StingrayAuthenticationCache authenticationCache = null;
+        if (authCacheMaxEntries > 0 && authCacheTtlSeconds > 0) {
+            authenticationCache = new StingrayAuthenticationCache(authCacheMaxEntries, Duration.ofSeconds(authCacheTtlSeconds));
+        }
+        return new WhydahStingrayAuthenticationManager(oauth2Uri, stingrayWhydahSession, whydahService, whydahAuthGroupUserRoleNameFix, whydahAuthGroupApplicationTagName, authenticationCache);
     }
 }
@@ -36,6 +36,8 @@ public class DefaultStingrayAccessManager implements StingrayAccessManager {
     final StingrayConfiguredUserPermissions defaultUserPermissions;
     final StingrayConfiguredApplicationPermissions defaultApplicationPermissions;
 
+    final StingrayEffectivePolicyEngine effectivePolicyEngine;
+
     /**
      * @param actionService       the service part of actions. e.g. if "abc" is passed, any {@link StingrayServiceAction} instances made as
      *                            part of initializing this access-manager will get the service field as "abc".
@@ -51,6 +53,7 @@ public class DefaultStingrayAccessManager implements StingrayAccessManager {
         this.defaultUserPermissions = initDefaultUserPermissions(authorizationConfig);
         this.configuredApplicationPermissionsByApplicationId = initApplicationPermissions(authorizationConfig);
         this.defaultApplicationPermissions = initDefaultApplicationPermissions(authorizationConfig);
+        this.effectivePolicyEngine = initEffectivePolicyEngine(authorizationConfig);
     }
 
     Map<String, StingrayServiceAction> initActions(ApplicationProperties authorizationConfig) {
@@ -545,6 +548,13 @@ public class DefaultStingrayAccessManager implements StingrayAccessManager {
         return defaultConfiguredApplicationPermissions;
     }
 
+    StingrayEffectivePolicyEngine initEffectivePolicyEngine(ApplicationProperties authorizationConfig) {
+        int maxEntries = Integer.parseInt(authorizationConfig.get("effective-policy-cache.max-entries", "1000"));
+        StingrayEffectivePolicyEngine effectivePolicyEngine = new StingrayEffectivePolicyEngine(actionService, actionByDefintion.values(), policyById.values(), groupById, maxEntries);
+        log.info("Effective policies for service '{}' will be compiled and cached, max {} entries per configured policy", actionService, maxEntries);
+        return effectivePolicyEngine;
+    }
+
     @Override
     public boolean hasAccess(StingrayAuthentication authentication, String action) {
         Objects.requireNonNull(authentication);
@@ -564,27 +574,15 @@ public class DefaultStingrayAccessManager implements StingrayAccessManager {
         Objects.requireNonNull(userId);
         validateAction(actionValue);
         StingrayConfiguredUserPermissions cup = configuredUserPermissionsByUserId.get(userId);
-        StingrayPolicy.Builder effectivePolicyBuilder = StingrayPolicy.builder()
-                .policyId("effective-dynamic-policy-for-user-" + userId);
-        if (cup != null) {
-            log.trace("Adding pre-configured permissions to user '{}'", userId);
-            effectivePolicyBuilder.aggregate(cup.getEffectivePolicy());
-        } else {
-            log.trace("Adding default permissions to user '{}'", userId);
-            effectivePolicyBuilder.aggregate(defaultUserPermissions.getEffectivePolicy());
-        }
-        if (assignedGroups != null && assignedGroups.size() > 0) {
-            log.trace("Adding authenticated access-groups to user '{}': {}", userId, String.join(",", assignedGroups));
-            effectivePolicyBuilder.aggregate(assignedGroups.stream()
-                    .map(groupById::get)
-                    .filter(Objects::nonNull)
-                    .map(StingrayGroup::getPolicy));
+        StingrayPolicy configuredPolicy = cup != null ? cup.getEffectivePolicy() : defaultUserPermissions.getEffectivePolicy();
+        if (log.isTraceEnabled()) {
+            log.trace("Adding {} permissions to user '{}'", cup != null ? "pre-configured" : "default", userId);
+            if (assignedGroups != null && assignedGroups.size() > 0) {
+                log.trace("Adding authenticated access-groups to user '{}': {}", userId, String.join(",", assignedGroups));
+            }
+            log.trace("Using effective user '{}' policy: {}", userId, effectivePolicyEngine.effectivePolicy(configuredPolicy, assignedGroups).toJson());
         }
-        StingrayPolicy policy = effectivePolicyBuilder.build();
-        log.trace("Using effective user '{}' policy: {}", userId, policy.toJson());
-        StingrayServiceAction action = new StingrayServiceAction(actionService, actionValue.trim());
-        StingrayPermissionDecision permissionDecision = policy.decidePermission(action);
-        return permissionDecision.isAllowed();
+        return effectivePolicyEngine.isAllowed(configuredPolicy, assignedGroups, actionValue.trim());
     }
 
     @Override
@@ -592,27 +590,15 @@ public class DefaultStingrayAccessManager implements StingrayAccessManager {
         Objects.requireNonNull(applicationId);
         validateAction(actionValue);
         StingrayConfiguredApplicationPermissions cap = configuredApplicationPermissionsByApplicationId.get(applicationId);
-        StingrayPolicy.Builder effectivePolicyBuilder = StingrayPolicy.builder()
-                .policyId("effective-dynamic-policy-for-application-" + applicationId);
-        if (cap != null) {
-            log.trace("Adding pre-configured permissions to application '{}'", applicationId);
-            effectivePolicyBuilder.aggregate(cap.getEffectivePolicy());
-        } else {
-            log.trace("Adding default permissions to application '{}'", applicationId);
-            effectivePolicyBuilder.aggregate(defaultApplicationPermissions.getEffectivePolicy());
-        }
-        if (assignedGroups != null && assignedGroups.size() > 0) {
-            log.trace("Adding authenticated access-groups to application '{}': {}", applicationId, String.join(",", assignedGroups));
-            effectivePolicyBuilder.aggregate(assignedGroups.stream()
-                    .map(groupById::get)
-                    .filter(Objects::nonNull)
-                    .map(StingrayGroup::getPolicy));
+        StingrayPolicy configuredPolicy = cap != null ? cap.getEffectivePolicy() : defaultApplicationPermissions.getEffectivePolicy();
+        if (log.isTraceEnabled()) {
+            log.trace("Adding {} permissions to application '{}'", cap != null ? "pre-configured" : "default", applicationId);
+            if (assignedGroups != null && assignedGroups.size() > 0) {
+                log.trace("Adding authenticated access-groups to application '{}': {}", applicationId, String.join(",", assignedGroups));
+            }
+            log.trace("Using effective application '{}' policy: {}", applicationId, effectivePolicyEngine.effectivePolicy(configuredPolicy, assignedGroups).toJson());
         }
-        StingrayPolicy policy = effectivePolicyBuilder.build();
-        log.trace("Using effective application '{}' policy: {}", applicationId, policy.toJson());
-        StingrayServiceAction action = new StingrayServiceAction(actionService, actionValue.trim());
-        StingrayPermissionDecision permissionDecision = policy.decidePermission(action);
-        return permissionDecision.isAllowed();
+        return effectivePolicyEngine.isAllowed(configuredPolicy, assignedGroups, actionValue.trim());
     }
 
     private void validateAction(String action) {
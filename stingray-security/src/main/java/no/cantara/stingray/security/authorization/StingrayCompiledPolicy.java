@@ -0,0 +1,143 @@
+package no.cantara.stingray.security.authorization;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact, immutable form of the permissions of a {@link StingrayPolicy}. The actions of the policy are numbered by
+ * ordinals that are local to the compiled policy, and the permissions of each service are held as allow and deny
+ * bitsets indexed by those ordinals, with wildcard permissions precomputed. Deciding a permission is then a couple of
+ * map lookups and bitset reads, and does not allocate. Actions that the policy does not refer to have no ordinal, so
+ * deciding on arbitrary actions does not grow any table.
+ */
+final class StingrayCompiledPolicy {
+
+    private final Map<String, Integer> ordinalByAction;
+    private final StingrayPermission allActionsOnAllServicesPermission;
+    private final Map<String, ServicePermissions> permissionsByService;
+
+    StingrayCompiledPolicy(Map<StingrayServiceAction, StingrayPermission> permissionByAction) {
+        Map<String, Integer> ordinalByAction = new HashMap<>();
+        StingrayPermission allActionsOnAllServicesPermission = null;
+        Map<String, ServicePermissions.Builder> builderByService = new HashMap<>();
+        for (Map.Entry<StingrayServiceAction, StingrayPermission> entry : permissionByAction.entrySet()) {
+            StingrayServiceAction action = entry.getKey();
+            StingrayPermission permission = entry.getValue();
+            if (StingrayServiceAction.ALL_ACTIONS_ON_ALL_SERVICES.equals(action)) {
+                allActionsOnAllServicesPermission = permission;
+                continue;
+            }
+            ServicePermissions.Builder builder = builderByService.computeIfAbsent(action.getService(), service -> new ServicePermissions.Builder());
+            if ("*".equals(action.getAction())) {
+                builder.allActionsPermission = permission;
+            } else {
+                int ordinal = ordinalByAction.computeIfAbsent(action.getAction(), a -> ordinalByAction.size());
+                builder.set(ordinal, permission);
+            }
+        }
+        Map<String, ServicePermissions> permissionsByService = new HashMap<>();
+        for (Map.Entry<String, ServicePermissions.Builder> entry : builderByService.entrySet()) {
+            permissionsByService.put(entry.getKey(), entry.getValue().build());
+        }
+        this.ordinalByAction = ordinalByAction;
+        this.allActionsOnAllServicesPermission = allActionsOnAllServicesPermission;
+        this.permissionsByService = permissionsByService;
+    }
+
+    private int ordinalOf(String action) {
+        Integer ordinal = ordinalByAction.get(action);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * Decides as {@link StingrayPolicy#decidePermission(StingrayServiceAction)}, i.e. any matching deny wins over any
+     * matching allow, and absence of both is an implicit deny.
+     */
+    StingrayPermissionDecision decidePermission(String service, String action) {
+        if (StingrayPermission.DENY == allActionsOnAllServicesPermission) {
+            return StingrayPermissionDecision.EXPLICITLY_DENIED; // policy explicitly denies all actions on all services
+        }
+        ServicePermissions servicePermissions = permissionsByService.get(service);
+        if (servicePermissions == null) {
+            if (StingrayPermission.ALLOW == allActionsOnAllServicesPermission) {
+                return StingrayPermissionDecision.ALLOWED; // policy allows all actions on all services
+            }
+            return StingrayPermissionDecision.IMPLICITLY_DENIED; // policy has no permissions on service
+        }
+        if (StingrayPermission.DENY == servicePermissions.allActionsPermission) {
+            return StingrayPermissionDecision.EXPLICITLY_DENIED; // policy explicitly denies all actions on service
+        }
+        int ordinal = ordinalOf(action);
+        if (servicePermissions.isDenied(ordinal)) {
+            return StingrayPermissionDecision.EXPLICITLY_DENIED; // policy explicitly denies action on service
+        }
+        if (StingrayPermission.ALLOW == allActionsOnAllServicesPermission) {
+            return StingrayPermissionDecision.ALLOWED; // policy allows all actions on all services
+        }
+        if (StingrayPermission.ALLOW == servicePermissions.allActionsPermission) {
+            return StingrayPermissionDecision.ALLOWED; // policy allows all actions on service
+        }
+        if (servicePermissions.isAllowed(ordinal)) {
+            return StingrayPermissionDecision.ALLOWED; // policy allows action on service
+        }
+        return StingrayPermissionDecision.IMPLICITLY_DENIED; // default if no other deny or allow permissions are found
+    }
+
+    private static final class ServicePermissions {
+
+        private static final long[] EMPTY = new long[0];
+
+        private final StingrayPermission allActionsPermission;
+        private final long[] allowed;
+        private final long[] denied;
+
+        private ServicePermissions(StingrayPermission allActionsPermission, long[] allowed, long[] denied) {
+            this.allActionsPermission = allActionsPermission;
+            this.allowed = allowed;
+            this.denied = denied;
+        }
+
+        boolean isAllowed(int ordinal) {
+            return isSet(allowed, ordinal);
+        }
+
+        boolean isDenied(int ordinal) {
+            return isSet(denied, ordinal);
+        }
+
+        private static boolean isSet(long[] bits, int ordinal) {
+            int word = ordinal >> 6;
+            return ordinal >= 0 && word < bits.length && (bits[word] & (1L << ordinal)) != 0;
+        }
+
+        private static final class Builder {
+
+            private StingrayPermission allActionsPermission;
+            private long[] allowed = EMPTY;
+            private long[] denied = EMPTY;
+
+            void set(int ordinal, StingrayPermission permission) {
+                if (permission == StingrayPermission.ALLOW) {
+                    allowed = set(allowed, ordinal);
+                } else {
+                    denied = set(denied, ordinal);
+                }
+            }
+
+            private static long[] set(long[] bits, int ordinal) {
+                int word = ordinal >> 6;
+                if (word >= bits.length) {
+                    long[] grown = new long[word + 1];
+                    System.arraycopy(bits, 0, grown, 0, bits.length);
+                    bits = grown;
+                }
+                bits[word] |= 1L << ordinal;
+                return bits;
+            }
+
+            ServicePermissions build() {
+                return new ServicePermissions(allActionsPermission, allowed, denied);
+            }
+        }
+    }
+}
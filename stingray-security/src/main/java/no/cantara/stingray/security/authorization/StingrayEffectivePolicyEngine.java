@@ -0,0 +1,234 @@
+package no.cantara.stingray.security.authorization;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides access using effective policies that are compiled into immutable decision tables, one per combination of
+ * configured policy and (sorted) set of assigned groups. Decision tables are cached in a bounded concurrent cache and
+ * actions are resolved through ordinals interned when the engine is created, so a decision on a warm cache is a couple
+ * of map lookups and an array read.
+ */
+final class StingrayEffectivePolicyEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(StingrayEffectivePolicyEngine.class);
+
+    private static final int UNKNOWN_ACTION = -1;
+
+    private final String actionService;
+    private final Map<String, StingrayGroup> groupById;
+    private final Map<String, Integer> ordinalByAction;
+    private final StingrayServiceAction[] actionByOrdinal;
+    private final StingrayServiceAction allActionsOnService;
+    private final int maxEntriesPerConfiguredPolicy;
+    private final Map<StingrayPolicy, Map<GroupsKey, DecisionTable>> decisionTablesByConfiguredPolicy = new ConcurrentHashMap<>();
+    private final ThreadLocal<GroupsKey> probeKey = ThreadLocal.withInitial(GroupsKey::new);
+
+    /**
+     * @param actionService                 the service part of all actions decided by this engine.
+     * @param actions                       the declared actions of the service.
+     * @param policies                      all configured policies, any action on the service referred to by one of
+     *                                      these policies will be interned along with the declared actions.
+     * @param groupById                     the configured groups.
+     * @param maxEntriesPerConfiguredPolicy the maximum number of decision tables cached per configured policy.
+     */
+    StingrayEffectivePolicyEngine(String actionService, Collection<StingrayServiceAction> actions, Collection<StingrayPolicy> policies, Map<String, StingrayGroup> groupById, int maxEntriesPerConfiguredPolicy) {
+        if (maxEntriesPerConfiguredPolicy < 1) {
+            throw new IllegalArgumentException("maxEntriesPerConfiguredPolicy must be a positive number");
+        }
+        this.actionService = actionService;
+        this.groupById = groupById;
+        this.maxEntriesPerConfiguredPolicy = maxEntriesPerConfiguredPolicy;
+        this.allActionsOnService = new StingrayServiceAction(actionService, "*");
+        Map<String, StingrayServiceAction> internedActions = new LinkedHashMap<>();
+        for (StingrayServiceAction action : actions) {
+            internedActions.putIfAbsent(action.getAction(), action);
+        }
+        for (StingrayPolicy policy : policies) {
+            for (StingrayServiceAction action : policy.permissionByAction.keySet()) {
+                if (actionService.equals(action.getService()) && !"*".equals(action.getAction())) {
+                    internedActions.putIfAbsent(action.getAction(), action);
+                }
+            }
+        }
+        this.actionByOrdinal = internedActions.values().toArray(new StingrayServiceAction[0]);
+        Map<String, Integer> ordinalByAction = new LinkedHashMap<>();
+        for (int i = 0; i < actionByOrdinal.length; i++) {
+            ordinalByAction.put(actionByOrdinal[i].getAction(), i);
+        }
+        this.ordinalByAction = Collections.unmodifiableMap(ordinalByAction);
+    }
+
+    /**
+     * @param configuredPolicy the effective policy of the configured (or default) permissions of the principal.
+     * @param assignedGroups   the groups assigned to the principal through authentication, may be null.
+     * @param action           the trimmed action to decide on.
+     * @return true if the action is allowed by the effective policy, false otherwise.
+     */
+    boolean isAllowed(StingrayPolicy configuredPolicy, List<String> assignedGroups, String action) {
+        Integer ordinal = ordinalByAction.get(action);
+        return decisionTable(configuredPolicy, assignedGroups).isAllowed(ordinal != null ? ordinal : UNKNOWN_ACTION);
+    }
+
+    StingrayPolicy effectivePolicy(StingrayPolicy configuredPolicy, List<String> assignedGroups) {
+        return decisionTable(configuredPolicy, assignedGroups).effectivePolicy;
+    }
+
+    int cachedDecisionTables() {
+        int count = 0;
+        for (Map<GroupsKey, DecisionTable> tableByGroups : decisionTablesByConfiguredPolicy.values()) {
+            count += tableByGroups.size();
+        }
+        return count;
+    }
+
+    DecisionTable decisionTable(StingrayPolicy configuredPolicy, List<String> assignedGroups) {
+        Objects.requireNonNull(configuredPolicy);
+        List<String> groups = assignedGroups != null ? assignedGroups : Collections.emptyList();
+        Map<GroupsKey, DecisionTable> tableByGroups = decisionTablesByConfiguredPolicy.get(configuredPolicy);
+        if (tableByGroups == null) {
+            tableByGroups = decisionTablesByConfiguredPolicy.computeIfAbsent(configuredPolicy, policy -> new ConcurrentHashMap<>());
+        }
+        GroupsKey probe = probeKey.get().wrap(groups);
+        DecisionTable table;
+        try {
+            table = tableByGroups.get(probe);
+        } finally {
+            probe.wrap(Collections.emptyList());
+        }
+        if (table != null) {
+            return table;
+        }
+        GroupsKey canonicalKey = new GroupsKey().wrap(canonicalGroups(groups));
+        table = tableByGroups.get(canonicalKey);
+        if (table == null) {
+            table = cache(tableByGroups, canonicalKey, compile(configuredPolicy, canonicalKey.groups));
+        }
+        if (!canonicalKey.groups.equals(groups)) {
+            // also cache the table under the groups as assigned, so that the next lookup need not sort them
+            table = cache(tableByGroups, new GroupsKey().wrap(Collections.unmodifiableList(new ArrayList<>(groups))), table);
+        }
+        return table;
+    }
+
+    private List<String> canonicalGroups(List<String> groups) {
+        TreeSet<String> knownGroups = new TreeSet<>();
+        for (String groupId : groups) {
+            if (groupId != null && groupById.containsKey(groupId)) {
+                knownGroups.add(groupId);
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<>(knownGroups));
+    }
+
+    private DecisionTable cache(Map<GroupsKey, DecisionTable> tableByGroups, GroupsKey groups, DecisionTable table) {
+        if (tableByGroups.size() >= maxEntriesPerConfiguredPolicy) {
+            Iterator<GroupsKey> iterator = tableByGroups.keySet().iterator();
+            if (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        DecisionTable existingTable = tableByGroups.putIfAbsent(groups, table);
+        return existingTable != null ? existingTable : table;
+    }
+
+    private DecisionTable compile(StingrayPolicy configuredPolicy, List<String> canonicalGroups) {
+        StingrayPolicy.Builder effectivePolicyBuilder = StingrayPolicy.builder()
+                .policyId("effective-dynamic-policy-for-" + configuredPolicy.getPolicyId() + "-with-groups-" + String.join(",", canonicalGroups))
+                .aggregate(configuredPolicy);
+        for (String groupId : canonicalGroups) {
+            effectivePolicyBuilder.aggregate(groupById.get(groupId).getPolicy());
+        }
+        StingrayPolicy effectivePolicy = effectivePolicyBuilder.build();
+        boolean[] allowedByOrdinal = new boolean[actionByOrdinal.length];
+        for (int ordinal = 0; ordinal < actionByOrdinal.length; ordinal++) {
+            allowedByOrdinal[ordinal] = effectivePolicy.decidePermission(actionByOrdinal[ordinal]).isAllowed();
+        }
+        // actions unknown to the engine can only be matched by wildcards in the effective policy
+        StingrayPermission allActionsOnAllServicesPermission = effectivePolicy.permissionByAction.get(StingrayServiceAction.ALL_ACTIONS_ON_ALL_SERVICES);
+        StingrayPermission allActionsOnServicePermission = effectivePolicy.permissionByAction.get(allActionsOnService);
+        boolean unknownActionAllowed = StingrayPermission.DENY != allActionsOnAllServicesPermission
+                && StingrayPermission.DENY != allActionsOnServicePermission
+                && (StingrayPermission.ALLOW == allActionsOnAllServicesPermission || StingrayPermission.ALLOW == allActionsOnServicePermission);
+        if (log.isTraceEnabled()) {
+            log.trace("Compiled decision table for service '{}' from effective policy: {}", actionService, effectivePolicy.toJson());
+        }
+        return new DecisionTable(effectivePolicy, allowedByOrdinal, unknownActionAllowed);
+    }
+
+    /**
+     * Cache key of a list of groups. Hash-code and equality are computed by index, and lookups wrap the assigned groups
+     * in a per-thread probe key, so that a cache hit does not allocate.
+     */
+    static final class GroupsKey {
+
+        private List<String> groups;
+        private int hashCode;
+
+        GroupsKey wrap(List<String> groups) {
+            int hashCode = 1;
+            for (int i = 0; i < groups.size(); i++) {
+                String groupId = groups.get(i);
+                hashCode = 31 * hashCode + (groupId == null ? 0 : groupId.hashCode());
+            }
+            this.groups = groups;
+            this.hashCode = hashCode;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            GroupsKey that = (GroupsKey) o;
+
+            if (hashCode != that.hashCode || groups.size() != that.groups.size()) {
+                return false;
+            }
+            for (int i = 0; i < groups.size(); i++) {
+                if (!Objects.equals(groups.get(i), that.groups.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    static final class DecisionTable {
+
+        final StingrayPolicy effectivePolicy;
+        private final boolean[] allowedByOrdinal;
+        private final boolean unknownActionAllowed;
+
+        private DecisionTable(StingrayPolicy effectivePolicy, boolean[] allowedByOrdinal, boolean unknownActionAllowed) {
+            this.effectivePolicy = effectivePolicy;
+            this.allowedByOrdinal = allowedByOrdinal;
+            this.unknownActionAllowed = unknownActionAllowed;
+        }
+
+        boolean isAllowed(int ordinal) {
+            if (ordinal == UNKNOWN_ACTION) {
+                return unknownActionAllowed;
+            }
+            return allowedByOrdinal[ordinal];
+        }
+    }
+}
@@ -18,10 +18,12 @@ public class StingrayPolicy {
 
     final String policyId;
     final Map<StingrayServiceAction, StingrayPermission> permissionByAction;
+    final StingrayCompiledPolicy compiledPolicy;
 
     private StingrayPolicy(String policyId, Map<StingrayServiceAction, StingrayPermission> permissionByAction) {
         this.policyId = policyId;
         this.permissionByAction = new LinkedHashMap<>(permissionByAction);
+        this.compiledPolicy = new StingrayCompiledPolicy(this.permissionByAction);
     }
 
     public String getPolicyId() {
@@ -66,31 +68,7 @@ public class StingrayPolicy {
             throw new IllegalArgumentException("Cannot check action: " + action);
         }
 
-        StingrayPermission allActionsOnAllServicesPermission = permissionByAction.get(StingrayServiceAction.ALL_ACTIONS_ON_ALL_SERVICES);
-        if (StingrayPermission.DENY == allActionsOnAllServicesPermission) {
-            return StingrayPermissionDecision.EXPLICITLY_DENIED; // policy explicitly denies all actions on all services
-        }
-        StingrayServiceAction allActionsOnService = new StingrayServiceAction(action.getService(), "*");
-        StingrayPermission allActionsOnServicePermission = permissionByAction.get(allActionsOnService);
-        if (StingrayPermission.DENY == allActionsOnServicePermission) {
-            return StingrayPermissionDecision.EXPLICITLY_DENIED; // policy explicitly denies all actions on service
-        }
-        StingrayPermission actionPermission = permissionByAction.get(action);
-        if (StingrayPermission.DENY == actionPermission) {
-            return StingrayPermissionDecision.EXPLICITLY_DENIED; // policy explicitly denies action on service
-        }
-
-        if (StingrayPermission.ALLOW == allActionsOnAllServicesPermission) {
-            return StingrayPermissionDecision.ALLOWED; // policy allows all actions on all services
-        }
-        if (StingrayPermission.ALLOW == allActionsOnServicePermission) {
-            return StingrayPermissionDecision.ALLOWED; // policy allows all actions on service
-        }
-        if (StingrayPermission.ALLOW == actionPermission) {
-            return StingrayPermissionDecision.ALLOWED; // policy allows action on service
-        }
-
-        return StingrayPermissionDecision.IMPLICITLY_DENIED; // default if no other deny or allow permissions are found
+        return compiledPolicy.decidePermission(action.getService(), action.getAction());
     }
 
     public static Builder builder() {
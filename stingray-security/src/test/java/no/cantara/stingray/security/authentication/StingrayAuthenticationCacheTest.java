@@ -0,0 +1,162 @@
+package no.cantara.stingray.security.authentication;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StingrayAuthenticationCacheTest {
+
+    static class TestClock extends Clock {
+        final AtomicLong millis = new AtomicLong(1_000_000);
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+    }
+
+    static StingrayUserAuthentication authentication(String userId, Instant tokenExpiry) {
+        return new StingrayCantaraUserAuthentication(userId, userId, "utid-" + userId, "custref-" + userId, () -> "", Collections::emptyMap, "access-groups", () -> null) {
+            @Override
+            public Instant tokenExpiry() {
+                return tokenExpiry;
+            }
+        };
+    }
+
+    @Test
+    public void thatCachedAuthenticationIsReusedUntilTtl() {
+        TestClock clock = new TestClock();
+        StingrayAuthenticationCache cache = new StingrayAuthenticationCache(10, Duration.ofSeconds(60), clock);
+        AtomicInteger authentications = new AtomicInteger();
+        StingrayUserAuthentication first = cache.getOrAuthenticate("Bearer token-1", () -> {
+            authentications.incrementAndGet();
+            return authentication("john", null);
+        });
+        StingrayUserAuthentication second = cache.getOrAuthenticate("Bearer token-1", () -> {
+            authentications.incrementAndGet();
+            return authentication("john", null);
+        });
+        assertSame(first, second);
+        assertEquals(1, authentications.get());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+
+        clock.millis.addAndGet(TimeUnit.SECONDS.toMillis(60));
+        StingrayUserAuthentication third = cache.getOrAuthenticate("Bearer token-1", () -> {
+            authentications.incrementAndGet();
+            return authentication("john", null);
+        });
+        assertNotEquals(first, third);
+        assertEquals(2, authentications.get());
+        assertEquals(1, cache.evictions());
+    }
+
+    @Test
+    public void thatEntriesExpireNoLaterThanTokenExpiry() {
+        TestClock clock = new TestClock();
+        StingrayAuthenticationCache cache = new StingrayAuthenticationCache(10, Duration.ofSeconds(60), clock);
+        Instant tokenExpiry = clock.instant().plusSeconds(5);
+        cache.getOrAuthenticate("Bearer token-1", () -> authentication("john", tokenExpiry));
+        clock.millis.addAndGet(TimeUnit.SECONDS.toMillis(5));
+        AtomicInteger authentications = new AtomicInteger();
+        cache.getOrAuthenticate("Bearer token-1", () -> {
+            authentications.incrementAndGet();
+            return authentication("john", tokenExpiry.plusSeconds(300));
+        });
+        assertEquals(1, authentications.get());
+
+        // already expired tokens are not cached
+        cache.getOrAuthenticate("Bearer token-2", () -> authentication("jane", clock.instant().minusSeconds(1)));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void thatFailuresAreNotCached() {
+        StingrayAuthenticationCache cache = new StingrayAuthenticationCache(10, Duration.ofSeconds(60), new TestClock());
+        assertThrows(UnauthorizedStingrayException.class, () -> cache.getOrAuthenticate("Bearer bad-token", () -> {
+            throw new UnauthorizedStingrayException();
+        }));
+        assertEquals(0, cache.size());
+        StingrayUserAuthentication authentication = authentication("john", null);
+        assertSame(authentication, cache.getOrAuthenticate("Bearer bad-token", () -> authentication));
+    }
+
+    @Test
+    public void thatConcurrentAuthenticationsOfSameTokenAreSingleFlight() throws Exception {
+        StingrayAuthenticationCache cache = new StingrayAuthenticationCache(10, Duration.ofSeconds(60), new TestClock());
+        CountDownLatch authenticationStarted = new CountDownLatch(1);
+        CountDownLatch releaseAuthentication = new CountDownLatch(1);
+        AtomicInteger authentications = new AtomicInteger();
+        StingrayUserAuthentication authentication = authentication("john", null);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<StingrayUserAuthentication> leader = executor.submit(() -> cache.getOrAuthenticate("Bearer token-1", () -> {
+                authentications.incrementAndGet();
+                authenticationStarted.countDown();
+                try {
+                    releaseAuthentication.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return authentication;
+            }));
+            assertTrue(authenticationStarted.await(10, TimeUnit.SECONDS));
+            Future<StingrayUserAuthentication> follower1 = executor.submit(() -> cache.getOrAuthenticate("Bearer token-1", () -> {
+                authentications.incrementAndGet();
+                return authentication("john", null);
+            }));
+            Future<StingrayUserAuthentication> follower2 = executor.submit(() -> cache.getOrAuthenticate("Bearer token-1", () -> {
+                authentications.incrementAndGet();
+                return authentication("john", null);
+            }));
+            releaseAuthentication.countDown();
+            assertSame(authentication, leader.get(10, TimeUnit.SECONDS));
+            assertSame(authentication, follower1.get(10, TimeUnit.SECONDS));
+            assertSame(authentication, follower2.get(10, TimeUnit.SECONDS));
+            assertEquals(1, authentications.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void thatCacheIsBoundedAndKeyedByHash() {
+        StingrayAuthenticationCache cache = new StingrayAuthenticationCache(3, Duration.ofSeconds(60), new TestClock());
+        for (int i = 0; i < 10; i++) {
+            String userId = "user-" + i;
+            cache.getOrAuthenticate("Bearer token-" + i, () -> authentication(userId, null));
+        }
+        assertTrue(cache.size() <= 3);
+        assertEquals(7, cache.evictions());
+        assertNotEquals("Bearer token-1", StingrayAuthenticationCache.hash("Bearer token-1"));
+        assertEquals(StingrayAuthenticationCache.hash("Bearer token-1"), StingrayAuthenticationCache.hash("Bearer token-1"));
+    }
+}
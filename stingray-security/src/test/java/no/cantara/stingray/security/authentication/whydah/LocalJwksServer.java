@@ -0,0 +1,97 @@
+package no.cantara.stingray.security.authentication.whydah;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Local stand-in for the JWKS endpoint of an oauth2 issuer, publishing locally generated RSA keys.
+ */
+class LocalJwksServer implements AutoCloseable {
+
+    final HttpServer server;
+    final String issuer;
+    final Map<String, KeyPair> keyPairByKeyId = new ConcurrentHashMap<>();
+    final AtomicInteger jwksRequests = new AtomicInteger();
+
+    LocalJwksServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/.well-known/jwks.json", exchange -> {
+            jwksRequests.incrementAndGet();
+            byte[] body = jwks().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        issuer = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    LocalJwksServer addKey(String keyId) {
+        try {
+            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+            keyPairGenerator.initialize(2048);
+            keyPairByKeyId.put(keyId, keyPairGenerator.generateKeyPair());
+            return this;
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    String jwks() {
+        return keyPairByKeyId.entrySet().stream()
+                .map(entry -> {
+                    RSAPublicKey publicKey = (RSAPublicKey) entry.getValue().getPublic();
+                    return String.format("{\"kty\":\"RSA\",\"kid\":\"%s\",\"use\":\"sig\",\"alg\":\"RS256\",\"n\":\"%s\",\"e\":\"%s\"}",
+                            entry.getKey(), base64Url(publicKey.getModulus()), base64Url(publicKey.getPublicExponent()));
+                })
+                .collect(Collectors.joining(",", "{\"keys\":[", "]}"));
+    }
+
+    String token(String keyId, String issuer) {
+        KeyPair keyPair = keyPairByKeyId.get(keyId);
+        return JWT.create()
+                .withKeyId(keyId)
+                .withIssuer(issuer)
+                .withSubject("john")
+                .withClaim("usertoken_id", "utid-john")
+                .withClaim("customer_ref", "custref-john")
+                .withExpiresAt(Date.from(Instant.now().plusSeconds(3600)))
+                .sign(Algorithm.RSA256((RSAPublicKey) keyPair.getPublic(), (RSAPrivateKey) keyPair.getPrivate()));
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length); // unsigned big-endian
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
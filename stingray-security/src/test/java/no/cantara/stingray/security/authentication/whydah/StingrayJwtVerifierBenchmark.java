@@ -0,0 +1,91 @@
+package no.cantara.stingray.security.authentication.whydah;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.JwkProviderBuilder;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.interfaces.RSAPublicKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares resolving the claims of a JWT token through {@link StingrayJwtHelper}, which verifies the token once with a
+ * cached signing key, with the previous approach of fetching the signing key and verifying the token for every claim.
+ * Keys are served by a local JWKS stand-in. Run the main method from the test classpath, and add <code>-prof gc</code>
+ * to the arguments to observe allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StingrayJwtVerifierBenchmark {
+
+    LocalJwksServer jwksServer;
+    String token;
+
+    @Setup
+    public void setup() throws Exception {
+        jwksServer = new LocalJwksServer().addKey("kid-1");
+        token = jwksServer.token("kid-1", jwksServer.issuer);
+    }
+
+    @TearDown
+    public void teardown() {
+        jwksServer.close();
+    }
+
+    static <T> T uncachedClaim(String oauth2Uri, String token, String claimName, Class<T> requiredType) throws JwkException {
+        DecodedJWT jwt = JWT.decode(token);
+        JwkProvider provider = new JwkProviderBuilder(oauth2Uri).build();
+        Jwk jwk = provider.get(jwt.getKeyId());
+        Algorithm algorithm = Algorithm.RSA256((RSAPublicKey) jwk.getPublicKey(), null);
+        return JWT.require(algorithm)
+                .withIssuer(oauth2Uri)
+                .build()
+                .verify(token)
+                .getClaim(claimName)
+                .as(requiredType);
+    }
+
+    @Benchmark
+    public void uncachedClaims(Blackhole blackhole) throws JwkException {
+        blackhole.consume(uncachedClaim(jwksServer.issuer, token, "sub", String.class));
+        blackhole.consume(uncachedClaim(jwksServer.issuer, token, "customer_ref", String.class));
+        blackhole.consume(uncachedClaim(jwksServer.issuer, token, "usertoken_id", String.class));
+    }
+
+    @Benchmark
+    public void cachedClaims(Blackhole blackhole) throws JwkException {
+        StingrayJwtHelper helper = new StingrayJwtHelper(jwksServer.issuer, token);
+        blackhole.consume(helper.getUserNameFromJwtToken());
+        blackhole.consume(helper.getCustomerRefFromJwtToken());
+        blackhole.consume(helper.getUserTokenFromJwtToken());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StingrayJwtVerifierBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
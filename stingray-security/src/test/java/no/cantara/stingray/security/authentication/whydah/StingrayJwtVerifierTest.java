@@ -0,0 +1,203 @@
+package no.cantara.stingray.security.authentication.whydah;
+
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.auth0.jwk.UrlJwkProvider;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StingrayJwtVerifierTest {
+
+    static class TestClock extends Clock {
+        final AtomicLong millis = new AtomicLong(System.currentTimeMillis());
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+    }
+
+    LocalJwksServer jwksServer;
+    TestClock clock;
+    StingrayJwtVerifier verifier;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        jwksServer = new LocalJwksServer().addKey("kid-1");
+        clock = new TestClock();
+        verifier = new StingrayJwtVerifier(jwksServer.issuer, new UrlJwkProvider(jwksServer.issuer), clock);
+    }
+
+    @AfterEach
+    public void teardown() {
+        jwksServer.close();
+    }
+
+    @Test
+    public void thatSigningKeyIsFetchedOnceForManyVerifications() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            DecodedJWT verified = verifier.verify(JWT.decode(jwksServer.token("kid-1", jwksServer.issuer)));
+            assertEquals("john", verified.getSubject());
+            assertEquals("utid-john", verified.getClaim("usertoken_id").asString());
+            assertEquals("custref-john", verified.getClaim("customer_ref").asString());
+        }
+        assertEquals(1, jwksServer.jwksRequests.get());
+        assertEquals(1, verifier.cachedKeys());
+
+        jwksServer.addKey("kid-2");
+        clock.millis.addAndGet(StingrayJwtVerifier.MIN_JWKS_FETCH_INTERVAL.toMillis());
+        verifier.verify(JWT.decode(jwksServer.token("kid-2", jwksServer.issuer)));
+        assertEquals(2, jwksServer.jwksRequests.get());
+        assertEquals(2, verifier.cachedKeys());
+    }
+
+    @Test
+    public void thatUnknownKeyIdsDoNotFetchJwksMoreOftenThanMinInterval() throws Exception {
+        verifier.verify(JWT.decode(jwksServer.token("kid-1", jwksServer.issuer)));
+        assertEquals(1, jwksServer.jwksRequests.get());
+        for (int i = 0; i < 100; i++) {
+            String token = JWT.create().withKeyId("unknown-" + i).withIssuer(jwksServer.issuer).sign(Algorithm.HMAC256("secret"));
+            assertThrows(SigningKeyNotFoundException.class, () -> verifier.verify(JWT.decode(token)));
+        }
+        assertEquals(1, jwksServer.jwksRequests.get());
+        assertEquals(1, verifier.cachedKeys());
+
+        // a key published after the latest fetch is found once the interval has passed
+        jwksServer.addKey("kid-2");
+        String token = jwksServer.token("kid-2", jwksServer.issuer);
+        assertThrows(SigningKeyNotFoundException.class, () -> verifier.verify(JWT.decode(token)));
+        clock.millis.addAndGet(StingrayJwtVerifier.MIN_JWKS_FETCH_INTERVAL.toMillis());
+        verifier.verify(JWT.decode(token));
+        assertEquals(2, jwksServer.jwksRequests.get());
+    }
+
+    @Test
+    public void thatConcurrentMissesShareOneJwksFetch() throws Exception {
+        jwksServer.addKey("kid-2").addKey("kid-3");
+        List<String> tokens = List.of(jwksServer.token("kid-1", jwksServer.issuer), jwksServer.token("kid-2", jwksServer.issuer),
+                jwksServer.token("kid-3", jwksServer.issuer));
+        ExecutorService executor = Executors.newFixedThreadPool(tokens.size() * 4);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<DecodedJWT>> futures = new ArrayList<>();
+            for (int i = 0; i < tokens.size() * 4; i++) {
+                String token = tokens.get(i % tokens.size());
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return verifier.verify(JWT.decode(token));
+                }));
+            }
+            start.countDown();
+            for (Future<DecodedJWT> future : futures) {
+                assertEquals("john", future.get(10, TimeUnit.SECONDS).getSubject());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, jwksServer.jwksRequests.get());
+        assertEquals(3, verifier.cachedKeys());
+    }
+
+    @Test
+    public void thatInvalidTokensAreRejected() {
+        assertThrows(JWTVerificationException.class, () -> verifier.verify(JWT.decode(jwksServer.token("kid-1", "http://other-issuer"))));
+
+        // token signed by another key than the one published under the key-id
+        LocalJwksServer otherServer = null;
+        try {
+            otherServer = new LocalJwksServer().addKey("kid-1");
+            String forgedToken = otherServer.token("kid-1", jwksServer.issuer);
+            assertThrows(JWTVerificationException.class, () -> verifier.verify(JWT.decode(forgedToken)));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            if (otherServer != null) {
+                otherServer.close();
+            }
+        }
+
+        String tokenWithoutKeyId = JWT.create().withIssuer(jwksServer.issuer).sign(Algorithm.HMAC256("secret"));
+        assertThrows(SigningKeyNotFoundException.class, () -> verifier.verify(JWT.decode(tokenWithoutKeyId)));
+        assertEquals(1, jwksServer.jwksRequests.get());
+    }
+
+    @Test
+    public void thatKeysAreRefreshedAndKeptUntilExpiryWhenIssuerIsUnreachable() throws Exception {
+        String token = jwksServer.token("kid-1", jwksServer.issuer);
+        DecodedJWT jwt = JWT.decode(token);
+        verifier.verify(jwt);
+        assertEquals(1, jwksServer.jwksRequests.get());
+
+        verifier.refreshKeys(); // not yet due for refresh
+        assertEquals(1, jwksServer.jwksRequests.get());
+
+        clock.millis.addAndGet(StingrayJwtVerifier.KEY_REFRESH_INTERVAL.toMillis());
+        verifier.refreshKeys();
+        assertEquals(2, jwksServer.jwksRequests.get());
+        verifier.verify(jwt);
+        assertEquals(2, jwksServer.jwksRequests.get());
+
+        // unreachable issuer keeps the key until it expires
+        jwksServer.server.stop(0);
+        clock.millis.addAndGet(StingrayJwtVerifier.KEY_REFRESH_INTERVAL.toMillis());
+        verifier.refreshKeys();
+        assertEquals(1, verifier.cachedKeys());
+        clock.millis.addAndGet(StingrayJwtVerifier.KEY_EXPIRY.toMillis());
+        verifier.refreshKeys();
+        assertEquals(0, verifier.cachedKeys());
+    }
+
+    @Test
+    public void thatUnpublishedKeysAreRemovedOnRefresh() throws Exception {
+        verifier.verify(JWT.decode(jwksServer.token("kid-1", jwksServer.issuer)));
+        jwksServer.addKey("kid-2");
+        jwksServer.keyPairByKeyId.remove("kid-1");
+        clock.millis.addAndGet(StingrayJwtVerifier.KEY_REFRESH_INTERVAL.toMillis());
+        verifier.refreshKeys();
+        assertEquals(0, verifier.cachedKeys());
+    }
+
+    @Test
+    public void thatHelperVerifiesOnceAndReusesProcessWideVerifier() throws Exception {
+        String token = jwksServer.token("kid-1", jwksServer.issuer);
+        StingrayJwtHelper helper = new StingrayJwtHelper(jwksServer.issuer, token);
+        assertEquals("john", helper.getUserNameFromJwtToken());
+        assertEquals("utid-john", helper.getUserTokenFromJwtToken());
+        assertEquals("custref-john", helper.getCustomerRefFromJwtToken());
+        assertSame(helper.verify(), helper.verify());
+        assertSame(StingrayJwtVerifier.forIssuer(jwksServer.issuer), StingrayJwtVerifier.forIssuer(jwksServer.issuer));
+
+        new StingrayJwtHelper(jwksServer.issuer, token).getUserNameFromJwtToken();
+        assertEquals(1, jwksServer.jwksRequests.get());
+    }
+}
@@ -0,0 +1,63 @@
+package no.cantara.stingray.security.authorization;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares access decisions through compiled and cached effective policies with the previous approach of aggregating
+ * a new effective policy on every decision. Run the main method from the test classpath, and add
+ * <code>-prof gc</code> to the arguments to observe allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DefaultStingrayAccessManagerBenchmark {
+
+    DefaultStingrayAccessManager accessManager;
+    List<String> assignedGroups;
+
+    @Setup
+    public void setup() {
+        ((Logger) LoggerFactory.getLogger("no.cantara.stingray")).setLevel(Level.INFO); // trace logging is on in tests
+        accessManager = StingrayEffectivePolicyEngineTest.createAccessManager("1000");
+        assignedGroups = Arrays.asList("writers", "safe");
+    }
+
+    @Benchmark
+    public boolean uncompiledUserHasAccess() {
+        return StingrayEffectivePolicyEngineTest.uncompiledUserHasAccess(accessManager, "john", assignedGroups, "write");
+    }
+
+    @Benchmark
+    public boolean compiledUserHasAccess() {
+        return accessManager.userHasAccess("john", assignedGroups, "write");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DefaultStingrayAccessManagerBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,120 @@
+package no.cantara.stingray.security.authorization;
+
+import no.cantara.config.ApplicationProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StingrayEffectivePolicyEngineTest {
+
+    static DefaultStingrayAccessManager createAccessManager(String maxEntries) {
+        return new DefaultStingrayAccessManager("test", ApplicationProperties.builder()
+                .values()
+                .put("actions", "read,write,delete")
+                .put("policy.read-only.allow", "read")
+                .put("policy.writer.allow", "read,write,audit")
+                .put("policy.no-delete.deny", "delete")
+                .put("role.reader.policies", "read-only")
+                .put("role.writer.policies", "writer")
+                .put("group.readers.roles", "reader")
+                .put("group.writers.roles", "writer")
+                .put("group.safe.policies", "no-delete")
+                .put("group.service.policies", "serviceaccess")
+                .put("group.admins.roles", "superuser")
+                .put("user.john.groups", "writers")
+                .put("user.jane.policies", "no-delete")
+                .put("application.myapp.groups", "readers")
+                .put("default.user-group", "readers")
+                .put("effective-policy-cache.max-entries", maxEntries)
+                .end()
+                .build());
+    }
+
+    /**
+     * The access decision as it was computed before effective policies were compiled and cached.
+     */
+    static boolean uncompiledUserHasAccess(DefaultStingrayAccessManager accessManager, String userId, List<String> assignedGroups, String actionValue) {
+        StingrayConfiguredUserPermissions cup = accessManager.configuredUserPermissionsByUserId.get(userId);
+        StingrayPolicy.Builder effectivePolicyBuilder = StingrayPolicy.builder()
+                .policyId("effective-dynamic-policy-for-user-" + userId)
+                .aggregate(cup != null ? cup.getEffectivePolicy() : accessManager.defaultUserPermissions.getEffectivePolicy());
+        if (assignedGroups != null && assignedGroups.size() > 0) {
+            effectivePolicyBuilder.aggregate(assignedGroups.stream()
+                    .map(accessManager.groupById::get)
+                    .filter(Objects::nonNull)
+                    .map(StingrayGroup::getPolicy));
+        }
+        StingrayServiceAction action = new StingrayServiceAction(accessManager.actionService, actionValue.trim());
+        return effectivePolicyBuilder.build().decidePermission(action).isAllowed();
+    }
+
+    @Test
+    public void thatCompiledDecisionsMatchUncompiledDecisions() {
+        DefaultStingrayAccessManager accessManager = createAccessManager("1000");
+        List<String> userIds = Arrays.asList("john", "jane", "unknown");
+        List<List<String>> groupCombinations = Arrays.asList(
+                null,
+                Collections.emptyList(),
+                Collections.singletonList("badgroup"),
+                Collections.singletonList("readers"),
+                Arrays.asList("writers", "safe"),
+                Arrays.asList("safe", "writers"),
+                Arrays.asList("safe", "badgroup", "writers", "safe"),
+                Collections.singletonList("service"),
+                Arrays.asList("service", "safe"),
+                Collections.singletonList("admins"),
+                Arrays.asList("admins", "blacklist")
+        );
+        List<String> actions = Arrays.asList("read", "write", "delete", "audit", "undeclared", " read ");
+        for (int i = 0; i < 2; i++) { // second round is served from cache
+            for (String userId : userIds) {
+                for (List<String> groups : groupCombinations) {
+                    for (String action : actions) {
+                        assertEquals(uncompiledUserHasAccess(accessManager, userId, groups, action), accessManager.userHasAccess(userId, groups, action),
+                                String.format("user: %s, groups: %s, action: %s", userId, groups, action));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void thatGroupOrderAndUnknownGroupsShareDecisionTable() {
+        DefaultStingrayAccessManager accessManager = createAccessManager("1000");
+        StingrayEffectivePolicyEngine engine = accessManager.effectivePolicyEngine;
+        StingrayPolicy configuredPolicy = accessManager.defaultUserPermissions.getEffectivePolicy();
+        StingrayEffectivePolicyEngine.DecisionTable table = engine.decisionTable(configuredPolicy, Arrays.asList("writers", "safe"));
+        assertSame(table, engine.decisionTable(configuredPolicy, Arrays.asList("safe", "writers")));
+        assertSame(table, engine.decisionTable(configuredPolicy, Arrays.asList("safe", "badgroup", "writers")));
+        assertSame(table, engine.decisionTable(configuredPolicy, Arrays.asList("safe", "writers")));
+        assertTrue(accessManager.userHasAccess("someuser", Arrays.asList("safe", "writers"), "write"));
+        assertFalse(accessManager.userHasAccess("someuser", Arrays.asList("safe", "writers"), "delete"));
+    }
+
+    @Test
+    public void thatCacheIsBounded() {
+        DefaultStingrayAccessManager accessManager = createAccessManager("3");
+        List<List<String>> groupCombinations = Arrays.asList(
+                Collections.singletonList("readers"),
+                Collections.singletonList("writers"),
+                Collections.singletonList("safe"),
+                Collections.singletonList("service"),
+                Collections.singletonList("admins"),
+                Arrays.asList("readers", "writers")
+        );
+        for (List<String> groups : groupCombinations) {
+            for (String action : Arrays.asList("read", "write", "delete")) {
+                assertEquals(uncompiledUserHasAccess(accessManager, "someuser", groups, action), accessManager.userHasAccess("someuser", groups, action));
+            }
+        }
+        assertTrue(accessManager.effectivePolicyEngine.cachedDecisionTables() <= 3);
+    }
+}
@@ -0,0 +1,103 @@
+package no.cantara.stingray.security.authorization;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StingrayPolicyTest {
+
+    static final String[] SERVICES = {"*", "svc1", "svc2", "svc3"};
+    static final String[] ACTIONS = {"*", "read", "write", "delete", "admin", "audit"};
+
+    /**
+     * The permission decision as it was implemented before policies were compiled, used as reference.
+     */
+    static StingrayPermissionDecision referenceDecidePermission(StingrayPolicy policy, StingrayServiceAction action) {
+        Map<StingrayServiceAction, StingrayPermission> permissionByAction = policy.permissionByAction;
+        StingrayPermission allActionsOnAllServicesPermission = permissionByAction.get(StingrayServiceAction.ALL_ACTIONS_ON_ALL_SERVICES);
+        if (StingrayPermission.DENY == allActionsOnAllServicesPermission) {
+            return StingrayPermissionDecision.EXPLICITLY_DENIED;
+        }
+        StingrayPermission allActionsOnServicePermission = permissionByAction.get(new StingrayServiceAction(action.getService(), "*"));
+        if (StingrayPermission.DENY == allActionsOnServicePermission) {
+            return StingrayPermissionDecision.EXPLICITLY_DENIED;
+        }
+        StingrayPermission actionPermission = permissionByAction.get(action);
+        if (StingrayPermission.DENY == actionPermission) {
+            return StingrayPermissionDecision.EXPLICITLY_DENIED;
+        }
+        if (StingrayPermission.ALLOW == allActionsOnAllServicesPermission
+                || StingrayPermission.ALLOW == allActionsOnServicePermission
+                || StingrayPermission.ALLOW == actionPermission) {
+            return StingrayPermissionDecision.ALLOWED;
+        }
+        return StingrayPermissionDecision.IMPLICITLY_DENIED;
+    }
+
+    static StingrayPolicy randomPolicy(Random random) {
+        StingrayPolicy.Builder builder = StingrayPolicy.builder().policyId("random");
+        int n = random.nextInt(8);
+        for (int i = 0; i < n; i++) {
+            StingrayServiceAction action = new StingrayServiceAction(SERVICES[random.nextInt(SERVICES.length)], ACTIONS[random.nextInt(ACTIONS.length)]);
+            if (random.nextBoolean()) {
+                builder.allow(action);
+            } else {
+                builder.deny(action);
+            }
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void thatCompiledDecisionsMatchReferenceDecisionsForRandomPolicies() {
+        long seed = 20221018; // fixed, so that a failure can be reproduced
+        Random random = new Random(seed);
+        for (int i = 0; i < 10000; i++) {
+            StingrayPolicy policy = randomPolicy(random);
+            if (random.nextInt(3) == 0) {
+                policy = StingrayPolicy.builder()
+                        .policyId("aggregated")
+                        .aggregate(policy, randomPolicy(random), randomPolicy(random))
+                        .build();
+            }
+            for (int s = 1; s < SERVICES.length; s++) {
+                for (int a = 1; a < ACTIONS.length; a++) {
+                    StingrayServiceAction action = new StingrayServiceAction(SERVICES[s], ACTIONS[a]);
+                    assertEquals(referenceDecidePermission(policy, action), policy.decidePermission(action),
+                            String.format("seed: %d, policy: %s, action: %s", seed, policy.toJson(), action));
+                }
+            }
+            StingrayServiceAction neverInternedAction = new StingrayServiceAction("svc1", "never-interned-" + i);
+            assertEquals(referenceDecidePermission(policy, neverInternedAction), policy.decidePermission(neverInternedAction),
+                    String.format("seed: %d, policy: %s, action: %s", seed, policy.toJson(), neverInternedAction));
+        }
+    }
+
+    @Test
+    public void thatDenyWinsOverAllow() {
+        StingrayPolicy policy = StingrayPolicy.builder()
+                .policyId("deny-wins")
+                .allow(StingrayServiceAction.ALL_ACTIONS_ON_ALL_SERVICES)
+                .allowAllActionsOnService("svc1")
+                .denySomeActionsOnService("svc1", "delete")
+                .denyAllActionsOnService("svc2")
+                .build();
+        assertEquals(StingrayPermissionDecision.ALLOWED, policy.decidePermission(StingrayServiceAction.from("svc1:read")));
+        assertEquals(StingrayPermissionDecision.EXPLICITLY_DENIED, policy.decidePermission(StingrayServiceAction.from("svc1:delete")));
+        assertEquals(StingrayPermissionDecision.EXPLICITLY_DENIED, policy.decidePermission(StingrayServiceAction.from("svc2:read")));
+        assertEquals(StingrayPermissionDecision.ALLOWED, policy.decidePermission(StingrayServiceAction.from("svc3:read")));
+        assertEquals(StingrayPermissionDecision.IMPLICITLY_DENIED, StingrayPolicy.builder().policyId("empty").build()
+                .decidePermission(StingrayServiceAction.from("svc1:read")));
+    }
+
+    @Test
+    public void thatWildcardActionsCannotBeChecked() {
+        StingrayPolicy policy = StingrayPolicy.builder().policyId("any").allow("svc1:read").build();
+        assertThrows(IllegalArgumentException.class, () -> policy.decidePermission(StingrayServiceAction.from("svc1:*")));
+        assertThrows(IllegalArgumentException.class, () -> policy.decidePermission(StingrayServiceAction.from("*:read")));
+    }
+}
@@ -0,0 +1,105 @@
+package no.cantara.stingray.sql.test.embedded;
+
+import com.codahale.metrics.MetricRegistry;
+import no.cantara.config.ApplicationProperties;
+import no.cantara.config.ProviderLoader;
+import no.cantara.stingray.sql.StingrayFlywayMigrationHelper;
+import no.cantara.stingray.sql.StingraySqlDatasource;
+import no.cantara.stingray.sql.StingraySqlDatasourceFactory;
+import no.cantara.stingray.sql.StingraySqlException;
+import no.cantara.stingray.sql.StingraySqlRowBinder;
+import no.cantara.stingray.sql.metrics.StingrayInstrumentedSqlDatasource;
+import no.cantara.stingray.sql.postgres.StingrayPostgresCopy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StingrayInstrumentedDataSourceTest {
+
+    static StingraySqlDatasource stingraySqlDatasource;
+
+    @BeforeAll
+    public static void initDatabase() {
+        ApplicationProperties config = ApplicationProperties.builder()
+                .classpathPropertiesFile("embedded.properties")
+                .build();
+        StingraySqlDatasource creationDatasource = ProviderLoader.configure(config.subTree("flyway.creation.config"), "embedded", StingraySqlDatasourceFactory.class);
+        StingrayFlywayMigrationHelper.defaultCreation(
+                "embeddedpgtest", creationDatasource,
+                config.get("flyway.migration.config.dataSource.databaseName"),
+                config.get("flyway.migration.config.dataSource.user"),
+                config.get("flyway.migration.config.dataSource.password"),
+                config.get("database.config.dataSource.databaseName"),
+                config.get("database.config.dataSource.user"),
+                config.get("database.config.dataSource.password")
+        ).upgradeDatabase();
+        creationDatasource.close();
+        StingraySqlDatasource migrationDatasource = ProviderLoader.configure(config.subTree("flyway.migration.config"), "embedded", StingraySqlDatasourceFactory.class);
+        StingrayFlywayMigrationHelper.forMigration("db/migration", migrationDatasource, config.get("database.config.dataSource.user")).upgradeDatabase();
+        migrationDatasource.close();
+        stingraySqlDatasource = ProviderLoader.configure(config.subTree("database.config"), "embedded", StingraySqlDatasourceFactory.class);
+    }
+
+    @AfterAll
+    public static void closeDatabase() {
+        stingraySqlDatasource.close();
+    }
+
+    @Test
+    public void thatStatementsAreTimedPerFingerprint() {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        StingraySqlDatasource instrumented = StingrayInstrumentedSqlDatasource.instrument(stingraySqlDatasource, metricRegistry);
+        instrumented.runInTransaction(tx -> {
+            try (PreparedStatement ps = tx.getConnection().prepareStatement("DELETE FROM Person")) {
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                throw new StingraySqlException(e);
+            }
+        });
+        instrumented.batchWriter("INSERT INTO Person(person_id, firstname, lastname) VALUES(?,?,?)")
+                .batchSize(10)
+                .build()
+                .write(IntStream.range(0, 25).mapToObj(i -> (StingraySqlRowBinder) p -> p
+                        .setString(1, "person-" + i)
+                        .setString(2, "John")
+                        .setString(3, "Smith")));
+        instrumented.runInTransaction(tx -> {
+            for (int i = 0; i < 3; i++) {
+                try (PreparedStatement ps = tx.getConnection().prepareStatement("SELECT person_id FROM Person WHERE person_id IN ('person-" + i + "', 'person-10')");
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                    }
+                } catch (SQLException e) {
+                    throw new StingraySqlException(e);
+                }
+            }
+            // unwrap reaches the driver connection through the instrumentation
+            StingrayPostgresCopy.of(tx).copyInCsv("COPY Person(person_id, firstname, lastname) FROM STDIN (FORMAT csv)", writer -> writer.row("person-copy", "Jane", "Doe"));
+        });
+
+        String insert = "statements.INSERT INTO Person(person_id, firstname, lastname) VALUES(?)";
+        assertEquals(3, metricRegistry.timer(insert).getCount());
+        assertEquals(25, sum(metricRegistry.histogram(insert + ".rows").getSnapshot().getValues()));
+        String batches = "batches.INSERT INTO Person(person_id, firstname, lastname) VALUES(?)";
+        assertEquals(3, metricRegistry.timer(batches).getCount());
+        assertEquals(25, metricRegistry.meter(batches + ".rows").getCount());
+        String select = "statements.SELECT person_id FROM Person WHERE person_id IN (?)";
+        assertEquals(3, metricRegistry.timer(select).getCount());
+        assertEquals(2, metricRegistry.histogram(select + ".rows").getSnapshot().getMax());
+    }
+
+    static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+}
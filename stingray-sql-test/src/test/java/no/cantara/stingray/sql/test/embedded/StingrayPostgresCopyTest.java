@@ -0,0 +1,158 @@
+package no.cantara.stingray.sql.test.embedded;
+
+import no.cantara.config.ApplicationProperties;
+import no.cantara.config.ProviderLoader;
+import no.cantara.stingray.sql.StingrayFlywayMigrationHelper;
+import no.cantara.stingray.sql.StingraySqlDatasource;
+import no.cantara.stingray.sql.StingraySqlDatasourceFactory;
+import no.cantara.stingray.sql.StingraySqlException;
+import no.cantara.stingray.sql.postgres.StingrayPostgresCopy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StingrayPostgresCopyTest {
+
+    static StingraySqlDatasource stingraySqlDatasource;
+
+    @BeforeAll
+    public static void initDatabase() {
+        ApplicationProperties config = ApplicationProperties.builder()
+                .classpathPropertiesFile("embedded.properties")
+                .build();
+        StingraySqlDatasource creationDatasource = ProviderLoader.configure(config.subTree("flyway.creation.config"), "embedded", StingraySqlDatasourceFactory.class);
+        StingrayFlywayMigrationHelper.defaultCreation(
+                "embeddedpgtest", creationDatasource,
+                config.get("flyway.migration.config.dataSource.databaseName"),
+                config.get("flyway.migration.config.dataSource.user"),
+                config.get("flyway.migration.config.dataSource.password"),
+                config.get("database.config.dataSource.databaseName"),
+                config.get("database.config.dataSource.user"),
+                config.get("database.config.dataSource.password")
+        ).upgradeDatabase();
+        creationDatasource.close();
+        StingraySqlDatasource migrationDatasource = ProviderLoader.configure(config.subTree("flyway.migration.config"), "embedded", StingraySqlDatasourceFactory.class);
+        StingrayFlywayMigrationHelper.forMigration("db/migration", migrationDatasource, config.get("database.config.dataSource.user")).upgradeDatabase();
+        migrationDatasource.close();
+        stingraySqlDatasource = ProviderLoader.configure(config.subTree("database.config"), "embedded", StingraySqlDatasourceFactory.class);
+    }
+
+    @AfterAll
+    public static void closeDatabase() {
+        stingraySqlDatasource.close();
+    }
+
+    @BeforeEach
+    public void deletePersons() {
+        stingraySqlDatasource.runInTransaction(tx -> {
+            try (PreparedStatement ps = tx.getConnection().prepareStatement("DELETE FROM Person")) {
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                throw new StingraySqlException(e);
+            }
+        });
+    }
+
+    static long countPersons() throws SQLException {
+        try (Connection connection = stingraySqlDatasource.getDataSource().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT count(*) FROM Person");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Test
+    public void thatCsvCanBeLoadedAndExported() throws SQLException {
+        long loaded = stingraySqlDatasource.runInTransaction(tx -> {
+            long rows = StingrayPostgresCopy.of(tx).copyInCsv("COPY Person(person_id, firstname, lastname) FROM STDIN (FORMAT csv)", writer -> {
+                for (int i = 0; i < 10000; i++) {
+                    writer.row("person-" + i, "John, \"Jr\" " + i, i % 2 == 0 ? null : "");
+                }
+            });
+            return rows;
+        });
+        assertEquals(10000, loaded);
+        assertEquals(10000, countPersons());
+        try (Connection connection = stingraySqlDatasource.getDataSource().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT firstname, lastname FROM Person WHERE person_id = ?")) {
+            ps.setString(1, "person-42");
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                assertEquals("John, \"Jr\" 42", rs.getString(1));
+                assertNull(rs.getString(2));
+            }
+            ps.setString(1, "person-43");
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                assertEquals("", rs.getString(2));
+            }
+        }
+
+        StringWriter csv = new StringWriter();
+        long exported = stingraySqlDatasource.runInTransaction(tx -> {
+            return StingrayPostgresCopy.of(tx).copyOut("COPY (SELECT person_id, firstname, lastname FROM Person ORDER BY person_id) TO STDOUT (FORMAT csv)", csv);
+        });
+        assertEquals(10000, exported);
+        assertEquals("person-0,\"John, \"\"Jr\"\" 0\",", csv.toString().substring(0, csv.toString().indexOf('\n')));
+    }
+
+    @Test
+    public void thatBinaryCanBeLoadedAndStreamedOut() throws IOException {
+        long loaded = stingraySqlDatasource.runInTransaction(tx -> {
+            long rows = StingrayPostgresCopy.of(tx).copyInBinary("COPY Person(person_id, firstname, lastname) FROM STDIN (FORMAT binary)", writer -> {
+                for (int i = 0; i < 5000; i++) {
+                    writer.row(3)
+                            .writeText("person-" + i)
+                            .writeText("Jane")
+                            .writeText(i % 2 == 0 ? null : "Smith");
+                }
+            });
+            return rows;
+        });
+        assertEquals(5000, loaded);
+
+        long lines = 0;
+        try (Connection connection = stingraySqlDatasource.getDataSource().getConnection();
+             InputStream in = new StingrayPostgresCopy(connection).copyOut("COPY Person(person_id, lastname) TO STDOUT (FORMAT csv)");
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            while (reader.readLine() != null) {
+                lines++;
+            }
+        } catch (SQLException e) {
+            throw new StingraySqlException(e);
+        }
+        assertEquals(5000, lines);
+    }
+
+    @Test
+    public void thatFailedLoadIsCancelled() throws SQLException {
+        assertThrows(StingraySqlException.class, () -> stingraySqlDatasource.runInTransaction(tx -> {
+            StingrayPostgresCopy.of(tx).copyInCsv("COPY Person(person_id, firstname, lastname) FROM STDIN (FORMAT csv)", writer -> {
+                writer.row("person-1", "John", "Smith");
+                throw new IOException("source failed");
+            });
+        }));
+        assertEquals(0, countPersons());
+        stingraySqlDatasource.runInTransaction(tx -> {
+            StingrayPostgresCopy.of(tx).copyInCsv("COPY Person(person_id, firstname, lastname) FROM STDIN (FORMAT csv)", writer -> writer.row("person-1", "John", "Smith"));
+        });
+        assertEquals(1, countPersons());
+    }
+}
@@ -0,0 +1,142 @@
+package no.cantara.stingray.sql.test.embedded;
+
+import no.cantara.config.ApplicationProperties;
+import no.cantara.config.ProviderLoader;
+import no.cantara.stingray.sql.StingrayFlywayMigrationHelper;
+import no.cantara.stingray.sql.StingraySqlBatchWriter;
+import no.cantara.stingray.sql.StingraySqlDatasource;
+import no.cantara.stingray.sql.StingraySqlDatasourceFactory;
+import no.cantara.stingray.sql.StingraySqlException;
+import no.cantara.stingray.sql.StingraySqlRowBinder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StingraySqlBatchWriterTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StingraySqlBatchWriterTest.class);
+
+    static final String INSERT_PERSON = "INSERT INTO Person(person_id, firstname, lastname) VALUES(?,?,?)";
+
+    static StingraySqlDatasource stingraySqlDatasource;
+
+    @BeforeAll
+    public static void initDatabase() {
+        ApplicationProperties config = ApplicationProperties.builder()
+                .classpathPropertiesFile("embedded.properties")
+                .build();
+        StingraySqlDatasource creationDatasource = ProviderLoader.configure(config.subTree("flyway.creation.config"), "embedded", StingraySqlDatasourceFactory.class);
+        StingrayFlywayMigrationHelper.defaultCreation(
+                "embeddedpgtest", creationDatasource,
+                config.get("flyway.migration.config.dataSource.databaseName"),
+                config.get("flyway.migration.config.dataSource.user"),
+                config.get("flyway.migration.config.dataSource.password"),
+                config.get("database.config.dataSource.databaseName"),
+                config.get("database.config.dataSource.user"),
+                config.get("database.config.dataSource.password")
+        ).upgradeDatabase();
+        creationDatasource.close();
+        StingraySqlDatasource migrationDatasource = ProviderLoader.configure(config.subTree("flyway.migration.config"), "embedded", StingraySqlDatasourceFactory.class);
+        StingrayFlywayMigrationHelper.forMigration("db/migration", migrationDatasource, config.get("database.config.dataSource.user")).upgradeDatabase();
+        migrationDatasource.close();
+        stingraySqlDatasource = ProviderLoader.configure(config.subTree("database.config"), "embedded", StingraySqlDatasourceFactory.class);
+    }
+
+    @AfterAll
+    public static void closeDatabase() {
+        stingraySqlDatasource.close();
+    }
+
+    @BeforeEach
+    public void deletePersons() {
+        stingraySqlDatasource.runInTransaction(tx -> {
+            try (PreparedStatement ps = tx.getConnection().prepareStatement("DELETE FROM Person")) {
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                throw new StingraySqlException(e);
+            }
+        });
+    }
+
+    static Stream<StingraySqlRowBinder> persons(int count) {
+        return IntStream.range(0, count).mapToObj(i -> p -> p
+                .setString(1, "person-" + i)
+                .setString(2, "John-" + i)
+                .setString(3, "Smith"));
+    }
+
+    static long countPersons() throws SQLException {
+        try (Connection connection = stingraySqlDatasource.getDataSource().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT count(*) FROM Person");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Test
+    public void thatRowsAreWrittenInBatches() throws SQLException {
+        AtomicInteger batches = new AtomicInteger();
+        StingraySqlBatchWriter.Result result = stingraySqlDatasource.batchWriter(INSERT_PERSON)
+                .batchSize(100)
+                .batchListener((rows, durationNanos) -> batches.incrementAndGet())
+                .build()
+                .write(persons(1050));
+        log.info("Batched: {}", result);
+        assertEquals(1050, result.rows());
+        assertEquals(11, result.batches());
+        assertEquals(11, batches.get());
+        assertEquals(1, result.commits());
+        assertEquals(1050, countPersons());
+    }
+
+    @Test
+    public void thatRowsAreWrittenWithMultiRowValues() throws SQLException {
+        StingraySqlBatchWriter.Result result = stingraySqlDatasource.batchWriter(INSERT_PERSON)
+                .batchSize(500)
+                .rewriteValues(true)
+                .commitEvery(1000)
+                .build()
+                .write(persons(2345));
+        log.info("Multi-row VALUES: {}", result);
+        assertEquals(2345, result.rows());
+        assertEquals(5, result.batches());
+        assertEquals(3, result.commits());
+        assertEquals(2345, countPersons());
+        try (Connection connection = stingraySqlDatasource.getDataSource().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT firstname FROM Person WHERE person_id = ?")) {
+            ps.setString(1, "person-2344");
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                assertEquals("John-2344", rs.getString(1));
+            }
+        }
+    }
+
+    @Test
+    public void thatCommittedRowsRemainWhenWriteFails() throws SQLException {
+        List<StingraySqlRowBinder> rows = Stream.concat(persons(250), persons(1)).collect(Collectors.toList());
+        StingraySqlBatchWriter writer = stingraySqlDatasource.batchWriter(INSERT_PERSON)
+                .batchSize(100)
+                .commitEvery(200)
+                .build();
+        assertThrows(StingraySqlException.class, () -> writer.write(rows)); // duplicate person-0 in the last batch
+        assertEquals(200, countPersons());
+    }
+}
@@ -0,0 +1,129 @@
+package no.cantara.stingray.sql.test.embedded;
+
+import no.cantara.config.ApplicationProperties;
+import no.cantara.config.ProviderLoader;
+import no.cantara.stingray.sql.StingrayFlywayMigrationHelper;
+import no.cantara.stingray.sql.StingraySqlDatasource;
+import no.cantara.stingray.sql.StingraySqlDatasourceFactory;
+import no.cantara.stingray.sql.StingraySqlException;
+import no.cantara.stingray.sql.StingraySqlRowBinder;
+import no.cantara.stingray.sql.StingraySqlTransaction;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StingraySqlStreamTest {
+
+    static StingraySqlDatasource stingraySqlDatasource;
+
+    @BeforeAll
+    public static void initDatabase() {
+        ApplicationProperties config = ApplicationProperties.builder()
+                .classpathPropertiesFile("embedded.properties")
+                .build();
+        StingraySqlDatasource creationDatasource = ProviderLoader.configure(config.subTree("flyway.creation.config"), "embedded", StingraySqlDatasourceFactory.class);
+        StingrayFlywayMigrationHelper.defaultCreation(
+                "embeddedpgtest", creationDatasource,
+                config.get("flyway.migration.config.dataSource.databaseName"),
+                config.get("flyway.migration.config.dataSource.user"),
+                config.get("flyway.migration.config.dataSource.password"),
+                config.get("database.config.dataSource.databaseName"),
+                config.get("database.config.dataSource.user"),
+                config.get("database.config.dataSource.password")
+        ).upgradeDatabase();
+        creationDatasource.close();
+        StingraySqlDatasource migrationDatasource = ProviderLoader.configure(config.subTree("flyway.migration.config"), "embedded", StingraySqlDatasourceFactory.class);
+        StingrayFlywayMigrationHelper.forMigration("db/migration", migrationDatasource, config.get("database.config.dataSource.user")).upgradeDatabase();
+        migrationDatasource.close();
+        stingraySqlDatasource = ProviderLoader.configure(config.subTree("database.config"), "embedded", StingraySqlDatasourceFactory.class);
+        stingraySqlDatasource.runInTransaction(tx -> {
+            try (PreparedStatement ps = tx.getConnection().prepareStatement("DELETE FROM Person")) {
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                throw new StingraySqlException(e);
+            }
+        });
+        stingraySqlDatasource.batchWriter("INSERT INTO Person(person_id, firstname, lastname) VALUES(?,?,?)")
+                .rewriteValues(true)
+                .build()
+                .write(IntStream.range(0, 10000).mapToObj(i -> (StingraySqlRowBinder) p -> p
+                        .setString(1, String.format("person-%05d", i))
+                        .setString(2, "John-" + i)
+                        .setString(3, i % 2 == 0 ? "Smith" : "Doe")));
+    }
+
+    @AfterAll
+    public static void closeDatabase() {
+        stingraySqlDatasource.close();
+    }
+
+    @Test
+    public void thatAllRowsAreStreamed() {
+        try (StingraySqlTransaction tx = stingraySqlDatasource.createTransaction();
+             Stream<String> ids = tx.stream("SELECT person_id FROM Person WHERE lastname = ? ORDER BY person_id",
+                     p -> p.setString(1, "Smith"),
+                     rs -> rs.getString(1),
+                     100)) {
+            List<String> smiths = ids.collect(Collectors.toList());
+            assertEquals(5000, smiths.size());
+            assertEquals("person-00000", smiths.get(0));
+            assertEquals("person-09998", smiths.get(4999));
+        }
+    }
+
+    @Test
+    public void thatRowsAreReadLazily() {
+        AtomicInteger mapped = new AtomicInteger();
+        try (StingraySqlTransaction tx = stingraySqlDatasource.createTransaction()) {
+            try (Stream<String> names = tx.stream("SELECT firstname FROM Person ORDER BY person_id", null, rs -> {
+                mapped.incrementAndGet();
+                return rs.getString(1);
+            }, 50)) {
+                assertEquals(List.of("John-0", "John-1", "John-2"), names.limit(3).collect(Collectors.toList()));
+            }
+            assertEquals(3, mapped.get());
+            // the transaction can be used after the stream is closed
+            try (Stream<Long> count = tx.stream("SELECT count(*) FROM Person", null, rs -> rs.getLong(1))) {
+                assertEquals(10000L, count.findFirst().orElseThrow());
+            }
+        }
+    }
+
+    @Test
+    public void thatStreamingInAutocommitModeIsRejected() throws SQLException {
+        try (Connection connection = stingraySqlDatasource.getDataSource().getConnection()) {
+            connection.setAutoCommit(true);
+            StingraySqlTransaction autocommit = new StingraySqlTransaction() {
+                @Override
+                public void commit() {
+                }
+
+                @Override
+                public void rollback() {
+                }
+
+                @Override
+                public Connection getConnection() {
+                    return connection;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+            assertThrows(StingraySqlException.class, () -> autocommit.stream("SELECT person_id FROM Person", null, rs -> rs.getString(1)));
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package no.cantara.stingray.sql.test.routing;
+
+import com.codahale.metrics.health.HealthCheck;
+import no.cantara.config.ApplicationProperties;
+import no.cantara.config.ProviderLoader;
+import no.cantara.stingray.sql.StingraySqlDatasourceFactory;
+import no.cantara.stingray.sql.StingraySqlTransaction;
+import no.cantara.stingray.sql.hikari.HikariStingraySqlDatasource;
+import no.cantara.stingray.sql.hikari.HikariStingraySqlDatasourceFactory;
+import no.cantara.stingray.sql.routing.StingrayRoutingSqlDatasource;
+import no.cantara.stingray.sql.test.embedded.EmbeddedPostgresStingraySqlDatasource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StingrayRoutingSqlDatasourceTest {
+
+    static String jdbcUrl;
+
+    @BeforeAll
+    public static void initDatabase() {
+        EmbeddedPostgresStingraySqlDatasource embedded = new EmbeddedPostgresStingraySqlDatasource("postgres", "postgres", "postgres");
+        jdbcUrl = embedded.getEmbeddedPostgres().getJdbcUrl("postgres", "postgres");
+    }
+
+    static HikariStingraySqlDatasource pool(String name, String jdbcUrl) {
+        Map<String, String> config = new LinkedHashMap<>();
+        config.put("poolName", name);
+        config.put("jdbcUrl", jdbcUrl);
+        config.put("username", "postgres");
+        config.put("password", "postgres");
+        config.put("maximumPoolSize", "4");
+        config.put("connectionTimeout", "250");
+        config.put("initializationFailTimeout", "-1");
+        config.put("dataSource.ApplicationName", name); // tells which pool served a transaction
+        return new HikariStingraySqlDatasourceFactory().create(config);
+    }
+
+    static HikariStingraySqlDatasource deadPool(String name) {
+        return pool(name, "jdbc:postgresql://localhost:1/postgres");
+    }
+
+    static String pool(StingraySqlTransaction transaction) throws SQLException {
+        try (PreparedStatement ps = transaction.getConnection().prepareStatement("SELECT current_setting('application_name')");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    static int active(HikariStingraySqlDatasource pool) {
+        return pool.getDataSource().getHikariPoolMXBean().getActiveConnections();
+    }
+
+    static void awaitChecked(StingrayRoutingSqlDatasource datasource) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (HealthCheck healthCheck : datasource.healthChecks().values()) {
+            while (healthCheck.execute().getMessage().equals("not checked") && System.nanoTime() - deadline < 0) {
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    static void awaitHealth(StingrayRoutingSqlDatasource datasource, String pool, boolean healthy) throws InterruptedException {
+        HealthCheck healthCheck = datasource.healthChecks().get(pool);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (healthCheck.execute().isHealthy() != healthy && System.nanoTime() - deadline < 0) {
+            Thread.sleep(20);
+        }
+        assertEquals(healthy, healthCheck.execute().isHealthy(), healthCheck.execute().getMessage());
+    }
+
+    @Test
+    public void thatReadOnlyTransactionsUseTheLeastBusyReplica() throws SQLException, InterruptedException {
+        HikariStingraySqlDatasource primary = pool("primary", jdbcUrl);
+        HikariStingraySqlDatasource replica1 = pool("replica-1", jdbcUrl);
+        HikariStingraySqlDatasource replica2 = pool("replica-2", jdbcUrl);
+        StingrayRoutingSqlDatasource datasource = new StingrayRoutingSqlDatasource(primary, Map.of("replica-1", replica1, "replica-2", replica2), null, Duration.ofSeconds(60));
+        awaitChecked(datasource); // no health-check connections are borrowed until the next check
+        try (StingraySqlTransaction first = datasource.createReadOnlyTransaction();
+             StingraySqlTransaction second = datasource.createReadOnlyTransaction()) {
+            assertTrue(first.getConnection().isReadOnly());
+            assertTrue(pool(first).startsWith("replica-"));
+            assertTrue(pool(second).startsWith("replica-"));
+            assertEquals(1, active(replica1));
+            assertEquals(1, active(replica2));
+            assertEquals(0, active(primary));
+            try (PreparedStatement ps = first.getConnection().prepareStatement("CREATE TEMPORARY TABLE routing_test(id int)")) {
+                assertThrows(SQLException.class, ps::executeUpdate); // read-only transaction
+            }
+        }
+        try (StingraySqlTransaction transaction = datasource.createTransaction()) {
+            assertFalse(transaction.getConnection().isReadOnly());
+            assertEquals("primary", pool(transaction));
+        }
+        datasource.close();
+    }
+
+    @Test
+    public void thatUnhealthyReplicasAreAvoided() throws SQLException, InterruptedException {
+        HikariStingraySqlDatasource primary = pool("primary", jdbcUrl);
+        HikariStingraySqlDatasource dead = deadPool("dead");
+        HikariStingraySqlDatasource live = pool("live", jdbcUrl);
+        Map<String, HikariStingraySqlDatasource> replicas = new LinkedHashMap<>();
+        replicas.put("dead", dead);
+        replicas.put("live", live);
+        StingrayRoutingSqlDatasource datasource = new StingrayRoutingSqlDatasource(primary, replicas, Duration.ofSeconds(1), Duration.ofMillis(100));
+        try {
+            awaitHealth(datasource, "dead", false);
+            awaitHealth(datasource, "live", true);
+            awaitHealth(datasource, "primary", true);
+            assertTrue(datasource.healthChecks().get("live").execute().getMessage().startsWith("replication lag 0 ms"));
+            for (int i = 0; i < 5; i++) {
+                try (StingraySqlTransaction transaction = datasource.createReadOnlyTransaction()) {
+                    assertEquals("live", pool(transaction));
+                }
+            }
+        } finally {
+            datasource.close();
+        }
+    }
+
+    @Test
+    public void thatPrimaryServesReadsWhenNoReplicaIsHealthy() throws SQLException {
+        HikariStingraySqlDatasource primary = pool("primary", jdbcUrl);
+        StingrayRoutingSqlDatasource datasource = new StingrayRoutingSqlDatasource(primary, Map.of("dead", deadPool("dead")), null, Duration.ofSeconds(60));
+        try {
+            // the replica is assumed healthy until checked, and is marked unhealthy when it fails to provide a connection
+            try (StingraySqlTransaction transaction = datasource.createReadOnlyTransaction()) {
+                assertTrue(transaction.getConnection().isReadOnly());
+                assertEquals("primary", pool(transaction));
+            }
+            assertFalse(datasource.healthChecks().get("dead").execute().isHealthy());
+        } finally {
+            datasource.close();
+        }
+    }
+
+    @Test
+    public void thatFactoryCreatesPrimaryAndReplicas() {
+        ApplicationProperties config = ApplicationProperties.builder()
+                .values()
+                .put("primary.jdbcUrl", jdbcUrl)
+                .put("primary.username", "postgres")
+                .put("primary.password", "postgres")
+                .put("replica.a.jdbcUrl", jdbcUrl)
+                .put("replica.a.username", "postgres")
+                .put("replica.a.password", "postgres")
+                .put("replica.b.jdbcUrl", jdbcUrl)
+                .put("replica.b.username", "postgres")
+                .put("replica.b.password", "postgres")
+                .put("max-replication-lag-ms", "5000")
+                .end()
+                .build();
+        StingrayRoutingSqlDatasource datasource = (StingrayRoutingSqlDatasource) ProviderLoader.configure(config, "routing", StingraySqlDatasourceFactory.class);
+        try {
+            assertEquals("primary", datasource.getPrimary().getDataSource().getPoolName());
+            assertEquals(List.of("a", "b"), List.copyOf(datasource.getReplicas().keySet()));
+            assertEquals(List.of("primary", "a", "b"), List.copyOf(datasource.healthChecks().keySet()));
+        } finally {
+            datasource.close();
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package no.cantara.stingray.sql;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Writes rows with a single statement template, sending rows to the database in batches of batch-size rows rather
+ * than one round-trip per row. Optionally rewrites INSERT ... VALUES (...) to insert many rows per statement, which
+ * is considerably faster with postgres, and commits every commit-every rows so that a long running import does not
+ * hold one huge transaction. When commit-every is 0 all rows are written in a single transaction.
+ * <p>
+ * If writing fails, the uncommitted rows are rolled back and a {@link StingraySqlException} is thrown, rows committed
+ * before the failure remain.
+ */
+public class StingraySqlBatchWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(StingraySqlBatchWriter.class);
+
+    public static Builder builder(StingraySqlTransactionFactory transactionFactory) {
+        return new Builder(transactionFactory);
+    }
+
+    /**
+     * Notified after each batch has been executed, e.g. to record the batch latency in a timer.
+     */
+    @FunctionalInterface
+    public interface BatchListener {
+        void batchExecuted(int rows, long durationNanos);
+    }
+
+    private final StingraySqlTransactionFactory transactionFactory;
+    private final String sql;
+    private final int batchSize;
+    private final long commitEvery;
+    private final StingraySqlValuesRewrite valuesRewrite;
+    private final BatchListener batchListener;
+
+    private StingraySqlBatchWriter(StingraySqlTransactionFactory transactionFactory, String sql, int batchSize, long commitEvery, StingraySqlValuesRewrite valuesRewrite, BatchListener batchListener) {
+        this.transactionFactory = transactionFactory;
+        this.sql = sql;
+        this.batchSize = batchSize;
+        this.commitEvery = commitEvery;
+        this.valuesRewrite = valuesRewrite;
+        this.batchListener = batchListener;
+    }
+
+    /**
+     * Write all rows of the stream. The stream is consumed, but not closed.
+     */
+    public Result write(Stream<? extends StingraySqlRowBinder> rows) throws StingraySqlException {
+        return write(rows.iterator());
+    }
+
+    public Result write(Iterable<? extends StingraySqlRowBinder> rows) throws StingraySqlException {
+        return write(rows.iterator());
+    }
+
+    public Result write(Iterator<? extends StingraySqlRowBinder> rows) throws StingraySqlException {
+        Progress progress = new Progress(System.nanoTime());
+        List<StingraySqlRowBinder> batch = new ArrayList<>(Math.min(batchSize, 10000));
+        Session session = null;
+        try {
+            while (rows.hasNext()) {
+                batch.add(rows.next());
+                if (batch.size() == batchSize) {
+                    if (session == null) {
+                        session = new Session(transactionFactory.createTransaction());
+                    }
+                    session.execute(batch, progress);
+                    batch.clear();
+                    if (commitEvery > 0 && session.uncommittedRows >= commitEvery) {
+                        session.commit(progress);
+                        session.close();
+                        session = null;
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                if (session == null) {
+                    session = new Session(transactionFactory.createTransaction());
+                }
+                session.execute(batch, progress);
+            }
+            if (session != null) {
+                session.commit(progress);
+            }
+        } catch (SQLException e) {
+            if (e instanceof BatchUpdateException && e.getNextException() != null) {
+                e.addSuppressed(e.getNextException()); // the postgres driver puts the actual cause here
+            }
+            throw new StingraySqlException(String.format("Batch write failed after %d committed rows: %s", progress.committedRows, sql), e);
+        } finally {
+            if (session != null) {
+                session.close();
+            }
+        }
+        Result result = new Result(progress, System.nanoTime() - progress.startNanos);
+        log.debug("{}: {}", result, sql);
+        return result;
+    }
+
+    private class Session implements AutoCloseable {
+        final StingraySqlTransaction transaction;
+        final Map<Integer, PreparedStatement> statementByRows = new LinkedHashMap<>();
+        long uncommittedRows;
+
+        Session(StingraySqlTransaction transaction) {
+            this.transaction = transaction;
+        }
+
+        void execute(List<StingraySqlRowBinder> batch, Progress progress) throws SQLException {
+            long start = System.nanoTime();
+            if (valuesRewrite == null) {
+                PreparedStatement statement = statement(1);
+                StingraySqlParameters parameters = new StingraySqlParameters(statement);
+                for (StingraySqlRowBinder row : batch) {
+                    row.bind(parameters);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } else {
+                int rowsPerStatement = Math.min(batchSize, valuesRewrite.maxRowsPerStatement());
+                int fullStatements = batch.size() / rowsPerStatement;
+                if (fullStatements > 0) {
+                    PreparedStatement statement = statement(rowsPerStatement);
+                    StingraySqlParameters parameters = new StingraySqlParameters(statement);
+                    int i = 0;
+                    for (int s = 0; s < fullStatements; s++) {
+                        for (int r = 0; r < rowsPerStatement; r++) {
+                            batch.get(i++).bind(parameters.offset(r * valuesRewrite.parametersPerRow()));
+                        }
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+                int remainingRows = batch.size() - fullStatements * rowsPerStatement;
+                if (remainingRows > 0) {
+                    PreparedStatement statement = statement(remainingRows);
+                    StingraySqlParameters parameters = new StingraySqlParameters(statement);
+                    for (int r = 0; r < remainingRows; r++) {
+                        batch.get(fullStatements * rowsPerStatement + r).bind(parameters.offset(r * valuesRewrite.parametersPerRow()));
+                    }
+                    statement.executeUpdate();
+                }
+            }
+            long durationNanos = System.nanoTime() - start;
+            uncommittedRows += batch.size();
+            progress.batchExecuted(batch.size(), durationNanos);
+            if (batchListener != null) {
+                batchListener.batchExecuted(batch.size(), durationNanos);
+            }
+        }
+
+        PreparedStatement statement(int rows) throws SQLException {
+            PreparedStatement statement = statementByRows.get(rows);
+            if (statement == null) {
+                if (statementByRows.size() >= 2) {
+                    closeStatements(); // only the full and the last partial statement are reused
+                }
+                statement = transaction.getConnection().prepareStatement(valuesRewrite == null ? sql : valuesRewrite.sql(rows));
+                statementByRows.put(rows, statement);
+            }
+            return statement;
+        }
+
+        void commit(Progress progress) {
+            transaction.commit();
+            progress.commits++;
+            progress.committedRows += uncommittedRows;
+            uncommittedRows = 0;
+        }
+
+        void closeStatements() {
+            for (PreparedStatement statement : statementByRows.values()) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    log.warn("While closing batch statement", e);
+                }
+            }
+            statementByRows.clear();
+        }
+
+        @Override
+        public void close() {
+            closeStatements();
+            transaction.close();
+        }
+    }
+
+    private static class Progress {
+        final long startNanos;
+        long rows;
+        long batches;
+        long commits;
+        long committedRows;
+        long totalBatchNanos;
+        long maxBatchNanos;
+
+        Progress(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        void batchExecuted(int rows, long durationNanos) {
+            this.rows += rows;
+            this.batches++;
+            this.totalBatchNanos += durationNanos;
+            this.maxBatchNanos = Math.max(maxBatchNanos, durationNanos);
+        }
+    }
+
+    public static class Result {
+        private final long rows;
+        private final long batches;
+        private final long commits;
+        private final long elapsedNanos;
+        private final long totalBatchNanos;
+        private final long maxBatchNanos;
+
+        private Result(Progress progress, long elapsedNanos) {
+            this.rows = progress.rows;
+            this.batches = progress.batches;
+            this.commits = progress.commits;
+            this.elapsedNanos = elapsedNanos;
+            this.totalBatchNanos = progress.totalBatchNanos;
+            this.maxBatchNanos = progress.maxBatchNanos;
+        }
+
+        public long rows() {
+            return rows;
+        }
+
+        public long batches() {
+            return batches;
+        }
+
+        public long commits() {
+            return commits;
+        }
+
+        public long elapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        /**
+         * @return the mean time to execute a batch, in milliseconds.
+         */
+        public double meanBatchLatencyMs() {
+            return batches == 0 ? 0 : totalBatchNanos / (double) batches / 1_000_000.0;
+        }
+
+        /**
+         * @return the longest time to execute a batch, in milliseconds.
+         */
+        public double maxBatchLatencyMs() {
+            return maxBatchNanos / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows in %d batches and %d commits, %.0f rows/s, batch latency mean %.2f ms, max %.2f ms",
+                    rows, batches, commits, rowsPerSecond(), meanBatchLatencyMs(), maxBatchLatencyMs());
+        }
+    }
+
+    public static class Builder {
+        private final StingraySqlTransactionFactory transactionFactory;
+        private String sql;
+        private int batchSize = 1000;
+        private long commitEvery = 0;
+        private boolean rewriteValues = false;
+        private BatchListener batchListener;
+
+        private Builder(StingraySqlTransactionFactory transactionFactory) {
+            this.transactionFactory = Objects.requireNonNull(transactionFactory);
+        }
+
+        public Builder sql(String sql) {
+            this.sql = sql;
+            return this;
+        }
+
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Commit after the batch that brings the number of uncommitted rows to at least commitEvery, 0 to commit once
+         * when all rows are written.
+         */
+        public Builder commitEvery(long commitEvery) {
+            this.commitEvery = commitEvery;
+            return this;
+        }
+
+        /**
+         * Rewrite the INSERT ... VALUES (...) statement to insert up to batch-size rows with a single statement.
+         */
+        public Builder rewriteValues(boolean rewriteValues) {
+            this.rewriteValues = rewriteValues;
+            return this;
+        }
+
+        public Builder batchListener(BatchListener batchListener) {
+            this.batchListener = batchListener;
+            return this;
+        }
+
+        public StingraySqlBatchWriter build() {
+            Objects.requireNonNull(sql);
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("batchSize must be a positive number");
+            }
+            if (commitEvery < 0) {
+                throw new IllegalArgumentException("commitEvery must be 0 or a positive number");
+            }
+            StingraySqlValuesRewrite valuesRewrite = rewriteValues ? StingraySqlValuesRewrite.parse(sql) : null;
+            return new StingraySqlBatchWriter(transactionFactory, sql, batchSize, commitEvery, valuesRewrite, batchListener);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package no.cantara.stingray.sql;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * The parameters of one row of a prepared statement. Parameter indexes are relative to the row, starting at 1, also
+ * when several rows are bound to the same statement.
+ */
+public class StingraySqlParameters {
+
+    private final PreparedStatement statement;
+    private int offset;
+
+    StingraySqlParameters(PreparedStatement statement) {
+        this.statement = statement;
+    }
+
+    StingraySqlParameters offset(int offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * @return the index in the underlying statement of the given parameter of this row.
+     */
+    public int index(int parameterIndex) {
+        return offset + parameterIndex;
+    }
+
+    public PreparedStatement getStatement() {
+        return statement;
+    }
+
+    public StingraySqlParameters setString(int parameterIndex, String value) throws SQLException {
+        statement.setString(offset + parameterIndex, value);
+        return this;
+    }
+
+    public StingraySqlParameters setInt(int parameterIndex, int value) throws SQLException {
+        statement.setInt(offset + parameterIndex, value);
+        return this;
+    }
+
+    public StingraySqlParameters setLong(int parameterIndex, long value) throws SQLException {
+        statement.setLong(offset + parameterIndex, value);
+        return this;
+    }
+
+    public StingraySqlParameters setDouble(int parameterIndex, double value) throws SQLException {
+        statement.setDouble(offset + parameterIndex, value);
+        return this;
+    }
+
+    public StingraySqlParameters setBoolean(int parameterIndex, boolean value) throws SQLException {
+        statement.setBoolean(offset + parameterIndex, value);
+        return this;
+    }
+
+    public StingraySqlParameters setBigDecimal(int parameterIndex, BigDecimal value) throws SQLException {
+        statement.setBigDecimal(offset + parameterIndex, value);
+        return this;
+    }
+
+    public StingraySqlParameters setBytes(int parameterIndex, byte[] value) throws SQLException {
+        statement.setBytes(offset + parameterIndex, value);
+        return this;
+    }
+
+    public StingraySqlParameters setDate(int parameterIndex, Date value) throws SQLException {
+        statement.setDate(offset + parameterIndex, value);
+        return this;
+    }
+
+    public StingraySqlParameters setTimestamp(int parameterIndex, Timestamp value) throws SQLException {
+        statement.setTimestamp(offset + parameterIndex, value);
+        return this;
+    }
+
+    public StingraySqlParameters setObject(int parameterIndex, Object value) throws SQLException {
+        statement.setObject(offset + parameterIndex, value);
+        return this;
+    }
+
+    public StingraySqlParameters setObject(int parameterIndex, Object value, int sqlType) throws SQLException {
+        statement.setObject(offset + parameterIndex, value, sqlType);
+        return this;
+    }
+
+    public StingraySqlParameters setNull(int parameterIndex, int sqlType) throws SQLException {
+        statement.setNull(offset + parameterIndex, sqlType);
+        return this;
+    }
+}
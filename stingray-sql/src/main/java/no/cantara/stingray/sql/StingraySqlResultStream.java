@@ -0,0 +1,100 @@
+package no.cantara.stingray.sql;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A lazily populated stream of the rows of a query. The driver fetches fetch-size rows at a time from a server side
+ * cursor, which requires the connection to be in a transaction, i.e. not in autocommit mode.
+ */
+class StingraySqlResultStream<T> extends Spliterators.AbstractSpliterator<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(StingraySqlResultStream.class);
+
+    static <T> Stream<T> stream(Connection connection, String sql, StingraySqlRowBinder binder, StingraySqlRowMapper<T> rowMapper, int fetchSize) throws StingraySqlException {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("fetchSize must be a positive number");
+        }
+        PreparedStatement statement = null;
+        try {
+            if (connection.getAutoCommit()) {
+                throw new StingraySqlException("Streaming requires a connection in a transaction, in autocommit mode the driver reads the entire result into memory");
+            }
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            if (binder != null) {
+                binder.bind(new StingraySqlParameters(statement));
+            }
+            ResultSet resultSet = statement.executeQuery();
+            StingraySqlResultStream<T> spliterator = new StingraySqlResultStream<>(statement, resultSet, rowMapper);
+            return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+        } catch (SQLException e) {
+            close(statement);
+            throw new StingraySqlException(e);
+        }
+    }
+
+    private final PreparedStatement statement;
+    private final ResultSet resultSet;
+    private final StingraySqlRowMapper<T> rowMapper;
+    private boolean closed;
+
+    private StingraySqlResultStream(PreparedStatement statement, ResultSet resultSet, StingraySqlRowMapper<T> rowMapper) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED);
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.rowMapper = rowMapper;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (!resultSet.next()) {
+                close(); // release the cursor as soon as all rows are read
+                return false;
+            }
+            action.accept(rowMapper.map(resultSet));
+            return true;
+        } catch (SQLException e) {
+            close();
+            throw new StingraySqlException(e);
+        }
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            resultSet.close();
+        } catch (SQLException e) {
+            log.warn("While closing result set of stream", e);
+        }
+        close(statement);
+    }
+
+    private static void close(PreparedStatement statement) {
+        if (statement == null) {
+            return;
+        }
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            log.warn("While closing statement of stream", e);
+        }
+    }
+}
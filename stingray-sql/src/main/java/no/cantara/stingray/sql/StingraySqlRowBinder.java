@@ -0,0 +1,12 @@
+package no.cantara.stingray.sql;
+
+import java.sql.SQLException;
+
+/**
+ * Binds the parameters of one row of a statement, e.g. {@code p -> { p.setString(1, id); p.setString(2, name); }}.
+ */
+@FunctionalInterface
+public interface StingraySqlRowBinder {
+
+    void bind(StingraySqlParameters parameters) throws SQLException;
+}
@@ -0,0 +1,13 @@
+package no.cantara.stingray.sql;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a result set, must not move the cursor.
+ */
+@FunctionalInterface
+public interface StingraySqlRowMapper<T> {
+
+    T map(ResultSet resultSet) throws SQLException;
+}
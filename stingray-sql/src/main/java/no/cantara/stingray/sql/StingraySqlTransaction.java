@@ -1,15 +1,38 @@
 package no.cantara.stingray.sql;
 
 import java.sql.Connection;
+import java.util.stream.Stream;
 
 public interface StingraySqlTransaction extends AutoCloseable {
 
+    int DEFAULT_FETCH_SIZE = 1000;
+
     void commit();
 
     void rollback();
 
     Connection getConnection();
 
+    /**
+     * Query with a server side cursor that is read lazily as the stream is consumed, so that large results can be
+     * processed with constant memory. The stream must be closed, preferably with try-with-resources, to release the
+     * statement and result set, this is done automatically when all rows have been read.
+     *
+     * @param binder    binds the parameters of the query, may be null if the query has no parameters.
+     * @param rowMapper maps each row to an element of the stream.
+     */
+    default <T> Stream<T> stream(String sql, StingraySqlRowBinder binder, StingraySqlRowMapper<T> rowMapper) throws StingraySqlException {
+        return stream(sql, binder, rowMapper, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * @param fetchSize the number of rows to fetch from the server at a time.
+     * @see #stream(String, StingraySqlRowBinder, StingraySqlRowMapper)
+     */
+    default <T> Stream<T> stream(String sql, StingraySqlRowBinder binder, StingraySqlRowMapper<T> rowMapper, int fetchSize) throws StingraySqlException {
+        return StingraySqlResultStream.stream(getConnection(), sql, binder, rowMapper, fetchSize);
+    }
+
     /**
      * Closing the transaction will roll back any uncommitted work and close all related transaction resources
      * including the underlying connection.
@@ -7,6 +7,14 @@ public interface StingraySqlTransactionFactory {
 
     StingraySqlTransaction createTransaction() throws StingraySqlException;
 
+    /**
+     * A transaction for queries only, which a factory with read replicas may serve from a replica. Replicas can lag
+     * behind, so do not use this to read something that was just written.
+     */
+    default StingraySqlTransaction createReadOnlyTransaction() throws StingraySqlException {
+        return createTransaction();
+    }
+
     default void runInTransaction(Consumer<StingraySqlTransaction> work) throws StingraySqlException {
         try (StingraySqlTransaction transaction = createTransaction()) {
             work.accept(transaction);
@@ -21,4 +29,11 @@ public interface StingraySqlTransactionFactory {
             return result;
         }
     }
+
+    /**
+     * @param sql the statement to execute for every row, e.g. INSERT INTO person(id, name) VALUES (?, ?)
+     */
+    default StingraySqlBatchWriter.Builder batchWriter(String sql) {
+        return StingraySqlBatchWriter.builder(this).sql(sql);
+    }
 }
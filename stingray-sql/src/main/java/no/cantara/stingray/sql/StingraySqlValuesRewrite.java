@@ -0,0 +1,132 @@
+package no.cantara.stingray.sql;
+
+/**
+ * Rewrites an INSERT ... VALUES (?, ?, ...) statement to insert several rows with a single statement, i.e.
+ * INSERT ... VALUES (?, ?, ...), (?, ?, ...), ... Anything following the VALUES list, such as ON CONFLICT, is kept.
+ */
+class StingraySqlValuesRewrite {
+
+    /**
+     * The maximum number of bind parameters in a single postgres statement.
+     */
+    static final int MAX_PARAMETERS = 32767;
+
+    static StingraySqlValuesRewrite parse(String sql) {
+        int valuesEnd = -1;
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i);
+                continue;
+            }
+            if (regionMatchesKeyword(sql, i, "VALUES")) {
+                valuesEnd = i + "VALUES".length();
+                break;
+            }
+            i++;
+        }
+        if (valuesEnd == -1) {
+            throw new IllegalArgumentException("Unable to rewrite statement to multi-row VALUES, missing VALUES: " + sql);
+        }
+        int rowStart = valuesEnd;
+        while (rowStart < sql.length() && Character.isWhitespace(sql.charAt(rowStart))) {
+            rowStart++;
+        }
+        if (rowStart == sql.length() || sql.charAt(rowStart) != '(') {
+            throw new IllegalArgumentException("Unable to rewrite statement to multi-row VALUES, expected '(' after VALUES: " + sql);
+        }
+        int depth = 0;
+        int parameters = 0;
+        i = rowStart;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i);
+                continue;
+            }
+            if (c == '?') {
+                parameters++;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0) {
+                    break;
+                }
+            }
+            i++;
+        }
+        if (depth != 0) {
+            throw new IllegalArgumentException("Unable to rewrite statement to multi-row VALUES, unbalanced parentheses: " + sql);
+        }
+        if (parameters == 0) {
+            throw new IllegalArgumentException("Unable to rewrite statement to multi-row VALUES, no parameters: " + sql);
+        }
+        return new StingraySqlValuesRewrite(sql.substring(0, rowStart), sql.substring(rowStart, i + 1), sql.substring(i + 1), parameters);
+    }
+
+    private static boolean regionMatchesKeyword(String sql, int i, String keyword) {
+        if (!sql.regionMatches(true, i, keyword, 0, keyword.length())) {
+            return false;
+        }
+        if (i > 0 && Character.isJavaIdentifierPart(sql.charAt(i - 1))) {
+            return false;
+        }
+        int end = i + keyword.length();
+        return end == sql.length() || !Character.isJavaIdentifierPart(sql.charAt(end));
+    }
+
+    private static int skipQuoted(String sql, int start) {
+        char quote = sql.charAt(start);
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2; // escaped quote
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private final String prefix;
+    private final String row;
+    private final String suffix;
+    private final int parametersPerRow;
+
+    private StingraySqlValuesRewrite(String prefix, String row, String suffix, int parametersPerRow) {
+        this.prefix = prefix;
+        this.row = row;
+        this.suffix = suffix;
+        this.parametersPerRow = parametersPerRow;
+    }
+
+    int parametersPerRow() {
+        return parametersPerRow;
+    }
+
+    /**
+     * @return the largest number of rows that can be inserted with one statement without exceeding the limit on bind
+     * parameters.
+     */
+    int maxRowsPerStatement() {
+        return MAX_PARAMETERS / parametersPerRow;
+    }
+
+    String sql(int rows) {
+        StringBuilder sb = new StringBuilder(prefix.length() + (row.length() + 2) * rows + suffix.length());
+        sb.append(prefix);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(row);
+        }
+        sb.append(suffix);
+        return sb.toString();
+    }
+}
@@ -1,5 +1,6 @@
 package no.cantara.stingray.sql.hikari;
 
+import com.codahale.metrics.MetricRegistry;
 import com.zaxxer.hikari.HikariDataSource;
 import no.cantara.stingray.sql.StingraySqlDatasource;
 import org.slf4j.Logger;
@@ -18,6 +19,14 @@ public class HikariStingraySqlDatasource implements StingraySqlDatasource {
         return dataSource;
     }
 
+    /**
+     * Record pool metrics such as connection wait time, usage, pending threads and timeouts, named
+     * &lt;pool-name&gt;.pool.*, in the given registry. Can only be called once.
+     */
+    public void registerPoolMetrics(MetricRegistry metricRegistry) {
+        dataSource.setMetricRegistry(metricRegistry);
+    }
+
     @Override
     public String info() {
         return dataSource.getJdbcUrl();
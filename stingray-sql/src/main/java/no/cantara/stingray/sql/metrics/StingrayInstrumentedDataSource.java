@@ -0,0 +1,252 @@
+package no.cantara.stingray.sql.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import no.cantara.stingray.sql.StingraySqlBatchWriter;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Times every execute* call of the statements created through this datasource, per SQL fingerprint, and records the
+ * number of rows returned by queries, or affected by updates. Connections and statements are wrapped, but
+ * {@link java.sql.Wrapper#unwrap(Class)} reaches the driver objects, e.g. for COPY.
+ */
+public class StingrayInstrumentedDataSource implements DataSource {
+
+    public static final int DEFAULT_MAX_FINGERPRINTS = 500;
+
+    private final DataSource delegate;
+    private final StingraySqlStatementMetrics statementMetrics;
+
+    public StingrayInstrumentedDataSource(DataSource delegate, MetricRegistry metricRegistry) {
+        this(delegate, metricRegistry, DEFAULT_MAX_FINGERPRINTS);
+    }
+
+    public StingrayInstrumentedDataSource(DataSource delegate, MetricRegistry metricRegistry, int maxFingerprints) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.statementMetrics = new StingraySqlStatementMetrics(Objects.requireNonNull(metricRegistry), maxFingerprints);
+    }
+
+    public DataSource getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return instrument(delegate.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return instrument(delegate.getConnection(username, password));
+    }
+
+    /**
+     * @return the connection, instrumented as the connections of this datasource.
+     */
+    public Connection instrument(Connection connection) {
+        return proxy(Connection.class, new ConnectionHandler(connection));
+    }
+
+    /**
+     * @return a listener that records the latency of each batch of a batch writer of the given statement, and the
+     * rows written, see {@link StingraySqlBatchWriter.Builder#batchListener}.
+     */
+    public StingraySqlBatchWriter.BatchListener batchListener(String sql) {
+        StingraySqlStatementMetrics.BatchMetrics metrics = statementMetrics.batchMetrics(sql);
+        return (rows, durationNanos) -> {
+            metrics.timer.update(durationNanos, TimeUnit.NANOSECONDS);
+            metrics.rows.mark(rows);
+        };
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(delegate)) {
+            return iface.cast(delegate);
+        }
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(delegate) || delegate.isWrapperFor(iface);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(StingrayInstrumentedDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = StingrayInstrumentedDataSource.invoke(connection, method, args);
+            String name = method.getName();
+            if (result instanceof CallableStatement && name.equals("prepareCall")) {
+                return proxy(CallableStatement.class, new StatementHandler((Statement) result, (Connection) proxy, (String) args[0]));
+            }
+            if (result instanceof PreparedStatement && name.equals("prepareStatement")) {
+                return proxy(PreparedStatement.class, new StatementHandler((Statement) result, (Connection) proxy, (String) args[0]));
+            }
+            if (result instanceof Statement && name.equals("createStatement")) {
+                return proxy(Statement.class, new StatementHandler((Statement) result, (Connection) proxy, null));
+            }
+            return result;
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        final Statement statement;
+        final Connection connection;
+        final String preparedSql;
+        String lastSql;
+
+        StatementHandler(Statement statement, Connection connection, String preparedSql) {
+            this.statement = statement;
+            this.connection = connection;
+            this.preparedSql = preparedSql;
+            this.lastSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getConnection")) {
+                return connection;
+            }
+            if (name.equals("getResultSet")) {
+                ResultSet resultSet = (ResultSet) StingrayInstrumentedDataSource.invoke(statement, method, args);
+                return resultSet == null ? null : countingResultSet(resultSet, lastSql);
+            }
+            if (!name.startsWith("execute")) {
+                return StingrayInstrumentedDataSource.invoke(statement, method, args);
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            lastSql = sql;
+            StingraySqlStatementMetrics.StatementMetrics metrics = statementMetrics.metrics(sql);
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = StingrayInstrumentedDataSource.invoke(statement, method, args);
+            } finally {
+                metrics.timer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            if (result instanceof ResultSet) {
+                return countingResultSet((ResultSet) result, sql);
+            }
+            if (result instanceof Integer || result instanceof Long) {
+                metrics.rows.update(((Number) result).longValue());
+            } else if (result instanceof int[]) {
+                metrics.rows.update(sum((int[]) result));
+            } else if (result instanceof long[]) {
+                long rows = 0;
+                for (long count : (long[]) result) {
+                    rows += Math.max(count, 0);
+                }
+                metrics.rows.update(rows);
+            }
+            return result;
+        }
+
+        private long sum(int[] counts) {
+            long rows = 0;
+            for (int count : counts) {
+                rows += Math.max(count, 0); // SUCCESS_NO_INFO and EXECUTE_FAILED are negative
+            }
+            return rows;
+        }
+
+        private ResultSet countingResultSet(ResultSet resultSet, String sql) {
+            return proxy(ResultSet.class, new ResultSetHandler(resultSet, statementMetrics.metrics(sql)));
+        }
+    }
+
+    private static class ResultSetHandler implements InvocationHandler {
+        final ResultSet resultSet;
+        final StingraySqlStatementMetrics.StatementMetrics metrics;
+        long rows;
+        boolean recorded;
+
+        ResultSetHandler(ResultSet resultSet, StingraySqlStatementMetrics.StatementMetrics metrics) {
+            this.resultSet = resultSet;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = StingrayInstrumentedDataSource.invoke(resultSet, method, args);
+            String name = method.getName();
+            if (name.equals("next")) {
+                if (Boolean.TRUE.equals(result)) {
+                    rows++;
+                } else {
+                    record();
+                }
+            } else if (name.equals("close")) {
+                record();
+            }
+            return result;
+        }
+
+        private void record() {
+            if (!recorded) {
+                recorded = true;
+                metrics.rows.update(rows);
+            }
+        }
+    }
+}
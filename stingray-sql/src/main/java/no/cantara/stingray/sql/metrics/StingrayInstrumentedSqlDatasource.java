@@ -0,0 +1,109 @@
+package no.cantara.stingray.sql.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import no.cantara.stingray.sql.StingraySqlBatchWriter;
+import no.cantara.stingray.sql.StingraySqlDatasource;
+import no.cantara.stingray.sql.StingraySqlException;
+import no.cantara.stingray.sql.StingraySqlTransaction;
+import no.cantara.stingray.sql.hikari.HikariStingraySqlDatasource;
+import no.cantara.stingray.sql.routing.StingrayRoutingSqlDatasource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Objects;
+
+/**
+ * Records statement metrics, and pool metrics when the datasource is a hikari or routing pool, in the given registry.
+ * Register the registry in the application metrics, e.g.
+ * <pre>
+ * MetricRegistry sqlMetricRegistry = application.init("metrics.sql", MetricRegistry::new);
+ * ((MetricRegistry) application.get("metrics.base")).register("sql", sqlMetricRegistry);
+ * StingraySqlDatasource datasource = StingrayInstrumentedSqlDatasource.instrument(hikariDatasource, sqlMetricRegistry);
+ * </pre>
+ */
+public class StingrayInstrumentedSqlDatasource implements StingraySqlDatasource {
+
+    public static StingrayInstrumentedSqlDatasource instrument(StingraySqlDatasource datasource, MetricRegistry metricRegistry) {
+        if (datasource instanceof HikariStingraySqlDatasource) {
+            ((HikariStingraySqlDatasource) datasource).registerPoolMetrics(metricRegistry);
+        } else if (datasource instanceof StingrayRoutingSqlDatasource) {
+            StingrayRoutingSqlDatasource routingDatasource = (StingrayRoutingSqlDatasource) datasource;
+            routingDatasource.getPrimary().registerPoolMetrics(metricRegistry);
+            routingDatasource.getReplicas().values().forEach(replica -> replica.registerPoolMetrics(metricRegistry));
+        }
+        return new StingrayInstrumentedSqlDatasource(datasource, new StingrayInstrumentedDataSource(datasource.getDataSource(), metricRegistry));
+    }
+
+    private final StingraySqlDatasource delegate;
+    private final StingrayInstrumentedDataSource dataSource;
+
+    public StingrayInstrumentedSqlDatasource(StingraySqlDatasource delegate, StingrayInstrumentedDataSource dataSource) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.dataSource = Objects.requireNonNull(dataSource);
+    }
+
+    public StingraySqlDatasource getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * The read-only transaction of the underlying datasource, e.g. on a replica, with an instrumented connection.
+     */
+    @Override
+    public StingraySqlTransaction createReadOnlyTransaction() throws StingraySqlException {
+        return new InstrumentedTransaction(delegate.createReadOnlyTransaction(), dataSource);
+    }
+
+    /**
+     * A batch writer that records the batch latency and rows written, unless another batch listener is set.
+     */
+    @Override
+    public StingraySqlBatchWriter.Builder batchWriter(String sql) {
+        return StingraySqlBatchWriter.builder(this).sql(sql).batchListener(dataSource.batchListener(sql));
+    }
+
+    @Override
+    public String info() {
+        return delegate.info();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    static class InstrumentedTransaction implements StingraySqlTransaction {
+        final StingraySqlTransaction transaction;
+        final Connection connection;
+
+        InstrumentedTransaction(StingraySqlTransaction transaction, StingrayInstrumentedDataSource dataSource) {
+            this.transaction = transaction;
+            this.connection = dataSource.instrument(transaction.getConnection());
+        }
+
+        @Override
+        public void commit() {
+            transaction.commit();
+        }
+
+        @Override
+        public void rollback() {
+            transaction.rollback();
+        }
+
+        @Override
+        public Connection getConnection() {
+            return connection;
+        }
+
+        @Override
+        public void close() {
+            transaction.close();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package no.cantara.stingray.sql.metrics;
+
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes SQL so that statements that differ only in literal values, the length of IN-lists or the number of rows
+ * in a multi-row VALUES share a fingerprint.
+ */
+class StingraySqlFingerprint {
+
+    static final int MAX_LENGTH = 200;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern POSITIONAL_PARAMETER = Pattern.compile("\\$\\d+");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern REPEATED_ROWS = Pattern.compile("\\(\\?\\)(?:\\s*,\\s*\\(\\?\\))+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    static String of(String sql) {
+        if (sql == null) {
+            return "unknown";
+        }
+        String fingerprint = STRING_LITERAL.matcher(sql).replaceAll("?");
+        fingerprint = NUMERIC_LITERAL.matcher(fingerprint).replaceAll("?");
+        fingerprint = POSITIONAL_PARAMETER.matcher(fingerprint).replaceAll("?");
+        fingerprint = WHITESPACE.matcher(fingerprint).replaceAll(" ").trim();
+        fingerprint = PARAMETER_LIST.matcher(fingerprint).replaceAll("(?)");
+        fingerprint = REPEATED_ROWS.matcher(fingerprint).replaceAll("(?)");
+        if (fingerprint.endsWith(";")) {
+            fingerprint = fingerprint.substring(0, fingerprint.length() - 1).trim();
+        }
+        if (fingerprint.length() > MAX_LENGTH) {
+            fingerprint = fingerprint.substring(0, MAX_LENGTH) + "..." + Integer.toHexString(fingerprint.hashCode());
+        }
+        return fingerprint;
+    }
+}
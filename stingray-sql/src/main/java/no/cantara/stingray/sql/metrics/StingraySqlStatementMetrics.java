@@ -0,0 +1,102 @@
+package no.cantara.stingray.sql.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A timer and a rows histogram per SQL fingerprint, named statements.&lt;fingerprint&gt; and
+ * statements.&lt;fingerprint&gt;.rows. To bound the number of metrics, statements beyond max-fingerprints distinct
+ * fingerprints are recorded as statements.other. Batch writes get a timer of the batch latency and a meter of the rows
+ * written, named batches.&lt;fingerprint&gt; and batches.&lt;fingerprint&gt;.rows, bounded the same way. The Prometheus servlet exposes these names with a hash suffix, as
+ * fingerprints are not valid Prometheus names.
+ */
+class StingraySqlStatementMetrics {
+
+    static final int MAX_CACHED_SQL = 10000;
+
+    static class StatementMetrics {
+        final Timer timer;
+        final Histogram rows;
+
+        StatementMetrics(Timer timer, Histogram rows) {
+            this.timer = timer;
+            this.rows = rows;
+        }
+    }
+
+    static class BatchMetrics {
+        final Timer timer;
+        final Meter rows;
+
+        BatchMetrics(Timer timer, Meter rows) {
+            this.timer = timer;
+            this.rows = rows;
+        }
+    }
+
+    private final MetricRegistry metricRegistry;
+    private final int maxFingerprints;
+    private final Map<String, StatementMetrics> metricsBySql = new ConcurrentHashMap<>();
+    private final Map<String, StatementMetrics> metricsByFingerprint = new ConcurrentHashMap<>();
+    private final Map<String, BatchMetrics> batchMetricsByFingerprint = new ConcurrentHashMap<>();
+    private final StatementMetrics other;
+
+    StingraySqlStatementMetrics(MetricRegistry metricRegistry, int maxFingerprints) {
+        this.metricRegistry = metricRegistry;
+        this.maxFingerprints = maxFingerprints;
+        this.other = create("other");
+    }
+
+    StatementMetrics metrics(String sql) {
+        if (sql == null) {
+            return other;
+        }
+        StatementMetrics metrics = metricsBySql.get(sql);
+        if (metrics != null) {
+            return metrics;
+        }
+        metrics = metricsForFingerprint(StingraySqlFingerprint.of(sql));
+        if (metricsBySql.size() < MAX_CACHED_SQL) {
+            metricsBySql.put(sql, metrics); // statements with inlined literals would otherwise grow the cache forever
+        }
+        return metrics;
+    }
+
+    private StatementMetrics metricsForFingerprint(String fingerprint) {
+        StatementMetrics metrics = metricsByFingerprint.get(fingerprint);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (metricsByFingerprint.size() >= maxFingerprints) {
+            return other;
+        }
+        return metricsByFingerprint.computeIfAbsent(fingerprint, this::create);
+    }
+
+    private StatementMetrics create(String fingerprint) {
+        String name = MetricRegistry.name("statements", fingerprint);
+        return new StatementMetrics(metricRegistry.timer(name), metricRegistry.histogram(MetricRegistry.name(name, "rows")));
+    }
+
+    BatchMetrics batchMetrics(String sql) {
+        String fingerprint = StingraySqlFingerprint.of(sql);
+        BatchMetrics metrics = batchMetricsByFingerprint.get(fingerprint);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (batchMetricsByFingerprint.size() >= maxFingerprints) {
+            fingerprint = "other";
+        }
+        return batchMetricsByFingerprint.computeIfAbsent(fingerprint, this::createBatchMetrics);
+    }
+
+    private BatchMetrics createBatchMetrics(String fingerprint) {
+        String name = MetricRegistry.name("batches", fingerprint);
+        return new BatchMetrics(metricRegistry.timer(name), metricRegistry.meter(MetricRegistry.name(name, "rows")));
+    }
+}
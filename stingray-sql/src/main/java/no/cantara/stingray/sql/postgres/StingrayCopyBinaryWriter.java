@@ -0,0 +1,153 @@
+package no.cantara.stingray.sql.postgres;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Writes rows in the binary format of COPY ... (FORMAT binary). Each row starts with {@link #row(int)} followed by
+ * exactly that many values, each written with the method matching the type of its column.
+ */
+public class StingrayCopyBinaryWriter {
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0};
+    private static final Instant POSTGRES_EPOCH = Instant.parse("2000-01-01T00:00:00Z");
+    private static final long POSTGRES_EPOCH_DAY = LocalDate.of(2000, 1, 1).toEpochDay();
+
+    private final DataOutputStream out;
+    private int remainingFields;
+
+    StingrayCopyBinaryWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 8192));
+        this.out.write(SIGNATURE);
+        this.out.writeInt(0); // flags
+        this.out.writeInt(0); // header extension length
+    }
+
+    public StingrayCopyBinaryWriter row(int fields) throws IOException {
+        checkRowComplete();
+        out.writeShort(fields);
+        remainingFields = fields;
+        return this;
+    }
+
+    public StingrayCopyBinaryWriter writeNull() throws IOException {
+        field(-1);
+        return this;
+    }
+
+    /**
+     * For text, varchar and other character columns.
+     */
+    public StingrayCopyBinaryWriter writeText(String value) throws IOException {
+        if (value == null) {
+            return writeNull();
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        field(bytes.length);
+        out.write(bytes);
+        return this;
+    }
+
+    /**
+     * For integer (int4) columns.
+     */
+    public StingrayCopyBinaryWriter writeInt(int value) throws IOException {
+        field(4);
+        out.writeInt(value);
+        return this;
+    }
+
+    /**
+     * For bigint (int8) columns.
+     */
+    public StingrayCopyBinaryWriter writeLong(long value) throws IOException {
+        field(8);
+        out.writeLong(value);
+        return this;
+    }
+
+    /**
+     * For double precision (float8) columns.
+     */
+    public StingrayCopyBinaryWriter writeDouble(double value) throws IOException {
+        field(8);
+        out.writeDouble(value);
+        return this;
+    }
+
+    public StingrayCopyBinaryWriter writeBoolean(boolean value) throws IOException {
+        field(1);
+        out.writeByte(value ? 1 : 0);
+        return this;
+    }
+
+    /**
+     * For bytea columns.
+     */
+    public StingrayCopyBinaryWriter writeBytes(byte[] value) throws IOException {
+        if (value == null) {
+            return writeNull();
+        }
+        field(value.length);
+        out.write(value);
+        return this;
+    }
+
+    public StingrayCopyBinaryWriter writeUuid(UUID value) throws IOException {
+        if (value == null) {
+            return writeNull();
+        }
+        field(16);
+        out.writeLong(value.getMostSignificantBits());
+        out.writeLong(value.getLeastSignificantBits());
+        return this;
+    }
+
+    /**
+     * For timestamp with time zone columns, with microsecond precision.
+     */
+    public StingrayCopyBinaryWriter writeTimestamp(Instant value) throws IOException {
+        if (value == null) {
+            return writeNull();
+        }
+        field(8);
+        out.writeLong(ChronoUnit.MICROS.between(POSTGRES_EPOCH, value));
+        return this;
+    }
+
+    public StingrayCopyBinaryWriter writeDate(LocalDate value) throws IOException {
+        if (value == null) {
+            return writeNull();
+        }
+        field(4);
+        out.writeInt((int) (value.toEpochDay() - POSTGRES_EPOCH_DAY));
+        return this;
+    }
+
+    private void field(int length) throws IOException {
+        if (remainingFields == 0) {
+            throw new IllegalStateException("More values than declared in row(fields)");
+        }
+        remainingFields--;
+        out.writeInt(length);
+    }
+
+    private void checkRowComplete() {
+        if (remainingFields != 0) {
+            throw new IllegalStateException(String.format("Row is missing %d values", remainingFields));
+        }
+    }
+
+    void finish() throws IOException {
+        checkRowComplete();
+        out.writeShort(-1);
+        out.flush();
+    }
+}
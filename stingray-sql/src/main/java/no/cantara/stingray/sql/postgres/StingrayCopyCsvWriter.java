@@ -0,0 +1,67 @@
+package no.cantara.stingray.sql.postgres;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes rows in the CSV format of COPY ... (FORMAT csv) with the default delimiter, quote and null settings. A
+ * null value is written as an unquoted empty field, and an empty string as "".
+ */
+public class StingrayCopyCsvWriter {
+
+    private final Writer writer;
+
+    StingrayCopyCsvWriter(OutputStream out) {
+        this.writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    }
+
+    public StingrayCopyCsvWriter row(Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values[i];
+            if (value != null) {
+                writeValue(value.toString());
+            }
+        }
+        writer.write('\n');
+        return this;
+    }
+
+    private void writeValue(String value) throws IOException {
+        if (!needsQuoting(value)) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static boolean needsQuoting(String value) {
+        if (value.isEmpty() || value.equals("\\.")) {
+            return true; // distinguish from null, and from the end-of-data marker
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void flush() throws IOException {
+        writer.flush();
+    }
+}
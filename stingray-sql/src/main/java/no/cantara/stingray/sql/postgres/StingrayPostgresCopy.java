@@ -0,0 +1,191 @@
+package no.cantara.stingray.sql.postgres;
+
+import no.cantara.stingray.sql.StingraySqlException;
+import no.cantara.stingray.sql.StingraySqlTransaction;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.PGCopyInputStream;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Bulk load and export with the postgres COPY protocol, which is much faster than even batched INSERTs. Rows are
+ * streamed to and from the server through a fixed size buffer, so neither loading nor exporting materializes the data
+ * in memory, and a slow consumer or producer throttles the other end through the connection.
+ * <p>
+ * Works on connections from any pool that supports {@link Connection#unwrap(Class)} to the postgres driver connection,
+ * such as hikari.
+ */
+public class StingrayPostgresCopy {
+
+    private static final Logger log = LoggerFactory.getLogger(StingrayPostgresCopy.class);
+
+    static final int DEFAULT_BUFFER_SIZE = 65536;
+
+    /**
+     * Writes rows to a COPY ... FROM STDIN operation.
+     */
+    @FunctionalInterface
+    public interface CopyInWork<W> {
+        void write(W writer) throws IOException;
+    }
+
+    public static StingrayPostgresCopy of(StingraySqlTransaction transaction) throws StingraySqlException {
+        return new StingrayPostgresCopy(transaction.getConnection());
+    }
+
+    private final CopyManager copyManager;
+    private final PGConnection connection;
+    private final int bufferSize;
+
+    public StingrayPostgresCopy(Connection connection) throws StingraySqlException {
+        this(connection, DEFAULT_BUFFER_SIZE);
+    }
+
+    public StingrayPostgresCopy(Connection connection, int bufferSize) throws StingraySqlException {
+        try {
+            this.connection = connection.unwrap(PGConnection.class);
+            this.copyManager = this.connection.getCopyAPI();
+        } catch (SQLException e) {
+            throw new StingraySqlException("COPY requires a postgres connection", e);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Load rows written as CSV, e.g. COPY person(person_id, firstname, lastname) FROM STDIN (FORMAT csv).
+     *
+     * @return the number of rows loaded.
+     */
+    public long copyInCsv(String sql, CopyInWork<StingrayCopyCsvWriter> work) throws StingraySqlException {
+        return copyIn(sql, out -> {
+            StingrayCopyCsvWriter writer = new StingrayCopyCsvWriter(out);
+            work.write(writer);
+            writer.flush();
+        });
+    }
+
+    /**
+     * Load rows written in the postgres binary format, e.g. COPY person(person_id, firstname, lastname) FROM STDIN
+     * (FORMAT binary). The binary format avoids text parsing on the server, but every value must be written with
+     * the exact type of its column.
+     *
+     * @return the number of rows loaded.
+     */
+    public long copyInBinary(String sql, CopyInWork<StingrayCopyBinaryWriter> work) throws StingraySqlException {
+        return copyIn(sql, out -> {
+            StingrayCopyBinaryWriter writer = new StingrayCopyBinaryWriter(out);
+            work.write(writer);
+            writer.finish();
+        });
+    }
+
+    /**
+     * Load the content of the input stream, which must be in the format given in the COPY statement.
+     *
+     * @return the number of rows loaded.
+     */
+    public long copyIn(String sql, InputStream in) throws StingraySqlException {
+        try {
+            return copyManager.copyIn(sql, in, bufferSize);
+        } catch (SQLException | IOException e) {
+            throw new StingraySqlException(e);
+        }
+    }
+
+    /**
+     * Load the content of the reader, which must be in the text or CSV format given in the COPY statement.
+     *
+     * @return the number of rows loaded.
+     */
+    public long copyIn(String sql, Reader in) throws StingraySqlException {
+        try {
+            return copyManager.copyIn(sql, in, bufferSize);
+        } catch (SQLException | IOException e) {
+            throw new StingraySqlException(e);
+        }
+    }
+
+    /**
+     * Load everything written to the output stream given to the work, which must be in the format given in the COPY
+     * statement. If the work fails, the COPY is cancelled and nothing is loaded.
+     *
+     * @return the number of rows loaded.
+     */
+    public long copyIn(String sql, CopyInWork<OutputStream> work) throws StingraySqlException {
+        PGCopyOutputStream out;
+        try {
+            out = new PGCopyOutputStream(connection, sql, bufferSize);
+        } catch (SQLException e) {
+            throw new StingraySqlException(e);
+        }
+        try {
+            work.write(out);
+            return out.endCopy();
+        } catch (IOException | SQLException | RuntimeException e) {
+            cancel(out);
+            if (e instanceof StingraySqlException) {
+                throw (StingraySqlException) e;
+            }
+            throw new StingraySqlException("COPY failed: " + sql, e);
+        }
+    }
+
+    private static void cancel(PGCopyOutputStream out) {
+        if (out.isActive()) {
+            try {
+                out.cancelCopy();
+            } catch (SQLException e) {
+                log.warn("While cancelling COPY", e);
+            }
+        }
+    }
+
+    /**
+     * Export the result of e.g. COPY (SELECT ...) TO STDOUT (FORMAT csv) to the output stream.
+     *
+     * @return the number of rows exported.
+     */
+    public long copyOut(String sql, OutputStream out) throws StingraySqlException {
+        try {
+            return copyManager.copyOut(sql, out);
+        } catch (SQLException | IOException e) {
+            throw new StingraySqlException(e);
+        }
+    }
+
+    /**
+     * Export the result of e.g. COPY (SELECT ...) TO STDOUT (FORMAT csv) to the writer.
+     *
+     * @return the number of rows exported.
+     */
+    public long copyOut(String sql, Writer out) throws StingraySqlException {
+        try {
+            return copyManager.copyOut(sql, out);
+        } catch (SQLException | IOException e) {
+            throw new StingraySqlException(e);
+        }
+    }
+
+    /**
+     * Export the result of a COPY ... TO STDOUT as a stream that is read from the server as it is consumed. The
+     * connection can not be used for anything else until the stream is closed, closing it before the end cancels the
+     * COPY.
+     */
+    public InputStream copyOut(String sql) throws StingraySqlException {
+        try {
+            return new PGCopyInputStream(connection, sql);
+        } catch (SQLException e) {
+            throw new StingraySqlException(e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package no.cantara.stingray.sql.routing;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Estimates the replication lag of replicas from samples of the WAL position of the primary. A replica that has
+ * replayed up to a position is at least as far behind as the time since the primary first was past that position.
+ * Unlike the replay timestamp of the replica, this also covers a replica that has lost its connection to the primary,
+ * which has replayed everything it has received, and an idle primary, which produces no transactions to replay. The
+ * resolution is the interval between samples.
+ * <p>
+ * Not thread-safe, used by the health-checker thread only.
+ */
+class StingrayReplicationLagTracker {
+
+    static final String PRIMARY_LSN_SQL = "SELECT pg_current_wal_lsn()::text";
+
+    /**
+     * The position replayed by a replica, null on a server that is not a replica.
+     */
+    static final String REPLAY_LSN_SQL = "SELECT pg_last_wal_replay_lsn()::text";
+
+    private final long maxLagMs;
+    private final Deque<long[]> samples = new ArrayDeque<>(); // {lsn, millis}, ascending
+
+    StingrayReplicationLagTracker(long maxLagMs) {
+        this.maxLagMs = maxLagMs;
+    }
+
+    void recordPrimary(long lsn, long nowMs) {
+        long[] newest = samples.peekLast();
+        if (newest != null && lsn <= newest[0]) {
+            return; // no new WAL, the older sample is the one that tells how far behind a replica is
+        }
+        samples.addLast(new long[]{lsn, nowMs});
+        // keep the newest sample that is older than the max lag, so that lag beyond it can be detected
+        while (samples.size() > 1) {
+            long[] oldest = samples.pollFirst();
+            long[] next = samples.peekFirst();
+            if (next[1] > nowMs - maxLagMs) {
+                samples.addFirst(oldest);
+                break;
+            }
+        }
+    }
+
+    /**
+     * @param replayLsn the position replayed by the replica, or null if it is not a replica.
+     * @return the estimated lag in milliseconds, at least the time since the primary first was past the given position.
+     */
+    long lagMs(Long replayLsn, long nowMs) {
+        if (replayLsn == null) {
+            return 0; // not in recovery, e.g. promoted
+        }
+        for (long[] sample : samples) {
+            if (sample[0] > replayLsn) {
+                return Math.max(0, nowMs - sample[1]);
+            }
+        }
+        return 0; // caught up with all samples
+    }
+
+    long maxLagMs() {
+        return maxLagMs;
+    }
+
+    /**
+     * @param lsn a WAL position as formatted by postgres, e.g. 16/B374D848.
+     */
+    static long parseLsn(String lsn) {
+        int slash = lsn.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Not a WAL position: " + lsn);
+        }
+        return Long.parseLong(lsn.substring(0, slash), 16) << 32 | Long.parseLong(lsn.substring(slash + 1), 16);
+    }
+}
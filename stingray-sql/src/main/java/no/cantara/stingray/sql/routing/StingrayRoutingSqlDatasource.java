@@ -0,0 +1,250 @@
+package no.cantara.stingray.sql.routing;
+
+import com.codahale.metrics.health.HealthCheck;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import no.cantara.stingray.sql.StingraySqlDatasource;
+import no.cantara.stingray.sql.StingraySqlException;
+import no.cantara.stingray.sql.StingraySqlTransaction;
+import no.cantara.stingray.sql.hikari.HikariStingraySqlDatasource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Routes transactions to a primary pool, and read-only transactions to the healthy replica pool with the fewest
+ * outstanding connections, i.e. active connections plus threads waiting for one. When no replica is healthy, read-only
+ * transactions are served by the primary.
+ * <p>
+ * All pools are checked in the background every health-check-interval. A replica is unhealthy when the check fails,
+ * or, when max-replication-lag is set, when it is further behind the primary than that. The lag is measured against the
+ * WAL position of the primary, sampled by the same checks, see {@link StingrayReplicationLagTracker}. Use
+ * {@link #healthChecks()} to report the health of each pool.
+ */
+public class StingrayRoutingSqlDatasource implements StingraySqlDatasource {
+
+    private static final Logger log = LoggerFactory.getLogger(StingrayRoutingSqlDatasource.class);
+
+    private final PoolHealth primary;
+    private final List<PoolHealth> replicas;
+    private final StingrayReplicationLagTracker replicationLag;
+    private final ScheduledExecutorService healthChecker;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    /**
+     * @param maxReplicationLag null or zero to not check replication lag.
+     */
+    public StingrayRoutingSqlDatasource(HikariStingraySqlDatasource primary, Map<String, HikariStingraySqlDatasource> replicaByName, Duration maxReplicationLag, Duration healthCheckInterval) {
+        this.primary = new PoolHealth("primary", Objects.requireNonNull(primary));
+        List<PoolHealth> replicas = new ArrayList<>();
+        replicaByName.forEach((name, replica) -> replicas.add(new PoolHealth(name, replica)));
+        this.replicas = Collections.unmodifiableList(replicas);
+        this.replicationLag = maxReplicationLag == null || maxReplicationLag.isZero() ? null : new StingrayReplicationLagTracker(maxReplicationLag.toMillis());
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sql-routing-health-checker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkPools, 0, healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public DataSource getDataSource() {
+        return primary.datasource.getDataSource();
+    }
+
+    public HikariStingraySqlDatasource getPrimary() {
+        return primary.datasource;
+    }
+
+    public Map<String, HikariStingraySqlDatasource> getReplicas() {
+        Map<String, HikariStingraySqlDatasource> replicaByName = new LinkedHashMap<>();
+        for (PoolHealth replica : replicas) {
+            replicaByName.put(replica.name, replica.datasource);
+        }
+        return replicaByName;
+    }
+
+    @Override
+    public StingraySqlTransaction createReadOnlyTransaction() throws StingraySqlException {
+        PoolHealth replica;
+        while ((replica = leastOutstandingHealthyReplica()) != null) {
+            try {
+                return readOnly(replica.datasource.createTransaction());
+            } catch (StingraySqlException e) {
+                replica.unhealthy(e.toString());
+                log.warn("Replica {} failed, routing read-only transactions elsewhere until it recovers", replica.name, e);
+            }
+        }
+        return readOnly(primary.datasource.createTransaction());
+    }
+
+    PoolHealth leastOutstandingHealthyReplica() {
+        if (replicas.isEmpty()) {
+            return null;
+        }
+        // start at a rotating offset, so that ties are spread over the replicas
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        PoolHealth best = null;
+        int bestOutstanding = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            PoolHealth replica = replicas.get((start + i) % replicas.size());
+            if (!replica.healthy) {
+                continue;
+            }
+            int outstanding = replica.outstanding();
+            if (outstanding < bestOutstanding) {
+                best = replica;
+                bestOutstanding = outstanding;
+            }
+        }
+        return best;
+    }
+
+    private static StingraySqlTransaction readOnly(StingraySqlTransaction transaction) {
+        try {
+            transaction.getConnection().setReadOnly(true);
+            return transaction;
+        } catch (SQLException e) {
+            transaction.close();
+            throw new StingraySqlException(e);
+        }
+    }
+
+    void checkPools() {
+        if (replicationLag == null) {
+            primary.checkConnection();
+            for (PoolHealth replica : replicas) {
+                replica.checkConnection();
+            }
+            return;
+        }
+        try {
+            long primaryLsn = StingrayReplicationLagTracker.parseLsn(primary.query(StingrayReplicationLagTracker.PRIMARY_LSN_SQL));
+            replicationLag.recordPrimary(primaryLsn, System.currentTimeMillis());
+            primary.healthy(String.format("outstanding connections: %d", primary.outstanding()));
+        } catch (SQLException | RuntimeException e) {
+            primary.unhealthy(e.toString());
+        }
+        for (PoolHealth replica : replicas) {
+            try {
+                String replayLsn = replica.query(StingrayReplicationLagTracker.REPLAY_LSN_SQL);
+                long lagMs = replicationLag.lagMs(replayLsn == null ? null : StingrayReplicationLagTracker.parseLsn(replayLsn), System.currentTimeMillis());
+                if (lagMs > replicationLag.maxLagMs()) {
+                    replica.unhealthy(String.format("replication lag %d ms exceeds %d ms", lagMs, replicationLag.maxLagMs()));
+                } else {
+                    replica.healthy(String.format("replication lag %d ms, outstanding connections: %d", lagMs, replica.outstanding()));
+                }
+            } catch (SQLException | RuntimeException e) {
+                replica.unhealthy(e.toString());
+            }
+        }
+    }
+
+    /**
+     * @return a health-check per pool, keyed by pool name, i.e. primary and the replica names, e.g. to register with
+     * the application health service.
+     */
+    public Map<String, HealthCheck> healthChecks() {
+        Map<String, HealthCheck> healthCheckByName = new LinkedHashMap<>();
+        healthCheckByName.put(primary.name, primary);
+        for (PoolHealth replica : replicas) {
+            healthCheckByName.put(replica.name, replica);
+        }
+        return healthCheckByName;
+    }
+
+    @Override
+    public String info() {
+        return String.format("primary: %s, replicas: %s", primary.datasource.info(), replicas.stream()
+                .map(replica -> replica.name + ": " + replica.datasource.info())
+                .collect(Collectors.joining(", ", "[", "]")));
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+        for (PoolHealth replica : replicas) {
+            replica.datasource.close();
+        }
+        primary.datasource.close();
+    }
+
+    static class PoolHealth extends HealthCheck {
+        final String name;
+        final HikariStingraySqlDatasource datasource;
+        volatile boolean healthy = true; // until checked
+        volatile String message = "not checked";
+
+        PoolHealth(String name, HikariStingraySqlDatasource datasource) {
+            this.name = name;
+            this.datasource = datasource;
+        }
+
+        int outstanding() {
+            HikariPoolMXBean pool = datasource.getDataSource().getHikariPoolMXBean();
+            if (pool == null) {
+                return 0;
+            }
+            return pool.getActiveConnections() + pool.getThreadsAwaitingConnection();
+        }
+
+        void checkConnection() {
+            try {
+                query("SELECT 1");
+                healthy(String.format("outstanding connections: %d", outstanding()));
+            } catch (SQLException | RuntimeException e) {
+                unhealthy(e.toString());
+            }
+        }
+
+        /**
+         * @return the first column of the single row returned by the given query.
+         */
+        String query(String sql) throws SQLException {
+            try (Connection connection = datasource.getDataSource().getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(sql)) {
+                resultSet.next();
+                return resultSet.getString(1);
+            }
+        }
+
+        void healthy(String message) {
+            if (!healthy) {
+                log.info("Pool {} is healthy again: {}", name, message);
+            }
+            this.message = message;
+            this.healthy = true;
+        }
+
+        void unhealthy(String message) {
+            if (healthy) {
+                log.warn("Pool {} is unhealthy: {}", name, message);
+            }
+            this.message = message;
+            this.healthy = false;
+        }
+
+        @Override
+        protected Result check() {
+            return healthy ? Result.healthy(message) : Result.unhealthy(message);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package no.cantara.stingray.sql.routing;
+
+import no.cantara.config.ApplicationProperties;
+import no.cantara.stingray.sql.StingraySqlDatasourceFactory;
+import no.cantara.stingray.sql.hikari.HikariStingraySqlDatasource;
+import no.cantara.stingray.sql.hikari.HikariStingraySqlDatasourceFactory;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Configured with primary.* and replica.&lt;name&gt;.* hikari pool properties, and optionally max-replication-lag-ms
+ * (0, i.e. not checked) and health-check-interval-ms (5000). Each pool is named after its role unless poolName is
+ * configured.
+ */
+public class StingrayRoutingSqlDatasourceFactory implements StingraySqlDatasourceFactory {
+
+    @Override
+    public Class<?> providerClass() {
+        return StingrayRoutingSqlDatasource.class;
+    }
+
+    @Override
+    public String alias() {
+        return "routing";
+    }
+
+    @Override
+    public StingrayRoutingSqlDatasource create(ApplicationProperties config) {
+        HikariStingraySqlDatasourceFactory hikariFactory = new HikariStingraySqlDatasourceFactory();
+        HikariStingraySqlDatasource primary = hikariFactory.create(withPoolName(config.subTree("primary").map(), "primary"));
+        Map<String, String> replicaConfig = config.subTree("replica").map();
+        TreeSet<String> replicaNames = new TreeSet<>();
+        for (String key : replicaConfig.keySet()) {
+            int dot = key.indexOf('.');
+            if (dot > 0) {
+                replicaNames.add(key.substring(0, dot));
+            }
+        }
+        Map<String, HikariStingraySqlDatasource> replicaByName = new LinkedHashMap<>();
+        for (String replicaName : replicaNames) {
+            replicaByName.put(replicaName, hikariFactory.create(withPoolName(config.subTree("replica." + replicaName).map(), replicaName)));
+        }
+        Duration maxReplicationLag = Duration.ofMillis(Long.parseLong(config.get("max-replication-lag-ms", "0")));
+        Duration healthCheckInterval = Duration.ofMillis(Long.parseLong(config.get("health-check-interval-ms", "5000")));
+        return new StingrayRoutingSqlDatasource(primary, replicaByName, maxReplicationLag, healthCheckInterval);
+    }
+
+    private static Map<String, String> withPoolName(Map<String, String> poolConfig, String poolName) {
+        Map<String, String> result = new LinkedHashMap<>(poolConfig);
+        result.putIfAbsent("poolName", poolName);
+        return result;
+    }
+}
@@ -0,0 +1,39 @@
+package no.cantara.stingray.sql;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StingraySqlValuesRewriteTest {
+
+    @Test
+    public void thatValuesAreRepeated() {
+        StingraySqlValuesRewrite rewrite = StingraySqlValuesRewrite.parse("INSERT INTO Person(person_id, firstname, lastname) VALUES(?,?,?)");
+        assertEquals(3, rewrite.parametersPerRow());
+        assertEquals(StingraySqlValuesRewrite.MAX_PARAMETERS / 3, rewrite.maxRowsPerStatement());
+        assertEquals("INSERT INTO Person(person_id, firstname, lastname) VALUES(?,?,?)", rewrite.sql(1));
+        assertEquals("INSERT INTO Person(person_id, firstname, lastname) VALUES(?,?,?), (?,?,?), (?,?,?)", rewrite.sql(3));
+    }
+
+    @Test
+    public void thatTrailingClausesAndLiteralsAreKept() {
+        StingraySqlValuesRewrite rewrite = StingraySqlValuesRewrite.parse("insert into t (a, b, c) values (?, lower(?), 'x?') on conflict (a) do nothing");
+        assertEquals(2, rewrite.parametersPerRow());
+        assertEquals("insert into t (a, b, c) values (?, lower(?), 'x?'), (?, lower(?), 'x?') on conflict (a) do nothing", rewrite.sql(2));
+    }
+
+    @Test
+    public void thatValuesInIdentifiersAndLiteralsAreIgnored() {
+        StingraySqlValuesRewrite rewrite = StingraySqlValuesRewrite.parse("INSERT INTO my_values(\"values\", b) VALUES (?, 'VALUES')");
+        assertEquals(1, rewrite.parametersPerRow());
+        assertEquals("INSERT INTO my_values(\"values\", b) VALUES (?, 'VALUES'), (?, 'VALUES')", rewrite.sql(2));
+    }
+
+    @Test
+    public void thatStatementsWithoutValuesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> StingraySqlValuesRewrite.parse("UPDATE Person SET firstname = ? WHERE person_id = ?"));
+        assertThrows(IllegalArgumentException.class, () -> StingraySqlValuesRewrite.parse("INSERT INTO Person SELECT * FROM other"));
+        assertThrows(IllegalArgumentException.class, () -> StingraySqlValuesRewrite.parse("INSERT INTO Person VALUES ('a', 'b')"));
+    }
+}
@@ -0,0 +1,33 @@
+package no.cantara.stingray.sql.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StingraySqlFingerprintTest {
+
+    @Test
+    public void thatLiteralsAreReplaced() {
+        assertEquals("SELECT * FROM Person WHERE person_id = ? AND age > ? AND t1.x = ?",
+                StingraySqlFingerprint.of("SELECT *\n  FROM Person\n WHERE person_id = 'it''s' AND age > 42 AND t1.x = -1.5;"));
+        assertEquals("SELECT * FROM Person WHERE person_id = ?", StingraySqlFingerprint.of("SELECT * FROM Person WHERE person_id = $1"));
+    }
+
+    @Test
+    public void thatListsAndRowsAreCollapsed() {
+        assertEquals("SELECT * FROM Person WHERE person_id IN (?)", StingraySqlFingerprint.of("SELECT * FROM Person WHERE person_id IN (?, ?, ?)"));
+        assertEquals("SELECT * FROM Person WHERE person_id IN (?)", StingraySqlFingerprint.of("SELECT * FROM Person WHERE person_id IN ('a', 'b')"));
+        assertEquals("INSERT INTO Person(person_id, firstname) VALUES(?)",
+                StingraySqlFingerprint.of("INSERT INTO Person(person_id, firstname) VALUES(?,?), (?,?), (?,?)"));
+        assertEquals(StingraySqlFingerprint.of("INSERT INTO Person(person_id, firstname) VALUES(?,?)"),
+                StingraySqlFingerprint.of("INSERT INTO Person(person_id, firstname) VALUES(?,?), (?,?)"));
+    }
+
+    @Test
+    public void thatLongStatementsAreTruncated() {
+        String fingerprint = StingraySqlFingerprint.of("SELECT " + "column_name, ".repeat(100) + "x FROM t");
+        assertTrue(fingerprint.length() < StingraySqlFingerprint.MAX_LENGTH + 20);
+        assertTrue(fingerprint.startsWith("SELECT column_name, "));
+    }
+}
@@ -0,0 +1,50 @@
+package no.cantara.stingray.sql.routing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StingrayReplicationLagTrackerTest {
+
+    @Test
+    public void thatLsnIsParsed() {
+        assertEquals(0x16_B374D848L, StingrayReplicationLagTracker.parseLsn("16/B374D848"));
+        assertEquals(0L, StingrayReplicationLagTracker.parseLsn("0/0"));
+        assertThrows(IllegalArgumentException.class, () -> StingrayReplicationLagTracker.parseLsn("B374D848"));
+    }
+
+    @Test
+    public void thatCaughtUpReplicaHasNoLag() {
+        StingrayReplicationLagTracker tracker = new StingrayReplicationLagTracker(10_000);
+        tracker.recordPrimary(100, 1_000);
+        tracker.recordPrimary(200, 6_000);
+        assertEquals(0, tracker.lagMs(200L, 60_000));
+        assertEquals(0, tracker.lagMs(null, 60_000)); // not a replica
+    }
+
+    @Test
+    public void thatReplicaThatStoppedReceivingLagsBehindIdlePrimary() {
+        StingrayReplicationLagTracker tracker = new StingrayReplicationLagTracker(10_000);
+        tracker.recordPrimary(100, 1_000);
+        tracker.recordPrimary(200, 6_000);
+        // the primary is idle from here on, while the replica, which has replayed all it received, stays at 100
+        for (long now = 11_000; now <= 60_000; now += 5_000) {
+            tracker.recordPrimary(200, now);
+        }
+        assertEquals(54_000, tracker.lagMs(100L, 60_000));
+        assertEquals(0, tracker.lagMs(200L, 60_000));
+    }
+
+    @Test
+    public void thatLagBeyondMaxIsDetectedAfterOldSamplesArePruned() {
+        StingrayReplicationLagTracker tracker = new StingrayReplicationLagTracker(10_000);
+        for (long now = 0, lsn = 100; now <= 120_000; now += 5_000, lsn += 100) {
+            tracker.recordPrimary(lsn, now);
+        }
+        // replayed a position older than all kept samples, still at least the max lag behind
+        assertEquals(10_000, tracker.lagMs(0L, 120_000));
+        assertEquals(0, tracker.lagMs(2_500L, 120_000));
+        assertEquals(5_000, tracker.lagMs(2_350L, 120_000));
+    }
+}